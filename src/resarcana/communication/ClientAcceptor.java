@@ -0,0 +1,25 @@
+package resarcana.communication;
+
+/**
+ * Accepts new clients for a {@link Server} in its own thread
+ * 
+ * @author Erik Wagner
+ *
+ */
+public interface ClientAcceptor {
+
+	/**
+	 * Start accepting clients
+	 */
+	public void start();
+
+	/**
+	 * Stop accepting clients and close the listening socket
+	 */
+	public void closeSocket();
+
+	/**
+	 * @return <code>true</code> if the listening socket is closing or closed
+	 */
+	public boolean isClosed();
+}
@@ -0,0 +1,58 @@
+package resarcana.communication;
+
+/**
+ * The server side of a connection to a single client
+ * <p>
+ * Implementations decide how lines are read from and written to the socket,
+ * the {@link Server} only ever talks to its clients through this interface
+ * 
+ * @author Erik Wagner
+ *
+ */
+public interface ClientConnection {
+
+	/**
+	 * Send a single line to the client
+	 * <p>
+	 * The line is terminated like {@link java.io.PrintWriter#println(String)}
+	 * would terminate it, so old clients reading with
+	 * {@link java.io.BufferedReader#readLine()} are not affected
+	 * 
+	 * @param message the complete message including
+	 *                {@link CommunicationKeys#SEPERATOR_END}
+	 */
+	public void send(String message);
+
+	/**
+	 * Send an already encoded message to the client
+	 * <p>
+	 * Used to encode a broadcast only once for all clients of a {@link Table}
+	 * 
+	 * @param message a terminated line as returned by
+	 *                {@link WireFormat#encodeLine(String)} or a binary frame of
+	 *                {@link WireFormat}
+	 */
+	public void sendRaw(byte[] message);
+
+	/**
+	 * Request the connection to be closed
+	 */
+	public void disconnect();
+
+	/**
+	 * Close the connection right away without waiting for the client, e.g. when
+	 * the client has returned on another connection. Messages still queued may be
+	 * dropped.
+	 */
+	public void abort();
+
+	/**
+	 * @return the number of messages still waiting to be written to the client
+	 */
+	public int getPending();
+
+	/**
+	 * @return <code>true</code> if the underlying socket has been closed
+	 */
+	public boolean hasDisconnected();
+}
@@ -1,28 +1,51 @@
 package resarcana.communication;
 
-import java.io.PrintWriter;
-
+/**
+ * A seat of a {@link Table} and the client connected to it
+ * <p>
+ * A seat restored from a {@link TableLog} has no connection until its client
+ * returns, it counts as disconnected.
+ */
 public class ClientInfo {
 
 	public final int id;
 	private String name;
 	private boolean ready = false;
-	private final ListeningThread thread;
-	private final PrintWriter writer;
+	private boolean binary = false;
+	private final ClientConnection connection;
 
-	public ClientInfo(int id, String name, ListeningThread thread, PrintWriter writer) {
+	public ClientInfo(int id, String name, ClientConnection connection) {
 		this.id = id;
 		this.name = name;
-		this.thread = thread;
-		this.writer = writer;
+		this.connection = connection;
+	}
+
+	public ClientConnection getConnection() {
+		return this.connection;
+	}
+
+	public void send(String message) {
+		if (this.connection != null) {
+			this.connection.send(message);
+		}
 	}
 
-	public ListeningThread getThread() {
-		return this.thread;
+	public void sendRaw(byte[] message) {
+		if (this.connection != null) {
+			this.connection.sendRaw(message);
+		}
 	}
 
-	public PrintWriter getWriter() {
-		return this.writer;
+	/**
+	 * @param binary <code>true</code> if the client has negotiated the binary
+	 *               frames of {@link WireFormat}
+	 */
+	public void setBinary(boolean binary) {
+		this.binary = binary;
+	}
+
+	public boolean isBinary() {
+		return this.binary;
 	}
 
 	public void setReady(boolean ready) {
@@ -42,10 +65,18 @@ public class ClientInfo {
 	}
 
 	public void disconnect() {
-		this.thread.disconnect();
+		if (this.connection != null) {
+			this.connection.disconnect();
+		}
+	}
+
+	public void abort() {
+		if (this.connection != null) {
+			this.connection.abort();
+		}
 	}
 
 	public boolean hasDisconnected() {
-		return this.thread.hasDisconnected();
+		return this.connection == null || this.connection.hasDisconnected();
 	}
 }
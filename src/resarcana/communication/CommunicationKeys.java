@@ -14,6 +14,12 @@ public class CommunicationKeys {
 	public static final String MARKER_CLIENT = "Client";
 
 	public static final String META_CONNECT_NEW = "ConnectNew";
+	/**
+	 * Sent by a returning client instead of {@link #META_CONNECT_FINISH} to take
+	 * its seat again: <code>ConnectLoaded/seat#secret#count</code> with the token
+	 * of {@link #META_TOKEN} and the number of messages it has received since
+	 * {@link #GAME_START}, <code>-1</code> if it has no state at all
+	 */
 	public static final String META_CONNECT_LOADED = "ConnectLoaded";
 	public static final String META_CONNECT_FINISH = "FinishConnect";
 	public static final String META_ADD_PLAYER = "AddPlayer";
@@ -21,8 +27,42 @@ public class CommunicationKeys {
 	public static final String META_SET_READY = "Ready";
 	public static final String META_GAME_FINISHED = "GameFinished";
 	public static final String META_DISCONNECT = "Disconnect";
+	/**
+	 * Appended to {@link #META_CONNECT_FINISH} to offer respectively accept the
+	 * binary frames of {@link WireFormat}, sent by the server as message to
+	 * switch a table to them
+	 */
+	public static final String META_BINARY = "Binary";
+	/**
+	 * Sent by an authoritative server before {@link #GAME_START}: the server
+	 * validates all game messages and does all shuffles itself
+	 */
+	public static final String META_AUTHORITATIVE = "Authoritative";
+	/**
+	 * Sent by the server only to a newly seated client: <code>seat#secret</code>,
+	 * the token to take the seat again with {@link #META_CONNECT_LOADED}
+	 */
+	public static final String META_TOKEN = "Token";
+	/**
+	 * Sent to all clients when a disconnected client has taken its seat again,
+	 * the value is its id
+	 */
+	public static final String META_RECONNECT = "Reconnect";
+	/**
+	 * Sent by a client instead of {@link #META_CONNECT_FINISH} to watch a table
+	 * without taking a seat: <code>Spectate</code> for the most recently started
+	 * table or <code>Spectate/number</code> for a given one
+	 */
+	public static final String META_SPECTATE = "Spectate";
 
 	public static final String GAME_START = "Start";
+	/**
+	 * Sent by the server only to a returning client without state or a spectator:
+	 * messages of the table in their order, compressed as by
+	 * {@link TableLog#compress} and encoded as URL-safe Base64. The first one a
+	 * client receives holds all messages so far, further ones sent to a
+	 * spectator hold the messages it has missed since.
+	 */
 	public static final String GAME_RESUME = "Resume";
 	public static final String GAME_SHUFFLE = "Shuffle";
 	public static final String GAME_DEAL_CARDS = "DealCards";
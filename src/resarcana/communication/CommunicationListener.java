@@ -4,5 +4,18 @@ public interface CommunicationListener {
 
 	public void inform(String line);
 
+	/**
+	 * Called by the {@link ListeningThread} for every binary frame received
+	 * 
+	 * @param frame the complete frame of {@link WireFormat}
+	 */
+	public void informFrame(byte[] frame);
+
+	/**
+	 * Called by the {@link ListeningThread} when it has stopped listening,
+	 * whether the disconnect has been requested or not
+	 * 
+	 * @param listeningThread the thread which has stopped
+	 */
 	public void disconnected(ListeningThread listeningThread);
 }
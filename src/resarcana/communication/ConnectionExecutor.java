@@ -0,0 +1,103 @@
+package resarcana.communication;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the per-connection readers of a {@link ServerThread} and the short-lived
+ * writer tasks draining their {@link OutboundQueue}s
+ * <p>
+ * Either every reader gets its own platform thread, or, on runtimes supporting
+ * them (Java 21 and newer), its own virtual thread. Virtual threads are looked
+ * up reflectively so the server still builds for and runs on Java 8, the
+ * release targeted by the build files, where {@link #virtualThreads()} falls
+ * back to platform threads.
+ * 
+ * @author Erik Wagner
+ *
+ */
+public class ConnectionExecutor {
+
+	private final ThreadFactory factory;
+	private final Executor writers;
+	private final boolean virtual;
+
+	private ConnectionExecutor(ThreadFactory factory, Executor writers, boolean virtual) {
+		this.factory = factory;
+		this.writers = writers;
+		this.virtual = virtual;
+	}
+
+	/**
+	 * @return an executor starting a new platform thread for every connection
+	 */
+	public static ConnectionExecutor platformThreads() {
+		final AtomicInteger counter = new AtomicInteger(), writerCounter = new AtomicInteger();
+		return new ConnectionExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				return new Thread(task, "Connection-" + counter.getAndIncrement());
+			}
+		}, Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "Writer-" + writerCounter.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		}), false);
+	}
+
+	/**
+	 * @return an executor starting a new virtual thread for every connection or
+	 *         {@link #platformThreads()} if the runtime has no virtual threads
+	 */
+	public static ConnectionExecutor virtualThreads() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "Connection-", 0L);
+			Method factory = builderClass.getMethod("factory");
+			final ThreadFactory threads = (ThreadFactory) factory.invoke(builder);
+			return new ConnectionExecutor(threads, new Executor() {
+				@Override
+				public void execute(Runnable task) {
+					threads.newThread(task).start();
+				}
+			}, true);
+		} catch (ReflectiveOperationException e) {
+			ServerLog.warn("Virtual threads are not supported by this runtime ("
+					+ System.getProperty("java.version") + "), falling back to platform threads");
+			return platformThreads();
+		}
+	}
+
+	/**
+	 * Run a task in a thread of its own
+	 * 
+	 * @param task the task, usually a {@link ListeningThread}
+	 */
+	public void execute(Runnable task) {
+		this.factory.newThread(task).start();
+	}
+
+	/**
+	 * Run a short-lived writer task, platform threads are pooled for these while
+	 * every task gets a fresh virtual thread
+	 * 
+	 * @param task the task draining an {@link OutboundQueue}
+	 */
+	public void submit(Runnable task) {
+		this.writers.execute(task);
+	}
+
+	/**
+	 * @return <code>true</code> if tasks run on virtual threads
+	 */
+	public boolean usesVirtualThreads() {
+		return this.virtual;
+	}
+}
@@ -0,0 +1,41 @@
+package resarcana.communication;
+
+/**
+ * The ways a {@link Server} can serve its clients
+ * 
+ * @author Erik Wagner
+ *
+ */
+public enum ConnectionMode {
+	/**
+	 * One {@link ListeningThread} per client and blocking writes, accepted by a
+	 * {@link ServerThread}
+	 */
+	THREADED,
+	/**
+	 * Like {@link #THREADED} but every {@link ListeningThread} runs on a virtual
+	 * thread, see {@link ConnectionExecutor#virtualThreads()}
+	 */
+	VIRTUAL,
+	/**
+	 * Non-blocking channels multiplexed by a {@link NioServer} on a small pool of
+	 * {@link NioEventLoop}s
+	 */
+	SELECTOR;
+
+	/**
+	 * Parse a mode from a command line argument, ignoring case
+	 * 
+	 * @param value the name of the mode
+	 * @return the matching mode or {@link #THREADED} if none matches
+	 */
+	public static ConnectionMode parse(String value) {
+		for (ConnectionMode mode : values()) {
+			if (mode.name().equalsIgnoreCase(value.trim())) {
+				return mode;
+			}
+		}
+		ServerLog.warn("Unknown connection mode " + value + ", using " + THREADED);
+		return THREADED;
+	}
+}
@@ -1,9 +1,7 @@
 package resarcana.communication;
 
 import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.net.Socket;
 import java.net.SocketException;
@@ -16,7 +14,7 @@ import java.net.SocketException;
  */
 public class ListeningThread extends Thread {
 
-	private BufferedReader inputStream;
+	private WireReader inputStream;
 	private PrintStream outputStream;
 	private CommunicationListener parent;
 	private String informAbout, resend;
@@ -26,7 +24,7 @@ public class ListeningThread extends Thread {
 	public ListeningThread(Socket client, CommunicationListener parent, String informAbout, String resend) {
 		try {
 			// Input- und Output-Streams erstellen
-			this.inputStream = new BufferedReader(new InputStreamReader(client.getInputStream()));
+			this.inputStream = new WireReader(client.getInputStream());
 			this.outputStream = new PrintStream(new BufferedOutputStream(client.getOutputStream()), false);
 			this.parent = parent;
 			this.informAbout = informAbout;
@@ -40,9 +38,14 @@ public class ListeningThread extends Thread {
 	@Override
 	public void run() {
 		String inLine;
+		int type;
 		try {
-			while ((inLine = this.inputStream.readLine()) != null) {
-				if (inLine.startsWith(this.resend)) {
+			while ((type = this.inputStream.next()) != WireReader.END) {
+				inLine = this.inputStream.getLine();
+				if (type == WireReader.FRAME) {
+					// Binäre Nachricht, der Absender wird vom Empfänger geprüft
+					this.parent.informFrame(this.inputStream.getFrame());
+				} else if (inLine.startsWith(this.resend)) {
 					// Bei fälschlich aufgefangenen Kommando vom Server dieses
 					// wieder in den Stream leiten
 					this.outputStream.println(inLine);
@@ -72,9 +75,8 @@ public class ListeningThread extends Thread {
 			this.disconnected = true;
 			ServerLog.error("ListeningThread: Error while receiving messages from server: " + e);
 		}
-		if (!this.disconnect) {
-			this.parent.disconnected(this);
-		}
+		this.disconnected = true;
+		this.parent.disconnected(this);
 	}
 
 	public void disconnect() {
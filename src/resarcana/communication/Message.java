@@ -0,0 +1,206 @@
+package resarcana.communication;
+
+import java.nio.CharBuffer;
+
+import resarcana.utils.UtilFunctions;
+
+/**
+ * A single line of the text protocol, parsed once
+ * <p>
+ * Lines of the server have the form
+ * <code>Server/addressedToAll/action[#sender]/value%</code>, lines of a client
+ * <code>Client/id/action/value%</code>, see {@link CommunicationKeys}. Parsing
+ * only finds the separators and resolves the {@link Opcode}, nothing of the
+ * line is copied until it is asked for: the value is cut out on its first use
+ * and its parts between {@link CommunicationKeys#SEPERATOR_PARTS} are read as
+ * views into the line. The action of a known opcode is always the shared key
+ * of {@link CommunicationKeys}.
+ *
+ * @author Erik Wagner
+ *
+ */
+public final class Message {
+
+	private static final char MAIN = CommunicationKeys.SEPERATOR_MAIN.charAt(0);
+	private static final char PARTS = CommunicationKeys.SEPERATOR_PARTS.charAt(0);
+	private static final char END = CommunicationKeys.SEPERATOR_END.charAt(0);
+
+	private final String line;
+	private final boolean fromServer;
+	private final boolean addressedToAll;
+	private final int client;
+	private final Opcode opcode;
+	private final int actionStart, actionEnd;
+	private final int valueStart, valueEnd;
+
+	private String value = null;
+	// Start of every part of the value followed by the end of the value plus one,
+	// so every part ends right before the start of the next one
+	private int[] parts = null;
+
+	private Message(String line, boolean fromServer, boolean addressedToAll, int client, Opcode opcode,
+			int actionStart, int actionEnd, int valueStart, int valueEnd) {
+		this.line = line;
+		this.fromServer = fromServer;
+		this.addressedToAll = addressedToAll;
+		this.client = client;
+		this.opcode = opcode;
+		this.actionStart = actionStart;
+		this.actionEnd = actionEnd;
+		this.valueStart = valueStart;
+		this.valueEnd = valueEnd;
+	}
+
+	/**
+	 * Parse a line of the text protocol
+	 *
+	 * @param line the line, with or without {@link CommunicationKeys#SEPERATOR_END}
+	 * @return the message or <code>null</code> if the line is malformed
+	 */
+	public static Message parse(String line) {
+		int end = line.indexOf(END);
+		if (end < 0) {
+			end = line.length();
+		}
+		int first = line.indexOf(MAIN);
+		if (first < 0 || first > end) {
+			return null;
+		}
+		int second = line.indexOf(MAIN, first + 1);
+		if (second < 0 || second > end) {
+			return null;
+		}
+		int third = line.indexOf(MAIN, second + 1);
+		if (third < 0 || third > end || line.lastIndexOf(MAIN, end - 1) != third) {
+			return null;
+		}
+		boolean fromServer;
+		if (line.regionMatches(true, 0, CommunicationKeys.MARKER_SERVER, 0, first)
+				&& first == CommunicationKeys.MARKER_SERVER.length()) {
+			fromServer = true;
+		} else if (line.regionMatches(true, 0, CommunicationKeys.MARKER_CLIENT, 0, first)
+				&& first == CommunicationKeys.MARKER_CLIENT.length()) {
+			fromServer = false;
+		} else {
+			return null;
+		}
+		boolean addressedToAll = false;
+		int client = -1;
+		int actionEnd = third;
+		try {
+			if (fromServer) {
+				addressedToAll = line.regionMatches(true, first + 1, "true", 0, 4) && second - first - 1 == 4;
+				int sender = line.indexOf(PARTS, second + 1);
+				if (sender >= 0 && sender < third) {
+					actionEnd = sender;
+					client = UtilFunctions.parseInt(line, sender + 1, third);
+				}
+			} else {
+				client = UtilFunctions.parseInt(line, first + 1, second);
+			}
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		return new Message(line, fromServer, addressedToAll, client, Opcode.of(line, second + 1, actionEnd),
+				second + 1, actionEnd, third + 1, end);
+	}
+
+	/**
+	 * @return <code>true</code> for a line of the server, <code>false</code> for
+	 *         one of a client
+	 */
+	public boolean isFromServer() {
+		return this.fromServer;
+	}
+
+	/**
+	 * @return <code>true</code> if the server has sent this message to all
+	 *         clients, always <code>false</code> for a message of a client
+	 */
+	public boolean isAddressedToAll() {
+		return this.addressedToAll;
+	}
+
+	/**
+	 * @return the id of the client having sent this message or a relayed
+	 *         {@link CommunicationKeys#GAME_ACTION}, <code>-1</code> for the
+	 *         server
+	 */
+	public int getClient() {
+		return this.client;
+	}
+
+	public Opcode getOpcode() {
+		return this.opcode;
+	}
+
+	/**
+	 * @return the action key without the sending client
+	 */
+	public String getAction() {
+		if (this.opcode != Opcode.UNKNOWN) {
+			return this.opcode.getAction();
+		}
+		return this.line.substring(this.actionStart, this.actionEnd);
+	}
+
+	public String getValue() {
+		if (this.value == null) {
+			this.value = this.line.substring(this.valueStart, this.valueEnd);
+		}
+		return this.value;
+	}
+
+	/**
+	 * @return the number of parts of the value, separated by
+	 *         {@link CommunicationKeys#SEPERATOR_PARTS}
+	 */
+	public int getNumberOfParts() {
+		return this.getParts().length - 1;
+	}
+
+	/**
+	 * @param index the index of a part of the value
+	 * @return a view of the part without copying it
+	 */
+	public CharSequence getPart(int index) {
+		int[] parts = this.getParts();
+		return CharBuffer.wrap(this.line, parts[index], parts[index + 1] - 1);
+	}
+
+	/**
+	 * @param index the index of a part of the value
+	 * @return the part read as decimal number
+	 * @throws NumberFormatException if the part is no number
+	 */
+	public int getIntPart(int index) {
+		int[] parts = this.getParts();
+		return UtilFunctions.parseInt(this.line, parts[index], parts[index + 1] - 1);
+	}
+
+	private int[] getParts() {
+		if (this.parts == null) {
+			int count = 1;
+			for (int i = this.valueStart; i < this.valueEnd; i++) {
+				if (this.line.charAt(i) == PARTS) {
+					count++;
+				}
+			}
+			int[] parts = new int[count + 1];
+			parts[0] = this.valueStart;
+			for (int i = this.valueStart, part = 1; i < this.valueEnd; i++) {
+				if (this.line.charAt(i) == PARTS) {
+					parts[part++] = i + 1;
+				}
+			}
+			parts[count] = this.valueEnd + 1;
+			this.parts = parts;
+		}
+		return this.parts;
+	}
+
+	@Override
+	public String toString() {
+		return this.line;
+	}
+}
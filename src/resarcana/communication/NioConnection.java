@@ -0,0 +1,412 @@
+package resarcana.communication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A non-blocking {@link ClientConnection} served by a {@link NioEventLoop}
+ * <p>
+ * Incoming bytes are split into lines exactly like
+ * {@link java.io.BufferedReader#readLine()} does, so every line carries one
+ * message terminated by {@link CommunicationKeys#SEPERATOR_END}, or into the
+ * binary frames of {@link WireFormat}. Outgoing messages are queued in an {@link OutboundQueue} and written by the event loop
+ * whenever the socket accepts more data.
+ * 
+ * @author Erik Wagner
+ *
+ */
+public class NioConnection implements ClientConnection {
+
+	private final NioServer acceptor;
+	private final SocketChannel channel;
+	private final NioEventLoop loop;
+	private SelectionKey key = null;
+
+	private final OutboundQueue outbound;
+	private ByteBuffer current = null;
+
+	/**
+	 * The maximum length of a line in bytes, a client sending a longer line is
+	 * disconnected instead of buffering it
+	 */
+	static final int MAX_LINE_LENGTH = 1 << 16;
+
+	private byte[] line = new byte[256];
+	private int lineLength = 0;
+	private boolean skipLineFeed = false, lineStart = true;
+
+	// Binary frame currently received, null while receiving lines
+	private byte[] frame = null;
+	private int frameLength = 0, frameShift = 0, framePosition = -1;
+
+	private Table table = null;
+	private int id = -1;
+	private String informAbout = null;
+	private boolean established = false;
+	private volatile boolean disconnect = false, disconnected = false, slow = false;
+
+	public NioConnection(NioServer acceptor, SocketChannel channel, NioEventLoop loop, OutboundQueue outbound) {
+		this.outbound = outbound;
+		this.acceptor = acceptor;
+		this.channel = channel;
+		this.loop = loop;
+	}
+
+	/**
+	 * Send the handshake to the client
+	 * 
+	 * @param table   the table the client is seated at or <code>null</code> if it
+	 *                is not accepted
+	 * @param id      the id of the client or <code>-1</code> if it is not accepted
+	 * @param clients all clients connected to the table so far
+	 */
+	void greet(Table table, int id, ArrayList<ClientInfo> clients) {
+		this.table = table;
+		this.id = id;
+		this.informAbout = CommunicationKeys.MARKER_CLIENT + CommunicationKeys.SEPERATOR_MAIN + id
+				+ CommunicationKeys.SEPERATOR_MAIN;
+		this.send("" + id);
+		if (id != -1) {
+			for (int i = 0; i < clients.size(); i++) {
+				this.send(CommunicationKeys.MARKER_SERVER + CommunicationKeys.SEPERATOR_MAIN + "false"
+						+ CommunicationKeys.SEPERATOR_MAIN + CommunicationKeys.META_ADD_PLAYER
+						+ CommunicationKeys.SEPERATOR_MAIN + i + CommunicationKeys.SEPERATOR_PARTS
+						+ clients.get(i).getName());
+			}
+		}
+		// Old clients only test for the prefix and ignore the offer of binary frames, a
+		// client without seat only continues if it is returning to its seat
+		this.send(CommunicationKeys.META_CONNECT_FINISH + CommunicationKeys.SEPERATOR_MAIN
+				+ CommunicationKeys.META_BINARY);
+	}
+
+	/**
+	 * Register the channel with the selector of its {@link NioEventLoop}
+	 * <p>
+	 * Must be called on the event loop
+	 * 
+	 * @param selector the selector of the event loop
+	 */
+	void register(Selector selector) {
+		try {
+			this.key = this.channel.register(selector, SelectionKey.OP_READ, this);
+			this.flush();
+		} catch (ClosedChannelException e) {
+			this.close(false);
+		}
+	}
+
+	@Override
+	public void send(String message) {
+		this.sendRaw(WireFormat.encodeLine(message));
+	}
+
+	@Override
+	public void sendRaw(byte[] message) {
+		if (!this.disconnected) {
+			if (!this.outbound.offer(message)) {
+				ServerLog.warn("NioConnection: Disconnecting slow client " + this.id);
+				this.outbound.close();
+				this.slow = true;
+			}
+			this.loop.requestWrite(this);
+		}
+	}
+
+	/**
+	 * Read all available bytes and process every completed line
+	 * <p>
+	 * Must be called on the event loop
+	 * 
+	 * @param buffer a scratch buffer owned by the event loop
+	 */
+	void read(ByteBuffer buffer) {
+		try {
+			int read = 0;
+			while (!this.disconnected && (read = this.channel.read(buffer)) > 0) {
+				buffer.flip();
+				while (buffer.hasRemaining() && !this.disconnected) {
+					this.decode(buffer.get());
+				}
+				buffer.clear();
+			}
+			if (read == -1) {
+				this.close(this.disconnect);
+			}
+		} catch (IOException e) {
+			buffer.clear();
+			if (!this.disconnect) {
+				ServerLog.error("NioConnection: Error while receiving messages from client " + this.id + ": " + e);
+			}
+			this.close(this.disconnect);
+		}
+	}
+
+	private void decode(byte b) {
+		if (this.framePosition >= 0) {
+			this.decodeFrame(b);
+			return;
+		}
+		if (b == '\n' && this.skipLineFeed) {
+			this.skipLineFeed = false;
+			return;
+		}
+		this.skipLineFeed = false;
+		if (this.lineStart && b == WireFormat.FRAME_MARKER) {
+			this.frameLength = 0;
+			this.frameShift = 0;
+			this.framePosition = 0;
+			return;
+		}
+		this.lineStart = b == '\n' || b == '\r';
+		if (b == '\n' || b == '\r') {
+			this.skipLineFeed = b == '\r';
+			String inLine = new String(this.line, 0, this.lineLength, WireFormat.CHARSET);
+			this.lineLength = 0;
+			this.processLine(inLine);
+		} else {
+			if (this.lineLength == MAX_LINE_LENGTH) {
+				ServerLog.error("NioConnection: Line of client " + this.id + " exceeds " + MAX_LINE_LENGTH + " bytes");
+				this.close(false);
+				return;
+			}
+			if (this.lineLength == this.line.length) {
+				this.line = Arrays.copyOf(this.line, Math.min(this.line.length * 2, MAX_LINE_LENGTH));
+			}
+			this.line[this.lineLength++] = b;
+		}
+	}
+
+	private void decodeFrame(byte b) {
+		if (this.frame == null) {
+			// Still reading the varint length
+			this.frameLength |= (b & 0x7F) << this.frameShift;
+			this.frameShift += 7;
+			if ((b & 0x80) != 0) {
+				if (this.frameShift >= 35) {
+					ServerLog.error("NioConnection: Malformed frame length from client " + this.id);
+					this.close(false);
+				}
+				return;
+			}
+			if (this.frameLength < 0 || this.frameLength > WireReader.MAX_FRAME_LENGTH) {
+				ServerLog.error("NioConnection: Illegal frame length from client " + this.id + ": " + this.frameLength);
+				this.close(false);
+				return;
+			}
+			ByteArrayOutputStream header = new ByteArrayOutputStream(6);
+			header.write(WireFormat.FRAME_MARKER);
+			WireFormat.writeVarint(header, this.frameLength);
+			this.frame = Arrays.copyOf(header.toByteArray(), header.size() + this.frameLength);
+			this.framePosition = header.size();
+		} else {
+			this.frame[this.framePosition++] = b;
+		}
+		if (this.framePosition == this.frame.length) {
+			byte[] complete = this.frame;
+			this.frame = null;
+			this.framePosition = -1;
+			this.processFrame(complete);
+		}
+	}
+
+	private void processFrame(byte[] complete) {
+		if (!this.established) {
+			ServerLog.warn("Recieved frame from client " + this.id + " before the handshake has been finished");
+		} else {
+			this.table.informFrame(this, complete);
+		}
+	}
+
+	private void processLine(String inLine) {
+		if (!this.established) {
+			if (!this.acceptor.handshakeReplied(this)) {
+				// Replied too late, the connection is already being closed
+				return;
+			}
+			int watched = Server.parseSpectate(inLine);
+			if (watched != -2) {
+				this.watch(watched);
+				return;
+			}
+			String[] returning = Server.parseReturning(inLine);
+			if (returning != null) {
+				this.returnToSeat(returning);
+				return;
+			}
+			if (this.id == -1) {
+				this.acceptor.handshakeFinished(this);
+				this.disconnect();
+				return;
+			}
+			if (!inLine.startsWith(CommunicationKeys.META_CONNECT_FINISH)) {
+				ServerLog.warn("Recieved unexpected line from client: " + inLine);
+			}
+			this.established = true;
+			ClientInfo clientInfo = new ClientInfo(this.id, "Client " + this.id, this);
+			clientInfo.setBinary(WireFormat.isBinaryHandshake(inLine));
+			this.table.addClient(clientInfo);
+			ServerLog.info("Client " + this.id + " added to " + this.table);
+			this.acceptor.handshakeFinished(this);
+		} else if (inLine.startsWith(CommunicationKeys.MARKER_SERVER)) {
+			// Bei fälschlich aufgefangenen Kommando vom Server dieses
+			// wieder in den Stream leiten
+			this.send(inLine);
+			ServerLog.info("NioConnection: Resend: " + inLine);
+		} else if (inLine.startsWith(this.informAbout)) {
+			this.table.inform(this, inLine);
+		} else {
+			ServerLog.error("NioConnection: Received unknown message: " + inLine);
+		}
+	}
+
+	/**
+	 * Let the client watch a table as spectator
+	 * 
+	 * @param number the number of the table as read by
+	 *               {@link Server#parseSpectate(String)}
+	 */
+	private void watch(int number) {
+		Table table = this.acceptor.getServer().getTableToWatch(number);
+		this.acceptor.handshakeFinished(this);
+		if (table == null) {
+			ServerLog.warn("Spectator wants to watch an unknown table " + number);
+			this.disconnect();
+			return;
+		}
+		this.table = table;
+		this.id = -1;
+		this.informAbout = CommunicationKeys.MARKER_CLIENT + CommunicationKeys.SEPERATOR_MAIN + "-1"
+				+ CommunicationKeys.SEPERATOR_MAIN;
+		this.established = true;
+		table.addSpectator(this);
+	}
+
+	/**
+	 * Seat a client returning with its token again, see
+	 * {@link Table#rebind(int, String, ClientConnection, int)}
+	 * 
+	 * @param returning the token and state of the client as read by
+	 *                  {@link Server#parseReturning(String)}
+	 */
+	private void returnToSeat(String[] returning) {
+		int seat = Integer.parseInt(returning[0]);
+		Table table = this.acceptor.getServer().getTableOfSeat(seat, returning[1]);
+		this.acceptor.handshakeFinished(this);
+		if (table == null) {
+			ServerLog.warn("Client returned with an unknown token for seat " + seat);
+			this.disconnect();
+			return;
+		}
+		this.table = table;
+		this.id = seat;
+		this.informAbout = CommunicationKeys.MARKER_CLIENT + CommunicationKeys.SEPERATOR_MAIN + seat
+				+ CommunicationKeys.SEPERATOR_MAIN;
+		this.established = true;
+		if (!table.rebind(seat, returning[1], this, Integer.parseInt(returning[2]))) {
+			this.disconnect();
+		} else {
+			ServerLog.info("Client " + seat + " returned to " + table);
+		}
+	}
+
+	/**
+	 * Write as many queued messages as the socket accepts
+	 * <p>
+	 * Must be called on the event loop
+	 */
+	void flush() {
+		if (this.key == null || !this.key.isValid()) {
+			return;
+		}
+		if (this.slow) {
+			this.close(false);
+			return;
+		}
+		try {
+			while (true) {
+				if (this.current == null) {
+					byte[] message = this.outbound.poll();
+					if (message == null) {
+						break;
+					}
+					this.current = ByteBuffer.wrap(message);
+				}
+				this.channel.write(this.current);
+				if (this.current.hasRemaining()) {
+					// Socket is full, continue as soon as it is writable again
+					this.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+				this.current = null;
+			}
+			this.key.interestOps(SelectionKey.OP_READ);
+			if (this.disconnect) {
+				this.close(true);
+			}
+		} catch (IOException e) {
+			ServerLog.error("NioConnection: Error while sending messages to client " + this.id + ": " + e);
+			this.close(this.disconnect);
+		}
+	}
+
+	/**
+	 * Close the channel
+	 * <p>
+	 * Must be called on the event loop
+	 * 
+	 * @param requested <code>true</code> if the disconnect has been requested via
+	 *                  {@link #disconnect()}
+	 */
+	void close(boolean requested) {
+		if (this.disconnected) {
+			return;
+		}
+		this.disconnected = true;
+		if (this.key != null) {
+			this.key.cancel();
+		}
+		try {
+			this.channel.close();
+		} catch (IOException e) {
+			ServerLog.error("NioConnection: Could not close channel of client " + this.id);
+		}
+		this.outbound.close();
+		this.current = null;
+		if (!this.established) {
+			this.acceptor.handshakeFinished(this);
+		} else {
+			this.table.connectionClosed(this, requested);
+		}
+	}
+
+	@Override
+	public void disconnect() {
+		ServerLog.info("NioConnection: Requesting disconnect of client " + this.id);
+		this.disconnect = true;
+		this.loop.requestWrite(this);
+	}
+
+	@Override
+	public void abort() {
+		// The event loop closes the channel as soon as nothing more can be written
+		this.disconnect();
+	}
+
+	@Override
+	public int getPending() {
+		return this.outbound.size();
+	}
+
+	@Override
+	public boolean hasDisconnected() {
+		return this.disconnected;
+	}
+}
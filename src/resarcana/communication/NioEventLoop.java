@@ -0,0 +1,108 @@
+package resarcana.communication;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single thread multiplexing reads and writes of many {@link NioConnection}s
+ * with one {@link Selector}
+ * <p>
+ * Everything touching the channels of its connections happens on this thread,
+ * other threads only hand over work via {@link #register(NioConnection)} and
+ * {@link #requestWrite(NioConnection)}
+ * 
+ * @author Erik Wagner
+ *
+ */
+public class NioEventLoop extends Thread {
+
+	private static final int READ_BUFFER_SIZE = 8192;
+
+	private final Selector selector;
+	private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+	private final ConcurrentLinkedQueue<NioConnection> registrations = new ConcurrentLinkedQueue<NioConnection>();
+	private final ConcurrentLinkedQueue<NioConnection> writeRequests = new ConcurrentLinkedQueue<NioConnection>();
+
+	private volatile boolean running = true;
+
+	public NioEventLoop(int index) throws IOException {
+		super("NioEventLoop-" + index);
+		this.selector = Selector.open();
+	}
+
+	/**
+	 * Register a new connection with this loop
+	 * 
+	 * @param connection the connection to serve from now on
+	 */
+	public void register(NioConnection connection) {
+		this.registrations.add(connection);
+		this.selector.wakeup();
+	}
+
+	/**
+	 * Let this loop write the pending outbound messages of a connection
+	 * 
+	 * @param connection the connection with pending messages
+	 */
+	public void requestWrite(NioConnection connection) {
+		if (Thread.currentThread() == this) {
+			connection.flush();
+		} else {
+			this.writeRequests.add(connection);
+			this.selector.wakeup();
+		}
+	}
+
+	@Override
+	public void run() {
+		while (this.running) {
+			try {
+				this.selector.select();
+			} catch (IOException e) {
+				ServerLog.error(this.getName() + ": Error while selecting: " + e);
+				break;
+			}
+			NioConnection connection;
+			while ((connection = this.registrations.poll()) != null) {
+				connection.register(this.selector);
+			}
+			while ((connection = this.writeRequests.poll()) != null) {
+				connection.flush();
+			}
+			Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+			while (keys.hasNext()) {
+				SelectionKey key = keys.next();
+				keys.remove();
+				connection = (NioConnection) key.attachment();
+				if (key.isValid() && key.isReadable()) {
+					connection.read(this.readBuffer);
+				}
+				if (key.isValid() && key.isWritable()) {
+					connection.flush();
+				}
+			}
+		}
+		for (SelectionKey key : this.selector.keys()) {
+			((NioConnection) key.attachment()).close(true);
+		}
+		try {
+			this.selector.close();
+		} catch (IOException e) {
+			ServerLog.error(this.getName() + ": Could not close selector");
+		}
+	}
+
+	/**
+	 * Stop this loop and close all of its connections
+	 */
+	public void shutdown() {
+		this.running = false;
+		this.selector.wakeup();
+	}
+}
@@ -0,0 +1,231 @@
+package resarcana.communication;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * Accepts clients on a non-blocking {@link ServerSocketChannel} and hands them
+ * to a small pool of {@link NioEventLoop}s
+ * <p>
+ * The handshake is the same as the one of {@link ServerThread}: the client
+ * receives its id, the names of all previously connected clients and
+ * {@link CommunicationKeys#META_CONNECT_FINISH} and has to confirm with
+ * {@link CommunicationKeys#META_CONNECT_FINISH}. Clients offered a seat are
+ * greeted one after another, so ids are handed out in the same order as
+ * before, clients which can not be seated are greeted right away. Every greeted
+ * client has {@link #HANDSHAKE_TIMEOUT} milliseconds to reply, otherwise it is
+ * disconnected and the next client is greeted.
+ * 
+ * @author Erik Wagner
+ *
+ */
+public class NioServer extends Thread implements ClientAcceptor {
+
+	/**
+	 * The number of event loops used if none is specified
+	 */
+	public static final int DEFAULT_EVENT_LOOPS = Math.max(1,
+			Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+	/**
+	 * Time a greeted client has to reply to the handshake
+	 */
+	public static final int HANDSHAKE_TIMEOUT = 5000;
+
+	private final Server parent;
+	private final ServerSocketChannel server;
+	private final Selector selector;
+	private final NioEventLoop[] loops;
+	private int nextLoop = 0;
+
+	// Waiting for a seat to be offered
+	private final LinkedList<NioConnection> handshakes = new LinkedList<NioConnection>();
+	// Greeted and not replied yet, with the time they have to reply until
+	private final LinkedHashMap<NioConnection, Long> greeted = new LinkedHashMap<NioConnection, Long>();
+	// The greeted connection offered a seat, null if there is none
+	private NioConnection seated = null;
+
+	private volatile boolean closing = false;
+
+	public NioServer(Server parent, int port, int eventLoops) throws IOException {
+		super("NioServer");
+		this.parent = parent;
+		this.server = ServerSocketChannel.open();
+		this.server.configureBlocking(false);
+		this.server.bind(new InetSocketAddress(port), Server.BACKLOG);
+		this.selector = Selector.open();
+		this.server.register(this.selector, SelectionKey.OP_ACCEPT);
+		this.loops = new NioEventLoop[Math.max(1, eventLoops)];
+		for (int i = 0; i < this.loops.length; i++) {
+			this.loops[i] = new NioEventLoop(i);
+		}
+	}
+
+	@Override
+	public void run() {
+		for (NioEventLoop loop : this.loops) {
+			loop.start();
+		}
+		while (!this.closing) {
+			try {
+				this.selector.select(this.expireHandshakes());
+				Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					if (key.isValid() && key.isAcceptable()) {
+						this.acceptClient();
+					}
+				}
+			} catch (IOException e) {
+				if (!this.closing) {
+					ServerLog.error("IOException while accepting clients: " + e.getLocalizedMessage());
+				}
+			}
+		}
+		for (NioEventLoop loop : this.loops) {
+			loop.shutdown();
+		}
+		try {
+			this.selector.close();
+		} catch (IOException e) {
+			ServerLog.error("Could not close selector of NioServer");
+		}
+	}
+
+	private void acceptClient() throws IOException {
+		SocketChannel channel = this.server.accept();
+		if (channel == null) {
+			return;
+		}
+		ServerLog.info("Client found");
+		channel.configureBlocking(false);
+		channel.socket().setTcpNoDelay(true);
+		NioEventLoop loop = this.loops[this.nextLoop];
+		this.nextLoop = (this.nextLoop + 1) % this.loops.length;
+		NioConnection connection = new NioConnection(this, channel, loop, this.parent.createOutboundQueue());
+		loop.register(connection);
+		this.queueHandshake(connection);
+	}
+
+	private synchronized void queueHandshake(NioConnection connection) {
+		this.handshakes.add(connection);
+		this.greetNext();
+	}
+
+	/**
+	 * Disconnect all greeted clients which have not replied in time
+	 * 
+	 * @return the milliseconds until the next client has to reply,
+	 *         <code>0</code> if no client is greeted
+	 */
+	private synchronized long expireHandshakes() {
+		long now = System.currentTimeMillis();
+		Iterator<Map.Entry<NioConnection, Long>> pending = this.greeted.entrySet().iterator();
+		while (pending.hasNext()) {
+			Map.Entry<NioConnection, Long> entry = pending.next();
+			if (entry.getValue() <= now) {
+				pending.remove();
+				ServerLog.warn("Client did not reply to the handshake in time, disconnecting it");
+				entry.getKey().disconnect();
+				if (this.seated == entry.getKey()) {
+					this.seated = null;
+				}
+			}
+		}
+		this.greetNext();
+		long next = 0;
+		for (long deadline : this.greeted.values()) {
+			if (next == 0 || deadline - now < next) {
+				next = Math.max(1, deadline - now);
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * @return the server this acceptor accepts clients for
+	 */
+	Server getServer() {
+		return this.parent;
+	}
+
+	/**
+	 * Called by a {@link NioConnection} when it has received the reply to its
+	 * handshake, before acting on it
+	 * 
+	 * @param connection the connection which received the reply
+	 * @return <code>false</code> if the client has replied too late and is
+	 *         already being disconnected
+	 */
+	synchronized boolean handshakeReplied(NioConnection connection) {
+		return this.greeted.remove(connection) != null;
+	}
+
+	/**
+	 * Called by a {@link NioConnection} when its handshake has been completed or
+	 * the connection has been lost during the handshake
+	 * 
+	 * @param connection the connection which finished its handshake
+	 */
+	synchronized void handshakeFinished(NioConnection connection) {
+		this.greeted.remove(connection);
+		this.handshakes.remove(connection);
+		if (this.seated == connection) {
+			this.seated = null;
+			this.greetNext();
+		}
+	}
+
+	private void greetNext() {
+		while (this.seated == null && !this.handshakes.isEmpty()) {
+			NioConnection next = this.handshakes.removeFirst();
+			if (next.hasDisconnected()) {
+				continue;
+			}
+			Table table = this.parent.getOpenTable();
+			ArrayList<ClientInfo> clients = null;
+			int id = -1;
+			// Server does not test for the amount of players
+			// if no table can be opened anymore, the client can only spectate
+			if (table != null) {
+				clients = table.getClients();
+				id = clients.size();
+				ServerLog.info("Client " + id + " accepted at " + table);
+				// Nobody else is offered a seat until this client has replied
+				this.seated = next;
+			}
+			// A client without seat may still return to its seat at a running table
+			next.greet(table, id, clients);
+			this.greeted.put(next, System.currentTimeMillis() + HANDSHAKE_TIMEOUT);
+			// Let the accepting thread watch the new deadline
+			this.selector.wakeup();
+		}
+	}
+
+	@Override
+	public void closeSocket() {
+		this.closing = true;
+		try {
+			ServerLog.info("Closing ServerSocketChannel");
+			this.server.close();
+		} catch (IOException e) {
+			ServerLog.error("Could not close ServerSocketChannel");
+		}
+		this.selector.wakeup();
+	}
+
+	@Override
+	public boolean isClosed() {
+		return this.closing;
+	}
+}
@@ -0,0 +1,148 @@
+package resarcana.communication;
+
+/**
+ * The kinds of messages of the protocol, one for every action key of
+ * {@link CommunicationKeys} a message can carry
+ * <p>
+ * The opcode of a message is resolved once when it is parsed, see
+ * {@link Message}, so the server and the clients dispatch with a
+ * <code>switch</code> instead of comparing the action key with every known key
+ * in turn. The wire code is the opcode of the action in a binary frame of
+ * {@link WireFormat}, actions only ever sent as text have none.
+ *
+ * @author Erik Wagner
+ *
+ */
+public enum Opcode {
+	ADD_PLAYER(CommunicationKeys.META_ADD_PLAYER, 0),
+	SET_NAME(CommunicationKeys.META_SET_NAME, 1),
+	SET_READY(CommunicationKeys.META_SET_READY, 2),
+	GAME_FINISHED(CommunicationKeys.META_GAME_FINISHED, 3),
+	DISCONNECT(CommunicationKeys.META_DISCONNECT, 4),
+	START(CommunicationKeys.GAME_START, 5),
+	RESUME(CommunicationKeys.GAME_RESUME, 6),
+	SHUFFLE(CommunicationKeys.GAME_SHUFFLE, 7),
+	DEAL_CARDS(CommunicationKeys.GAME_DEAL_CARDS, 8),
+	DRAFT(CommunicationKeys.GAME_DRAFT, 9),
+	ACTION(CommunicationKeys.GAME_ACTION, 10),
+	NEXT_ROUND(CommunicationKeys.GAME_NEXT_ROUND, 11),
+	VOTE_NEXT_ROUND(CommunicationKeys.GAME_VOTE_NEXT_ROUND, 12),
+	INCOME_DONE(CommunicationKeys.GAME_INCOME_DONE, 13),
+	ATTACK(CommunicationKeys.GAME_ATTACK, 14),
+	CONTROL(CommunicationKeys.GAME_CONTROL, 15),
+	AUTHORITATIVE(CommunicationKeys.META_AUTHORITATIVE, 16),
+	RECONNECT(CommunicationKeys.META_RECONNECT, 17),
+	BINARY(CommunicationKeys.META_BINARY, -1),
+	TOKEN(CommunicationKeys.META_TOKEN, -1),
+	/**
+	 * Any action key not known to this version of the protocol
+	 */
+	UNKNOWN(null, -1);
+
+	private static final Opcode[] VALUES = values();
+	private static final Opcode[] WIRE_CODES;
+
+	static {
+		int max = -1;
+		for (Opcode opcode : VALUES) {
+			max = Math.max(max, opcode.wireCode);
+		}
+		WIRE_CODES = new Opcode[max + 1];
+		for (Opcode opcode : VALUES) {
+			if (opcode.wireCode >= 0) {
+				WIRE_CODES[opcode.wireCode] = opcode;
+			}
+		}
+	}
+
+	private final String action;
+	private final int wireCode;
+
+	private Opcode(String action, int wireCode) {
+		this.action = action;
+		this.wireCode = wireCode;
+	}
+
+	/**
+	 * @return the action key of {@link CommunicationKeys} or <code>null</code>
+	 *         for {@link #UNKNOWN}
+	 */
+	public String getAction() {
+		return this.action;
+	}
+
+	/**
+	 * @return the opcode of a binary frame or <code>-1</code> if this action is
+	 *         never sent as frame
+	 */
+	public int getWireCode() {
+		return this.wireCode;
+	}
+
+	/**
+	 * @return <code>true</code> for the messages of the game itself, which the
+	 *         server only relays respectively referees
+	 */
+	public boolean isGameMessage() {
+		switch (this) {
+		case ACTION:
+		case RESUME:
+		case SHUFFLE:
+		case DRAFT:
+		case DEAL_CARDS:
+		case NEXT_ROUND:
+		case VOTE_NEXT_ROUND:
+		case INCOME_DONE:
+		case ATTACK:
+		case CONTROL:
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Resolve an action key, ignoring case and the id of the sending client a
+	 * relayed {@link CommunicationKeys#GAME_ACTION} carries
+	 *
+	 * @param action the action key
+	 * @return the opcode of the action, {@link #UNKNOWN} if there is none
+	 */
+	public static Opcode of(String action) {
+		if (action == null) {
+			return UNKNOWN;
+		}
+		int end = action.indexOf(CommunicationKeys.SEPERATOR_PARTS);
+		return of(action, 0, end < 0 ? action.length() : end);
+	}
+
+	/**
+	 * Resolve the action key in a region of a line without copying it
+	 *
+	 * @param line  the line holding the action key
+	 * @param start the index of the first character of the key
+	 * @param end   the index after the last character of the key
+	 * @return the opcode of the action, {@link #UNKNOWN} if there is none
+	 */
+	public static Opcode of(String line, int start, int end) {
+		int length = end - start;
+		for (int i = 0; i < VALUES.length - 1; i++) {
+			String action = VALUES[i].action;
+			if (action.length() == length && line.regionMatches(true, start, action, 0, length)) {
+				return VALUES[i];
+			}
+		}
+		return UNKNOWN;
+	}
+
+	/**
+	 * @param wireCode the opcode of a binary frame
+	 * @return the matching opcode, {@link #UNKNOWN} if there is none
+	 */
+	public static Opcode ofWireCode(int wireCode) {
+		if (wireCode >= 0 && wireCode < WIRE_CODES.length) {
+			return WIRE_CODES[wireCode];
+		}
+		return UNKNOWN;
+	}
+}
@@ -0,0 +1,128 @@
+package resarcana.communication;
+
+import java.util.ArrayDeque;
+
+/**
+ * A bounded queue of messages waiting to be written to a single client
+ * <p>
+ * Broadcasting only appends to the queues of all clients, the actual writing is
+ * done by a writer task per connection, so one slow client never stalls the
+ * others. What happens if a queue is full is decided by its
+ * {@link SlowConsumerPolicy}.
+ * 
+ * @author Erik Wagner
+ *
+ */
+public class OutboundQueue {
+
+	/**
+	 * The default number of messages which may wait for a single client
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * The maximum number of bytes a coalesced batch may grow to
+	 */
+	public static final int MAX_COALESCED_LENGTH = 1 << 20;
+
+	private final ArrayDeque<byte[]> messages;
+	private final int capacity;
+	private final SlowConsumerPolicy policy;
+
+	private int dropped = 0, coalesced = 0;
+	private boolean closed = false;
+
+	public OutboundQueue(int capacity, SlowConsumerPolicy policy) {
+		this.capacity = Math.max(1, capacity);
+		this.policy = policy;
+		this.messages = new ArrayDeque<byte[]>(Math.min(this.capacity, 64));
+	}
+
+	/**
+	 * Append a message to the queue
+	 * 
+	 * @param message the encoded message, a terminated line or a frame of
+	 *                {@link WireFormat}
+	 * @return <code>false</code> if the client is too slow and has to be
+	 *         disconnected
+	 */
+	public synchronized boolean offer(byte[] message) {
+		if (this.closed) {
+			return true;
+		}
+		if (this.messages.size() < this.capacity) {
+			this.messages.add(message);
+			return true;
+		}
+		switch (this.policy) {
+		case DROP:
+			this.dropped++;
+			return true;
+		case COALESCE:
+			// Encoded messages are self-delimiting, so the batch is written exactly
+			// like the messages would have been written one by one
+			int length = message.length;
+			for (byte[] pending : this.messages) {
+				length += pending.length;
+			}
+			if (length > MAX_COALESCED_LENGTH) {
+				return false;
+			}
+			byte[] batch = new byte[length];
+			int position = 0;
+			for (byte[] pending : this.messages) {
+				System.arraycopy(pending, 0, batch, position, pending.length);
+				position += pending.length;
+			}
+			System.arraycopy(message, 0, batch, position, message.length);
+			this.coalesced += this.messages.size();
+			this.messages.clear();
+			this.messages.add(batch);
+			return true;
+		case DISCONNECT:
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * @return the next message or <code>null</code> if the queue is empty
+	 */
+	public synchronized byte[] poll() {
+		return this.messages.poll();
+	}
+
+	public synchronized boolean isEmpty() {
+		return this.messages.isEmpty();
+	}
+
+	/**
+	 * @return the number of messages waiting, a coalesced batch counts once
+	 */
+	public synchronized int size() {
+		return this.messages.size();
+	}
+
+	/**
+	 * Discard all pending messages and ignore all further ones
+	 */
+	public synchronized void close() {
+		this.closed = true;
+		this.messages.clear();
+	}
+
+	/**
+	 * @return the number of messages dropped because of {@link SlowConsumerPolicy#DROP}
+	 */
+	public synchronized int getDropped() {
+		return this.dropped;
+	}
+
+	/**
+	 * @return the number of messages merged into batches because of
+	 *         {@link SlowConsumerPolicy#COALESCE}
+	 */
+	public synchronized int getCoalesced() {
+		return this.coalesced;
+	}
+}
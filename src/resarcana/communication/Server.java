@@ -1,29 +1,72 @@
 package resarcana.communication;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.ServerSocket;
 import java.net.SocketException;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
-public class Server implements CommunicationListener {
+/**
+ * A server hosting any number of independent {@link Table}s on
+ * {@link CommunicationKeys#SERVER_PORT}
+ * <p>
+ * New clients are seated at the currently open table, a new table is opened as
+ * soon as the open one has started its game or is full. The server shuts down
+ * after <code>totalNumberOfGames</code> games have been played to the end.
+ * <p>
+ * With a log directory every table keeps a {@link TableLog} there, tables of
+ * interrupted games are resumed from these logs when the server starts again.
+ * <p>
+ * Clients may also watch a table as spectators, they are served by a timer of
+ * the server started with the first spectator.
+ * 
+ * @author Erik Wagner
+ *
+ */
+public class Server {
+
+	/**
+	 * The number of connections the operating system queues until they are
+	 * accepted, a full queue lets clients wait for a retransmission of the
+	 * connection handshake for seconds
+	 */
+	static final int BACKLOG = 64;
 
 	private final boolean automaticStart;
+	private final ConnectionMode mode;
+
+	private ClientAcceptor accepting;
 
-	private ServerThread accepting;
-	private volatile ArrayList<ClientInfo> clients = new ArrayList<ClientInfo>();
+	private final ArrayList<Table> tables = new ArrayList<Table>();
+	private Table openTable = null, lastTable = null;
+	private int seatsPerTable = 0, tableCounter = 0;
+	private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.COALESCE;
+	private int outboundCapacity = OutboundQueue.DEFAULT_CAPACITY;
+	private boolean authoritative = false;
+	// null if tables are not persisted
+	private File logDirectory = null;
 
-	private boolean gameStarted = false;
-	private int totalNumberOfGames, numberOfGames;
+	private int totalNumberOfGames, numberOfGames, finishedGames;
+	// null until the first spectator has arrived
+	private ScheduledExecutorService spectatorTimer = null;
 
 	public Server(boolean automaticStart, int totalNumberOfGames) throws IOException {
+		this(automaticStart, totalNumberOfGames, ConnectionMode.THREADED);
+	}
+
+	public Server(boolean automaticStart, int totalNumberOfGames, ConnectionMode mode) throws IOException {
 
 		this.automaticStart = automaticStart;
+		this.mode = mode;
 		this.totalNumberOfGames = totalNumberOfGames;
 		this.numberOfGames = 0;
+		this.finishedGames = 0;
 
 		// Print all ip's available on this machine
 		String ip;
@@ -55,228 +98,377 @@ public class Server implements CommunicationListener {
 	}
 
 	private void initServerSocket() throws IOException {
-		this.accepting = new ServerThread(this, new ServerSocket(CommunicationKeys.SERVER_PORT, 4, null));
+		ServerLog.info("Serving clients in mode " + this.mode);
+		switch (this.mode) {
+		case SELECTOR:
+			this.accepting = new NioServer(this, CommunicationKeys.SERVER_PORT, NioServer.DEFAULT_EVENT_LOOPS);
+			break;
+		case VIRTUAL:
+			this.accepting = new ServerThread(this, new ServerSocket(CommunicationKeys.SERVER_PORT, BACKLOG, null),
+					ConnectionExecutor.virtualThreads());
+			break;
+		case THREADED:
+		default:
+			this.accepting = new ServerThread(this, new ServerSocket(CommunicationKeys.SERVER_PORT, BACKLOG, null));
+			break;
+		}
 	}
 
 	/**
-	 * Main loop of the server to check if a game is still running and to start a
-	 * new one if the current game has finished
+	 * Main loop of the server, waits until all games have been finished or the
+	 * server has been stopped
 	 */
 	private void serverLoop() {
-		while (this.numberOfGames < this.totalNumberOfGames && !this.accepting.isClosed()) {
-			ServerLog
-					.info("Ready for a new game --- " + (this.totalNumberOfGames - this.numberOfGames) + " games left");
-			while (!this.allClientsDisconnected()) {
-				// Let server sleep for a while before rechecking
+		ServerLog.info("Ready for " + this.totalNumberOfGames + " games");
+		ArrayList<Table> remaining;
+		synchronized (this) {
+			while (this.finishedGames < this.totalNumberOfGames && !this.accepting.isClosed()) {
 				try {
-					Thread.sleep(1000);
+					// Woken up by tableClosed() and stop()
+					this.wait();
 				} catch (InterruptedException e) {
-					ServerLog.warn("Server interrupted while sleeping in game loop " + e);
+					ServerLog.warn("Server interrupted while waiting for games to finish " + e);
 				}
-				if (this.accepting.isClosed()) {
-					ServerLog.info("ServerSocket closed, shutting down server");
-					break;
-				}
-			}
-			if (this.allClientsDisconnected()) {
-				ServerLog.info("Game finished and all clients have disconnected");
-			}
-			ServerLog.info("Clearing current clients");
-			// Make the server ready for a new game
-			synchronized (this.clients) {
-				this.clients.clear();
 			}
-			this.gameStarted = false;
+			remaining = new ArrayList<Table>(this.tables);
+			this.tables.clear();
 		}
 		ServerLog.info("Shutting down server");
 		// Close ServerSocket
 		this.accepting.closeSocket();
-		// List should be clear but in theory a new Client could have just been added
-		synchronized (this.clients) {
-			for (ClientInfo client : this.clients) {
-				client.disconnect();
+		// Tables should be closed but in theory a new Client could have just been added
+		for (Table table : remaining) {
+			table.disconnectAll();
+		}
+		synchronized (this) {
+			if (this.spectatorTimer != null) {
+				this.spectatorTimer.shutdown();
 			}
 		}
 		ServerLog.info("Bye");
 	}
 
-	@SuppressWarnings("unchecked")
-	public ArrayList<ClientInfo> getClients() {
-		synchronized (this.clients) {
-			return (ArrayList<ClientInfo>) this.clients.clone();
-		}
+	/**
+	 * Limit the number of clients seated at a single table
+	 * 
+	 * @param seatsPerTable the maximum number of clients per table,
+	 *                      <code>0</code> for no limit
+	 */
+	public synchronized void setSeatsPerTable(int seatsPerTable) {
+		this.seatsPerTable = Math.max(0, seatsPerTable);
+	}
+
+	/**
+	 * Set how clients which do not read their messages fast enough are treated
+	 * 
+	 * @param policy   the policy applied when the queue of a client is full
+	 * @param capacity the number of messages which may wait for a single client
+	 */
+	public synchronized void setSlowConsumerPolicy(SlowConsumerPolicy policy, int capacity) {
+		this.slowConsumerPolicy = policy;
+		this.outboundCapacity = capacity;
+	}
+
+	/**
+	 * Set whether new tables validate all game messages against their own game
+	 * state before sending them to the clients, see {@link TableReferee}
+	 * 
+	 * @param authoritative <code>true</code> to validate the game messages
+	 */
+	public synchronized void setAuthoritative(boolean authoritative) {
+		this.authoritative = authoritative;
 	}
 
-	public void addClient(ClientInfo clientInfo) {
-		synchronized (this.clients) {
-			this.clients.add(clientInfo);
+	/**
+	 * Keep a {@link TableLog} of every new table in the given directory
+	 * 
+	 * @param directory the directory of the logs, <code>null</code> to not
+	 *                  persist tables
+	 */
+	public synchronized void setLogDirectory(File directory) {
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+			ServerLog.error("Can't create log directory " + directory + ", tables are not persisted");
+			directory = null;
 		}
-		this.sendToAllClients(
-				CommunicationKeys.META_ADD_PLAYER + CommunicationKeys.SEPERATOR_MAIN + (this.clients.size() - 1)
-						+ CommunicationKeys.SEPERATOR_PARTS + this.clients.get((this.clients.size() - 1)).getName());
+		this.logDirectory = directory;
 	}
 
-	@Override
-	public void inform(String line) {
-		synchronized (this.clients) {
-			ServerLog.info("Recieved: " + line);
-			String[] split = line.split(CommunicationKeys.SEPERATOR_END)[0].split(CommunicationKeys.SEPERATOR_MAIN);
-			if (split.length == 4) {
-				if (split[0].equalsIgnoreCase(CommunicationKeys.MARKER_CLIENT)) {
-					int client = Integer.parseInt(split[1]);
-					String action = split[2];
-					String value = split[3];
-					if (client < this.clients.size() && client >= 0) {
-						if (action.equalsIgnoreCase(CommunicationKeys.META_SET_NAME)) {
-							ServerLog.info("Change name of " + client + " to " + value);
-							this.setClientName(client, value);
-						} else if (action.equalsIgnoreCase(CommunicationKeys.META_SET_READY)) {
-							this.clients.get(client).setReady(Boolean.parseBoolean(value));
-							if (this.automaticStart) {
-								this.startGame();
-							}
-						} else if (action.equalsIgnoreCase(CommunicationKeys.META_GAME_FINISHED)) {
-							ServerLog.info("Requesting disconnect of client " + client);
-							this.sendToAllClients(
-									CommunicationKeys.META_GAME_FINISHED + CommunicationKeys.SEPERATOR_MAIN + value);
-							this.clients.get(client).disconnect();
-						} else if (action.equalsIgnoreCase(CommunicationKeys.META_DISCONNECT)) {
-							ServerLog.info("Requesting disconnect of client " + client);
-							this.sendToAllClients(
-									CommunicationKeys.META_DISCONNECT + CommunicationKeys.SEPERATOR_MAIN + value);
-							this.clients.get(client).disconnect();
-						} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_ACTION)) {
-							this.sendToAllClients(CommunicationKeys.GAME_ACTION + CommunicationKeys.SEPERATOR_PARTS
-									+ split[1] + CommunicationKeys.SEPERATOR_MAIN + value);
-						} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_RESUME)) {
-							this.sendToAllClients(
-									CommunicationKeys.GAME_RESUME + CommunicationKeys.SEPERATOR_MAIN + value);
-						} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_SHUFFLE)) {
-							this.sendToAllClients(
-									CommunicationKeys.GAME_SHUFFLE + CommunicationKeys.SEPERATOR_MAIN + value);
-						} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_DRAFT)) {
-							this.sendToAllClients(
-									CommunicationKeys.GAME_DRAFT + CommunicationKeys.SEPERATOR_MAIN + value);
-						} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_DEAL_CARDS)) {
-							this.sendToAllClients(
-									CommunicationKeys.GAME_DEAL_CARDS + CommunicationKeys.SEPERATOR_MAIN + value);
-						} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_NEXT_ROUND)) {
-							this.sendToAllClients(
-									CommunicationKeys.GAME_NEXT_ROUND + CommunicationKeys.SEPERATOR_MAIN + value);
-						} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_VOTE_NEXT_ROUND)) {
-							this.sendToAllClients(
-									CommunicationKeys.GAME_VOTE_NEXT_ROUND + CommunicationKeys.SEPERATOR_MAIN + value);
-						} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_INCOME_DONE)) {
-							this.sendToAllClients(
-									CommunicationKeys.GAME_INCOME_DONE + CommunicationKeys.SEPERATOR_MAIN + value);
-						} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_ATTACK)) {
-							this.sendToAllClients(
-									CommunicationKeys.GAME_ATTACK + CommunicationKeys.SEPERATOR_MAIN + value);
-						} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_CONTROL)) {
-							this.sendToAllClients(
-									CommunicationKeys.GAME_CONTROL + CommunicationKeys.SEPERATOR_MAIN + value);
-						} else {
-							ServerLog.error("Unkwon input from Client " + client + ": " + action
-									+ CommunicationKeys.SEPERATOR_MAIN + value);
-						}
-					}
+	/**
+	 * Resume the tables of all interrupted games logged in the log directory
+	 * <p>
+	 * The resumed games are played in addition to the total number of games, new
+	 * tables get numbers after all resumed ones.
+	 * 
+	 * @return the number of resumed tables
+	 */
+	public synchronized int resumeTables() {
+		if (this.logDirectory == null) {
+			return 0;
+		}
+		File[] files = this.logDirectory.listFiles((dir, name) -> name.startsWith("table-") && name.endsWith(".log"));
+		int resumed = 0;
+		for (File file : files == null ? new File[0] : files) {
+			int number;
+			try {
+				number = Integer.parseInt(file.getName().substring(6, file.getName().length() - 4));
+			} catch (NumberFormatException e) {
+				continue;
+			}
+			long start = System.nanoTime();
+			try {
+				TableLog log = TableLog.open(file);
+				Table table = Table.resume(this, number, log);
+				if (!table.hasGameStarted()) {
+					ServerLog.info("Dropping log of " + table + ", its game has never started");
+					log.delete();
+					continue;
 				}
+				this.tables.add(table);
+				this.tableCounter = Math.max(this.tableCounter, number + 1);
+				this.totalNumberOfGames++;
+				this.numberOfGames++;
+				resumed++;
+				ServerLog.info("Resumed " + table + " from " + file + " in " + (System.nanoTime() - start) / 1000
+						+ " microseconds");
+			} catch (IOException | RuntimeException e) {
+				ServerLog.error("Could not resume table from " + file + ": " + e);
 			}
 		}
+		return resumed;
 	}
 
-	public boolean startGame() {
-		if (!this.hasGameStarted()) {
-			if (this.allClientsReady()) {
-				// Transmit number of clients to make sure everyone has the same player number
-				ServerLog.info("Starting game");
-				this.numberOfGames++;
-				synchronized (this.clients) {
-					this.sendToAllClients(
-							CommunicationKeys.GAME_START + CommunicationKeys.SEPERATOR_MAIN + this.clients.size());
-				}
-				this.gameStarted = true;
-				return true;
-			} else {
-				ServerLog.info("Not all clients ready");
-				return false;
-			}
-		} else {
-			return false;
+	/**
+	 * @return a new log for the given table or <code>null</code> if tables are not
+	 *         persisted
+	 */
+	private TableLog createLog(int number) {
+		if (this.logDirectory == null) {
+			return null;
+		}
+		File file = new File(this.logDirectory, "table-" + number + ".log");
+		try {
+			return TableLog.create(file);
+		} catch (IOException e) {
+			ServerLog.error("Could not create log " + file + ", the table is not persisted: " + e);
+			return null;
 		}
 	}
 
-	private boolean allClientsReady() {
-		synchronized (this.clients) {
-			if (this.clients.size() == 0) { // No use in starting the game without clients
-				return false;
-			}
-			for (int i = 0; i < this.clients.size(); i++) {
-				if (!this.clients.get(i).isReady()) {
-					return false;
+	/**
+	 * @return a new, empty queue for the outbound messages of a client
+	 */
+	public synchronized OutboundQueue createOutboundQueue() {
+		return new OutboundQueue(this.outboundCapacity, this.slowConsumerPolicy);
+	}
+
+	/**
+	 * Get the table a new client should be seated at, opening a new one if
+	 * necessary
+	 * 
+	 * @return the open table or <code>null</code> if no more games will be
+	 *         started
+	 */
+	public synchronized Table getOpenTable() {
+		if (this.openTable != null && (this.openTable.hasGameStarted()
+				|| (this.seatsPerTable > 0 && this.openTable.getNumberOfClients() >= this.seatsPerTable))) {
+			this.openTable = null;
+		}
+		if (this.openTable == null) {
+			int waiting = 0;
+			for (Table table : this.tables) {
+				if (!table.hasGameStarted()) {
+					waiting++;
 				}
 			}
-			return true;
+			if (this.numberOfGames + waiting >= this.totalNumberOfGames || this.accepting.isClosed()) {
+				return null;
+			}
+			int number = this.tableCounter++;
+			this.openTable = new Table(this, number, this.automaticStart, this.authoritative,
+					this.createLog(number));
+			this.lastTable = this.openTable;
+			this.tables.add(this.openTable);
+			ServerLog.info("Opened " + this.openTable + " --- "
+					+ (this.totalNumberOfGames - this.numberOfGames - waiting - 1) + " further games left");
 		}
+		return this.openTable;
 	}
 
-	private boolean allClientsDisconnected() {
-		synchronized (this.clients) {
-			if (this.clients.size() == 0) { // No client has ever connected
-				return false;
-			}
-			for (int i = 0; i < this.clients.size(); i++) {
-				if (!this.clients.get(i).hasDisconnected()) {
-					return false;
-				}
+	/**
+	 * Find the table a returning client has its seat at
+	 * 
+	 * @param seat   the id of the seat
+	 * @param secret the secret presented by the client
+	 * @return the table whose game has started and accepts the token or
+	 *         <code>null</code> if there is none
+	 */
+	public synchronized Table getTableOfSeat(int seat, String secret) {
+		for (Table table : this.tables) {
+			if (table.acceptsToken(seat, secret)) {
+				return table;
 			}
-			return true;
 		}
+		return null;
 	}
 
-	private void setClientName(int client, String name) {
-		synchronized (this.clients) {
-			this.clients.get(client).setName(name);
-			this.sendToAllClients(CommunicationKeys.META_SET_NAME + CommunicationKeys.SEPERATOR_MAIN + client
-					+ CommunicationKeys.SEPERATOR_PARTS + name);
+	/**
+	 * Read the reply of a returning client to the handshake
+	 * 
+	 * @param line the reply
+	 * @return the seat, the secret and the number of messages received since the
+	 *         start of the game or <code>null</code> if the client is not
+	 *         returning
+	 */
+	static String[] parseReturning(String line) {
+		if (line == null || !line.startsWith(
+				CommunicationKeys.META_CONNECT_LOADED + CommunicationKeys.SEPERATOR_MAIN)) {
+			return null;
+		}
+		String[] token = line.substring(CommunicationKeys.META_CONNECT_LOADED.length() + 1)
+				.split(CommunicationKeys.SEPERATOR_PARTS);
+		if (token.length != 3) {
+			return null;
+		}
+		try {
+			Integer.parseInt(token[0]);
+			Integer.parseInt(token[2]);
+		} catch (NumberFormatException e) {
+			return null;
 		}
+		return token;
 	}
 
-	private void sendToAllClients(String message) {
-		synchronized (this.clients) {
-			if (message.split(CommunicationKeys.SEPERATOR_MAIN).length == 2) {
-				message = CommunicationKeys.MARKER_SERVER + CommunicationKeys.SEPERATOR_MAIN + "true"
-						+ CommunicationKeys.SEPERATOR_MAIN + message;
-			}
-			if (!message.endsWith(CommunicationKeys.SEPERATOR_END)) {
-				message += CommunicationKeys.SEPERATOR_END;
+	/**
+	 * Find the table a spectator wants to watch and start serving spectators if
+	 * this is the first one
+	 * 
+	 * @param number the number of the table or <code>-1</code> for the most
+	 *               recently started one
+	 * @return the table or <code>null</code> if there is none
+	 */
+	public synchronized Table getTableToWatch(int number) {
+		Table watched = null;
+		for (Table table : this.tables) {
+			if (number >= 0 ? table.getNumber() == number : table.hasGameStarted()) {
+				watched = table;
 			}
-			ServerLog.info("Sending to " + this.clients.size() + " clients: " + message);
-			for (int i = 0; i < this.clients.size(); i++) {
-				if (!this.clients.get(i).hasDisconnected()) {
-					PrintWriter writer = this.clients.get(i).getWriter();
-					writer.println(message);
-					writer.flush();
-				}
+		}
+		if (watched != null && this.spectatorTimer == null) {
+			this.spectatorTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "Spectators");
+				thread.setDaemon(true);
+				return thread;
+			});
+			this.spectatorTimer.scheduleWithFixedDelay(this::deliverToSpectators, SpectatorChannel.INTERVAL,
+					SpectatorChannel.INTERVAL, TimeUnit.MILLISECONDS);
+		}
+		return watched;
+	}
+
+	/**
+	 * Read the reply of a spectator to the handshake
+	 * 
+	 * @param line the reply
+	 * @return the number of the table to watch, <code>-1</code> for the most
+	 *         recently started one, or <code>-2</code> if the client is no
+	 *         spectator
+	 */
+	static int parseSpectate(String line) {
+		if (line == null || !line.startsWith(CommunicationKeys.META_SPECTATE)) {
+			return -2;
+		}
+		String rest = line.substring(CommunicationKeys.META_SPECTATE.length());
+		if (rest.isEmpty()) {
+			return -1;
+		}
+		try {
+			return rest.startsWith(CommunicationKeys.SEPERATOR_MAIN) ? Integer.parseInt(rest.substring(1).trim())
+					: -2;
+		} catch (NumberFormatException e) {
+			return -2;
+		}
+	}
+
+	private void deliverToSpectators() {
+		ArrayList<Table> watched;
+		synchronized (this) {
+			watched = new ArrayList<Table>(this.tables);
+		}
+		long now = System.currentTimeMillis();
+		for (Table table : watched) {
+			try {
+				table.deliverToSpectators(now);
+			} catch (RuntimeException e) {
+				// A failing delivery must not end the timer
+				ServerLog.error(table + ": Could not deliver to spectators: " + e);
 			}
 		}
 	}
 
-	public boolean hasGameStarted() {
-		return this.gameStarted;
+	/**
+	 * @return the clients of the most recently opened table
+	 */
+	public synchronized ArrayList<ClientInfo> getClients() {
+		if (this.lastTable == null) {
+			return new ArrayList<ClientInfo>();
+		}
+		return this.lastTable.getClients();
 	}
 
-	public void stop() {
-		this.accepting.closeSocket();
+	/**
+	 * Start the game of the most recently opened table
+	 * 
+	 * @return <code>true</code> if the game has been started
+	 */
+	public boolean startGame() {
+		Table table;
+		synchronized (this) {
+			table = this.lastTable;
+		}
+		return table != null && table.startGame();
 	}
 
-	@Override
-	public void disconnected(ListeningThread listeningThread) {
-		for (ClientInfo clientInfo : this.clients) {
-			if (clientInfo.getThread() == listeningThread) {
-				this.sendToAllClients(
-						CommunicationKeys.META_DISCONNECT + CommunicationKeys.SEPERATOR_MAIN + clientInfo.id);
-			}
+	/**
+	 * @return the number of tables currently open or playing
+	 */
+	public synchronized int getNumberOfTables() {
+		return this.tables.size();
+	}
+
+	/**
+	 * Called by a {@link Table} when its game has been started
+	 * 
+	 * @param table the table which started
+	 */
+	synchronized void gameStarted(Table table) {
+		this.numberOfGames++;
+		if (this.openTable == table) {
+			this.openTable = null;
+		}
+	}
+
+	/**
+	 * Called by a {@link Table} when all of its clients have disconnected
+	 * 
+	 * @param table the table which closed
+	 */
+	synchronized void tableClosed(Table table) {
+		this.tables.remove(table);
+		if (this.openTable == table) {
+			this.openTable = null;
+		}
+		if (table.hasGameStarted()) {
+			this.finishedGames++;
+			ServerLog.info(table + " finished --- " + this.finishedGames + " of " + this.totalNumberOfGames
+					+ " games finished");
+		} else {
+			ServerLog.info(table + " has been abandoned before its game started");
 		}
+		this.notifyAll();
+	}
+
+	public synchronized void stop() {
+		this.accepting.closeSocket();
+		this.notifyAll();
 	}
 }
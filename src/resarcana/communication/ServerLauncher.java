@@ -1,16 +1,42 @@
 package resarcana.communication;
 
+import java.io.File;
 import java.io.IOException;
 
 public class ServerLauncher {
 
 	public static void main(String[] args) {
 		int numberOfGames = 1;
-		if (args.length == 1) {
+		int seatsPerTable = 0;
+		ConnectionMode mode = ConnectionMode.THREADED;
+		SlowConsumerPolicy policy = SlowConsumerPolicy.COALESCE;
+		boolean authoritative = false;
+		File logDirectory = null;
+		if (args.length >= 1) {
 			numberOfGames = Integer.parseInt(args[0]);
 		}
+		if (args.length >= 2) {
+			mode = ConnectionMode.parse(args[1]);
+		}
+		if (args.length >= 3) {
+			seatsPerTable = Integer.parseInt(args[2]);
+		}
+		if (args.length >= 4) {
+			policy = SlowConsumerPolicy.parse(args[3]);
+		}
+		if (args.length >= 5) {
+			authoritative = Boolean.parseBoolean(args[4]);
+		}
+		if (args.length >= 6) {
+			logDirectory = new File(args[5]);
+		}
 		try {
-			Server s = new Server(true, numberOfGames);
+			Server s = new Server(true, numberOfGames, mode);
+			s.setSeatsPerTable(seatsPerTable);
+			s.setSlowConsumerPolicy(policy, OutboundQueue.DEFAULT_CAPACITY);
+			s.setAuthoritative(authoritative);
+			s.setLogDirectory(logDirectory);
+			s.resumeTables();
 			s.startServer();
 		} catch (IOException e) {
 			ServerLog.error("IOException from server: " + e);
@@ -7,6 +7,7 @@ import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.net.SocketTimeoutException;
 import java.util.ArrayList;
 
 /**
@@ -15,16 +16,28 @@ import java.util.ArrayList;
  * @author Erik Wagner
  * 
  */
-public class ServerThread extends Thread {
+public class ServerThread extends Thread implements ClientAcceptor {
+
+	/**
+	 * Time a client has to reply to the handshake, handshakes are processed one
+	 * after another
+	 */
+	private static final int HANDSHAKE_TIMEOUT = 5000;
 
 	private final Server parent;
 	private final ServerSocket server;
+	private final ConnectionExecutor executor;
 
 	private boolean closing = false;
 
 	public ServerThread(Server parent, ServerSocket server) {
+		this(parent, server, ConnectionExecutor.platformThreads());
+	}
+
+	public ServerThread(Server parent, ServerSocket server, ConnectionExecutor executor) {
 		this.parent = parent;
 		this.server = server;
+		this.executor = executor;
 	}
 
 	private void acceptClients() throws SocketException, IOException {
@@ -38,15 +51,18 @@ public class ServerThread extends Thread {
 		// eine ID zu senden
 		BufferedReader br = new BufferedReader(new InputStreamReader(client.getInputStream()));
 		PrintWriter pw = new PrintWriter(client.getOutputStream(), false);
+		client.setSoTimeout(HANDSHAKE_TIMEOUT);
 
-		ArrayList<ClientInfo> clients = this.parent.getClients();
+		Table table = this.parent.getOpenTable();
+		ArrayList<ClientInfo> clients = null;
 		int id = -1;
 		// Server does not test for the amount of players
-		// if to many players would be connected, the excess ones can only spectate
-		if (!this.parent.hasGameStarted()) {
+		// if no table can be opened anymore, the client can only spectate
+		if (table != null) {
 			// übermitteln
+			clients = table.getClients();
 			id = clients.size();
-			ServerLog.info("Client " + id + " accepted");
+			ServerLog.info("Client " + id + " accepted at " + table);
 		}
 		pw.println("" + id);
 		pw.flush();
@@ -58,24 +74,103 @@ public class ServerThread extends Thread {
 						+ clients.get(i).getName());
 				pw.flush();
 			}
-			pw.println(CommunicationKeys.META_CONNECT_FINISH);
-			pw.flush();
+		}
+		// Old clients only test for the prefix and ignore the offer of binary frames
+		pw.println(CommunicationKeys.META_CONNECT_FINISH + CommunicationKeys.SEPERATOR_MAIN
+				+ CommunicationKeys.META_BINARY);
+		pw.flush();
 
-			// Wait for confirmation from client
-			String line = br.readLine();
-			if (!line.startsWith(CommunicationKeys.META_CONNECT_FINISH)) {
-				ServerLog.warn("Recieved unexpected line from client: " + line);
-			}
+		// Wait for confirmation from client
+		String line;
+		try {
+			line = br.readLine();
+		} catch (SocketTimeoutException e) {
+			ServerLog.warn("Client " + id + " did not reply to the handshake in time, disconnecting it");
+			client.close();
+			return;
+		}
+		client.setSoTimeout(0);
+		int watched = Server.parseSpectate(line);
+		if (watched != -2) {
+			this.acceptSpectator(client, watched);
+			return;
+		}
+		String[] returning = Server.parseReturning(line);
+		if (returning != null) {
+			this.acceptReturning(client, returning);
+			return;
+		}
+		if (id == -1 || line == null) {
+			// Only a returning client or a spectator continues without seat, old clients
+			// close the connection
+			client.close();
+			return;
+		}
+		if (line == null || !line.startsWith(CommunicationKeys.META_CONNECT_FINISH)) {
+			ServerLog.warn("Recieved unexpected line from client: " + line);
+		}
+
+		// ListeningThread erstellen und starten
+		ThreadedConnection connection = new ThreadedConnection(table, client, client.getOutputStream(),
+				CommunicationKeys.MARKER_CLIENT + CommunicationKeys.SEPERATOR_MAIN + id
+						+ CommunicationKeys.SEPERATOR_MAIN,
+				CommunicationKeys.MARKER_SERVER, this.parent.createOutboundQueue());
+		connection.start(this.executor);
+
+		// Client ablegen
+		ClientInfo clientInfo = new ClientInfo(id, "Client " + id, connection);
+		clientInfo.setBinary(WireFormat.isBinaryHandshake(line));
+		table.addClient(clientInfo);
+		ServerLog.info("Client " + id + " added to " + table);
+	}
 
-			// ListeningThread erstellen und starten
-			ListeningThread thread = new ListeningThread(client, this.parent, CommunicationKeys.MARKER_CLIENT
-					+ CommunicationKeys.SEPERATOR_MAIN + id + CommunicationKeys.SEPERATOR_MAIN,
-					CommunicationKeys.MARKER_SERVER);
-			thread.start();
+	/**
+	 * Let a client watch a table as spectator
+	 * 
+	 * @param client the socket of the client
+	 * @param number the number of the table as read by
+	 *               {@link Server#parseSpectate(String)}
+	 */
+	private void acceptSpectator(Socket client, int number) throws IOException {
+		Table table = this.parent.getTableToWatch(number);
+		if (table == null) {
+			ServerLog.warn("Spectator wants to watch an unknown table " + number);
+			client.close();
+			return;
+		}
+		ThreadedConnection connection = new ThreadedConnection(table, client, client.getOutputStream(),
+				CommunicationKeys.MARKER_CLIENT + CommunicationKeys.SEPERATOR_MAIN + "-1"
+						+ CommunicationKeys.SEPERATOR_MAIN,
+				CommunicationKeys.MARKER_SERVER, this.parent.createOutboundQueue());
+		connection.start(this.executor);
+		table.addSpectator(connection);
+	}
 
-			// Client ablegen
-			this.parent.addClient(new ClientInfo(id, "Client " + id, thread, pw));
-			ServerLog.info("Client " + id + " added");
+	/**
+	 * Seat a client returning with its token again, see
+	 * {@link Table#rebind(int, String, ClientConnection, int)}
+	 * 
+	 * @param client    the socket of the client
+	 * @param returning the token and state of the client as read by
+	 *                  {@link Server#parseReturning(String)}
+	 */
+	private void acceptReturning(Socket client, String[] returning) throws IOException {
+		int seat = Integer.parseInt(returning[0]);
+		Table table = this.parent.getTableOfSeat(seat, returning[1]);
+		if (table == null) {
+			ServerLog.warn("Client returned with an unknown token for seat " + seat);
+			client.close();
+			return;
+		}
+		ThreadedConnection connection = new ThreadedConnection(table, client, client.getOutputStream(),
+				CommunicationKeys.MARKER_CLIENT + CommunicationKeys.SEPERATOR_MAIN + seat
+						+ CommunicationKeys.SEPERATOR_MAIN,
+				CommunicationKeys.MARKER_SERVER, this.parent.createOutboundQueue());
+		connection.start(this.executor);
+		if (!table.rebind(seat, returning[1], connection, Integer.parseInt(returning[2]))) {
+			connection.disconnect();
+		} else {
+			ServerLog.info("Client " + seat + " returned to " + table);
 		}
 	}
 
@@ -104,6 +199,7 @@ public class ServerThread extends Thread {
 		}
 	}
 
+	@Override
 	public void closeSocket() {
 		this.closing = true;
 		try {
@@ -114,6 +210,7 @@ public class ServerThread extends Thread {
 		}
 	}
 
+	@Override
 	public boolean isClosed() {
 		return this.closing;
 	}
@@ -0,0 +1,44 @@
+package resarcana.communication;
+
+/**
+ * What happens to a client whose {@link OutboundQueue} is full because it does
+ * not read its messages fast enough
+ * 
+ * @author Erik Wagner
+ *
+ */
+public enum SlowConsumerPolicy {
+	/**
+	 * Drop the new message for this client only, the client will most likely be
+	 * out of sync afterwards, so only use this for clients that merely watch
+	 */
+	DROP,
+	/**
+	 * Disconnect the client, the other clients are informed like for any other
+	 * lost connection
+	 */
+	DISCONNECT,
+	/**
+	 * Merge all pending messages into a single batch which is written at once,
+	 * nothing is lost unless the batch outgrows
+	 * {@link OutboundQueue#MAX_COALESCED_LENGTH}, then the client is
+	 * disconnected
+	 */
+	COALESCE;
+
+	/**
+	 * Parse a policy from a command line argument, ignoring case
+	 * 
+	 * @param value the name of the policy
+	 * @return the matching policy or {@link #COALESCE} if none matches
+	 */
+	public static SlowConsumerPolicy parse(String value) {
+		for (SlowConsumerPolicy policy : values()) {
+			if (policy.name().equalsIgnoreCase(value.trim())) {
+				return policy;
+			}
+		}
+		ServerLog.warn("Unknown slow consumer policy " + value + ", using " + COALESCE);
+		return COALESCE;
+	}
+}
@@ -0,0 +1,214 @@
+package resarcana.communication;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The read-only spectators of a single {@link Table}
+ * <p>
+ * Every message the table sends to its clients is published here exactly as it
+ * has been encoded for them, the same buffer is shared by all players and
+ * spectators. Publishing only appends the message without any lock, so the
+ * players never wait for any spectator.
+ * <p>
+ * The spectators are served by the timer of the {@link Server} every
+ * {@link #INTERVAL} milliseconds. A spectator that keeps up receives the new
+ * messages as they are, one that has fallen behind receives everything it has
+ * missed coalesced into a single compressed {@link CommunicationKeys#GAME_RESUME}
+ * message, which is encoded only once for all spectators at the same position.
+ * A new spectator starts this way with the whole history. Each spectator is
+ * limited to {@link #BYTES_PER_SECOND} and receives nothing while its
+ * connection still has more than {@link #MAX_BACKLOG} messages to write, its
+ * messages are coalesced into the next delta instead.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class SpectatorChannel {
+
+	/**
+	 * Milliseconds between two deliveries to the spectators
+	 */
+	public static final long INTERVAL = 100;
+	/**
+	 * The rate each spectator is limited to
+	 */
+	public static final int BYTES_PER_SECOND = 64 * 1024;
+	/**
+	 * The number of bytes a spectator may receive at once after being idle
+	 */
+	public static final int BURST = 256 * 1024;
+	/**
+	 * The maximum number of messages waiting for a spectator before it is
+	 * skipped
+	 */
+	public static final int MAX_BACKLOG = 4;
+	/**
+	 * The maximum number of missed messages sent as they are, more are coalesced
+	 */
+	public static final int MAX_DIRECT = 4;
+
+	private final String prefix;
+	private final CopyOnWriteArrayList<Spectator> spectators = new CopyOnWriteArrayList<Spectator>();
+
+	// Append-only: the array is replaced before the size is raised, so a reader
+	// sees all messages up to the size it has read first
+	private volatile byte[][] messages = new byte[256][];
+	private volatile int size = 0;
+
+	/**
+	 * @param prefix the prefix of all log messages
+	 */
+	public SpectatorChannel(String prefix) {
+		this.prefix = prefix;
+	}
+
+	/**
+	 * Publish a message sent to all clients
+	 * <p>
+	 * Must only be called by a single thread at a time, the table does so under
+	 * its lock
+	 *
+	 * @param message the message as sent to the clients
+	 */
+	void publish(byte[] message) {
+		byte[][] array = this.messages;
+		int index = this.size;
+		if (index == array.length) {
+			array = Arrays.copyOf(array, 2 * index);
+			this.messages = array;
+		}
+		array[index] = message;
+		this.size = index + 1;
+	}
+
+	/**
+	 * Add a spectator, it receives the whole history with the next delivery
+	 *
+	 * @param connection the connection of the spectator
+	 */
+	void add(ClientConnection connection) {
+		this.spectators.add(new Spectator(connection));
+		ServerLog.info(this.prefix + "Spectator added, " + this.spectators.size() + " watching");
+	}
+
+	/**
+	 * @param connection a closed connection
+	 * @return <code>true</code> if it has been the connection of a spectator
+	 */
+	boolean remove(ClientConnection connection) {
+		for (Spectator spectator : this.spectators) {
+			if (spectator.connection == connection) {
+				this.spectators.remove(spectator);
+				ServerLog.info(this.prefix + "Spectator left, " + this.spectators.size() + " watching");
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int getNumberOfSpectators() {
+		return this.spectators.size();
+	}
+
+	/**
+	 * Deliver the new messages to all spectators within their limits
+	 * <p>
+	 * Called by the timer of the {@link Server} only
+	 *
+	 * @param now the current time in milliseconds
+	 */
+	synchronized void deliver(long now) {
+		if (this.spectators.isEmpty()) {
+			return;
+		}
+		int end = this.size;
+		byte[][] array = this.messages;
+		// Deltas of this delivery by their start, shared by all spectators there
+		HashMap<Integer, byte[]> deltas = null;
+		for (Spectator spectator : this.spectators) {
+			spectator.refill(now);
+			if (spectator.position >= end || spectator.allowance <= 0
+					|| spectator.connection.getPending() > MAX_BACKLOG) {
+				continue;
+			}
+			if (spectator.connection.hasDisconnected()) {
+				this.spectators.remove(spectator);
+				continue;
+			}
+			if (end - spectator.position <= MAX_DIRECT && spectator.position > 0) {
+				for (int i = spectator.position; i < end; i++) {
+					spectator.connection.sendRaw(array[i]);
+					spectator.allowance -= array[i].length;
+				}
+			} else {
+				if (deltas == null) {
+					deltas = new HashMap<Integer, byte[]>();
+				}
+				byte[] delta = deltas.get(spectator.position);
+				if (delta == null) {
+					delta = this.encodeDelta(array, spectator.position, end);
+					if (delta == null) {
+						continue;
+					}
+					deltas.put(spectator.position, delta);
+				}
+				spectator.connection.sendRaw(delta);
+				spectator.allowance -= delta.length;
+			}
+			spectator.position = end;
+		}
+	}
+
+	/**
+	 * @return the messages from start to end compressed into a single line
+	 */
+	private byte[] encodeDelta(byte[][] array, int start, int end) {
+		try {
+			String delta = Base64.getUrlEncoder().withoutPadding()
+					.encodeToString(TableLog.compress(Arrays.asList(array).subList(start, end), end - start));
+			return WireFormat.encodeLine(CommunicationKeys.MARKER_SERVER + CommunicationKeys.SEPERATOR_MAIN + "false"
+					+ CommunicationKeys.SEPERATOR_MAIN + CommunicationKeys.GAME_RESUME + CommunicationKeys.SEPERATOR_MAIN
+					+ delta + CommunicationKeys.SEPERATOR_END);
+		} catch (IOException e) {
+			ServerLog.error(this.prefix + "Could not compress messages for spectators: " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Deliver everything left regardless of the limits and disconnect all
+	 * spectators, e.g. when the table closes
+	 */
+	synchronized void close() {
+		for (Spectator spectator : this.spectators) {
+			spectator.allowance = BURST;
+		}
+		this.deliver(System.currentTimeMillis());
+		for (Spectator spectator : this.spectators) {
+			spectator.connection.disconnect();
+		}
+	}
+
+	private static class Spectator {
+
+		private final ClientConnection connection;
+		// Index of the next message to deliver
+		private int position = 0;
+		// Bytes this spectator may still receive, refilled over time
+		private long allowance = BURST;
+		private long refilled = System.currentTimeMillis();
+
+		private Spectator(ClientConnection connection) {
+			this.connection = connection;
+		}
+
+		private void refill(long now) {
+			this.allowance = Math.min(BURST, this.allowance + (now - this.refilled) * BYTES_PER_SECOND / 1000);
+			this.refilled = now;
+		}
+	}
+}
@@ -0,0 +1,760 @@
+package resarcana.communication;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A single table of the {@link Server} hosting one game
+ * <p>
+ * Every table has its own clients with their own ids, ready states and
+ * broadcasts, so messages of one game never reach the clients of another one
+ * <p>
+ * The clients are kept in a copy-on-write list which can be read without
+ * locking. Incoming messages are still handled one at a time, so all clients
+ * receive the broadcasts in the same order, but a broadcast only appends to the
+ * {@link OutboundQueue} of every client and never waits for a socket.
+ * <p>
+ * An authoritative table follows its game with a {@link TableReferee}, which
+ * validates every game message before it is sent to the clients and deals the
+ * cards itself.
+ * <p>
+ * Every message sent to the clients is kept in the history of the table and,
+ * if the table has a {@link TableLog}, appended to it, so the table can be
+ * resumed after a restart of the server.
+ * <p>
+ * Every seated client receives a token of its seat. A client returning with
+ * this token after the game has started takes its seat again and catches up
+ * with the messages it has missed, or all messages if it has lost its state,
+ * while the other clients continue to play.
+ * <p>
+ * Any number of read-only spectators may watch the table through its
+ * {@link SpectatorChannel}.
+ * 
+ * @author Erik Wagner
+ *
+ */
+public class Table {
+
+	private static final SecureRandom SECRETS = new SecureRandom();
+
+	private final Server server;
+	private final int number;
+	private final String prefix;
+	private final boolean automaticStart;
+	// null if game messages are relayed without validation
+	private final TableReferee referee;
+
+	private final CopyOnWriteArrayList<ClientInfo> clients = new CopyOnWriteArrayList<ClientInfo>();
+	// Orders incoming messages and state changes of this table
+	private final Object lock = new Object();
+
+	private volatile int numberOfClients = 0;
+	private volatile boolean gameStarted = false;
+	// Set once the game has started and all clients have negotiated binary frames
+	private boolean binary = false;
+	private boolean closed = false;
+	private boolean gameFinished = false;
+
+	// Every message sent to the clients as it has been sent
+	private final ArrayList<byte[]> history = new ArrayList<byte[]>();
+	// null if the table is not persisted
+	private TableLog log;
+	// Index of the start of the game in the history, -1 before
+	private int startIndex = -1;
+	// The secret of every seat, null for seats without one
+	private final ArrayList<String> secrets = new ArrayList<String>();
+	private final SpectatorChannel spectators;
+
+	public Table(Server server, int number, boolean automaticStart) {
+		this(server, number, automaticStart, false);
+	}
+
+	public Table(Server server, int number, boolean automaticStart, boolean authoritative) {
+		this(server, number, automaticStart, authoritative, null);
+	}
+
+	/**
+	 * @param log the log to append all messages to or <code>null</code> if the
+	 *            table is not persisted
+	 */
+	public Table(Server server, int number, boolean automaticStart, boolean authoritative, TableLog log) {
+		this.server = server;
+		this.number = number;
+		this.prefix = "Table " + number + ": ";
+		this.automaticStart = automaticStart;
+		this.referee = authoritative ? new TableReferee(this.prefix) : null;
+		this.log = log;
+		this.spectators = new SpectatorChannel(this.prefix);
+	}
+
+	/**
+	 * Restore a table from its log, e.g. after a restart of the server
+	 * <p>
+	 * The history is read from the log, the game state of an authoritative
+	 * table is rebuilt by applying the
+	 * history to a new {@link TableReferee}. The table keeps its log. Every seat
+	 * is restored without a connection, its client may take it again with its
+	 * token.
+	 * 
+	 * @param server the server hosting the table
+	 * @param number the number of the table
+	 * @param log    the log of the table
+	 * @return the restored table
+	 * @throws IOException if the log can not be read
+	 */
+	public static Table resume(Server server, int number, TableLog log) throws IOException {
+		ArrayList<byte[]> messages = log.load();
+		boolean authoritative = false;
+		for (byte[] message : messages) {
+			if (getOpcode(message) == Opcode.AUTHORITATIVE) {
+				authoritative = true;
+				break;
+			}
+		}
+		Table table = new Table(server, number, false, authoritative, log);
+		for (int i = 0; i < messages.size(); i++) {
+			byte[] message = messages.get(i);
+			String[] split;
+			switch (getOpcode(message)) {
+			case START:
+				table.gameStarted = true;
+				table.startIndex = i;
+				break;
+			case BINARY:
+				table.binary = true;
+				break;
+			case ADD_PLAYER:
+				split = getValue(message).split(CommunicationKeys.SEPERATOR_PARTS);
+				ClientInfo seat = new ClientInfo(Integer.parseInt(split[0]), split[1], null);
+				seat.setReady(true);
+				table.clients.add(seat);
+				break;
+			case SET_NAME:
+				split = getValue(message).split(CommunicationKeys.SEPERATOR_PARTS);
+				table.clients.get(Integer.parseInt(split[0])).setName(split[1]);
+				break;
+			default:
+				break;
+			}
+		}
+		for (ClientInfo seat : table.clients) {
+			seat.setBinary(table.binary);
+		}
+		table.numberOfClients = table.clients.size();
+		table.secrets.addAll(log.loadSeats());
+		table.history.addAll(messages);
+		for (byte[] message : messages) {
+			table.spectators.publish(message);
+		}
+		if (table.referee != null) {
+			table.referee.replay(messages);
+			for (int seat = 0; seat < table.secrets.size(); seat++) {
+				if (table.secrets.get(seat) != null) {
+					table.referee.setSecret(seat, table.secrets.get(seat));
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * @param message a message as sent to the clients, text line or binary frame
+	 * @return the opcode of the message
+	 */
+	static Opcode getOpcode(byte[] message) {
+		if (message.length > 0 && message[0] == WireFormat.FRAME_MARKER) {
+			return WireFormat.getMessageOpcode(message);
+		}
+		Message parsed = Message.parse(new String(message, WireFormat.CHARSET).trim());
+		return parsed == null ? Opcode.UNKNOWN : parsed.getOpcode();
+	}
+
+	/**
+	 * @param message a meta message as sent to the clients, text line or binary
+	 *                frame
+	 * @return the value of the message
+	 */
+	private static String getValue(byte[] message) {
+		if (message.length > 0 && message[0] == WireFormat.FRAME_MARKER) {
+			return WireFormat.getValue(message, null);
+		}
+		Message parsed = Message.parse(new String(message, WireFormat.CHARSET).trim());
+		return parsed == null ? "" : parsed.getValue();
+	}
+
+	public boolean isAuthoritative() {
+		return this.referee != null;
+	}
+
+	public int getNumber() {
+		return this.number;
+	}
+
+	public ArrayList<ClientInfo> getClients() {
+		return new ArrayList<ClientInfo>(this.clients);
+	}
+
+	public int getNumberOfClients() {
+		return this.numberOfClients;
+	}
+
+	public int getNumberOfSpectators() {
+		return this.spectators.getNumberOfSpectators();
+	}
+
+	/**
+	 * Let a client watch this table without a seat, anything it sends is ignored
+	 * 
+	 * @param connection the connection of the spectator
+	 */
+	void addSpectator(ClientConnection connection) {
+		this.spectators.add(connection);
+	}
+
+	/**
+	 * Deliver new messages to the spectators, called by the timer of the
+	 * {@link Server}
+	 * 
+	 * @param now the current time in milliseconds
+	 */
+	void deliverToSpectators(long now) {
+		this.spectators.deliver(now);
+	}
+
+	public void addClient(ClientInfo clientInfo) {
+		synchronized (this.lock) {
+			this.clients.add(clientInfo);
+			this.numberOfClients = this.clients.size();
+			this.sendToAllClientsAndReferee(CommunicationKeys.META_ADD_PLAYER, (this.clients.size() - 1)
+					+ CommunicationKeys.SEPERATOR_PARTS + this.clients.get((this.clients.size() - 1)).getName());
+			this.issueToken(this.clients.size() - 1);
+		}
+	}
+
+	/**
+	 * Create the secret of a seat and send the token to take it again to its
+	 * client only
+	 */
+	private void issueToken(int seat) {
+		String secret = Long.toHexString(SECRETS.nextLong()) + Long.toHexString(SECRETS.nextLong());
+		while (this.secrets.size() <= seat) {
+			this.secrets.add(null);
+		}
+		this.secrets.set(seat, secret);
+		if (this.referee != null) {
+			this.referee.setSecret(seat, secret);
+		}
+		if (this.log != null) {
+			try {
+				this.log.appendSeat(seat, secret);
+			} catch (IOException e) {
+				ServerLog.error(this.prefix + "Could not write log, continuing without it: " + e);
+				this.log.close();
+				this.log = null;
+			}
+		}
+		this.clients.get(seat).send(CommunicationKeys.MARKER_SERVER + CommunicationKeys.SEPERATOR_MAIN + "false"
+				+ CommunicationKeys.SEPERATOR_MAIN + CommunicationKeys.META_TOKEN + CommunicationKeys.SEPERATOR_MAIN
+				+ seat + CommunicationKeys.SEPERATOR_PARTS + secret + CommunicationKeys.SEPERATOR_END);
+	}
+
+	/**
+	 * @param seat   the id of a seat
+	 * @param secret the secret presented by a returning client
+	 * @return <code>true</code> if the game has started and the secret belongs to
+	 *         the seat
+	 */
+	public boolean acceptsToken(int seat, String secret) {
+		synchronized (this.lock) {
+			return this.gameStarted && !this.closed && seat >= 0 && seat < this.secrets.size()
+					&& secret.equals(this.secrets.get(seat));
+		}
+	}
+
+	/**
+	 * Seat a returning client again
+	 * <p>
+	 * The previous connection of the seat is dropped. A client which has followed
+	 * the game until it lost its connection only receives the messages it has
+	 * missed, one without any state receives the history compressed into a
+	 * single {@link CommunicationKeys#GAME_RESUME} message followed by the
+	 * messages sent while compressing. Afterwards all clients are informed with
+	 * {@link CommunicationKeys#META_RECONNECT}. Only the compression happens
+	 * outside the lock of the table, the client is seated and caught up under
+	 * the lock, so no other message is sent in between.
+	 * 
+	 * @param seat       the id of the seat
+	 * @param secret     the secret presented by the client
+	 * @param connection the new connection of the client
+	 * @param received   the number of messages the client has received since the
+	 *                   start of the game, <code>-1</code> if it has no state
+	 * @return <code>false</code> if the seat can not be taken with this secret
+	 */
+	public boolean rebind(int seat, String secret, ClientConnection connection, int received) {
+		ArrayList<byte[]> history;
+		synchronized (this.lock) {
+			if (!this.acceptsToken(seat, secret)) {
+				return false;
+			}
+			int missed = this.startIndex + received;
+			if (received >= 0 && missed <= this.history.size()) {
+				ServerLog.info(this.prefix + "Client " + seat + " returned, sending " + (this.history.size() - missed)
+						+ " missed messages");
+				this.seat(seat, connection, null, missed);
+				return true;
+			}
+			history = new ArrayList<byte[]>(this.history);
+		}
+		String resume;
+		try {
+			resume = Base64.getUrlEncoder().withoutPadding()
+					.encodeToString(TableLog.compress(history, history.size()));
+		} catch (IOException e) {
+			ServerLog.error(this.prefix + "Could not compress history for client " + seat + ": " + e);
+			connection.disconnect();
+			return false;
+		}
+		synchronized (this.lock) {
+			if (!this.acceptsToken(seat, secret)) {
+				connection.disconnect();
+				return false;
+			}
+			ServerLog.info(this.prefix + "Client " + seat + " returned without state, sending " + history.size()
+					+ " messages in " + resume.length() + " characters and " + (this.history.size() - history.size())
+					+ " further messages");
+			this.seat(seat, connection, resume, history.size());
+			return true;
+		}
+	}
+
+	/**
+	 * Replace the connection of a seat and catch the client up, must be called
+	 * under the lock of the table
+	 * 
+	 * @param seat       the id of the seat
+	 * @param connection the new connection of the client
+	 * @param resume     the compressed history to send first, <code>null</code>
+	 *                   for none
+	 * @param from       the index in the history of the first message to send
+	 */
+	private void seat(int seat, ClientConnection connection, String resume, int from) {
+		ClientInfo previous = this.clients.get(seat);
+		ClientInfo clientInfo = new ClientInfo(seat, previous.getName(), connection);
+		clientInfo.setReady(true);
+		clientInfo.setBinary(this.binary);
+		this.clients.set(seat, clientInfo);
+		// Replaced first, so closing the stale connection is not reported
+		previous.abort();
+		if (resume != null) {
+			clientInfo.send(CommunicationKeys.MARKER_SERVER + CommunicationKeys.SEPERATOR_MAIN + "false"
+					+ CommunicationKeys.SEPERATOR_MAIN + CommunicationKeys.GAME_RESUME
+					+ CommunicationKeys.SEPERATOR_MAIN + resume + CommunicationKeys.SEPERATOR_END);
+		}
+		for (int i = from; i < this.history.size(); i++) {
+			clientInfo.sendRaw(this.history.get(i));
+		}
+		this.sendToAllClientsAndReferee(CommunicationKeys.META_RECONNECT, "" + seat);
+	}
+
+	/**
+	 * Handle a text line received from a client
+	 * <p>
+	 * Like {@link #informFrame(ClientConnection, byte[])} the line is only
+	 * accepted if its sender is the client of the connection it has been
+	 * received from
+	 * 
+	 * @param connection the connection the line has been received from
+	 * @param line       the complete line
+	 */
+	void inform(ClientConnection connection, String line) {
+		synchronized (this.lock) {
+			ServerLog.info(this.prefix + "Recieved: " + line);
+			Message message = Message.parse(line);
+			if (message == null || message.isFromServer()) {
+				return;
+			}
+			int client = message.getClient();
+			if (client < 0 || client >= this.clients.size()
+					|| this.clients.get(client).getConnection() != connection) {
+				ServerLog.error(this.prefix + "Recieved line from wrong connection: " + line);
+				return;
+			}
+			this.handle(client, message.getOpcode(), message.getValue(), null);
+		}
+	}
+
+	/**
+	 * Handle a binary frame of {@link WireFormat} received from a client
+	 * <p>
+	 * Game messages are relayed to all clients without being decoded, only meta
+	 * messages are read by the server
+	 * 
+	 * @param connection the connection the frame has been received from
+	 * @param frame      the complete frame
+	 */
+	void informFrame(ClientConnection connection, byte[] frame) {
+		synchronized (this.lock) {
+			try {
+				Opcode opcode = WireFormat.getMessageOpcode(frame);
+				int client = WireFormat.getSender(frame);
+				if (opcode == Opcode.UNKNOWN || client < 0 || client >= this.clients.size()
+						|| this.clients.get(client).getConnection() != connection) {
+					ServerLog.error(this.prefix + "Recieved invalid frame: " + opcode + " from " + client);
+					return;
+				}
+				if (opcode.isGameMessage()) {
+					ServerLog.info(this.prefix + "Recieved frame: " + opcode.getAction() + " from " + client);
+					this.handle(client, opcode, null, frame);
+				} else {
+					String value = WireFormat.getValue(frame, null);
+					ServerLog.info(this.prefix + "Recieved frame: " + opcode.getAction()
+							+ CommunicationKeys.SEPERATOR_MAIN + value + " from " + client);
+					this.handle(client, opcode, value, frame);
+				}
+			} catch (RuntimeException e) {
+				ServerLog.error(this.prefix + "Recieved malformed frame: " + e);
+			}
+		}
+	}
+
+	/**
+	 * Handle a single message of a client
+	 * 
+	 * @param client the id of the client
+	 * @param opcode the opcode of the message
+	 * @param value  the value or <code>null</code> if only the frame is known
+	 * @param frame  the frame the message has been received as or
+	 *               <code>null</code> if it has been received as text
+	 */
+	private void handle(int client, Opcode opcode, String value, byte[] frame) {
+		if (client >= this.clients.size() || client < 0) {
+			return;
+		}
+		switch (opcode) {
+		case SET_NAME:
+			ServerLog.info(this.prefix + "Change name of " + client + " to " + value);
+			this.setClientName(client, value);
+			break;
+		case SET_READY:
+			this.clients.get(client).setReady(Boolean.parseBoolean(value));
+			if (this.automaticStart) {
+				this.startGame();
+			}
+			break;
+		case GAME_FINISHED:
+			ServerLog.info(this.prefix + "Requesting disconnect of client " + client);
+			this.gameFinished = true;
+			this.sendToAllClients(CommunicationKeys.META_GAME_FINISHED, value);
+			this.clients.get(client).disconnect();
+			break;
+		case DISCONNECT:
+			ServerLog.info(this.prefix + "Requesting disconnect of client " + client);
+			this.sendToAllClientsAndReferee(CommunicationKeys.META_DISCONNECT, value);
+			this.clients.get(client).disconnect();
+			break;
+		case ACTION:
+		case RESUME:
+		case SHUFFLE:
+		case DRAFT:
+		case DEAL_CARDS:
+		case NEXT_ROUND:
+		case VOTE_NEXT_ROUND:
+		case INCOME_DONE:
+		case ATTACK:
+		case CONTROL:
+			if (this.referee == null) {
+				this.relay(client, opcode.getAction(), value, frame);
+			} else {
+				this.referee(client, opcode, value, frame);
+			}
+			break;
+		default:
+			ServerLog.error(this.prefix + "Unkwon input from Client " + client + ": " + opcode
+					+ CommunicationKeys.SEPERATOR_MAIN + value);
+		}
+	}
+
+	/**
+	 * Relay a game message to all clients
+	 * <p>
+	 * A received frame is passed on as it is if the table uses binary frames,
+	 * otherwise the message is sent in the format of the table
+	 */
+	private void relay(int client, String action, String value, byte[] frame) {
+		if (frame != null && this.binary) {
+			ServerLog.info(this.prefix + "Relaying frame to " + this.clients.size() + " clients: " + action);
+			this.record(action, frame);
+			for (ClientInfo clientInfo : this.clients) {
+				if (!clientInfo.hasDisconnected()) {
+					clientInfo.sendRaw(frame);
+				}
+			}
+		} else if (value != null) {
+			this.sendToAllClients(action, client, value);
+		} else {
+			ServerLog.error(this.prefix + "Recieved frame from client " + client + " at a text table: " + action);
+		}
+	}
+
+	/**
+	 * Validate a game message with the {@link TableReferee} and relay it if it
+	 * is legal
+	 * <p>
+	 * The original frame is only relayed if the referee has not changed the
+	 * value. Afterwards the referee applies the message and sends everything it
+	 * has decided as dealer in return.
+	 */
+	private void referee(int client, Opcode opcode, String value, byte[] frame) {
+		if (value == null) {
+			value = WireFormat.getValue(frame, this.referee.getGame());
+		}
+		String checked = this.referee.validate(client, opcode, value);
+		if (checked == null) {
+			return;
+		}
+		if (!checked.equals(value)) {
+			frame = null;
+		}
+		this.relay(client, opcode.getAction(), checked, frame);
+		this.referee.apply(opcode, checked);
+		this.drainReferee();
+	}
+
+	/**
+	 * Send a message to all clients and apply it to the game state of the
+	 * {@link TableReferee} if this table is authoritative
+	 */
+	private void sendToAllClientsAndReferee(String action, String value) {
+		this.sendToAllClients(action, value);
+		if (this.referee != null) {
+			this.referee.apply(action, value);
+			this.drainReferee();
+		}
+	}
+
+	/**
+	 * Send all messages the {@link TableReferee} has decided as dealer, every
+	 * message is applied to the referee right after it has been sent
+	 */
+	private void drainReferee() {
+		String[] message;
+		while ((message = this.referee.pollMessage()) != null) {
+			this.sendToAllClients(message[0], message[1]);
+			this.referee.apply(message[0], message[1]);
+		}
+	}
+
+	public boolean startGame() {
+		synchronized (this.lock) {
+			if (this.hasGameStarted()) {
+				return false;
+			}
+			if (!this.allClientsReady()) {
+				ServerLog.info(this.prefix + "Not all clients ready");
+				return false;
+			}
+			// Transmit number of clients to make sure everyone has the same player number
+			ServerLog.info(this.prefix + "Starting game");
+			if (this.referee != null) {
+				// Has to reach the clients before the game starts, so none of them shuffles
+				this.sendToAllClients(CommunicationKeys.META_AUTHORITATIVE, "true");
+			}
+			this.sendToAllClients(CommunicationKeys.GAME_START, "" + this.clients.size());
+			if (this.allClientsBinary()) {
+				// Everyone has negotiated binary frames, a single legacy client keeps the
+				// whole table on the text protocol
+				ServerLog.info(this.prefix + "Switching to binary frames");
+				this.sendToAllClients(CommunicationKeys.META_BINARY, "" + WireFormat.VERSION);
+				this.binary = true;
+			}
+			if (this.referee != null) {
+				this.referee.apply(CommunicationKeys.GAME_START, "" + this.clients.size());
+				this.drainReferee();
+			}
+			this.gameStarted = true;
+		}
+		this.server.gameStarted(this);
+		return true;
+	}
+
+	private boolean allClientsReady() {
+		if (this.clients.isEmpty()) { // No use in starting the game without clients
+			return false;
+		}
+		for (ClientInfo client : this.clients) {
+			if (!client.isReady()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean allClientsBinary() {
+		for (ClientInfo client : this.clients) {
+			if (!client.isBinary()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean allClientsDisconnected() {
+		if (this.clients.isEmpty()) { // No client has ever connected
+			return false;
+		}
+		for (ClientInfo client : this.clients) {
+			if (!client.hasDisconnected()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void setClientName(int client, String name) {
+		synchronized (this.lock) {
+			this.clients.get(client).setName(name);
+			this.sendToAllClientsAndReferee(CommunicationKeys.META_SET_NAME,
+					client + CommunicationKeys.SEPERATOR_PARTS + name);
+		}
+	}
+
+	private void sendToAllClients(String action, String value) {
+		this.sendToAllClients(action, -1, value);
+	}
+
+	/**
+	 * Send a message to all clients, encoded only once in the format of the
+	 * table
+	 * 
+	 * @param action the action key
+	 * @param sender the id of the client the message originates from or
+	 *               <code>-1</code> for the server
+	 * @param value  the value
+	 */
+	private void sendToAllClients(String action, int sender, String value) {
+		synchronized (this.lock) {
+			byte[] message;
+			if (this.binary) {
+				message = WireFormat.encodeFrame(action, sender, value, null);
+				ServerLog.info(this.prefix + "Sending frame to " + this.clients.size() + " clients: " + action
+						+ CommunicationKeys.SEPERATOR_MAIN + value);
+			} else {
+				StringBuilder builder = new StringBuilder(action.length() + value.length() + 16);
+				builder.append(CommunicationKeys.MARKER_SERVER).append(CommunicationKeys.SEPERATOR_MAIN).append("true")
+						.append(CommunicationKeys.SEPERATOR_MAIN).append(action);
+				if (action.equalsIgnoreCase(CommunicationKeys.GAME_ACTION) && sender >= 0) {
+					builder.append(CommunicationKeys.SEPERATOR_PARTS).append(sender);
+				}
+				builder.append(CommunicationKeys.SEPERATOR_MAIN).append(value).append(CommunicationKeys.SEPERATOR_END);
+				ServerLog.info(this.prefix + "Sending to " + this.clients.size() + " clients: " + builder);
+				message = WireFormat.encodeLine(builder.toString());
+			}
+			this.record(action, message);
+			for (ClientInfo client : this.clients) {
+				if (!client.hasDisconnected()) {
+					client.sendRaw(message);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Keep a message sent to all clients in the history and the log
+	 * <p>
+	 * A failing log is closed and the table continues without it.
+	 */
+	private void record(String action, byte[] message) {
+		if (this.startIndex < 0 && action.equalsIgnoreCase(CommunicationKeys.GAME_START)) {
+			this.startIndex = this.history.size();
+		}
+		this.history.add(message);
+		this.spectators.publish(message);
+		if (this.log == null) {
+			return;
+		}
+		try {
+			this.log.append(message);
+		} catch (IOException e) {
+			ServerLog.error(this.prefix + "Could not write log, continuing without it: " + e);
+			this.log.close();
+			this.log = null;
+		}
+	}
+
+	public boolean hasGameStarted() {
+		return this.gameStarted;
+	}
+
+	/**
+	 * Disconnect all clients of this table
+	 */
+	public void disconnectAll() {
+		for (ClientInfo client : this.clients) {
+			client.disconnect();
+		}
+		this.spectators.close();
+	}
+
+	/**
+	 * Called by a {@link ClientConnection} of this table whenever its socket has
+	 * been closed
+	 * <p>
+	 * Informs the other clients if the disconnect was not requested and closes
+	 * the table once all clients have disconnected
+	 * 
+	 * @param connection the connection which has been closed
+	 * @param requested  <code>true</code> if the disconnect has been requested
+	 */
+	void connectionClosed(ClientConnection connection, boolean requested) {
+		if (this.spectators.remove(connection)) {
+			return;
+		}
+		boolean close = false;
+		synchronized (this.lock) {
+			if (!requested) {
+				for (ClientInfo clientInfo : this.clients) {
+					if (clientInfo.getConnection() == connection) {
+						this.sendToAllClientsAndReferee(CommunicationKeys.META_DISCONNECT, "" + clientInfo.id);
+					}
+				}
+			}
+			if (!this.closed && this.allClientsDisconnected()) {
+				this.closed = true;
+				close = true;
+			}
+		}
+		if (close) {
+			ServerLog.info(this.prefix + "All clients have disconnected");
+			this.spectators.close();
+			this.closeLog();
+			this.server.tableClosed(this);
+		}
+	}
+
+	/**
+	 * Remove the log of a finished game, keep the log of an interrupted one to
+	 * resume it later
+	 */
+	private void closeLog() {
+		synchronized (this.lock) {
+			if (this.log == null) {
+				return;
+			}
+			if (this.gameFinished || !this.gameStarted) {
+				this.log.delete();
+			} else {
+				ServerLog.info(this.prefix + "Keeping log of the interrupted game: " + this.log.getFile());
+				this.log.close();
+			}
+			this.log = null;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Table " + this.number;
+	}
+}
@@ -0,0 +1,275 @@
+package resarcana.communication;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An append-only log of all messages a {@link Table} has sent to its clients,
+ * kept in a memory-mapped file so the game survives a crash of the server
+ * <p>
+ * The file starts with a header holding the end of the written records. Every
+ * record consists of the length of its payload, its type and the payload: a
+ * single message exactly as it has been sent, text line or binary frame, or
+ * the secret of a seat. Appending a message costs only its own length, loading
+ * a log reads all messages in their order.
+ * <p>
+ * The end in the header is advanced only after a record has been written
+ * completely, so the log of a crashed server ends with its last complete
+ * record. A log is not thread-safe, it is only used under the lock of its
+ * table.
+ * <p>
+ * Besides the messages the log keeps the secret of every seat, so returning
+ * clients can take their seats again after a restart of the server.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class TableLog {
+
+	private static final int MAGIC = 0x52416C67;
+	private static final int VERSION = 1;
+	private static final int POSITION_END = 8, HEADER_LENGTH = 12;
+	private static final int RECORD_HEADER_LENGTH = 5;
+	private static final byte TYPE_MESSAGE = 0, TYPE_SEAT = 1;
+	/**
+	 * The file grows in steps of this size
+	 */
+	private static final int REGION = 1 << 20;
+
+	private final File file;
+	private final FileChannel channel;
+	private MappedByteBuffer buffer;
+	private int end;
+
+	private TableLog(File file, boolean create) throws IOException {
+		this.file = file;
+		if (create) {
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, REGION);
+			this.buffer.putInt(0, MAGIC);
+			this.buffer.putInt(4, VERSION);
+			this.end = HEADER_LENGTH;
+			this.buffer.putInt(POSITION_END, this.end);
+		} else {
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, this.channel.size());
+			if (this.channel.size() < HEADER_LENGTH || this.buffer.getInt(0) != MAGIC
+					|| this.buffer.getInt(4) != VERSION) {
+				this.channel.close();
+				throw new IOException("Not a table log: " + file);
+			}
+			this.end = this.buffer.getInt(POSITION_END);
+		}
+	}
+
+	/**
+	 * Create a new, empty log
+	 *
+	 * @param file the file of the log, which must not exist yet
+	 * @return the log
+	 * @throws IOException if the file can not be created
+	 */
+	public static TableLog create(File file) throws IOException {
+		return new TableLog(file, true);
+	}
+
+	/**
+	 * Open an existing log to continue it
+	 *
+	 * @param file the file of the log
+	 * @return the log
+	 * @throws IOException if the file can not be read or is no log
+	 */
+	public static TableLog open(File file) throws IOException {
+		return new TableLog(file, false);
+	}
+
+	public File getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Append a single message
+	 *
+	 * @param message the message as sent to the clients
+	 * @throws IOException if the file can not grow
+	 */
+	public void append(byte[] message) throws IOException {
+		this.ensureCapacity(RECORD_HEADER_LENGTH + message.length);
+		this.buffer.position(this.end);
+		this.buffer.putInt(message.length);
+		this.buffer.put(TYPE_MESSAGE);
+		this.buffer.put(message);
+		this.advance();
+	}
+
+	/**
+	 * Append the secret of a seat
+	 *
+	 * @param seat   the id of the seat
+	 * @param secret the secret a returning client has to present
+	 * @throws IOException if the file can not grow
+	 */
+	public void appendSeat(int seat, String secret) throws IOException {
+		byte[] bytes = secret.getBytes(WireFormat.CHARSET);
+		this.ensureCapacity(RECORD_HEADER_LENGTH + 4 + bytes.length);
+		this.buffer.position(this.end);
+		this.buffer.putInt(4 + bytes.length);
+		this.buffer.put(TYPE_SEAT);
+		this.buffer.putInt(seat);
+		this.buffer.put(bytes);
+		this.advance();
+	}
+
+	/**
+	 * Read all messages of the log
+	 *
+	 * @return the messages in the order they have been sent
+	 */
+	public ArrayList<byte[]> load() {
+		ArrayList<byte[]> messages = new ArrayList<byte[]>();
+		ByteBuffer read = this.buffer.duplicate();
+		int position = HEADER_LENGTH;
+		while (position < this.end) {
+			read.position(position);
+			int length = read.getInt();
+			byte type = read.get();
+			if (type == TYPE_MESSAGE) {
+				byte[] message = new byte[length];
+				read.get(message);
+				messages.add(message);
+			}
+			position += RECORD_HEADER_LENGTH + length;
+		}
+		return messages;
+	}
+
+	/**
+	 * Read the secrets of all seats
+	 *
+	 * @return the secrets indexed by the id of their seat, <code>null</code> for
+	 *         seats without secret
+	 */
+	public ArrayList<String> loadSeats() {
+		ArrayList<String> seats = new ArrayList<String>();
+		ByteBuffer read = this.buffer.duplicate();
+		int position = HEADER_LENGTH;
+		while (position < this.end) {
+			read.position(position);
+			int length = read.getInt();
+			if (read.get() == TYPE_SEAT) {
+				int seat = read.getInt();
+				byte[] secret = new byte[length - 4];
+				read.get(secret);
+				while (seats.size() <= seat) {
+					seats.add(null);
+				}
+				seats.set(seat, new String(secret, WireFormat.CHARSET));
+			}
+			position += RECORD_HEADER_LENGTH + length;
+		}
+		return seats;
+	}
+
+	/**
+	 * Compress messages into a single block
+	 *
+	 * @param messages the messages
+	 * @param count    the number of messages from the start of the list to
+	 *                 compress
+	 * @return the block, read by {@link #decompress(byte[])}
+	 * @throws IOException never for valid messages
+	 */
+	public static byte[] compress(List<byte[]> messages, int count) throws IOException {
+		ByteArrayOutputStream block = new ByteArrayOutputStream(1024);
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(block, deflater))) {
+			out.writeInt(count);
+			for (int i = 0; i < count; i++) {
+				byte[] message = messages.get(i);
+				out.writeInt(message.length);
+				out.write(message);
+			}
+		} finally {
+			deflater.end();
+		}
+		return block.toByteArray();
+	}
+
+	/**
+	 * @param block a block written by {@link #compress(List, int)}
+	 * @return the messages of the block in their order
+	 * @throws IOException if the block is damaged
+	 */
+	public static ArrayList<byte[]> decompress(byte[] block) throws IOException {
+		try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(block)))) {
+			int count = in.readInt();
+			ArrayList<byte[]> messages = new ArrayList<byte[]>(count + 64);
+			for (int i = 0; i < count; i++) {
+				byte[] message = new byte[in.readInt()];
+				in.readFully(message);
+				messages.add(message);
+			}
+			return messages;
+		}
+	}
+
+	private void ensureCapacity(int length) throws IOException {
+		if (this.end + (long) length > this.buffer.capacity()) {
+			long size = Math.max(2L * this.buffer.capacity(), this.end + (long) length);
+			size = (size + REGION - 1) / REGION * REGION;
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Table log " + this.file + " is full");
+			}
+			this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	/**
+	 * Publish the record just written by moving the end in the header behind it
+	 */
+	private void advance() {
+		this.end = this.buffer.position();
+		this.buffer.putInt(POSITION_END, this.end);
+	}
+
+	/**
+	 * Write all changes to the disk and close the file
+	 */
+	public void close() {
+		try {
+			this.buffer.force();
+			this.channel.close();
+		} catch (IOException e) {
+			ServerLog.warn("Could not close table log " + this.file, e);
+		}
+	}
+
+	/**
+	 * Close and remove the log, e.g. once its game has been finished
+	 */
+	public void delete() {
+		try {
+			this.channel.close();
+		} catch (IOException e) {
+			ServerLog.warn("Could not close table log " + this.file, e);
+		}
+		if (!this.file.delete()) {
+			ServerLog.warn("Could not delete table log " + this.file);
+		}
+	}
+}
@@ -0,0 +1,453 @@
+package resarcana.communication;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+import resarcana.game.HeadlessClient;
+import resarcana.game.core.Ability;
+import resarcana.game.core.Artifact;
+import resarcana.game.core.Game;
+import resarcana.game.core.Mage;
+import resarcana.game.core.MagicItem;
+import resarcana.game.core.Monument;
+import resarcana.game.core.Player;
+import resarcana.game.core.PowerPlace;
+import resarcana.game.core.Tappable;
+import resarcana.game.utils.DraftHelper;
+import resarcana.game.utils.DraftModes;
+import resarcana.game.utils.EssenceSelection;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+import resarcana.utils.UtilFunctions;
+
+/**
+ * The game state an authoritative {@link Table} keeps of its game
+ * <p>
+ * Every game message of a client is checked against this state before it is
+ * sent to all clients: the sender has to own the card, ability or player the
+ * message is about, has to be allowed to act in the current phase of the game
+ * and has to be able to pay. An activated ability has to be usable as its card
+ * is, e.g. untapped and in play, and the chosen payment has to cover its cost. Accepted messages are applied to the state
+ * afterwards.
+ * <p>
+ * The referee is the dealer of its game ({@link Game#setDealer(int)}), so all
+ * initial and draft shuffles, the starting player, dealing the cards and
+ * starting the rounds are decided by the server. Shuffles sent by clients are
+ * rejected and every draft pick has to be offered to its player in the draft
+ * of the referee. Only refilling a deck stays with its owner because the owner
+ * draws from it right away. The order of a refill is derived from the secret
+ * of the seat, so the referee checks it against the order it derives itself.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class TableReferee extends HeadlessClient {
+
+	private final String prefix;
+
+	/**
+	 * Messages of the referee as dealer waiting to be sent to all clients
+	 */
+	private final ArrayDeque<String[]> pending = new ArrayDeque<String[]>();
+
+	public TableReferee(String prefix) {
+		super();
+		this.prefix = prefix;
+		this.getGame().setDealer(-1);
+	}
+
+	/**
+	 * Validate a game message of a client
+	 *
+	 * @param client the id of the sending client
+	 * @param opcode the opcode of the message
+	 * @param value  the value of the message
+	 * @return the value to send to all clients, which may differ from the
+	 *         received one if the server decides a part of it, or
+	 *         <code>null</code> if the message has been rejected
+	 */
+	public String validate(int client, Opcode opcode, String value) {
+		String reason;
+		try {
+			reason = this.check(client, opcode, value);
+		} catch (RuntimeException e) {
+			reason = "malformed (" + e + ")";
+		}
+		if (reason != null) {
+			ServerLog.warn(this.prefix + "Rejected " + opcode.getAction() + CommunicationKeys.SEPERATOR_MAIN + value
+					+ " from " + client + ": " + reason);
+			return null;
+		}
+		if (opcode == Opcode.DRAFT) {
+			UserInputOverwrite draft = new UserInputOverwrite(value);
+			if (draft.getParts().get(0).equalsIgnoreCase(CommunicationKeys.VALUE_START_DRAFT)) {
+				// The server chooses the starting player
+				return new UserInputOverwrite(this.getGame().getPlayer(draft.getSource()),
+						CommunicationKeys.VALUE_START_DRAFT, draft.getParts().get(1),
+						"" + this.getGame().getRandom().nextInt(this.getGame().getNumberPlayers(), "starting-player"))
+								.getCode();
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * @return <code>null</code> if the message is legal, the reason for rejecting
+	 *         it otherwise
+	 */
+	private String check(int client, Opcode opcode, String value) {
+		Game game = this.getGame();
+		if (!game.hasStarted()) {
+			return "game not started";
+		}
+		if (game.hasGameFinished()) {
+			return "game finished";
+		}
+		switch (opcode) {
+		case ACTION:
+			return this.checkAction(client, new UserInputOverwrite(value));
+		case ATTACK:
+			return this.checkAttack(client, new UserInputOverwrite(value));
+		case CONTROL:
+			UserInputOverwrite control = new UserInputOverwrite(value);
+			if (control.getSourceType() != UserInputOverwrite.SOURCE_TYPE_TAPPABLE) {
+				return "control of no card";
+			}
+			return this.checkOwner(client, game.getTappable(control.getSource()).getPlayer());
+		case SHUFFLE:
+			if (value.startsWith(CommunicationKeys.VALUE_REFILL_DECK)) {
+				return this.checkRefill(client, value);
+			}
+			return "shuffles are done by the server";
+		case DRAFT:
+			return this.checkDraft(client, new UserInputOverwrite(value));
+		case VOTE_NEXT_ROUND:
+			if (Integer.parseInt(value) != client) {
+				return "vote for another client";
+			}
+			if (!game.hasPassed(game.getPlayerById(client))) {
+				return "not passed yet";
+			}
+			return null;
+		case INCOME_DONE:
+			if (Integer.parseInt(value) != client) {
+				return "income of another client";
+			}
+			if (!game.isIncomePending()) {
+				return "no income pending";
+			}
+			return null;
+		case DEAL_CARDS:
+		case NEXT_ROUND:
+			return "dealing is done by the server";
+		default:
+			return "not supported by an authoritative server";
+		}
+	}
+
+	private String checkAction(int client, UserInputOverwrite action) {
+		Game game = this.getGame();
+		Player player;
+		switch (action.getSourceType()) {
+		case UserInputOverwrite.SOURCE_TYPE_ABILITY:
+			Ability ability = game.getAbility(action.getSource());
+			if (ability == null) {
+				return "unknown ability";
+			}
+			player = ability.getPlayer();
+			if (this.checkOwner(client, player) != null) {
+				return this.checkOwner(client, player);
+			}
+			if (this.checkTurn(player) != null) {
+				return this.checkTurn(player);
+			}
+			return this.checkAbility(ability, action);
+		case UserInputOverwrite.SOURCE_TYPE_TAPPABLE:
+			// Collecting essences and income of a card
+			player = game.getTappable(action.getSource()).getPlayer();
+			if (this.checkOwner(client, player) != null) {
+				return this.checkOwner(client, player);
+			}
+			return game.isIncomePending() ? null : "no income pending";
+		case UserInputOverwrite.SOURCE_TYPE_PLAYER:
+			player = game.getPlayer(action.getSource());
+			if (this.checkOwner(client, player) != null) {
+				return this.checkOwner(client, player);
+			}
+			return this.checkPlayerAction(player, action);
+		default:
+			return "unknown source";
+		}
+	}
+
+	private String checkPlayerAction(Player player, UserInputOverwrite action) {
+		Game game = this.getGame();
+		String description = action.getParts().get(0);
+		if (description.equalsIgnoreCase("AutomaticIncome")) {
+			return game.isIncomePending() ? null : "no income pending";
+		} else if (description.equalsIgnoreCase("VialOfLight")) {
+			return game.getPendingVialOfLightPlayer() == player ? null : "no Vial of Light action pending";
+		}
+		String turn = this.checkTurn(player);
+		if (turn != null) {
+			return turn;
+		}
+		Tappable card = game.getTappable(action.getParts().get(1));
+		if (card == null) {
+			return "unknown card";
+		}
+		if (description.equalsIgnoreCase("PlayCard") || description.equalsIgnoreCase("PlayCardCost")) {
+			if (!player.getHand().contains(card)) {
+				return card + " not in hand";
+			}
+			if (description.equalsIgnoreCase("PlayCardCost")) {
+				return player.isPayable(new EssenceSelection(action.getParts().get(2))) ? null : "cost not payable";
+			}
+		} else if (description.equalsIgnoreCase("BuyPowerPlace")) {
+			if (!(card instanceof PowerPlace) || card.getPlayer() != null) {
+				return card + " not for sale";
+			}
+		} else if (description.equalsIgnoreCase("BuyMonument") || description.equalsIgnoreCase("BuyObelisk")) {
+			if (!(card instanceof Monument) || card.getPlayer() != null) {
+				return card + " not for sale";
+			}
+		} else {
+			return "unknown action " + description;
+		}
+		return player.isPayable(card.getCost(player), card.getRawCost()) ? null : "cost not payable";
+	}
+
+	private String checkAttack(int client, UserInputOverwrite attack) {
+		Game game = this.getGame();
+		Ability ability = game.getAbility(attack.getSource());
+		if (ability == null) {
+			return "unknown ability";
+		}
+		if (attack.getParts().get(0).equalsIgnoreCase("Attack")) {
+			if (game.isAttackPending()) {
+				return "another attack is pending";
+			}
+			if (this.checkOwner(client, ability.getPlayer()) != null) {
+				return this.checkOwner(client, ability.getPlayer());
+			}
+			if (this.checkTurn(ability.getPlayer()) != null) {
+				return this.checkTurn(ability.getPlayer());
+			}
+			return this.checkAbility(ability, attack);
+		}
+		// Answer of a defender
+		if (!game.isAttackPending()) {
+			return "no attack pending";
+		}
+		return this.checkOwner(client, game.getPlayer(attack.getParts().get(1)));
+	}
+
+	/**
+	 * Check that the ability can be used, which includes the state of its card,
+	 * and that the chosen payment is payable and covers the cost of the ability
+	 */
+	private String checkAbility(Ability ability, UserInputOverwrite activation) {
+		if (!ability.isUsable()) {
+			return ability + " can not be used";
+		}
+		EssenceSelection payment = ability.getPayment(activation);
+		if (payment == null) {
+			return null;
+		}
+		if (!payment.isDetermined() || !ability.getPlayer().isPayable(payment)) {
+			return "cost not payable";
+		}
+		for (int value : payment.getValues()) {
+			if (value < 0) {
+				return "negative payment";
+			}
+		}
+		// The paid essences are the only ones available to pay the cost, like the
+		// payments offered for a purchase
+		EssenceSelection cost = ability.getCost();
+		if (cost != null && this.getGame().getPaymentSolver().getPayments(payment.getValues(), cost, null).length == 0) {
+			return "payment does not cover the cost";
+		}
+		return null;
+	}
+
+	/**
+	 * Check a pick of the draft against the draft of this referee: the card has to
+	 * be offered to the picking player and it has to be the turn of this player
+	 * to pick from the given choice
+	 */
+	private String checkDraft(int client, UserInputOverwrite draft) {
+		Game game = this.getGame();
+		if (draft.getParts().get(0).equalsIgnoreCase(CommunicationKeys.VALUE_START_DRAFT)) {
+			if (client != 0) {
+				return "only the first player chooses the draft mode";
+			}
+			if (game.isDraftRunning()) {
+				return "draft already started";
+			}
+			int mode = Integer.parseInt(draft.getParts().get(1));
+			return mode >= 0 && mode < DraftModes.values().length ? null : "unknown draft mode";
+		}
+		if (!game.isDraftRunning()) {
+			return "no draft running";
+		}
+		Tappable card = game.getTappable(draft.getSource());
+		if (card == null) {
+			return "unknown card";
+		}
+		if (Integer.parseInt(draft.getParts().get(1)) != client) {
+			return "choice of another client";
+		}
+		int choice = Integer.parseInt(draft.getParts().get(0));
+		if (choice < 0 || choice >= game.getNumberPlayers()) {
+			return "unknown choice " + choice;
+		}
+		DraftHelper helper = game.getDraft();
+		ArrayList<Tappable> offered;
+		if (card instanceof Artifact) {
+			if (helper.getArtifactPlayer(choice) != client) {
+				return "not the turn of " + client + " to pick from choice " + choice;
+			}
+			offered = helper.getArtifactChoices(choice);
+		} else if (card instanceof Mage) {
+			if (!helper.hasShuffled() || helper.hasChosenMage(client) || choice != client) {
+				return "no mage to choose";
+			}
+			offered = helper.getMageChoices(client);
+		} else if (card instanceof MagicItem) {
+			if (!helper.hasChosenMage(client) || helper.getNextItemPlayer() != client || choice != client) {
+				return "not the turn of " + client + " to pick a magic item";
+			}
+			offered = helper.getItemChoices();
+		} else {
+			return card + " can not be drafted";
+		}
+		return offered.contains(card) ? null : card + " not offered to " + client;
+	}
+
+	/**
+	 * Check a refilled deck against the order of the next refill of its player,
+	 * see {@link Player#shuffleRefill(List)}
+	 */
+	private String checkRefill(int client, String value) {
+		String[] split = value.split(CommunicationKeys.SEPERATOR_PARTS);
+		Player player = this.getGame().getPlayer(split[0].split(CommunicationKeys.SEPERATOR_VALUES)[1]);
+		if (this.checkOwner(client, player) != null) {
+			return this.checkOwner(client, player);
+		}
+		ArrayList<Tappable> refilled = UtilFunctions
+				.StringArrayToTappables(split[1].split(CommunicationKeys.SEPERATOR_VALUES), this.getGame());
+		ArrayList<Tappable> expected = new ArrayList<Tappable>(player.getDeck());
+		expected.addAll(player.getDiscard());
+		if (expected.isEmpty()) {
+			return "nothing to refill";
+		}
+		player.shuffleRefill(expected);
+		return refilled.equals(expected) ? null : "refilled deck not in the order of the seat";
+	}
+
+	/**
+	 * Let the refills of the deck of a seat be shuffled by its secret, which the
+	 * client of the seat gets with its token, see
+	 * {@link Player#setRefillSecret(String)}
+	 *
+	 * @param seat   the id of the seat
+	 * @param secret the secret of the seat
+	 */
+	public void setSecret(int seat, String secret) {
+		Player player = this.getGame().getPlayerById(seat);
+		if (player != null) {
+			player.setRefillSecret(secret);
+		}
+	}
+
+	private String checkOwner(int client, Player player) {
+		if (player == null) {
+			return "no owner";
+		}
+		return player.getId() == client ? null : "owned by " + player;
+	}
+
+	/**
+	 * @return <code>null</code> if the player may act in the current turn
+	 */
+	private String checkTurn(Player player) {
+		Game game = this.getGame();
+		if (game.isIncomePending()) {
+			return "income pending";
+		}
+		if (game.isAttackPending() || game.getPendingVialOfLightPlayer() != null) {
+			return "waiting for other players";
+		}
+		return game.isActivePlayer(player) ? null : "not the turn of " + player;
+	}
+
+	/**
+	 * Apply a message sent to all clients to the game state of this referee
+	 *
+	 * @param action the action key
+	 * @param value  the value of the message
+	 */
+	public void apply(String action, String value) {
+		this.apply(Opcode.of(action), value);
+	}
+
+	/**
+	 * Apply a message sent to all clients to the game state of this referee
+	 *
+	 * @param opcode the opcode of the message
+	 * @param value  the value of the message
+	 */
+	public void apply(Opcode opcode, String value) {
+		try {
+			this.processMessage(opcode, value);
+		} catch (RuntimeException e) {
+			ServerLog.error(this.prefix + "Referee could not apply " + opcode.getAction()
+					+ CommunicationKeys.SEPERATOR_MAIN + value + ": " + e);
+		}
+	}
+
+	/**
+	 * Rebuild the game state from the messages a table has sent, e.g. when the
+	 * table is resumed from its {@link TableLog}
+	 * <p>
+	 * The decisions this referee takes as dealer while replaying are dropped, the
+	 * ones taken originally are part of the messages.
+	 *
+	 * @param messages the messages as sent to the clients, text lines or binary
+	 *                 frames
+	 */
+	public void replay(List<byte[]> messages) {
+		for (byte[] message : messages) {
+			if (message.length > 0 && message[0] == WireFormat.FRAME_MARKER) {
+				this.apply(WireFormat.getMessageOpcode(message), WireFormat.getValue(message, this.getGame()));
+			} else {
+				this.processLine(new String(message, WireFormat.CHARSET).trim());
+			}
+			this.pending.clear();
+		}
+	}
+
+	/**
+	 * @return the next message this referee has to send to all clients as
+	 *         <code>{action, value}</code> or <code>null</code> if there is none
+	 */
+	public String[] pollMessage() {
+		return this.pending.poll();
+	}
+
+	@Override
+	public void informAllClients_Shuffle(String shuffle) {
+		this.pending.add(new String[] { CommunicationKeys.GAME_SHUFFLE, shuffle });
+	}
+
+	@Override
+	public void informAllClients_DealCards() {
+		this.pending.add(new String[] { CommunicationKeys.GAME_DEAL_CARDS, "-1" });
+	}
+
+	@Override
+	public void informAllClients_NextRound() {
+		this.pending.add(new String[] { CommunicationKeys.GAME_NEXT_ROUND, "-1" });
+	}
+}
@@ -0,0 +1,155 @@
+package resarcana.communication;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A {@link ClientConnection} which reads with its own {@link ListeningThread}
+ * and writes encoded messages to the output stream of its socket
+ * <p>
+ * Messages are appended to an {@link OutboundQueue} and written by a writer
+ * task of the {@link ConnectionExecutor}, at most one writer task per
+ * connection runs at a time
+ * 
+ * @author Erik Wagner
+ *
+ */
+public class ThreadedConnection implements ClientConnection, CommunicationListener {
+
+	private final Table parent;
+	private final Socket socket;
+	private final ListeningThread thread;
+	private final OutputStream writer;
+	private final OutboundQueue outbound;
+	private final AtomicBoolean draining = new AtomicBoolean(false);
+	private ConnectionExecutor executor;
+	private volatile boolean disconnectRequested = false;
+
+	public ThreadedConnection(Table parent, Socket client, OutputStream writer, String informAbout, String resend,
+			OutboundQueue outbound) {
+		this.parent = parent;
+		this.socket = client;
+		this.writer = new BufferedOutputStream(writer);
+		this.outbound = outbound;
+		this.thread = new ListeningThread(client, this, informAbout, resend);
+	}
+
+	/**
+	 * Start listening for messages of the client
+	 * 
+	 * @param executor the executor to run the {@link ListeningThread} and the
+	 *                 writer tasks with
+	 */
+	public void start(ConnectionExecutor executor) {
+		this.executor = executor;
+		executor.execute(this.thread);
+	}
+
+	public ListeningThread getThread() {
+		return this.thread;
+	}
+
+	@Override
+	public void send(String message) {
+		this.sendRaw(WireFormat.encodeLine(message));
+	}
+
+	@Override
+	public void sendRaw(byte[] message) {
+		if (!this.outbound.offer(message)) {
+			this.slowConsumer();
+			return;
+		}
+		if (this.draining.compareAndSet(false, true)) {
+			this.executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					ThreadedConnection.this.drain();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Write all queued messages, runs as writer task
+	 */
+	private void drain() {
+		while (true) {
+			byte[] message;
+			try {
+				while ((message = this.outbound.poll()) != null) {
+					this.writer.write(message);
+				}
+				this.writer.flush();
+			} catch (IOException e) {
+				ServerLog.error("ThreadedConnection: Error while sending messages to " + this.thread + ": " + e);
+				this.outbound.close();
+				this.closeSocket();
+			}
+			this.draining.set(false);
+			// A message could have been queued after the last poll but before
+			// releasing the flag, its sender then did not start a new task
+			if (this.outbound.isEmpty() || !this.draining.compareAndSet(false, true)) {
+				return;
+			}
+		}
+	}
+
+	private void slowConsumer() {
+		ServerLog.warn("ThreadedConnection: Disconnecting slow client " + this.thread);
+		this.outbound.close();
+		this.closeSocket();
+	}
+
+	private void closeSocket() {
+		try {
+			// Lets the ListeningThread stop, which reports the lost connection
+			this.socket.close();
+		} catch (IOException e) {
+			ServerLog.error("ThreadedConnection: Could not close socket: " + e);
+		}
+	}
+
+	@Override
+	public void disconnect() {
+		this.disconnectRequested = true;
+		this.thread.disconnect();
+	}
+
+	@Override
+	public void abort() {
+		this.disconnectRequested = true;
+		this.thread.disconnect();
+		this.outbound.close();
+		this.closeSocket();
+	}
+
+	@Override
+	public int getPending() {
+		return this.outbound.size();
+	}
+
+	@Override
+	public boolean hasDisconnected() {
+		return this.thread.hasDisconnected();
+	}
+
+	@Override
+	public void inform(String line) {
+		this.parent.inform(this, line);
+	}
+
+	@Override
+	public void informFrame(byte[] frame) {
+		this.parent.informFrame(this, frame);
+	}
+
+	@Override
+	public void disconnected(ListeningThread listeningThread) {
+		this.outbound.close();
+		this.parent.connectionClosed(this, this.disconnectRequested);
+	}
+}
@@ -0,0 +1,39 @@
+package resarcana.communication;
+
+/**
+ * Translates the identifiers of game objects into compact numeric ids and back
+ * for the binary encoding of {@link WireFormat}
+ * <p>
+ * Only the game clients know their objects, the {@link Server} relays binary
+ * frames without ever resolving any id
+ * 
+ * @author Erik Wagner
+ *
+ */
+public interface WireDictionary {
+
+	public static final int KIND_TAPPABLE = 0;
+	public static final int KIND_ABILITY = 1;
+	public static final int KIND_PLAYER = 2;
+
+	/**
+	 * Look up the id of a game object
+	 * 
+	 * @param kind  one of {@link #KIND_TAPPABLE}, {@link #KIND_ABILITY} and
+	 *              {@link #KIND_PLAYER}
+	 * @param token the identifier as used by the text protocol
+	 * @return the id of the object or <code>-1</code> if the token does not
+	 *         identify an object of this kind
+	 */
+	public int getId(int kind, String token);
+
+	/**
+	 * Look up the identifier of a game object
+	 * 
+	 * @param kind one of {@link #KIND_TAPPABLE}, {@link #KIND_ABILITY} and
+	 *             {@link #KIND_PLAYER}
+	 * @param id   the id of the object
+	 * @return the identifier as used by the text protocol
+	 */
+	public String getToken(int kind, int id);
+}
@@ -0,0 +1,411 @@
+package resarcana.communication;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Encoding of messages on the wire
+ * <p>
+ * Every message is either a text line as described in {@link CommunicationKeys}
+ * or a binary frame. A frame starts with {@link #FRAME_MARKER}, which never
+ * starts a text line, followed by the varint length of its payload. The payload
+ * holds the opcode of the action, the zigzag varint id of the sending client
+ * (<code>-1</code> for the server) and the value as a sequence of typed tokens.
+ * <p>
+ * The tokens of a value are the parts between
+ * {@link CommunicationKeys#SEPERATOR_PARTS} and
+ * {@link CommunicationKeys#SEPERATOR_VALUES}. Identifiers of tappables,
+ * abilities and players are written as varint ids via a
+ * {@link WireDictionary}, numbers as zigzag varints and an essence selection as
+ * fixed vector of {@link #ESSENCE_SLOTS} varints. Decoding a frame yields
+ * exactly the value it has been encoded from.
+ * <p>
+ * Binary frames are only used at tables where every client has negotiated them
+ * with {@link CommunicationKeys#META_BINARY}, otherwise the text protocol is
+ * used.
+ * 
+ * @author Erik Wagner
+ *
+ */
+public final class WireFormat {
+
+	public static final Charset CHARSET = Charset.defaultCharset();
+	public static final int FRAME_MARKER = 0;
+	public static final int VERSION = 1;
+
+	/**
+	 * The identifier starting the text form of an essence selection
+	 */
+	public static final String ESSENCES_IDENTIFIER = "Essences";
+	/**
+	 * The five essences and the indeterminate slot of an essence selection
+	 */
+	public static final int ESSENCE_SLOTS = 6;
+
+	private static final byte[] LINE_END = System.lineSeparator().getBytes(CHARSET);
+
+	private static final int TOKEN_STRING = 0;
+	private static final int TOKEN_INT = 1;
+	private static final int TOKEN_TAPPABLE = 2;
+	private static final int TOKEN_ABILITY = 3;
+	private static final int TOKEN_PLAYER = 4;
+	private static final int TOKEN_ESSENCES = 5;
+	private static final int TOKEN_TRUE = 6;
+	private static final int TOKEN_FALSE = 7;
+
+	private static final int SEPERATOR_NONE = 0;
+	private static final int SEPERATOR_PARTS = 1;
+	private static final int SEPERATOR_VALUES = 2;
+
+	private WireFormat() {
+	}
+
+	/**
+	 * @param line a line of the handshake
+	 * @return <code>true</code> if the line is {@link CommunicationKeys#META_CONNECT_FINISH}
+	 *         offering respectively accepting binary frames
+	 */
+	public static boolean isBinaryHandshake(String line) {
+		return line != null && line.equals(CommunicationKeys.META_CONNECT_FINISH + CommunicationKeys.SEPERATOR_MAIN
+				+ CommunicationKeys.META_BINARY);
+	}
+
+	/**
+	 * Encode a text line like {@link java.io.PrintWriter#println(String)} would
+	 * 
+	 * @param line the line without terminator
+	 * @return the bytes of the terminated line
+	 */
+	public static byte[] encodeLine(String line) {
+		byte[] bytes = line.getBytes(CHARSET);
+		byte[] out = Arrays.copyOf(bytes, bytes.length + LINE_END.length);
+		System.arraycopy(LINE_END, 0, out, bytes.length, LINE_END.length);
+		return out;
+	}
+
+	/**
+	 * @param action an action key of {@link CommunicationKeys}
+	 * @return the opcode of the action or <code>-1</code> if it has none
+	 */
+	public static int getOpcode(String action) {
+		return Opcode.of(action).getWireCode();
+	}
+
+	/**
+	 * @param opcode an opcode as returned by {@link #getOpcode(String)}
+	 * @return the action key of {@link CommunicationKeys} or <code>null</code>
+	 */
+	public static String getAction(int opcode) {
+		return Opcode.ofWireCode(opcode).getAction();
+	}
+
+	// Frames
+
+	/**
+	 * Encode a message as binary frame
+	 * 
+	 * @param action     the action key
+	 * @param sender     the id of the sending client or <code>-1</code> for the
+	 *                   server
+	 * @param value      the value in its text form
+	 * @param dictionary the dictionary to compress identifiers with or
+	 *                   <code>null</code> to write them as strings
+	 * @return the complete frame including marker and length
+	 */
+	public static byte[] encodeFrame(String action, int sender, String value, WireDictionary dictionary) {
+		ByteArrayOutputStream payload = new ByteArrayOutputStream(16 + value.length());
+		payload.write(getOpcode(action));
+		writeVarint(payload, zigzag(sender));
+		encodeValue(payload, value, dictionary);
+		ByteArrayOutputStream frame = new ByteArrayOutputStream(payload.size() + 6);
+		frame.write(FRAME_MARKER);
+		writeVarint(frame, payload.size());
+		frame.write(payload.toByteArray(), 0, payload.size());
+		return frame.toByteArray();
+	}
+
+	/**
+	 * @param frame a complete frame
+	 * @return the action key of the frame
+	 */
+	public static String getAction(byte[] frame) {
+		return getMessageOpcode(frame).getAction();
+	}
+
+	/**
+	 * @param frame a complete frame
+	 * @return the opcode of the frame
+	 */
+	public static Opcode getMessageOpcode(byte[] frame) {
+		ByteBuffer buffer = payload(frame);
+		return Opcode.ofWireCode(buffer.get() & 0xFF);
+	}
+
+	/**
+	 * @param frame a complete frame
+	 * @return the id of the sending client or <code>-1</code> for the server
+	 */
+	public static int getSender(byte[] frame) {
+		ByteBuffer buffer = payload(frame);
+		buffer.get();
+		return unzigzag(readVarint(buffer));
+	}
+
+	/**
+	 * Decode the value of a frame into its text form
+	 * 
+	 * @param frame      a complete frame
+	 * @param dictionary the dictionary to resolve identifiers with, may be
+	 *                   <code>null</code> if the frame contains none
+	 * @return the value as it would have been sent via the text protocol
+	 */
+	public static String getValue(byte[] frame, WireDictionary dictionary) {
+		ByteBuffer buffer = payload(frame);
+		buffer.get();
+		readVarint(buffer);
+		return decodeValue(buffer, dictionary);
+	}
+
+	/**
+	 * Decode a frame into the line the {@link Server} would have sent via the
+	 * text protocol
+	 * 
+	 * @param frame      a complete frame
+	 * @param dictionary the dictionary to resolve identifiers with
+	 * @return the text form of the message including
+	 *         {@link CommunicationKeys#SEPERATOR_END}
+	 */
+	public static String decodeFrame(byte[] frame, WireDictionary dictionary) {
+		ByteBuffer buffer = payload(frame);
+		String action = getAction(buffer.get() & 0xFF);
+		int sender = unzigzag(readVarint(buffer));
+		StringBuilder line = new StringBuilder(64);
+		line.append(CommunicationKeys.MARKER_SERVER).append(CommunicationKeys.SEPERATOR_MAIN).append("true")
+				.append(CommunicationKeys.SEPERATOR_MAIN).append(action);
+		if (CommunicationKeys.GAME_ACTION.equals(action) && sender >= 0) {
+			line.append(CommunicationKeys.SEPERATOR_PARTS).append(sender);
+		}
+		line.append(CommunicationKeys.SEPERATOR_MAIN).append(decodeValue(buffer, dictionary))
+				.append(CommunicationKeys.SEPERATOR_END);
+		return line.toString();
+	}
+
+	private static ByteBuffer payload(byte[] frame) {
+		ByteBuffer buffer = ByteBuffer.wrap(frame);
+		buffer.get(); // marker
+		int length = readVarint(buffer);
+		buffer.limit(buffer.position() + length);
+		return buffer;
+	}
+
+	// Values
+
+	private static void encodeValue(ByteArrayOutputStream out, String value, WireDictionary dictionary) {
+		int start = 0, seperator = SEPERATOR_NONE;
+		int length = value.length();
+		while (start <= length) {
+			int end = start;
+			while (end < length && value.charAt(end) != CommunicationKeys.SEPERATOR_PARTS.charAt(0)
+					&& value.charAt(end) != CommunicationKeys.SEPERATOR_VALUES.charAt(0)) {
+				end++;
+			}
+			String token = value.substring(start, end);
+			if (token.equals(ESSENCES_IDENTIFIER)) {
+				int consumed = encodeEssences(out, value, end, seperator);
+				if (consumed > 0) {
+					end = consumed;
+					token = null;
+				}
+			}
+			if (token != null) {
+				encodeToken(out, token, seperator, dictionary);
+			}
+			if (end >= length) {
+				break;
+			}
+			seperator = value.charAt(end) == CommunicationKeys.SEPERATOR_PARTS.charAt(0) ? SEPERATOR_PARTS
+					: SEPERATOR_VALUES;
+			start = end + 1;
+		}
+	}
+
+	/**
+	 * Try to encode the essence vector following {@link #ESSENCES_IDENTIFIER}
+	 * 
+	 * @return the index after the vector or <code>-1</code> if the value does not
+	 *         continue with a complete vector
+	 */
+	private static int encodeEssences(ByteArrayOutputStream out, String value, int position, int seperator) {
+		int[] slots = new int[ESSENCE_SLOTS];
+		for (int i = 0; i < ESSENCE_SLOTS; i++) {
+			if (position >= value.length() || value.charAt(position) != CommunicationKeys.SEPERATOR_VALUES.charAt(0)) {
+				return -1;
+			}
+			int end = position + 1;
+			while (end < value.length() && value.charAt(end) != CommunicationKeys.SEPERATOR_PARTS.charAt(0)
+					&& value.charAt(end) != CommunicationKeys.SEPERATOR_VALUES.charAt(0)) {
+				end++;
+			}
+			String number = value.substring(position + 1, end);
+			if (!isCanonicalInt(number)) {
+				return -1;
+			}
+			slots[i] = Integer.parseInt(number);
+			position = end;
+		}
+		out.write((seperator << 4) | TOKEN_ESSENCES);
+		for (int slot : slots) {
+			writeVarint(out, zigzag(slot));
+		}
+		return position;
+	}
+
+	private static void encodeToken(ByteArrayOutputStream out, String token, int seperator,
+			WireDictionary dictionary) {
+		int tag = seperator << 4;
+		if (token.equals("true")) {
+			out.write(tag | TOKEN_TRUE);
+			return;
+		}
+		if (token.equals("false")) {
+			out.write(tag | TOKEN_FALSE);
+			return;
+		}
+		if (isCanonicalInt(token)) {
+			out.write(tag | TOKEN_INT);
+			writeVarint(out, zigzag(Integer.parseInt(token)));
+			return;
+		}
+		if (dictionary != null && token.indexOf(CommunicationKeys.SEPERATOR_NAME) != -1) {
+			int id;
+			if ((id = dictionary.getId(WireDictionary.KIND_PLAYER, token)) != -1) {
+				out.write(tag | TOKEN_PLAYER);
+				writeVarint(out, id);
+				return;
+			}
+			if ((id = dictionary.getId(WireDictionary.KIND_ABILITY, token)) != -1) {
+				out.write(tag | TOKEN_ABILITY);
+				writeVarint(out, id);
+				return;
+			}
+			if ((id = dictionary.getId(WireDictionary.KIND_TAPPABLE, token)) != -1) {
+				out.write(tag | TOKEN_TAPPABLE);
+				writeVarint(out, id);
+				return;
+			}
+		}
+		byte[] bytes = token.getBytes(CHARSET);
+		out.write(tag | TOKEN_STRING);
+		writeVarint(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static String decodeValue(ByteBuffer buffer, WireDictionary dictionary) {
+		StringBuilder value = new StringBuilder(64);
+		while (buffer.hasRemaining()) {
+			int tag = buffer.get() & 0xFF;
+			switch (tag >> 4) {
+			case SEPERATOR_PARTS:
+				value.append(CommunicationKeys.SEPERATOR_PARTS);
+				break;
+			case SEPERATOR_VALUES:
+				value.append(CommunicationKeys.SEPERATOR_VALUES);
+				break;
+			default:
+				break;
+			}
+			switch (tag & 0x0F) {
+			case TOKEN_STRING:
+				int length = readVarint(buffer);
+				value.append(new String(buffer.array(), buffer.position(), length, CHARSET));
+				buffer.position(buffer.position() + length);
+				break;
+			case TOKEN_INT:
+				value.append(unzigzag(readVarint(buffer)));
+				break;
+			case TOKEN_TAPPABLE:
+				value.append(resolve(dictionary, WireDictionary.KIND_TAPPABLE, readVarint(buffer)));
+				break;
+			case TOKEN_ABILITY:
+				value.append(resolve(dictionary, WireDictionary.KIND_ABILITY, readVarint(buffer)));
+				break;
+			case TOKEN_PLAYER:
+				value.append(resolve(dictionary, WireDictionary.KIND_PLAYER, readVarint(buffer)));
+				break;
+			case TOKEN_ESSENCES:
+				value.append(ESSENCES_IDENTIFIER);
+				for (int i = 0; i < ESSENCE_SLOTS; i++) {
+					value.append(CommunicationKeys.SEPERATOR_VALUES).append(unzigzag(readVarint(buffer)));
+				}
+				break;
+			case TOKEN_TRUE:
+				value.append("true");
+				break;
+			case TOKEN_FALSE:
+				value.append("false");
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown token type in frame: " + (tag & 0x0F));
+			}
+		}
+		return value.toString();
+	}
+
+	private static String resolve(WireDictionary dictionary, int kind, int id) {
+		if (dictionary == null) {
+			throw new IllegalArgumentException("Frame contains identifiers but no dictionary is given");
+		}
+		return dictionary.getToken(kind, id);
+	}
+
+	private static boolean isCanonicalInt(String token) {
+		int length = token.length();
+		if (length == 0 || length > 10) {
+			return false;
+		}
+		int start = token.charAt(0) == '-' ? 1 : 0;
+		if (start == length || (token.charAt(start) == '0' && length > start + 1)
+				|| (start == 1 && token.charAt(1) == '0')) {
+			return false;
+		}
+		for (int i = start; i < length; i++) {
+			if (token.charAt(i) < '0' || token.charAt(i) > '9') {
+				return false;
+			}
+		}
+		long number = Long.parseLong(token);
+		return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE;
+	}
+
+	// Varints
+
+	public static int zigzag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	public static int unzigzag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	public static int readVarint(ByteBuffer buffer) {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = buffer.get() & 0xFF;
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+}
@@ -0,0 +1,122 @@
+package resarcana.communication;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads text lines and binary frames of {@link WireFormat} from a stream
+ * <p>
+ * Lines are split exactly like {@link java.io.BufferedReader#readLine()} does,
+ * a frame is recognized by its leading {@link WireFormat#FRAME_MARKER}
+ * 
+ * @author Erik Wagner
+ *
+ */
+public class WireReader {
+
+	public static final int END = 0;
+	public static final int LINE = 1;
+	public static final int FRAME = 2;
+
+	/**
+	 * The maximum payload length of a single frame
+	 */
+	public static final int MAX_FRAME_LENGTH = 1 << 24;
+
+	private final InputStream in;
+	private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+	private boolean skipLineFeed = false;
+
+	private String line = null;
+	private byte[] frame = null;
+
+	public WireReader(InputStream in) {
+		this.in = new BufferedInputStream(in);
+	}
+
+	/**
+	 * Read the next message
+	 * 
+	 * @return {@link #LINE} or {@link #FRAME} depending on the message read,
+	 *         {@link #END} at the end of the stream
+	 * @throws IOException if reading from the stream fails
+	 */
+	public int next() throws IOException {
+		this.line = null;
+		this.frame = null;
+		int b = this.in.read();
+		if (this.skipLineFeed) {
+			this.skipLineFeed = false;
+			if (b == '\n') {
+				b = this.in.read();
+			}
+		}
+		if (b == -1) {
+			return END;
+		}
+		this.buffer.reset();
+		if (b == WireFormat.FRAME_MARKER) {
+			int length = this.readVarint();
+			if (length < 0 || length > MAX_FRAME_LENGTH) {
+				throw new IOException("Illegal frame length: " + length);
+			}
+			this.buffer.write(WireFormat.FRAME_MARKER);
+			WireFormat.writeVarint(this.buffer, length);
+			byte[] payload = new byte[length];
+			int read = 0;
+			while (read < length) {
+				int count = this.in.read(payload, read, length - read);
+				if (count == -1) {
+					throw new EOFException("Stream ended within a frame");
+				}
+				read += count;
+			}
+			this.buffer.write(payload, 0, length);
+			this.frame = this.buffer.toByteArray();
+			return FRAME;
+		}
+		while (b != -1 && b != '\n' && b != '\r') {
+			this.buffer.write(b);
+			b = this.in.read();
+		}
+		this.skipLineFeed = b == '\r';
+		this.line = new String(this.buffer.toByteArray(), WireFormat.CHARSET);
+		return LINE;
+	}
+
+	private int readVarint() throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			int b = this.in.read();
+			if (b == -1) {
+				throw new EOFException("Stream ended within a frame");
+			}
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed frame length");
+	}
+
+	/**
+	 * @return the line read by the last call of {@link #next()}
+	 */
+	public String getLine() {
+		return this.line;
+	}
+
+	/**
+	 * @return the complete frame read by the last call of {@link #next()}
+	 */
+	public byte[] getFrame() {
+		return this.frame;
+	}
+
+	public void close() throws IOException {
+		this.in.close();
+	}
+}
@@ -0,0 +1,504 @@
+package resarcana.game;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.newdawn.slick.util.Log;
+
+import resarcana.communication.CommunicationKeys;
+import resarcana.communication.CommunicationListener;
+import resarcana.communication.ListeningThread;
+import resarcana.communication.Opcode;
+import resarcana.communication.Server;
+import resarcana.game.core.Game;
+import resarcana.game.core.MoveBuffer;
+import resarcana.game.core.MoveGenerator;
+import resarcana.game.core.Player;
+import resarcana.game.core.Tappable;
+import resarcana.game.simulation.BotMoves;
+import resarcana.game.simulation.BotPolicy;
+import resarcana.game.simulation.GreedyPolicy;
+import resarcana.game.simulation.MonteCarloSearch;
+import resarcana.game.utils.DraftHelper;
+import resarcana.game.utils.DraftModes;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+
+/**
+ * A computer player taking a seat at a {@link Server} like a {@link GameClient}
+ * <p>
+ * The bot follows the game as observer of all players and sends the decisions
+ * of its own seat the same way a {@link GameClient} does. Turns with more than
+ * one possible action are decided by a {@link MonteCarloSearch}, the draft,
+ * income and attacks by a {@link BotPolicy}. Everything runs on the thread of
+ * the bot, so neither the network nor any display waits for a search.
+ * <p>
+ * On a table without authoritative server the bot in the first seat deals for
+ * all clients. Only the draft modes dealing random decks are supported. A bot
+ * losing its connection during the game returns to its seat with its token.
+ * <p>
+ * Arguments of {@link #main(String[])}: the server, the number of bots, the time
+ * per move in milliseconds and the number of search threads shared by all bots.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class BotClient extends HeadlessClient implements CommunicationListener, Runnable {
+
+	/**
+	 * Time to wait for the server to confirm a sent message before deciding again
+	 */
+	private static final long CONFIRMATION_TIMEOUT = 5000;
+	/**
+	 * Time to wait for further messages before acting
+	 */
+	private static final long POLL_MILLIS = 50;
+	/**
+	 * Number of attempts and time between them to take the seat again after the
+	 * connection has been lost
+	 */
+	private static final int RECONNECT_ATTEMPTS = 5;
+	private static final long RECONNECT_DELAY = 1000;
+
+	private final String host, name;
+	private final MonteCarloSearch search;
+	private final BotPolicy policy = new GreedyPolicy();
+	private final Random random = new Random();
+	private final MoveGenerator generator = new MoveGenerator();
+	private final MoveBuffer moves = new MoveBuffer();
+
+	private final LinkedBlockingQueue<String> inbound = new LinkedBlockingQueue<String>();
+	/**
+	 * All messages of the game so far, the start of every search
+	 */
+	private final ArrayList<String[]> messages = new ArrayList<String[]>();
+
+	private int id = -1;
+	/**
+	 * Number of messages received since the start of the game, <code>-1</code>
+	 * before
+	 */
+	private int received = -1;
+	private Socket socket;
+	private PrintWriter writer;
+	private ListeningThread thread;
+
+	private boolean authoritative = false, draftStarted = false, warnedDraft = false, attacked = false;
+	private volatile boolean running = false, seated = false;
+	/**
+	 * The last message sent, until the server relays it back
+	 */
+	private String[] expected = null;
+	private long expectedSince = 0;
+
+	/**
+	 * @param host   the address of the server
+	 * @param name   the name of the seat
+	 * @param search the search deciding the turns, may be shared by several bots
+	 */
+	public BotClient(String host, String name, MonteCarloSearch search) {
+		super();
+		this.host = host;
+		this.name = name;
+		this.search = search;
+	}
+
+	/**
+	 * Connect to the {@link Server}, the bot is not ready until
+	 * {@link #setReady()}
+	 *
+	 * @return <code>true</code> if the bot has got a seat
+	 */
+	public boolean connect() {
+		return this.open(null);
+	}
+
+	/**
+	 * Take the seat of the bot again after its connection has been lost, the
+	 * server sends all messages the bot has missed
+	 *
+	 * @return <code>true</code> if the bot is connected again
+	 */
+	public boolean reconnect() {
+		if (this.getToken() == null || this.received < 0) {
+			return false;
+		}
+		return this.open(this.getToken() + CommunicationKeys.SEPERATOR_PARTS + this.received);
+	}
+
+	/**
+	 * @param returning the token and the number of messages received since the
+	 *                  start of the game or <code>null</code> to take a new seat
+	 */
+	private boolean open(String returning) {
+		try {
+			Socket socket = new Socket(this.host, CommunicationKeys.SERVER_PORT);
+			BufferedReader br = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			PrintWriter pw = new PrintWriter(socket.getOutputStream(), false);
+			String inLine = br.readLine();
+			if (inLine == null || (returning == null && Integer.parseInt(inLine) == -1)) {
+				Log.info("Server does not accept any more clients");
+				socket.close();
+				return false;
+			}
+			if (returning == null) {
+				this.id = Integer.parseInt(inLine);
+			}
+			while ((inLine = br.readLine()) != null && !inLine.startsWith(CommunicationKeys.META_CONNECT_FINISH)) {
+				if (returning == null) {
+					String[] split = inLine.split(CommunicationKeys.SEPERATOR_MAIN);
+					this.processMessage(CommunicationKeys.META_ADD_PLAYER,
+							split[3].split(CommunicationKeys.SEPERATOR_PARTS)[1]);
+				}
+			}
+			if (inLine == null) {
+				socket.close();
+				return false;
+			}
+			this.socket = socket;
+			this.writer = pw;
+			this.thread = new ListeningThread(socket, this, CommunicationKeys.MARKER_SERVER,
+					CommunicationKeys.MARKER_CLIENT);
+			this.thread.start();
+			if (returning == null) {
+				// Binary frames are not needed by a bot
+				pw.println(CommunicationKeys.META_CONNECT_FINISH);
+			} else {
+				pw.println(CommunicationKeys.META_CONNECT_LOADED + CommunicationKeys.SEPERATOR_MAIN + returning);
+			}
+			pw.flush();
+			this.running = true;
+			if (returning == null) {
+				Log.info("Bot " + this.name + " connected as client " + this.id);
+				this.send(CommunicationKeys.META_SET_NAME, this.name);
+			} else {
+				Log.info("Bot " + this.name + " returned to seat " + this.id);
+			}
+			return true;
+		} catch (IOException e) {
+			Log.warn("Bot could not connect to server " + this.host + ": " + e.getLocalizedMessage());
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> as soon as the server has added the seat of the
+	 *         bot to its table
+	 */
+	public boolean isSeated() {
+		return this.seated;
+	}
+
+	/**
+	 * Declare the bot ready to start the game
+	 */
+	public void setReady() {
+		this.send(CommunicationKeys.META_SET_READY, "true");
+	}
+
+	@Override
+	public void run() {
+		try {
+			do {
+				while (this.running) {
+					String line = this.inbound.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+					if (line != null) {
+						this.processLine(line);
+					} else if (this.getGame().hasGameFinished()) {
+						break;
+					} else {
+						this.act();
+					}
+				}
+			} while (!this.getGame().hasGameFinished() && this.returnToSeat());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		Log.info("Bot " + this.name + " stopped");
+	}
+
+	/**
+	 * Try to take the seat again after the connection has been lost during the
+	 * game
+	 *
+	 * @return <code>true</code> if the bot is connected again
+	 */
+	private boolean returnToSeat() throws InterruptedException {
+		// Everything received before the connection has been lost counts
+		String line;
+		while ((line = this.inbound.poll()) != null) {
+			this.processLine(line);
+		}
+		for (int attempt = 0; attempt < RECONNECT_ATTEMPTS && !this.getGame().hasGameFinished(); attempt++) {
+			Log.info("Bot " + this.name + " lost its connection, returning to its seat");
+			if (this.reconnect()) {
+				this.expected = null;
+				return true;
+			}
+			Thread.sleep(RECONNECT_DELAY);
+		}
+		return false;
+	}
+
+	@Override
+	public void processMessage(Opcode opcode, String value) {
+		if (opcode == Opcode.START) {
+			this.received = 0;
+		}
+		if (this.received >= 0) {
+			this.received++;
+		}
+		if (this.expected != null && this.expected[0].equals(opcode.getAction()) && value.equals(this.expected[1])) {
+			this.expected = null;
+		}
+		if (opcode == Opcode.AUTHORITATIVE) {
+			// The server deals, not the observing game of the bot
+			this.authoritative = true;
+			return;
+		}
+		if (opcode == Opcode.START && this.id == 0 && !this.authoritative) {
+			// The first seat deals, but the game of the bot is an observer
+			this.getGame().setDealer(-1);
+		} else if (opcode == Opcode.ATTACK
+				&& new UserInputOverwrite(value).getParts().get(0).equalsIgnoreCase("Attack")) {
+			this.attacked = true;
+		}
+		this.messages.add(new String[] { opcode.getAction(), value });
+		super.processMessage(opcode, value);
+		if (opcode == Opcode.ADD_PLAYER && this.getGame().getNumberPlayers() > this.id) {
+			this.seated = true;
+		}
+	}
+
+	/**
+	 * Decide whatever the seat of the bot has to decide in the current state
+	 */
+	private void act() {
+		if (this.expected != null) {
+			if (System.currentTimeMillis() - this.expectedSince < CONFIRMATION_TIMEOUT) {
+				return;
+			}
+			Log.warn("Bot " + this.name + " got no confirmation of " + this.expected[0] + ", deciding again");
+			this.expected = null;
+		}
+		Game game = this.getGame();
+		if (!game.hasStarted() || this.id >= game.getNumberPlayers()) {
+			return;
+		}
+		Player me = game.getPlayerById(this.id);
+		if (game.getDraft() == null || !game.getDraft().isFinished()) {
+			this.draft(game);
+		} else if (this.attacked && game.getPendingAttack() != null) {
+			this.attacked = false;
+			this.send(BotMoves.getDefense(game.getPendingAttack(), me));
+		} else if (game.getPendingVialOfLightPlayer() == me) {
+			this.send(BotMoves.getVialOfLight(me, this.policy, this.random));
+		} else if (game.isIncomePending()) {
+			if (!me.hasIncomeFinished()) {
+				this.send(BotMoves.getIncome(me, this.policy, this.random));
+			}
+		} else if (game.isActivePlayer(me) && !game.isWaitingForAbility()) {
+			this.send(BotMoves.getTurn(game, me, this.chooseAction(game, me)));
+		}
+	}
+
+	private void draft(Game game) {
+		DraftHelper draft = game.getDraft();
+		if (draft == null) {
+			if (this.id == 0 && !this.draftStarted) {
+				this.draftStarted = true;
+				this.send(CommunicationKeys.GAME_DRAFT,
+						new UserInputOverwrite(game.getPlayerById(0), CommunicationKeys.VALUE_START_DRAFT,
+								"" + DraftModes.RANDOM.ordinal(), "" + this.random.nextInt(game.getNumberPlayers()))
+										.getCode());
+				// An authoritative server draws the starting player itself, so the relayed
+				// message differs and is not awaited
+				this.expected = null;
+			}
+		} else if (draft.getMode() != DraftModes.RANDOM && draft.getMode() != DraftModes.RANDOM_BIG) {
+			if (!this.warnedDraft) {
+				this.warnedDraft = true;
+				Log.warn("Bot " + this.name + " can not pick artifacts in draft mode " + draft.getMode());
+			}
+		} else if (draft.hasShuffled()) {
+			Player me = game.getPlayerById(this.id);
+			ArrayList<Tappable> choices = null;
+			if (!draft.hasChosenMage(this.id)) {
+				choices = draft.getMageChoices(this.id);
+			} else if (draft.getNextItemPlayer() == this.id) {
+				choices = draft.getItemChoices();
+			}
+			if (choices != null) {
+				Tappable choice = choices.get(this.policy.chooseCard(me, choices, this.random));
+				this.send(CommunicationKeys.GAME_DRAFT, new UserInputOverwrite(choice, this.id, this.id).getCode());
+			}
+		}
+	}
+
+	/**
+	 * @return the action of the turn, searched if there is more than one
+	 */
+	private UserInputOverwrite chooseAction(Game game, Player me) {
+		ArrayList<UserInputOverwrite> options = BotMoves.getActions(me, this.policy, this.random, this.generator,
+				this.moves);
+		if (options.size() > 1) {
+			UserInputOverwrite searched = this.search.search(this.messages, game.getNumberPlayers(),
+					this.random.nextLong());
+			if (searched != null) {
+				return searched;
+			}
+		}
+		return options.get(this.policy.chooseAction(me, options, this.random));
+	}
+
+	private void send(ArrayList<String[]> messages) {
+		for (String[] message : messages) {
+			this.send(message);
+		}
+	}
+
+	private void send(String[] message) {
+		this.send(message[0], message[1]);
+	}
+
+	/**
+	 * Send a message to the {@link Server}, game messages are awaited to be
+	 * relayed back before the bot decides anything else
+	 */
+	private void send(String action, String value) {
+		if (this.socket == null || this.socket.isClosed()) {
+			return;
+		}
+		if (!action.equalsIgnoreCase(CommunicationKeys.META_SET_NAME)
+				&& !action.equalsIgnoreCase(CommunicationKeys.META_SET_READY)) {
+			this.expected = new String[] { action, value };
+			this.expectedSince = System.currentTimeMillis();
+		}
+		this.writer.println(CommunicationKeys.MARKER_CLIENT + CommunicationKeys.SEPERATOR_MAIN + this.id
+				+ CommunicationKeys.SEPERATOR_MAIN + action + CommunicationKeys.SEPERATOR_MAIN + value
+				+ CommunicationKeys.SEPERATOR_END);
+		this.writer.flush();
+	}
+
+	@Override
+	public void inform(String line) {
+		this.inbound.add(line);
+	}
+
+	@Override
+	public void informFrame(byte[] frame) {
+		Log.warn("Bot " + this.name + " received a binary frame without having accepted them");
+	}
+
+	@Override
+	public void disconnected(ListeningThread listeningThread) {
+		this.running = false;
+	}
+
+	@Override
+	public void informAllClients_Action(UserInputOverwrite action) {
+		this.send(CommunicationKeys.GAME_ACTION, action.getCode());
+	}
+
+	@Override
+	public void informAllClients_Shuffle(String shuffle) {
+		this.send(CommunicationKeys.GAME_SHUFFLE, shuffle);
+	}
+
+	@Override
+	public void informAllClients_Draft(String draft) {
+		this.send(CommunicationKeys.GAME_DRAFT, draft);
+	}
+
+	@Override
+	public void informAllClients_DealCards() {
+		this.send(CommunicationKeys.GAME_DEAL_CARDS, "" + this.id);
+	}
+
+	@Override
+	public void informAllClients_NextRound() {
+		this.send(CommunicationKeys.GAME_NEXT_ROUND, "" + this.id);
+	}
+
+	@Override
+	public void informAllClients_VoteNextRound() {
+		this.send(CommunicationKeys.GAME_VOTE_NEXT_ROUND, "" + this.id);
+	}
+
+	@Override
+	public void informAllClients_Attack(UserInputOverwrite action) {
+		this.send(CommunicationKeys.GAME_ATTACK, action.getCode());
+	}
+
+	@Override
+	public void informAllClients_Control(UserInputOverwrite control) {
+		this.send(CommunicationKeys.GAME_CONTROL, control.getCode());
+	}
+
+	@Override
+	public void gameFinished(Player winner) {
+		super.gameFinished(winner);
+		this.thread.disconnect();
+		this.send(CommunicationKeys.META_GAME_FINISHED, winner.getName());
+	}
+
+	public static void main(String[] args) {
+		String host = "localhost";
+		int bots = 1;
+		long budget = 1000;
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (args.length >= 1) {
+			host = args[0];
+		}
+		if (args.length >= 2) {
+			bots = Integer.parseInt(args[1]);
+		}
+		if (args.length >= 3) {
+			budget = Long.parseLong(args[2]);
+		}
+		if (args.length >= 4) {
+			threads = Integer.parseInt(args[3]);
+		}
+		Launcher.loadConfig();
+		Log.setVerbose(false);
+		MonteCarloSearch search = new MonteCarloSearch(threads, budget, new GreedyPolicy());
+		ArrayList<Thread> running = new ArrayList<Thread>();
+		ArrayList<BotClient> connected = new ArrayList<BotClient>();
+		for (int i = 0; i < bots; i++) {
+			BotClient bot = new BotClient(host, "Bot " + i, search);
+			if (bot.connect()) {
+				Thread thread = new Thread(bot, "Bot " + i);
+				thread.start();
+				running.add(thread);
+				connected.add(bot);
+			}
+		}
+		// All bots take their seats before any of them is ready, so the game does not
+		// start with only some of them. Seats are added in order, so waiting for the
+		// last one is enough.
+		try {
+			while (!connected.isEmpty() && !connected.get(connected.size() - 1).isSeated()) {
+				Thread.sleep(POLL_MILLIS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for (BotClient bot : connected) {
+			bot.setReady();
+		}
+		for (Thread thread : running) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		search.shutdown();
+	}
+}
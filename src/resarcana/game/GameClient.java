@@ -3,12 +3,14 @@ package resarcana.game;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.net.Socket;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.EnumSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Graphics;
@@ -19,17 +21,23 @@ import org.newdawn.slick.util.Log;
 import resarcana.communication.CommunicationKeys;
 import resarcana.communication.CommunicationListener;
 import resarcana.communication.ListeningThread;
+import resarcana.communication.Message;
+import resarcana.communication.Opcode;
 import resarcana.communication.Server;
+import resarcana.communication.WireFormat;
 import resarcana.game.core.Artifact;
 import resarcana.game.core.Essences;
 import resarcana.game.core.Game;
+import resarcana.game.core.GameHost;
 import resarcana.game.core.Player;
 import resarcana.game.core.PowerPlace;
 import resarcana.game.utils.EssenceSelection;
 import resarcana.game.utils.ImageViewer;
+import resarcana.game.utils.HistoryElement;
 import resarcana.game.utils.LogBox;
 import resarcana.game.utils.statistics.GameStatistics;
 import resarcana.game.utils.statistics.StatisticProperties;
+import resarcana.game.utils.statistics.StatisticsElement;
 import resarcana.game.utils.userinput.EssenceSelector;
 import resarcana.game.utils.userinput.Selecting;
 import resarcana.game.utils.userinput.Selector;
@@ -80,7 +88,7 @@ import resarcana.utils.Parameter;
  * @author Erik
  *
  */
-public class GameClient implements DrawPollInterface, CommunicationListener, ContentListener {
+public class GameClient implements DrawPollInterface, CommunicationListener, ContentListener, GameHost {
 
 	private static final Rectangle HITBOX_RULES = PowerPlace.PLACE_HITBOX;
 
@@ -106,12 +114,28 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 		}
 	}
 
+	/**
+	 * Maximum number of received lines processed per frame and the time they may
+	 * take in nanoseconds, the remaining lines wait for the next frame
+	 */
+	private static final int MAX_PACKETS_PER_FRAME = 64;
+	private static final long PACKET_BUDGET_NANOS = 4000000;
+
 	// Kommunikations-Parameter
 	private int id = -1;
-	private volatile ArrayList<String> packetBuffer = new ArrayList<String>();
+	// Text lines and raw binary frames, filled by the ListeningThread, drained and
+	// decoded by the render thread only
+	private final ConcurrentLinkedQueue<Object> packetBuffer = new ConcurrentLinkedQueue<Object>();
 	private ListeningThread thread;
 	private Socket socket = null;
 	private PrintWriter writer;
+	private OutputStream output;
+	// Set as soon as the server switches the table to binary frames
+	private boolean binary = false;
+	// Token to take the seat again and number of messages received since the
+	// start of the game, -1 before
+	private String token = null;
+	private int received = -1;
 	private boolean ready;
 
 	// GUI
@@ -345,14 +369,25 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 
 	@Override
 	public void inform(String line) {
-		synchronized (this.packetBuffer) {
-			this.packetBuffer.add(line);
-		}
+		this.packetBuffer.add(line);
+	}
+
+	@Override
+	public void informFrame(byte[] frame) {
+		this.packetBuffer.add(frame);
 	}
 
 	@Override
 	public void disconnected(ListeningThread listeningThread) {
-		// Nothing to do
+		// Close the socket of a lost connection, so the client may connect again and
+		// return to its seat
+		if (listeningThread == this.thread && this.socket != null) {
+			try {
+				this.socket.close();
+			} catch (IOException e) {
+				Log.warn("Could not close socket: " + e.getLocalizedMessage());
+			}
+		}
 	}
 
 	@Override
@@ -497,14 +532,39 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 
 	// Kommunikation mit dem Server
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Process the lines received from the {@link Server} in their order, at most
+	 * {@link #MAX_PACKETS_PER_FRAME} within {@link #PACKET_BUDGET_NANOS}, so a
+	 * burst of messages does not stall rendering
+	 */
 	public void processPackets() {
-		ArrayList<String> packets;
-		synchronized (this.packetBuffer) {
-			packets = (ArrayList<String>) this.packetBuffer.clone();
+		long start = System.nanoTime();
+		Object packet;
+		for (int i = 0; i < MAX_PACKETS_PER_FRAME && (packet = this.packetBuffer.poll()) != null; i++) {
+			this.processPacket(packet);
+			if (System.nanoTime() - start > PACKET_BUDGET_NANOS) {
+				break;
+			}
 		}
-		for (String line : packets) {
+	}
+
+	/**
+	 * Process a line or decode and process a binary frame, frames are decoded
+	 * here and not on the {@link ListeningThread} because decoding reads the
+	 * current game
+	 */
+	private void processPacket(Object packet) {
+		if (packet instanceof byte[]) {
+			String line;
+			try {
+				line = WireFormat.decodeFrame((byte[]) packet, this.game);
+			} catch (RuntimeException e) {
+				Log.error("Could not decode frame: " + e);
+				return;
+			}
 			this.processLine(line);
+		} else {
+			this.processLine((String) packet);
 		}
 	}
 
@@ -518,60 +578,58 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 */
 	private void processLine(String line) {
 		Log.info(this.id + " received " + line);
-		String[] split = line.split(CommunicationKeys.SEPERATOR_END)[0].split(CommunicationKeys.SEPERATOR_MAIN);
-		if (split.length == 4 && split[0].equalsIgnoreCase(CommunicationKeys.MARKER_SERVER)) {
-			boolean allAdressed = Boolean.parseBoolean(split[1]);
-			String action = split[2];
-			String value = split[3];
-			if (allAdressed) {
-				if (action.equalsIgnoreCase(CommunicationKeys.META_ADD_PLAYER)) {
-					this.addPlayer(value);
-				} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_START)) {
-					this.startGame(Integer.parseInt(value));
-					this.refreshName();
-					// Disable ready-checkbox
-					((Checkbox) this.settings.getContentable("Ready")).setWriteable(false);
-				} else if (action.equalsIgnoreCase(CommunicationKeys.META_SET_NAME)) {
-					this.setName(value);
-				} else if (action.equalsIgnoreCase(CommunicationKeys.META_GAME_FINISHED)) {
-					// Nothing to do, this just triggers an previous disconnect()-call on
-					// this.thread
-				} else if (action.equalsIgnoreCase(CommunicationKeys.META_DISCONNECT)) {
-					this.game.disconnect(value);
-				} else if (action.startsWith(CommunicationKeys.GAME_ACTION)) {
-					this.game.applyAction(new UserInputOverwrite(value));
-				} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_SHUFFLE)) {
-					if (value.startsWith(CommunicationKeys.VALUE_GAME_INIT)) {
-						this.game.initialShuffle(value);
-					} else if (value.startsWith(CommunicationKeys.VALUE_REFILL_DECK)) {
-						this.game.refillShuffle(value);
-					} else if (value.startsWith(CommunicationKeys.VALUE_SHUFFLE_DRAFT)) {
-						this.game.draftShuffle(value);
+		Message message = Message.parse(line);
+		if (message == null || !message.isFromServer()) {
+			return;
+		}
+		Opcode opcode = message.getOpcode();
+		String value = message.getValue();
+		if (message.isAddressedToAll()) {
+			if (opcode == Opcode.START) {
+				this.received = 0;
+			}
+			if (this.received >= 0) {
+				this.received++;
+			}
+			switch (opcode) {
+			case ADD_PLAYER:
+				this.addPlayer(value);
+				break;
+			case AUTHORITATIVE:
+				Log.info("Server deals and validates all game messages");
+				this.game.setDealer(-1);
+				break;
+			case BINARY:
+				Log.info("Switching to binary frames of version " + value);
+				this.binary = true;
+				break;
+			case START:
+				this.startGame(Integer.parseInt(value));
+				this.refreshName();
+				// Disable ready-checkbox
+				((Checkbox) this.settings.getContentable("Ready")).setWriteable(false);
+				break;
+			case SET_NAME:
+				this.setName(message);
+				break;
+			case GAME_FINISHED:
+				// Nothing to do, this just triggers an previous disconnect()-call on
+				// this.thread
+				break;
+			default:
+				if (this.game.processMessage(opcode, value)) {
+					if (opcode == Opcode.DEAL_CARDS) {
+						this.deckViewer.hide();
 					}
-				} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_DRAFT)) {
-					this.game.draftAction(new UserInputOverwrite(value));
-				} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_DEAL_CARDS)) {
-					this.game.dealCardsToPlayers();
-					this.deckViewer.hide();
-				} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_NEXT_ROUND)) {
-					this.game.nextRound();
-				} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_VOTE_NEXT_ROUND)) {
-					this.game.voteNextRound(value);
-				} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_INCOME_DONE)) {
-					this.game.incomeFinished(value);
-				} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_ATTACK)) {
-					this.game.attack(new UserInputOverwrite(value));
-				} else if (action.equalsIgnoreCase(CommunicationKeys.GAME_CONTROL)) {
-					this.game.control(new UserInputOverwrite(value));
 				} else {
-					Log.warn("Recieved unrecognized action: " + action);
+					Log.warn("Recieved unrecognized action: " + message.getAction());
 				}
-			} else {
-				Log.warn("Recieved unrecognized action: " + action);
 			}
-		}
-		synchronized (this.packetBuffer) {
-			this.packetBuffer.remove(line);
+		} else if (opcode == Opcode.TOKEN) {
+			this.token = value;
+			this.game.setSeatToken(value);
+		} else {
+			Log.warn("Recieved unrecognized action: " + message.getAction());
 		}
 	}
 
@@ -583,6 +641,7 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 * 
 	 * @param action the game event
 	 */
+	@Override
 	public void informAllClients_Action(UserInputOverwrite action) {
 		this.sendToServer(CommunicationKeys.GAME_ACTION + CommunicationKeys.SEPERATOR_MAIN + action.getCode());
 	}
@@ -596,6 +655,7 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 * 
 	 * @param shuffle the shuffle transcribed as {@link String}
 	 */
+	@Override
 	public void informAllClients_Shuffle(String shuffle) {
 		this.sendToServer(CommunicationKeys.GAME_SHUFFLE + CommunicationKeys.SEPERATOR_MAIN + shuffle);
 	}
@@ -608,6 +668,7 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 * 
 	 * @param action the draft event transcribed as {@link String}
 	 */
+	@Override
 	public void informAllClients_Draft(String draft) {
 		this.sendToServer(CommunicationKeys.GAME_DRAFT + CommunicationKeys.SEPERATOR_MAIN + draft);
 	}
@@ -618,6 +679,7 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 * This will issue a call of {@link Game#dealCardsToPlayers()} on all clients
 	 * connected to the game
 	 */
+	@Override
 	public void informAllClients_DealCards() {
 		this.sendToServer(CommunicationKeys.GAME_DEAL_CARDS + CommunicationKeys.SEPERATOR_MAIN + this.id);
 	}
@@ -628,6 +690,7 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 * This will issue a call of {@link Game#nextRound()} on all clients connected
 	 * to the game
 	 */
+	@Override
 	public void informAllClients_NextRound() {
 		this.sendToServer(CommunicationKeys.GAME_NEXT_ROUND + CommunicationKeys.SEPERATOR_MAIN + this.id);
 	}
@@ -641,6 +704,7 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 * This will issue a call of {@link Game#voteNextRound(String)} on all clients
 	 * connected to the game
 	 */
+	@Override
 	public void informAllClients_VoteNextRound() {
 		this.sendToServer(CommunicationKeys.GAME_VOTE_NEXT_ROUND + CommunicationKeys.SEPERATOR_MAIN + this.id);
 	}
@@ -654,6 +718,7 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 * This will issue a call of {@link Game#incomeFinished(String)} on all clients
 	 * connected to the game
 	 */
+	@Override
 	public void informAllClients_IncomeDone() {
 		this.sendToServer(CommunicationKeys.GAME_INCOME_DONE + CommunicationKeys.SEPERATOR_MAIN + this.id);
 	}
@@ -666,6 +731,7 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 * 
 	 * @param action the attack game event
 	 */
+	@Override
 	public void informAllClients_Attack(UserInputOverwrite action) {
 		this.sendToServer(CommunicationKeys.GAME_ATTACK + CommunicationKeys.SEPERATOR_MAIN + action);
 	}
@@ -678,10 +744,36 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 * 
 	 * @param action the game control event
 	 */
+	@Override
 	public void informAllClients_Control(UserInputOverwrite control) {
 		this.sendToServer(CommunicationKeys.GAME_CONTROL + CommunicationKeys.SEPERATOR_MAIN + control);
 	}
 
+	@Override
+	public void addHistory(HistoryElement elem) {
+		this.history.addHistory(elem);
+	}
+
+	@Override
+	public void setPlayerNames(String[] names) {
+		this.statistics.setPlayerNumber(names);
+	}
+
+	@Override
+	public void setPlayerName(int id, String name) {
+		this.statistics.setName(id, name);
+	}
+
+	@Override
+	public void addRoundMarker() {
+		this.statistics.addRoundMarker();
+	}
+
+	@Override
+	public void addStatistics(ArrayList<StatisticsElement> stats) {
+		this.statistics.addStatisticsBatch(stats);
+	}
+
 	/**
 	 * Inform the {@link Server} that the game has finished
 	 * <p>
@@ -695,6 +787,7 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	 * 
 	 * @param action the game control event
 	 */
+	@Override
 	public void gameFinished(Player winner) {
 		this.thread.disconnect();
 		this.sendToServer(CommunicationKeys.META_GAME_FINISHED + CommunicationKeys.SEPERATOR_MAIN + winner.getName());
@@ -704,12 +797,11 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 	/**
 	 * Set the name of a player
 	 * 
-	 * @param value "PLAYER_ID" + {@link CommunicationKeys#SEPERATOR_PARTS} +
-	 *              "NEW_NAME"
+	 * @param message the message with the value "PLAYER_ID" +
+	 *                {@link CommunicationKeys#SEPERATOR_PARTS} + "NEW_NAME"
 	 */
-	private void setName(String value) {
-		String[] split = value.split(CommunicationKeys.SEPERATOR_PARTS);
-		this.game.changeName(Integer.parseInt(split[0]), split[1]);
+	private void setName(Message message) {
+		this.game.changeName(message.getIntPart(0), message.getPart(1).toString());
 	}
 
 	/**
@@ -737,6 +829,9 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 
 	/**
 	 * Connect to the {@link Server}
+	 * <p>
+	 * A client which has lost its connection during the game returns to its seat
+	 * and receives all messages it has missed.
 	 * 
 	 * @return <code>true</code> if the connection was successfully established
 	 */
@@ -761,28 +856,44 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 
 			// Auf Anfragen warten
 			String inLine = br.readLine();
+			boolean returning = this.token != null && this.received >= 0;
+			if (returning) {
+				// Everything received before the connection has been lost counts
+				Object packet;
+				while ((packet = this.packetBuffer.poll()) != null) {
+					this.processPacket(packet);
+				}
+			}
 			if (inLine != null) {
 				int number = Integer.parseInt(inLine);
-				if (number == -1) {
+				if (number == -1 && !returning) {
 					Log.info("Server does not accept any more clients");
 					this.socket = null;
 					socket.close();
 					return false;
 				} else {
 					Log.info("Server accepted client");
-					this.id = number;
+					if (!returning) {
+						this.id = number;
+					}
 					// Player empfangen
+					boolean binaryOffered = false;
 					while (true) {
 						Log.info("Receive");
 						inLine = br.readLine();
 						Log.info("Received: " + inLine);
 						if (inLine.startsWith(CommunicationKeys.META_CONNECT_FINISH)) {
+							binaryOffered = WireFormat.isBinaryHandshake(inLine);
 							break;
 						}
-						String[] split = inLine.split(CommunicationKeys.SEPERATOR_MAIN);
-						this.addPlayer(split[3].split(CommunicationKeys.SEPERATOR_PARTS)[1]);
+						if (!returning) {
+							String[] split = inLine.split(CommunicationKeys.SEPERATOR_MAIN);
+							this.addPlayer(split[3].split(CommunicationKeys.SEPERATOR_PARTS)[1]);
+						}
+					}
+					if (!returning) {
+						this.sendReady();
 					}
-					this.sendReady();
 
 					// Socket abspeichern und ListeningThread starten
 					this.socket = socket;
@@ -790,19 +901,34 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 							CommunicationKeys.MARKER_CLIENT);
 					this.thread.start();
 
-					pw.println(CommunicationKeys.META_CONNECT_FINISH);
+					if (returning) {
+						// The table keeps its format, the missed messages follow
+						Log.info("Returning to seat " + this.id + " after " + this.received + " messages");
+						pw.println(CommunicationKeys.META_CONNECT_LOADED + CommunicationKeys.SEPERATOR_MAIN + this.token
+								+ CommunicationKeys.SEPERATOR_PARTS + this.received);
+					} else if (binaryOffered) {
+						// Accept binary frames, the server switches as soon as the game starts
+						pw.println(CommunicationKeys.META_CONNECT_FINISH + CommunicationKeys.SEPERATOR_MAIN
+								+ CommunicationKeys.META_BINARY);
+					} else {
+						pw.println(CommunicationKeys.META_CONNECT_FINISH);
+					}
 					pw.flush();
 
 					Log.info("Initialisierung abgeschlossen");
 					Log.info("Connected to Server as Client " + this.id + " on Port " + CommunicationKeys.SERVER_PORT);
 
 					this.writer = pw;
+					this.output = socket.getOutputStream();
+					if (!returning) {
+						this.binary = false;
+					}
 
 					// Textfelder uneditierbar machen, wenn kein Fehler aufgetreten ist
 					((TextField) this.settings.getContentable("Serveradress")).setWriteable(false);
 
 					// Enable ready-checkbox
-					((Checkbox) this.settings.getContentable("Ready")).setWriteable(true);
+					((Checkbox) this.settings.getContentable("Ready")).setWriteable(!returning);
 
 					return true;
 				}
@@ -837,8 +963,36 @@ public class GameClient implements DrawPollInterface, CommunicationListener, Con
 		if (this.isConnected()) {
 			message = this.UnifyInfo(message);
 			Log.info(this.id + " sending " + message);
+			if (this.binary) {
+				this.sendFrame(message);
+			} else {
+				this.writer.println(message);
+				this.writer.flush();
+			}
+		}
+	}
+
+	/**
+	 * Send a unified message as binary frame, identifiers of game messages are
+	 * compressed via the {@link #game}
+	 * 
+	 * @param message the unified message
+	 */
+	private void sendFrame(String message) {
+		Message parsed = Message.parse(message);
+		if (parsed == null || parsed.getOpcode().getWireCode() == -1) {
 			this.writer.println(message);
 			this.writer.flush();
+			return;
+		}
+		// Only identifiers of game messages are compressed
+		boolean meta = !parsed.getOpcode().isGameMessage();
+		try {
+			this.output.write(WireFormat.encodeFrame(parsed.getAction(), this.id, parsed.getValue(),
+					meta ? null : this.game));
+			this.output.flush();
+		} catch (IOException e) {
+			Log.error("Could not send frame to server: " + e.getLocalizedMessage());
 		}
 	}
 
@@ -201,7 +201,7 @@ public class GameState extends AbstractState implements Interfaceable {
 
 		if (Scheduler.getInstance().hasItemsScheduled()) {
 			Scheduler.getInstance().draw(g);
-			Scheduler.getInstance().loadNextScheduledItem();
+			Scheduler.getInstance().loadScheduledItems();
 		} else {
 			if (this.active != null) {
 				this.active.draw(g);
@@ -0,0 +1,273 @@
+package resarcana.game;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+
+import org.newdawn.slick.util.Log;
+
+import resarcana.communication.CommunicationKeys;
+import resarcana.communication.Message;
+import resarcana.communication.Opcode;
+import resarcana.communication.Server;
+import resarcana.communication.TableLog;
+import resarcana.communication.WireFormat;
+import resarcana.game.core.Game;
+import resarcana.game.core.GameHost;
+import resarcana.game.core.GameSnapshot;
+import resarcana.game.core.Player;
+import resarcana.game.utils.HistoryElement;
+import resarcana.game.utils.statistics.StatisticsElement;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+import resarcana.utils.UtilFunctions;
+
+/**
+ * A client without any display, that follows a game by applying the lines sent
+ * by the {@link Server} to a headless {@link Game}
+ * <p>
+ * This client observes all players, it never informs other clients about
+ * anything. No Slick2D context is needed, so it can be used from the server or
+ * from tools like simulations.
+ * <p>
+ * The only messages addressed to this client alone are the token of its seat
+ * and batches of messages: the whole history of a game it returns to without
+ * any state or, while spectating, the messages it has missed.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class HeadlessClient implements GameHost {
+
+	private final Game game;
+
+	private final ArrayList<ArrayList<StatisticsElement>> statistics = new ArrayList<ArrayList<StatisticsElement>>();
+	private final ArrayList<HistoryElement> history = new ArrayList<HistoryElement>();
+	private int rounds = 0;
+	private Player winner = null;
+	private String token = null;
+
+	public HeadlessClient() {
+		this.game = new Game(this);
+	}
+
+	/**
+	 * Processes a single line (which should represent a single command) in the
+	 * format sent by the {@link Server}
+	 * <p>
+	 * See {@link CommunicationKeys} for explanation and key-phrases to use
+	 *
+	 * @param line the line to be processed
+	 */
+	public void processLine(String line) {
+		Message message = Message.parse(line);
+		if (message != null && message.isFromServer()) {
+			if (message.isAddressedToAll()) {
+				this.processMessage(message.getOpcode(), message.getValue());
+			} else if (message.getOpcode() == Opcode.TOKEN) {
+				this.token = message.getValue();
+				this.game.setSeatToken(this.token);
+			} else if (message.getOpcode() == Opcode.RESUME) {
+				this.resume(message.getValue());
+			}
+		} else {
+			Log.warn("Headless client skipped malformed line: " + line);
+		}
+	}
+
+	/**
+	 * Processes a single message addressed to all clients
+	 *
+	 * @param action the action key of the message
+	 * @param value  the value of the message
+	 */
+	public void processMessage(String action, String value) {
+		Opcode opcode = Opcode.of(action);
+		if (opcode == Opcode.UNKNOWN) {
+			Log.warn("Headless client skipped unrecognized action: " + action);
+		} else {
+			this.processMessage(opcode, value);
+		}
+	}
+
+	/**
+	 * Processes a single message addressed to all clients
+	 *
+	 * @param opcode the opcode of the message
+	 * @param value  the value of the message
+	 */
+	public void processMessage(Opcode opcode, String value) {
+		switch (opcode) {
+		case ADD_PLAYER:
+			this.game.addPlayer(value);
+			break;
+		case START:
+			this.game.start(Integer.parseInt(value), -1);
+			break;
+		case AUTHORITATIVE:
+			this.game.setDealer(-1);
+			break;
+		case SET_NAME:
+			int separator = value.indexOf(CommunicationKeys.SEPERATOR_PARTS);
+			this.game.changeName(UtilFunctions.parseInt(value, 0, separator), value.substring(separator + 1));
+			break;
+		case GAME_FINISHED:
+		case BINARY:
+			// Nothing to do, no connection of its own
+			break;
+		default:
+			if (!this.game.processMessage(opcode, value)) {
+				Log.warn("Headless client skipped unrecognized action: " + opcode);
+			}
+		}
+	}
+
+	/**
+	 * Catch up with a game from a batch of messages as sent by the server with
+	 * {@link CommunicationKeys#GAME_RESUME}
+	 *
+	 * @param value the compressed messages
+	 */
+	private void resume(String value) {
+		ArrayList<byte[]> messages;
+		try {
+			messages = TableLog.decompress(Base64.getUrlDecoder().decode(value));
+		} catch (IOException | IllegalArgumentException e) {
+			Log.error("Headless client could not read the history of the game: " + e);
+			return;
+		}
+		Log.info("Headless client catches up with " + messages.size() + " messages");
+		for (byte[] message : messages) {
+			if (message.length > 0 && message[0] == WireFormat.FRAME_MARKER) {
+				this.processLine(WireFormat.decodeFrame(message, this.game));
+			} else {
+				this.processLine(new String(message, WireFormat.CHARSET).trim());
+			}
+		}
+	}
+
+	/**
+	 * @return the token to take the seat of this client again, see
+	 *         {@link CommunicationKeys#META_CONNECT_LOADED}, <code>null</code> if
+	 *         this client has no seat
+	 */
+	public String getToken() {
+		return this.token;
+	}
+
+	public Game getGame() {
+		return this.game;
+	}
+
+	/**
+	 * @return all statistics batches recorded so far, one per turn plus one at the
+	 *         end of the game
+	 */
+	public ArrayList<ArrayList<StatisticsElement>> getStatistics() {
+		return this.statistics;
+	}
+
+	/**
+	 * Set the game back to a snapshot, see {@link Game#restore(GameSnapshot, long)}
+	 * <p>
+	 * The history and the statistics are kept as they are.
+	 *
+	 * @param snapshot a restorable snapshot of this game
+	 * @param seed     the seed of all randomness from now on
+	 */
+	public void restore(GameSnapshot snapshot, long seed) {
+		this.game.restore(snapshot, seed);
+		this.rounds = snapshot.getRound() + 1;
+		this.winner = snapshot.getWinner() < 0 ? null : this.game.getPlayerById(snapshot.getWinner());
+	}
+
+	public ArrayList<HistoryElement> getHistory() {
+		return this.history;
+	}
+
+	public int getRounds() {
+		return this.rounds;
+	}
+
+	/**
+	 * @return the winner of the game, <code>null</code> while the game is running
+	 */
+	public Player getWinner() {
+		return this.winner;
+	}
+
+	@Override
+	public void informAllClients_Action(UserInputOverwrite action) {
+		// Observer only
+	}
+
+	@Override
+	public void informAllClients_Shuffle(String shuffle) {
+		// Observer only
+	}
+
+	@Override
+	public void informAllClients_Draft(String draft) {
+		// Observer only
+	}
+
+	@Override
+	public void informAllClients_DealCards() {
+		// Observer only
+	}
+
+	@Override
+	public void informAllClients_NextRound() {
+		// Observer only
+	}
+
+	@Override
+	public void informAllClients_VoteNextRound() {
+		// Observer only
+	}
+
+	@Override
+	public void informAllClients_IncomeDone() {
+		// Observer only
+	}
+
+	@Override
+	public void informAllClients_Attack(UserInputOverwrite action) {
+		// Observer only
+	}
+
+	@Override
+	public void informAllClients_Control(UserInputOverwrite control) {
+		// Observer only
+	}
+
+	@Override
+	public void addHistory(HistoryElement elem) {
+		this.history.add(elem);
+	}
+
+	@Override
+	public void setPlayerNames(String[] names) {
+		// Names are kept by the players of the game
+	}
+
+	@Override
+	public void setPlayerName(int id, String name) {
+		// Names are kept by the players of the game
+	}
+
+	@Override
+	public void addRoundMarker() {
+		this.rounds++;
+	}
+
+	@Override
+	public void addStatistics(ArrayList<StatisticsElement> stats) {
+		this.statistics.add(stats);
+	}
+
+	@Override
+	public void gameFinished(Player winner) {
+		Log.info("Headless game finished, winner: " + winner.getName());
+		this.winner = winner;
+	}
+}
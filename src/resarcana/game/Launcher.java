@@ -21,6 +21,7 @@ import resarcana.game.utils.factory.MagicItemFactory;
 import resarcana.game.utils.factory.MonumentFactory;
 import resarcana.game.utils.factory.PowerPlaceFactory;
 import resarcana.game.utils.factory.ScrollFactory;
+import resarcana.graphics.BatchRenderer;
 import resarcana.graphics.Engine;
 import resarcana.graphics.SlickEngine;
 import resarcana.graphics.utils.GraphicsLogSystem;
@@ -49,7 +50,11 @@ public class Launcher {
 		return config.get(identifier.trim().toLowerCase());
 	}
 
-	private static void loadConfig() {
+	/**
+	 * Load the settings and the card pool (<code>artifacts=</code>,
+	 * <code>mages=</code>, ...) from "./config.txt"
+	 */
+	public static void loadConfig() {
 		// Set default values
 		putIntoConfig("directory", PROGRAMM_DIRECTORY_MAIN);
 		putIntoConfig("width", "" + Width);
@@ -190,6 +195,8 @@ public class Launcher {
 
 	public static void main(String[] args) {
 
+		// Batch the drawing, before any image or color of Slick2D is created
+		BatchRenderer.install();
 		// Mark server output in logging
 		ServerLog.prefix = "SERVER: ";
 		// Create Logging system
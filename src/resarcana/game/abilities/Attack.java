@@ -82,6 +82,13 @@ public class Attack extends Ability implements Selecting {
 		return this.effectColor;
 	}
 
+	/**
+	 * @return the life an attacked player loses without protection
+	 */
+	public int getHitpoints() {
+		return this.hitpoints;
+	}
+
 	private void doEffects() {
 		if (this.getTappable().isDragon()) { // Dragon attack
 			this.getGame().playDragonAnimations(this.getPlayer(), this.effectColor);
@@ -96,6 +103,20 @@ public class Attack extends Ability implements Selecting {
 		this.getGameClient().informAllClients_Attack(new UserInputOverwrite(this, "Attack", payedCost));
 	}
 
+	@Override
+	public EssenceSelection getCost() {
+		return this.cost;
+	}
+
+	@Override
+	public EssenceSelection getPayment(UserInputOverwrite overwrite) {
+		// Only the start of an attack is paid by the attacker
+		if (overwrite.getParts().get(0).equalsIgnoreCase("Attack")) {
+			return new EssenceSelection(overwrite.getParts().get(1));
+		}
+		return null;
+	}
+
 	@Override
 	public boolean activate() {
 		if (this.cost.getTotal() == 0) {
@@ -152,19 +173,31 @@ public class Attack extends Ability implements Selecting {
 		}
 	}
 
+	/**
+	 * Starts this attack in this game-instance: pays its cost and asks the
+	 * defender for his protection
+	 * 
+	 * @param cost     the cost payed for the attack
+	 * @param defender the player of this game-instance, <code>null</code> if this
+	 *                 game-instance only observes
+	 */
 	public void activateAttack(EssenceSelection cost, Player defender) {
 		this.attackedPlayer = defender;
 		// Pay cost for attack now as this is done for every client
 		this.getPlayer().modifyEssence(cost, true);
 		this.getTappable().tap();
+		// An observing game-instance has no player to defend
+		if (this.attackedPlayer == null) {
+			return;
+		}
 		// A passed player can't be attacked and thus has no cost to pay
 		if (this.attackedPlayer.hasPassed()) {
-			this.getGameClient().informAllClients_Attack(new UserInputOverwrite(this, "Passed", this.attackedPlayer));
+			this.getHost().informAllClients_Attack(new UserInputOverwrite(this, "Passed", this.attackedPlayer));
 			return;
 		}
 		// The attacking player does not need to defend
 		if (defender == this.getPlayer()) {
-			this.getGameClient().informAllClients_Attack(new UserInputOverwrite(this, "Attacker", this.attackedPlayer));
+			this.getHost().informAllClients_Attack(new UserInputOverwrite(this, "Attacker", this.attackedPlayer));
 			return;
 		}
 		this.prepareProtectionChoice(this.attackedPlayer);
@@ -33,6 +33,16 @@ public class CardDrawer extends Ability implements Selecting {
 		return super.isActivable() && this.getPlayer().isPayable(this.cost) && this.getPlayer().canDrawCard();
 	}
 
+	@Override
+	public EssenceSelection getCost() {
+		return this.cost;
+	}
+
+	@Override
+	public EssenceSelection getPayment(UserInputOverwrite overwrite) {
+		return new EssenceSelection(overwrite.getParts().get(0));
+	}
+
 	@Override
 	public boolean activate() {
 		this.getGameClient().addSelector(new EssenceSelector(this, this.cost,
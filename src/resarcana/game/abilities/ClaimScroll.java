@@ -36,6 +36,16 @@ public class ClaimScroll extends Ability implements Selecting {
 		return super.isActivable() && this.getPlayer().isPayable(this.cost) && this.getGame().getScrolls().size() > 0;
 	}
 
+	@Override
+	public EssenceSelection getCost() {
+		return this.cost;
+	}
+
+	@Override
+	public EssenceSelection getPayment(UserInputOverwrite overwrite) {
+		return new EssenceSelection(overwrite.getParts().get(0));
+	}
+
 	@Override
 	public boolean activate() {
 		this.getGameClient()
@@ -47,6 +47,16 @@ public class DrawDiscarder extends Ability implements Selecting {
 		return super.isActivable() && this.getPlayer().canDrawCard() && this.getPlayer().isPayable(this.cost);
 	}
 
+	@Override
+	public EssenceSelection getCost() {
+		return this.cost;
+	}
+
+	@Override
+	public EssenceSelection getPayment(UserInputOverwrite overwrite) {
+		return new EssenceSelection(overwrite.getParts().get(0));
+	}
+
 	@Override
 	public boolean activate() {
 		this.getGameClient().addSelector(new EssenceSelector(this, this.cost, "Draw cards?"));
@@ -31,6 +31,11 @@ public class EssenceCopier extends Ability {
 		this(parent, relPos, MODE_ESSENCE, input, output);
 	}
 
+	@Override
+	public boolean needsInput() {
+		return false;
+	}
+
 	@Override
 	public boolean activate() {
 		return true;
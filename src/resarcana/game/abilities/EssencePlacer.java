@@ -76,6 +76,13 @@ public class EssencePlacer extends Ability implements Selecting {
 		return super.isActivable() && this.getPlayer().isPayable(this.inputRequest);
 	}
 
+	@Override
+	public boolean needsInput() {
+		// Like processInput() and processOutput() without any selector
+		return !this.inputRequest.isDetermined() || this.outputMode != OUTPUT_INDEPENDENT
+				|| !this.outputRequest.isDetermined() || (this.mode != MODE_PLAYER && this.mode != MODE_SELF);
+	}
+
 	private boolean processInput() {
 		if (!this.inputRequest.isDetermined()) {
 			this.getGameClient()
@@ -26,16 +26,22 @@ public class Pass extends Ability implements Selecting {
 
 	private int status = STATE_IDLE;
 
-	private final Font font;
+	/**
+	 * Requested at the first {@link #draw(Graphics)}, so no font is needed in
+	 * headless games
+	 */
+	private Font font = null;
 
 	public Pass(Tappable parent, Vector relPos) {
 		super(parent, relPos);
-		this.font = FontManager.getInstance().getFont((int) (Ability.ABILITY_HITBOX.y * 2.25f));
 	}
 
 	@Override
 	public void draw(Graphics g) {
 		if (this.isActivable()) {
+			if (this.font == null) {
+				this.font = FontManager.getInstance().getFont((int) (Ability.ABILITY_HITBOX.y * 2.25f));
+			}
 			g.setFont(this.font);
 			GraphicUtils.drawStringCentered(g, this.getRelPos(), "Pass");
 		}
@@ -8,7 +8,6 @@ import resarcana.game.core.Tappable;
 import resarcana.game.utils.EssenceSelection;
 import resarcana.game.utils.HistoryElement;
 import resarcana.game.utils.userinput.UserInputOverwrite;
-import resarcana.graphics.utils.SoundManager;
 import resarcana.math.Vector;
 
 public class Protection extends Ability {
@@ -62,10 +61,10 @@ public class Protection extends Ability {
 			this.getPlayer().playGuardDogAnimation();
 			break;
 		case NONE:
-			SoundManager.getInstance().playProtect();
+			this.getGame().getSoundManager().playProtect();
 			break;
 		default:
-			SoundManager.getInstance().playProtect();
+			this.getGame().getSoundManager().playProtect();
 			Log.warn("Unknown ProtectionEffect: " + this.effect);
 			break;
 		}
@@ -67,6 +67,16 @@ public class Reanimator extends Ability implements Selecting {
 		}
 	}
 
+	@Override
+	public EssenceSelection getCost() {
+		return this.cost;
+	}
+
+	@Override
+	public EssenceSelection getPayment(UserInputOverwrite overwrite) {
+		return new EssenceSelection(overwrite.getParts().get(0));
+	}
+
 	@Override
 	public boolean activate() {
 		if (this.cost.isDetermined()) {
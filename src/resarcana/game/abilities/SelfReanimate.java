@@ -5,7 +5,6 @@ import resarcana.game.core.Tappable;
 import resarcana.game.utils.EssenceSelection;
 import resarcana.game.utils.HistoryElement;
 import resarcana.game.utils.userinput.UserInputOverwrite;
-import resarcana.graphics.utils.SoundManager;
 import resarcana.math.Vector;
 
 public class SelfReanimate extends Ability {
@@ -23,6 +22,11 @@ public class SelfReanimate extends Ability {
 				&& this.getPlayer().isPayable(this.cost);
 	}
 
+	@Override
+	public boolean needsInput() {
+		return false;
+	}
+
 	@Override
 	public boolean activate() {
 		return true;
@@ -31,7 +35,7 @@ public class SelfReanimate extends Ability {
 	@Override
 	public HistoryElement activateOverwrite(UserInputOverwrite overwrite) {
 		this.getTappable().untap();
-		SoundManager.getInstance().playTap();
+		this.getGame().getSoundManager().playTap();
 		this.getPlayer().modifyEssence(this.cost, true);
 		return new HistoryElement(this).setOptionalTwo(this.getGame().getCurrentEssenceDifference(this.getPlayer()));
 	}
@@ -78,6 +78,11 @@ public class SelfSacrifice extends Ability implements Selecting {
 		}
 	}
 
+	@Override
+	public boolean needsInput() {
+		return this.mode != MODE_FLAT;
+	}
+
 	@Override
 	public boolean activate() {
 		switch (this.mode) {
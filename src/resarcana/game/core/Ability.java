@@ -9,6 +9,7 @@ import resarcana.communication.CommunicationKeys;
 import resarcana.communication.Server;
 import resarcana.game.GameClient;
 import resarcana.game.abilities.Discard;
+import resarcana.game.utils.EssenceSelection;
 import resarcana.game.utils.HistoryElement;
 import resarcana.game.utils.userinput.Selector;
 import resarcana.game.utils.userinput.UserInputOverwrite;
@@ -133,6 +134,71 @@ public abstract class Ability implements Drawable, Pollable {
 		return !this.getTappable().isTapped() && this.getTappable().isInPlay() && this.getPlayer().isActive();
 	}
 
+	/**
+	 * Should be overwriten by {@link Ability} implementations whose
+	 * {@link #activate()} always finishes without any userinput
+	 * 
+	 * @return <code>false</code> if this ability alone, without any input, is a
+	 *         complete action, see {@link Game#activate(Ability)}
+	 */
+	public boolean needsInput() {
+		return true;
+	}
+
+	/**
+	 * Check {@link #isActivable()} for the owner of this ability, whether or not
+	 * the owner is the player of this game-instance
+	 * 
+	 * @return <code>true</code> if the owner could currently use this ability
+	 */
+	public boolean isUsable() {
+		Player player = this.getPlayer();
+		if (player == null) {
+			return false;
+		}
+		// The flag is only kept up to date for the player of the client
+		boolean unmark = !player.isActive();
+		player.setActive(true);
+		try {
+			return this.isActivable();
+		} finally {
+			if (unmark) {
+				player.setActive(false);
+			}
+		}
+	}
+
+	/**
+	 * Should be overwriten by {@link Ability} implementations whose cost is
+	 * chosen by the player
+	 * 
+	 * @return the cost the payment of an activation has to cover,
+	 *         <code>null</code> if the player chooses no payment
+	 * @see #getPayment(UserInputOverwrite)
+	 */
+	public EssenceSelection getCost() {
+		return null;
+	}
+
+	/**
+	 * Should be overwriten together with {@link #getCost()}
+	 * 
+	 * @param overwrite the input of an activation of this ability
+	 * @return the essences the player pays for the activation, <code>null</code>
+	 *         if the player chooses no payment
+	 */
+	public EssenceSelection getPayment(UserInputOverwrite overwrite) {
+		return null;
+	}
+
+	/**
+	 * @return the number of this ability, its position in the list of all
+	 *         abilities of the game
+	 */
+	public int getIndex() {
+		return this.idx;
+	}
+
 	/**
 	 * @return the relativate position of this ability to the {@link Tappable}
 	 *         parent
@@ -169,4 +235,11 @@ public abstract class Ability implements Drawable, Pollable {
 	public GameClient getGameClient() {
 		return this.getTappable().getGameClient();
 	}
+
+	/**
+	 * @return the {@link GameHost} of the {@link Game} this ability takes place in
+	 */
+	public GameHost getHost() {
+		return this.getTappable().getHost();
+	}
 }
@@ -16,7 +16,6 @@ import resarcana.graphics.PositionDrawable;
 import resarcana.graphics.utils.FontManager;
 import resarcana.graphics.utils.GraphicUtils;
 import resarcana.graphics.utils.ResourceManager;
-import resarcana.graphics.utils.SoundManager;
 import resarcana.math.Rectangle;
 import resarcana.math.Vector;
 import resarcana.utils.Parameter;
@@ -37,10 +36,13 @@ public class EssenceCounter implements PositionDrawable, Pollable {
 			new Rectangle(0, 3.3f * BOX_SIZE, BOX_SIZE, BOX_SIZE),
 			new Rectangle(0, 4.4f * BOX_SIZE, BOX_SIZE, BOX_SIZE) };
 
+	private static final Essences[] ESSENCES = Essences.values();
+
 	static {
 		assert Essences.values().length == BOXES_POOL.length : "Length of BOXES does not fit number of Essences";
 	}
 
+	private final Game game;
 	private final Object parent;
 	private final boolean staticPositions, showZero;
 
@@ -52,9 +54,11 @@ public class EssenceCounter implements PositionDrawable, Pollable {
 	/**
 	 * Elan, Life, Calm, Death, Gold
 	 */
-	private int[] count;
+	int[] count;
 
-	public EssenceCounter(Object parent, float scale, Rectangle[] boxesRaw, boolean staticPositions, boolean showZero) {
+	public EssenceCounter(Game game, Object parent, float scale, Rectangle[] boxesRaw, boolean staticPositions,
+			boolean showZero) {
+		this.game = game;
 		this.parent = parent;
 		this.staticPositions = staticPositions;
 		this.showZero = showZero;
@@ -121,7 +125,7 @@ public class EssenceCounter implements PositionDrawable, Pollable {
 	 * @param toAdd
 	 */
 	public void add(int[] toAdd) {
-		SoundManager.getInstance().playMoveEssences();
+		this.game.getSoundManager().playMoveEssences();
 		if (toAdd.length >= this.count.length) {
 			for (int i = 0; i < this.count.length; i++) {
 				this.count[i] += toAdd[i];
@@ -142,7 +146,7 @@ public class EssenceCounter implements PositionDrawable, Pollable {
 	 * @param toSub
 	 */
 	public void sub(int[] toSub) {
-		SoundManager.getInstance().playMoveEssences();
+		this.game.getSoundManager().playMoveEssences();
 		if (toSub.length >= count.length) {
 			for (int i = 0; i < count.length; i++) {
 				this.count[i] -= toSub[i];
@@ -174,21 +178,23 @@ public class EssenceCounter implements PositionDrawable, Pollable {
 	}
 
 	public boolean isPayable(EssenceSelection sel, EssenceSelection maxAllowed) {
-		int[] buf = this.count.clone();
-		if (maxAllowed != null) { // Limit available essences to those allowed
-			for (Essences ess : Essences.values()) {
-				buf[ess.ordinal()] = Math.min(buf[ess.ordinal()],
-						maxAllowed.getValue(ess) + maxAllowed.getIndeterminedValue());
-			}
-		}
+		// Called every frame for all offers, so nothing is copied
 		int[] val = sel.getValues();
+		EnumSet<Essences> excludes = sel.getExcludes();
 		int remain = 0;
-		for (Essences ess : EnumSet.complementOf(sel.getExcludes())) {
-			buf[ess.ordinal()] -= val[ess.ordinal()];
-			if (val[ess.ordinal()] > 0 && buf[ess.ordinal()] < 0) {
+		for (Essences ess : ESSENCES) {
+			if (excludes.contains(ess)) {
+				continue;
+			}
+			int buf = this.count[ess.ordinal()];
+			if (maxAllowed != null) { // Limit available essences to those allowed
+				buf = Math.min(buf, maxAllowed.getValue(ess) + maxAllowed.getIndeterminedValue());
+			}
+			buf -= val[ess.ordinal()];
+			if (val[ess.ordinal()] > 0 && buf < 0) {
 				return false;
 			}
-			remain += buf[ess.ordinal()];
+			remain += buf;
 		}
 		return remain >= val[val.length - 1];
 	}
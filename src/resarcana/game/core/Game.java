@@ -1,8 +1,8 @@
 package resarcana.game.core;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Random;
+import java.util.HashMap;
+import java.util.Locale;
 
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Graphics;
@@ -11,6 +11,8 @@ import org.newdawn.slick.util.Log;
 
 import javafx.util.Pair;
 import resarcana.communication.CommunicationKeys;
+import resarcana.communication.Opcode;
+import resarcana.communication.WireDictionary;
 import resarcana.game.GameClient;
 import resarcana.game.abilities.Attack;
 import resarcana.game.abilities.specials.VialOfLight;
@@ -20,6 +22,7 @@ import resarcana.game.utils.DraftHelper;
 import resarcana.game.utils.DraftModes;
 import resarcana.game.utils.EssenceSelection;
 import resarcana.game.utils.GameCamera;
+import resarcana.game.utils.GameRandom;
 import resarcana.game.utils.HistoryElement;
 import resarcana.game.utils.Numerator;
 import resarcana.game.utils.animation.FadingTrace;
@@ -45,9 +48,10 @@ import resarcana.graphics.utils.SoundManager;
 import resarcana.math.Rectangle;
 import resarcana.math.Vector;
 import resarcana.utils.Parameter;
+import resarcana.utils.PersistentLongArray;
 import resarcana.utils.UtilFunctions;
 
-public class Game implements DrawablePollable, Selecting {
+public class Game implements DrawablePollable, Selecting, WireDictionary {
 
 	private static final int MAXIMUM_PLAYERS = 4;
 	private static final int POWER_PLACE_BASE_COUNT = 2; // #places = #players + POWER_PLACE_BASE_COUNT
@@ -58,6 +62,8 @@ public class Game implements DrawablePollable, Selecting {
 	public static final int BUYABLE_MONUMENTS = 3; // INCLUDES the draw pile as a buy option
 
 	public static final int PLAYERS_PER_ROW = 2;
+
+	private static final String PLAYER_PREFIX = "Player";
 	public static final int PRIORITY_PLAYERS_PER_ROW = 2;
 
 	private static final float PLAYER_OFFSET_RATIO = 0.6f; // should be 0.5+
@@ -161,6 +167,11 @@ public class Game implements DrawablePollable, Selecting {
 	 */
 	ArrayList<Player> allPlayers = new ArrayList<Player>();
 	ArrayList<Ability> allAbilities = new ArrayList<Ability>();
+	/**
+	 * Normalized identifiers of {@link #allTappables} and {@link #allAbilities},
+	 * <code>null</code> until {@link #stopConstruction()} has been called
+	 */
+	private HashMap<String, Integer> tappablesByName = null, abilitiesByName = null;
 	boolean constructionAllowed = true;
 
 	private static final int STATE_IDLE = 0;
@@ -168,6 +179,7 @@ public class Game implements DrawablePollable, Selecting {
 	private static final int STATUS_VIAL_OF_LIGHT = 2;
 
 	private final GameClient parent;
+	private final GameHost host;
 	private final BoardPositioner playerPositions, powerPlacePositions, monumentPositions, scrollPositions;
 
 	private ArrayList<Player> players = new ArrayList<Player>();
@@ -176,10 +188,11 @@ public class Game implements DrawablePollable, Selecting {
 	private ArrayList<Integer> votedNextRound = new ArrayList<Integer>();
 
 	private ArrayList<Artifact> artifacts;
-	private ArrayList<Monument> monuments;
-	private ArrayList<MagicItem> items;
 	private ArrayList<Mage> mages;
-	private ArrayList<PowerPlace> places;
+	// Read by the MoveGenerator without copying
+	ArrayList<Monument> monuments;
+	ArrayList<MagicItem> items;
+	ArrayList<PowerPlace> places;
 	private ArrayList<Scroll> scrolls;
 
 	private int turn = -1, round = -1, activePlayerNumber = -1;
@@ -189,6 +202,12 @@ public class Game implements DrawablePollable, Selecting {
 
 	private boolean started = false;
 	private int playerId = -1;
+	/**
+	 * Id of the game-instance which shuffles, deals and starts the rounds,
+	 * <code>-1</code> for an observing instance like the one of an authoritative
+	 * server
+	 */
+	private int dealerId = 0;
 	private boolean cardsDealt = false;
 	private int startingPlayer = 0, nextStartingPlayer = 0;
 	private boolean allIncomeFinished = false;
@@ -201,13 +220,38 @@ public class Game implements DrawablePollable, Selecting {
 	private ArrayList<EssenceSelection> incomeCounts = new ArrayList<EssenceSelection>();
 
 	private VialOfLight vialOfLight = null;
+	private GameRandom random = new GameRandom();
+	private final PaymentSolver paymentSolver = new PaymentSolver();
 	private boolean vialOfLightAction = false;
 
+	/**
+	 * Creates a game displayed by the given {@link GameClient}
+	 * 
+	 * @param parent the client showing this game and relaying its events
+	 */
 	public Game(GameClient parent) {
+		this(parent, parent);
+	}
+
+	/**
+	 * Creates a headless game: only the rules are run, nothing is drawn, no sound
+	 * is played and no animations are created. Therefore no Slick2D context is
+	 * needed.
+	 * 
+	 * @param host the host receiving the events of this game
+	 */
+	public Game(GameHost host) {
+		this(null, host);
+	}
+
+	private Game(GameClient parent, GameHost host) {
 		this.parent = parent;
-		this.camera = new GameCamera(Vector.ZERO, Player.PLAYER_HAND_HITBOX, this.getTableHitbox().scale(1.2f), 1.0f,
-				Engine.getInstance().getHeight() / Artifact.ARTIFACT_HITBOX.height);
-		this.camera.setGUI(this.getGameClient().getGameState());
+		this.host = host;
+		if (!this.isHeadless()) {
+			this.camera = new GameCamera(Vector.ZERO, Player.PLAYER_HAND_HITBOX, this.getTableHitbox().scale(1.2f),
+					1.0f, Engine.getInstance().getHeight() / Artifact.ARTIFACT_HITBOX.height);
+			this.camera.setGUI(this.getGameClient().getGameState());
+		}
 		// Position setup for players, places of power and scrolls around the table
 		this.playerPositions = new BoardPositioner((int) Math.ceil(1.0 * MAXIMUM_PLAYERS / PLAYERS_PER_ROW),
 				PLAYERS_PER_ROW,
@@ -250,10 +294,9 @@ public class Game implements DrawablePollable, Selecting {
 	 *         not generated in this form (yet?))
 	 */
 	public Player getPlayer(String identifier) {
-		for (Player player : allPlayers) {
-			if (player.toString().equalsIgnoreCase(identifier)) {
-				return player;
-			}
+		int index = this.indexOfPlayer(identifier);
+		if (index != -1) {
+			return this.allPlayers.get(index);
 		}
 		Log.error("No Player found with identifier: " + identifier);
 		return null;
@@ -267,10 +310,9 @@ public class Game implements DrawablePollable, Selecting {
 	 *         (was not generated in this form (yet?))
 	 */
 	public Ability getAbility(String identifier) {
-		for (Ability ability : this.allAbilities) {
-			if (ability.toString().equalsIgnoreCase(identifier)) {
-				return ability;
-			}
+		int index = this.indexOfAbility(identifier);
+		if (index != -1) {
+			return this.allAbilities.get(index);
 		}
 		Log.warn("No Ability found with identifier: " + identifier);
 		return null;
@@ -284,15 +326,168 @@ public class Game implements DrawablePollable, Selecting {
 	 *         (was not generated in this form (yet?))
 	 */
 	public Tappable getTappable(String identifier) {
-		for (Tappable tappable : allTappables) {
-			if (tappable.toString().equalsIgnoreCase(identifier)) {
-				return tappable;
-			}
+		int index = this.indexOfTappable(identifier);
+		if (index != -1) {
+			return this.allTappables.get(index);
 		}
 		Log.warn("No Tappable found with identifier: " + identifier);
 		return null;
 	}
 
+	// Lookup of identifiers
+	//
+	// The index given by the Numerator is part of every identifier and equals the
+	// position in allTappables, allAbilities respectively allPlayers, so an
+	// identifier is resolved by parsing that index and comparing the remaining
+	// parts in place. Identifiers which do not fit this scheme are looked up in
+	// the name index built by stopConstruction() or, while still constructing,
+	// by scanning all objects.
+
+	private int indexOfPlayer(String identifier) {
+		int seperator = identifier.indexOf(CommunicationKeys.SEPERATOR_NAME);
+		int index = parseIndex(identifier, seperator + 1);
+		if (index >= 0 && index < this.allPlayers.size() && seperator == PLAYER_PREFIX.length()
+				&& identifier.regionMatches(true, 0, PLAYER_PREFIX, 0, seperator)
+				&& this.allPlayers.get(index).getId() == index) {
+			return index;
+		}
+		// Players join after stopConstruction(), so they are never part of the name
+		// index
+		for (int i = 0; i < this.allPlayers.size(); i++) {
+			if (this.allPlayers.get(i).toString().equalsIgnoreCase(identifier)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int indexOfAbility(String identifier) {
+		int first = identifier.indexOf(CommunicationKeys.SEPERATOR_NAME);
+		int index = parseIndex(identifier, first + 1);
+		if (index >= 0 && index < this.allAbilities.size()) {
+			Ability ability = this.allAbilities.get(index);
+			String type = ability.getClass().getSimpleName();
+			int second = identifier.indexOf(CommunicationKeys.SEPERATOR_NAME, first + 1);
+			if (first == type.length() && identifier.regionMatches(true, 0, type, 0, first) && second != -1
+					&& matchesTappable(ability.getTappable(), identifier, second + 1)) {
+				return index;
+			}
+		}
+		return lookup(this.abilitiesByName, this.allAbilities, identifier);
+	}
+
+	private int indexOfTappable(String identifier) {
+		int seperator = identifier.lastIndexOf(CommunicationKeys.SEPERATOR_NAME);
+		int index = parseIndex(identifier, seperator + 1);
+		if (index >= 0 && index < this.allTappables.size()
+				&& matchesTappable(this.allTappables.get(index), identifier, 0)) {
+			return index;
+		}
+		return lookup(this.tappablesByName, this.allTappables, identifier);
+	}
+
+	/**
+	 * Compare the identifier of a {@link Tappable} with a part of a given
+	 * identifier without creating any string
+	 * 
+	 * @param tappable   the tappable to compare with
+	 * @param identifier the given identifier
+	 * @param start      the position the identifier of the tappable starts at
+	 * @return <code>true</code> if the identifier ends with the identifier of the
+	 *         tappable
+	 */
+	private static boolean matchesTappable(Tappable tappable, String identifier, int start) {
+		String name = tappable.getName();
+		if (name == null) {
+			return false;
+		}
+		int seperator = start + name.length();
+		return seperator < identifier.length() && identifier.regionMatches(true, start, name, 0, name.length())
+				&& identifier.startsWith(CommunicationKeys.SEPERATOR_NAME, seperator)
+				&& identifier.lastIndexOf(CommunicationKeys.SEPERATOR_NAME) == seperator
+				&& parseIndex(identifier, seperator + 1) == tappable.getIndex();
+	}
+
+	/**
+	 * Parse the non-negative index starting at a given position and lasting until
+	 * the next {@link CommunicationKeys#SEPERATOR_NAME} or the end of the
+	 * identifier
+	 * 
+	 * @return the index or <code>-1</code> if there is no valid index
+	 */
+	private static int parseIndex(String identifier, int start) {
+		if (start <= 0 || start >= identifier.length()) {
+			return -1;
+		}
+		int index = 0;
+		for (int i = start; i < identifier.length(); i++) {
+			char c = identifier.charAt(i);
+			if (c == CommunicationKeys.SEPERATOR_NAME.charAt(0)) {
+				return i > start ? index : -1;
+			}
+			if (c < '0' || c > '9' || index > (Integer.MAX_VALUE - 9) / 10) {
+				return -1;
+			}
+			index = index * 10 + (c - '0');
+		}
+		return index;
+	}
+
+	private static int lookup(HashMap<String, Integer> byName, ArrayList<?> all, String identifier) {
+		if (byName != null) {
+			Integer index = byName.get(identifier.toLowerCase(Locale.ROOT));
+			return index != null ? index : -1;
+		}
+		for (int i = 0; i < all.size(); i++) {
+			if (all.get(i).toString().equalsIgnoreCase(identifier)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static HashMap<String, Integer> buildNameIndex(ArrayList<?> all) {
+		HashMap<String, Integer> byName = new HashMap<String, Integer>(all.size() * 2);
+		for (int i = 0; i < all.size(); i++) {
+			byName.put(all.get(i).toString().toLowerCase(Locale.ROOT), i);
+		}
+		return byName;
+	}
+
+	/**
+	 * The id of a {@link Tappable}, {@link Ability} or {@link Player} on the wire
+	 * is its position in {@link #allTappables}, {@link #allAbilities} or
+	 * {@link #allPlayers}, which is the same for all clients as they are all
+	 * generated in the same order
+	 */
+	@Override
+	public int getId(int kind, String token) {
+		switch (kind) {
+		case KIND_TAPPABLE:
+			return this.indexOfTappable(token);
+		case KIND_ABILITY:
+			return this.indexOfAbility(token);
+		case KIND_PLAYER:
+			return this.indexOfPlayer(token);
+		default:
+			throw new IllegalArgumentException("Unknown kind of game object: " + kind);
+		}
+	}
+
+	@Override
+	public String getToken(int kind, int id) {
+		switch (kind) {
+		case KIND_TAPPABLE:
+			return this.allTappables.get(id).toString();
+		case KIND_ABILITY:
+			return this.allAbilities.get(id).toString();
+		case KIND_PLAYER:
+			return this.allPlayers.get(id).toString();
+		default:
+			throw new IllegalArgumentException("Unknown kind of game object: " + kind);
+		}
+	}
+
 	/**
 	 * Resets the {@link Tappable}, {@link Ability} and {@link Player} indexer and
 	 * counter, effectivly allowing for a new set of {@link Tappable}s,
@@ -307,15 +502,22 @@ public class Game implements DrawablePollable, Selecting {
 		this.playerIndexer = new Numerator();
 		this.allTappables.clear();
 		this.tappableIndexer = new Numerator();
+		this.tappablesByName = null;
+		this.abilitiesByName = null;
 		this.constructionAllowed = true;
 	}
 
 	/**
 	 * Stop the construction of {@link Tappable}s and {@link Ability}s. This will
 	 * result in a {@link Log#warn(String)} if another one is created afterwards
+	 * <p>
+	 * Seals the name index used by {@link #getTappable(String)} and
+	 * {@link #getAbility(String)}
 	 */
 	public void stopConstruction() {
 		constructionAllowed = false;
+		this.tappablesByName = buildNameIndex(this.allTappables);
+		this.abilitiesByName = buildNameIndex(this.allAbilities);
 	}
 
 	private Rectangle getTableHitbox() {
@@ -428,10 +630,41 @@ public class Game implements DrawablePollable, Selecting {
 		return this.camera;
 	}
 
+	/**
+	 * @return the client displaying this game, <code>null</code> if this game is
+	 *         {@link #isHeadless() headless}
+	 */
 	public GameClient getGameClient() {
 		return this.parent;
 	}
 
+	public GameHost getHost() {
+		return this.host;
+	}
+
+	/**
+	 * @return Whether this game runs without any display, sound or animation
+	 */
+	public boolean isHeadless() {
+		return this.parent == null;
+	}
+
+	/**
+	 * @return Whether this game-instance belongs to one of the players, a headless
+	 *         game may also just observe all players
+	 */
+	public boolean hasClientPlayer() {
+		return this.playerId >= 0;
+	}
+
+	/**
+	 * @return the {@link SoundManager} to play the sounds of this game, silent if
+	 *         this game is {@link #isHeadless() headless}
+	 */
+	public SoundManager getSoundManager() {
+		return this.isHeadless() ? SoundManager.getSilentInstance() : SoundManager.getInstance();
+	}
+
 	@SuppressWarnings("unchecked")
 	public ArrayList<MagicItem> getItems() {
 		return (ArrayList<MagicItem>) this.items.clone();
@@ -450,7 +683,7 @@ public class Game implements DrawablePollable, Selecting {
 			if (!ability.activate()) { // If ability is not finished, set ability as pending
 				this.activeAbility = ability;
 			} else {
-				this.getGameClient().informAllClients_Action(new UserInputOverwrite(ability));
+				this.getHost().informAllClients_Action(new UserInputOverwrite(ability));
 			}
 		}
 	}
@@ -458,12 +691,79 @@ public class Game implements DrawablePollable, Selecting {
 	public void abilityFinished(Ability ability, UserInputOverwrite overwrite) {
 		if (this.activeAbility == ability) {
 			this.activeAbility = null;
-			this.getGameClient().informAllClients_Action(overwrite);
+			this.getHost().informAllClients_Action(overwrite);
 		} else {
 			Log.warn("Unexpected ability (" + ability + ") called finish. Currently active: " + this.activeAbility);
 		}
 	}
 
+	/**
+	 * Applies a game message received from the server to this game
+	 * <p>
+	 * See {@link CommunicationKeys} for the key-phrases
+	 * 
+	 * @param action the action key of the message
+	 * @param value  the value of the message
+	 * @return Whether the message was a game message and has been applied
+	 */
+	public boolean processMessage(String action, String value) {
+		return this.processMessage(Opcode.of(action), value);
+	}
+
+	/**
+	 * Applies a game message received from the server to this game
+	 * 
+	 * @param opcode the opcode of the message
+	 * @param value  the value of the message
+	 * @return Whether the message was a game message and has been applied
+	 */
+	public boolean processMessage(Opcode opcode, String value) {
+		switch (opcode) {
+		case DISCONNECT:
+			this.disconnect(value);
+			break;
+		case RECONNECT:
+			this.reconnect(value);
+			break;
+		case ACTION:
+			this.applyAction(new UserInputOverwrite(value));
+			break;
+		case SHUFFLE:
+			if (value.startsWith(CommunicationKeys.VALUE_GAME_INIT)) {
+				this.initialShuffle(value);
+			} else if (value.startsWith(CommunicationKeys.VALUE_REFILL_DECK)) {
+				this.refillShuffle(value);
+			} else if (value.startsWith(CommunicationKeys.VALUE_SHUFFLE_DRAFT)) {
+				this.draftShuffle(value);
+			}
+			break;
+		case DRAFT:
+			this.draftAction(new UserInputOverwrite(value));
+			break;
+		case DEAL_CARDS:
+			this.dealCardsToPlayers();
+			break;
+		case NEXT_ROUND:
+			this.nextRound();
+			break;
+		case VOTE_NEXT_ROUND:
+			this.voteNextRound(value);
+			break;
+		case INCOME_DONE:
+			this.incomeFinished(value);
+			break;
+		case ATTACK:
+			this.attack(new UserInputOverwrite(value));
+			break;
+		case CONTROL:
+			this.control(new UserInputOverwrite(value));
+			break;
+		default:
+			return false;
+		}
+		return true;
+	}
+
 	public void applyAction(UserInputOverwrite action) {
 		switch (action.getSourceType()) {
 		case UserInputOverwrite.SOURCE_TYPE_ABILITY:
@@ -495,7 +795,7 @@ public class Game implements DrawablePollable, Selecting {
 		if (id < this.players.size()) {
 			Log.info("Changing name of " + id + " to " + name);
 			this.players.get(id).setName(name);
-			this.getGameClient().getStatistics().setName(id, name);
+			this.getHost().setPlayerName(id, name);
 		} else {
 			Log.error("Attempting to change name of player " + id + " while only " + this.players.size()
 					+ " were created.");
@@ -507,43 +807,47 @@ public class Game implements DrawablePollable, Selecting {
 			Log.info("Starting game with " + numberPlayers + " players");
 			this.started = true;
 			this.playerId = id;
-			this.camera.setPosition(this.getClientPlayer().getHitbox().getTopLeftCorner());
 			String[] names = new String[numberPlayers];
 			for (int i = 0; i < this.players.size(); i++) {
 				names[i] = this.players.get(i).getName();
 			}
-			this.getGameClient().getStatistics().setPlayerNumber(names);
-			// Resize camera
-			this.camera = new GameCamera(this.camera.getPosition(), this.camera.getBlockedArea(),
-					this.getTableHitbox().scale(1.2f), this.camera.getVelocity(), this.camera.getMaxZoom());
-			this.camera.setGUI(this.getGameClient().getGameState());
-			if (this.playerId == 0) { // First player shuffles cards and informs all clients
-				Random rnd = new Random();
-				Collections.shuffle(this.artifacts, rnd);
-				this.getGameClient()
+			this.getHost().setPlayerNames(names);
+			if (!this.isHeadless()) {
+				this.camera.setPosition(this.getClientPlayer().getHitbox().getTopLeftCorner());
+				// Resize camera
+				this.camera = new GameCamera(this.camera.getPosition(), this.camera.getBlockedArea(),
+						this.getTableHitbox().scale(1.2f), this.camera.getVelocity(), this.camera.getMaxZoom());
+				this.camera.setGUI(this.getGameClient().getGameState());
+			}
+			if (this.isDealer()) { // Dealer shuffles cards and informs all clients
+				Log.info("Dealing with seed " + this.random.getSeed());
+				this.random.shuffle(this.artifacts, "init-artifacts");
+				this.getHost()
 						.informAllClients_Shuffle(CommunicationKeys.VALUE_GAME_INIT + CommunicationKeys.SEPERATOR_VALUES
 								+ CommunicationKeys.VALUE_ARTIFACTS + CommunicationKeys.SEPERATOR_PARTS
 								+ UtilFunctions.ListToString(this.artifacts));
-				Collections.shuffle(this.monuments, rnd);
-				this.getGameClient()
+				this.random.shuffle(this.monuments, "init-monuments");
+				this.getHost()
 						.informAllClients_Shuffle(CommunicationKeys.VALUE_GAME_INIT + CommunicationKeys.SEPERATOR_VALUES
 								+ CommunicationKeys.VALUE_MONUMENTS + CommunicationKeys.SEPERATOR_PARTS
 								+ UtilFunctions.ListToString(this.monuments));
-				Collections.shuffle(this.items, rnd);
-				this.getGameClient()
+				this.random.shuffle(this.items, "init-items");
+				this.getHost()
 						.informAllClients_Shuffle(CommunicationKeys.VALUE_GAME_INIT + CommunicationKeys.SEPERATOR_VALUES
 								+ CommunicationKeys.VALUE_MAGIC_ITEMS + CommunicationKeys.SEPERATOR_PARTS
 								+ UtilFunctions.ListToString(this.items));
-				Collections.shuffle(this.mages, rnd);
-				this.getGameClient()
+				this.random.shuffle(this.mages, "init-mages");
+				this.getHost()
 						.informAllClients_Shuffle(CommunicationKeys.VALUE_GAME_INIT + CommunicationKeys.SEPERATOR_VALUES
 								+ CommunicationKeys.VALUE_MAGES + CommunicationKeys.SEPERATOR_PARTS
 								+ UtilFunctions.ListToString(this.mages));
-				Collections.shuffle(this.places, rnd);
-				this.getGameClient()
+				this.random.shuffle(this.places, "init-places");
+				this.getHost()
 						.informAllClients_Shuffle(CommunicationKeys.VALUE_GAME_INIT + CommunicationKeys.SEPERATOR_VALUES
 								+ CommunicationKeys.VALUE_POWERPLACES + CommunicationKeys.SEPERATOR_PARTS
 								+ UtilFunctions.ListToString(this.places));
+			}
+			if (this.playerId == 0) { // First player chooses the draft mode
 				this.askDraftMode();
 			}
 		} else {
@@ -574,6 +878,88 @@ public class Game implements DrawablePollable, Selecting {
 		return this.playerId;
 	}
 
+	/**
+	 * @return Whether this game-instance shuffles, deals and starts the rounds for
+	 *         all others
+	 */
+	public boolean isDealer() {
+		return this.playerId == this.dealerId;
+	}
+
+	/**
+	 * Set the game-instance dealing for all others, by default the one of the
+	 * first player
+	 * 
+	 * @param id the id of the dealing instance, <code>-1</code> if an observing
+	 *           instance (e.g. of an authoritative server) deals
+	 */
+	public void setDealer(int id) {
+		this.dealerId = id;
+	}
+
+	public boolean hasStarted() {
+		return this.started;
+	}
+
+	public int getNumberPlayers() {
+		return this.players.size();
+	}
+
+	/**
+	 * @param id the id of the sought after {@link Player}
+	 * @return the {@link Player} or <code>null</code> if there is no player with
+	 *         this id
+	 */
+	public Player getPlayerById(int id) {
+		return id >= 0 && id < this.allPlayers.size() ? this.allPlayers.get(id) : null;
+	}
+
+	/**
+	 * Take the secret of the seat of this client from the token sent by the
+	 * server, see {@link Player#setRefillSecret(String)}
+	 *
+	 * @param token the id of the seat and its secret
+	 */
+	public void setSeatToken(String token) {
+		String[] split = token.split(CommunicationKeys.SEPERATOR_PARTS);
+		Player player = this.getPlayerById(Integer.parseInt(split[0]));
+		if (player != null) {
+			player.setRefillSecret(split[1]);
+		} else {
+			Log.warn("Token for unknown seat " + split[0]);
+		}
+	}
+
+	/**
+	 * @return Whether the draft has been started but not finished yet
+	 */
+	public boolean isDraftRunning() {
+		return this.draft != null && !this.draft.isFinished();
+	}
+
+	/**
+	 * @return Whether an attack is waiting for the answers of the defenders
+	 */
+	public boolean isAttackPending() {
+		return this.protectionsRemaining > 0;
+	}
+
+	/**
+	 * @return the attack waiting for the answers of the players,
+	 *         <code>null</code> if there is none
+	 */
+	public Attack getPendingAttack() {
+		return this.isAttackPending() ? (Attack) this.activeAbility : null;
+	}
+
+	/**
+	 * @return the owner of the Vial of Light if its action is pending,
+	 *         <code>null</code> otherwise
+	 */
+	public Player getPendingVialOfLightPlayer() {
+		return this.vialOfLightAction && this.vialOfLight != null ? this.vialOfLight.getPlayer() : null;
+	}
+
 	public void initialShuffle(String value) {
 		String[] split = value.split(CommunicationKeys.SEPERATOR_PARTS);
 		String[] split1 = split[0].split(CommunicationKeys.SEPERATOR_VALUES);
@@ -670,13 +1056,17 @@ public class Game implements DrawablePollable, Selecting {
 	private void finishGame(Player winner) {
 		Log.info("Player " + winner + " has won the game with " + winner.getTotalPoints() + " points!");
 		this.gameFinished = true;
-		SoundManager.getInstance().playGameFinish();
+		this.getSoundManager().playGameFinish();
 		winner.makeWinner();
+		long hits = 0, misses = 0;
 		for (Player player : this.players) {
 			player.setActive(false);
+			hits += player.getCostCacheHits();
+			misses += player.getCostCacheMisses();
 		}
-		this.getGameClient().getStatistics().addStatisticsBatch(this.getCurrentStatistics());
-		this.getGameClient().gameFinished(winner);
+		Log.debug("Effective costs: " + hits + " taken from the cache, " + misses + " computed");
+		this.getHost().addStatistics(this.getCurrentStatistics());
+		this.getHost().gameFinished(winner);
 	}
 
 	public boolean hasGameFinished() {
@@ -685,6 +1075,9 @@ public class Game implements DrawablePollable, Selecting {
 
 	public void triggerGameOver(Player winner) {
 		this.winner = winner;
+		if (this.isHeadless()) { // No polling, finish right away
+			this.finishGame(winner);
+		}
 	}
 
 	@SuppressWarnings("unchecked")
@@ -694,7 +1087,7 @@ public class Game implements DrawablePollable, Selecting {
 			this.triggerGameOver(winner);
 		} else {
 			this.round++;
-			this.getGameClient().getStatistics().addRoundMarker();
+			this.getHost().addRoundMarker();
 			this.votedNextRound.clear();
 			Log.info("Starting round " + this.round);
 			this.startingPlayer = this.nextStartingPlayer;
@@ -711,7 +1104,9 @@ public class Game implements DrawablePollable, Selecting {
 			// Process income only for the active player of this game-instance
 			// Other players will have their income process via UserInputOverwrite actions
 			this.saveEssenceCounts();
-			this.getClientPlayer().processIncome();
+			if (this.hasClientPlayer()) {
+				this.getClientPlayer().processIncome();
+			}
 			this.allIncomeFinished = false;
 		}
 	}
@@ -720,16 +1115,18 @@ public class Game implements DrawablePollable, Selecting {
 		// Block next turn while income collecting is pending or all players have passed
 		if (this.allIncomeFinished && this.activePlayers.size() > 0) {
 			this.turn++;
-			this.getGameClient().getStatistics().addStatisticsBatch(this.getCurrentStatistics());
+			this.getHost().addStatistics(this.getCurrentStatistics());
 			this.activePlayerNumber = (this.activePlayerNumber + 1) % this.activePlayers.size();
 			Log.info("Starting turn " + this.turn + " in round " + this.round + " with active player "
 					+ this.activePlayerNumber);
 			this.printGameInfos();
 			this.saveEssenceCounts();
-			if (this.activePlayers.get(this.activePlayerNumber).getId() == this.playerId) {
+			if (!this.hasClientPlayer()) {
+				// Observing only, no player to (de-)activate
+			} else if (this.activePlayers.get(this.activePlayerNumber).getId() == this.playerId) {
 				Log.info("Activating player " + this.playerId);
 				this.getClientPlayer().setActive(true);
-				SoundManager.getInstance().playYourTurn();
+				this.getSoundManager().playYourTurn();
 			} else {
 				Log.info("Deactivating player " + this.playerId);
 				this.getClientPlayer().setActive(false);
@@ -775,9 +1172,9 @@ public class Game implements DrawablePollable, Selecting {
 		}
 		this.activePlayers.remove(pass);
 		if (this.activePlayers.isEmpty()) {
-			this.getGameClient().informAllClients_VoteNextRound();
+			this.getHost().informAllClients_VoteNextRound();
 		}
-		SoundManager.getInstance().playPass();
+		this.getSoundManager().playPass();
 	}
 
 	public boolean isNextStartingPlayer(Player player) {
@@ -823,7 +1220,7 @@ public class Game implements DrawablePollable, Selecting {
 
 	public void incomeFinished(Player player) {
 		Log.info("Player finished income: " + player);
-		this.parent.informAllClients_IncomeDone();
+		this.getHost().informAllClients_IncomeDone();
 	}
 
 	public void incomeFinished(String overwrite) {
@@ -860,7 +1257,7 @@ public class Game implements DrawablePollable, Selecting {
 					"Trying to play card for " + player + " while waiting for " + this.playerPlayingCard + " to do so");
 		}
 		this.playerPlayingCard = null;
-		this.getGameClient().informAllClients_Action(overwrite);
+		this.getHost().informAllClients_Action(overwrite);
 	}
 
 	public void markPlayingCard(Player player) {
@@ -874,8 +1271,8 @@ public class Game implements DrawablePollable, Selecting {
 		if (!this.votedNextRound.contains(new Integer(Integer.parseInt(value)))) {
 			this.votedNextRound.add(new Integer(Integer.parseInt(value)));
 		}
-		// Client 0 checks if all remaining clients have voted for the next round
-		if (this.playerId == 0) {
+		// Dealer checks if all remaining clients have voted for the next round
+		if (this.isDealer()) {
 			for (Player player : this.players) {
 				if (!player.hasDisconnected()) { // No need to check disconnected players
 					if (!this.votedNextRound.contains(new Integer(player.getId()))) {
@@ -884,7 +1281,7 @@ public class Game implements DrawablePollable, Selecting {
 				}
 			}
 			// Initiate next round
-			this.getGameClient().informAllClients_NextRound();
+			this.getHost().informAllClients_NextRound();
 		}
 	}
 
@@ -894,6 +1291,11 @@ public class Game implements DrawablePollable, Selecting {
 		}
 	}
 
+	@SuppressWarnings("unchecked")
+	public ArrayList<PowerPlace> getPlaces() {
+		return (ArrayList<PowerPlace>) this.places.clone();
+	}
+
 	public void removePlace(PowerPlace place) {
 		this.places.remove(place);
 	}
@@ -922,7 +1324,8 @@ public class Game implements DrawablePollable, Selecting {
 			if (action.getParts().get(0).equalsIgnoreCase("Attack")) {
 				this.protectionsRemaining = this.players.size();
 				this.activeAbility = attack;
-				attack.activateAttack(new EssenceSelection(action.getParts().get(1)), this.getClientPlayer());
+				attack.activateAttack(new EssenceSelection(action.getParts().get(1)),
+						this.hasClientPlayer() ? this.getClientPlayer() : null);
 			} else {
 				Log.warn("Wrong initial attack received: " + action);
 			}
@@ -970,6 +1373,174 @@ public class Game implements DrawablePollable, Selecting {
 		return this.monuments;
 	}
 
+	/**
+	 * Copy the state of this game relevant to the rules, see {@link GameSnapshot}
+	 * 
+	 * @return the current state
+	 */
+	public GameSnapshot snapshot() {
+		PlayerSnapshot[] snapshots = new PlayerSnapshot[this.players.size()];
+		int disconnected = 0, voted = 0;
+		for (int i = 0; i < snapshots.length; i++) {
+			snapshots[i] = this.players.get(i).snapshot();
+			if (this.disconnectedPlayers.contains(this.players.get(i))) {
+				disconnected |= 1 << i;
+			}
+			if (this.votedNextRound.contains(i)) {
+				voted |= 1 << i;
+			}
+		}
+		short[][] supply = new short[GameSnapshot.Supply.values().length][];
+		supply[GameSnapshot.Supply.MONUMENTS.ordinal()] = PlayerSnapshot.toIds(this.monuments);
+		supply[GameSnapshot.Supply.PLACES.ordinal()] = PlayerSnapshot.toIds(this.places);
+		supply[GameSnapshot.Supply.ITEMS.ordinal()] = PlayerSnapshot.toIds(this.items);
+		supply[GameSnapshot.Supply.SCROLLS.ordinal()] = PlayerSnapshot.toIds(this.scrolls);
+		long[] tapped = new long[(this.allTappables.size() + 63) >> 6];
+		long[] essences = new long[this.allTappables.size()];
+		for (int i = 0; i < essences.length; i++) {
+			Tappable tappable = this.allTappables.get(i);
+			if (tappable.isTapped()) {
+				tapped[i >> 6] |= 1L << i;
+			}
+			essences[i] = GameSnapshot.packEssences(tappable.getEssenceCount());
+		}
+		short[] active = new short[this.activePlayers.size()];
+		for (int i = 0; i < active.length; i++) {
+			active[i] = (short) this.activePlayers.get(i).getId();
+		}
+		return new GameSnapshot(this.round, this.turn, this.startingPlayer, this.nextStartingPlayer, active,
+				this.activePlayerNumber, disconnected, voted, this.isIncomePending(),
+				this.gameFinished && this.winner != null ? this.winner.getId() : -1, this.isRestorable(), snapshots,
+				supply, new PersistentLongArray(tapped), new PersistentLongArray(essences));
+	}
+
+	/**
+	 * @return Whether the whole state of this game is described by its
+	 *         {@link #snapshot()}: the cards have been dealt and no ability, card
+	 *         play, attack, Vial of Light action or income is pending
+	 */
+	public boolean isRestorable() {
+		return this.round >= 0 && !this.isWaitingForAbility() && !this.isAttackPending() && !this.isIncomePending()
+				&& this.status == STATE_IDLE;
+	}
+
+	/**
+	 * Set this game back to the state of a snapshot, e.g. to start every
+	 * iteration of a search from the same state or to undo actions
+	 * <p>
+	 * The game has to be the one the snapshot has been taken of or one set up by
+	 * the same messages up to dealing the cards, since the draft and the
+	 * identities of the players and cards are not part of a snapshot. Everything
+	 * pending in this game is dropped. The positions of the cards are laid out
+	 * anew, the history and the statistics are kept.
+	 * <p>
+	 * The random decisions from now on are derived from the given seed, a snapshot
+	 * does not keep the state of the randomness of its game.
+	 * 
+	 * @param snapshot a snapshot which {@link GameSnapshot#isRestorable() is
+	 *                 restorable}
+	 * @param seed     the seed of all random decisions from now on
+	 * @throws IllegalArgumentException if the snapshot is not restorable or does
+	 *                                  not fit to this game
+	 * @throws IllegalStateException    if the cards of this game have not been
+	 *                                  dealt yet
+	 */
+	public void restore(GameSnapshot snapshot, long seed) {
+		if (!snapshot.isRestorable()) {
+			throw new IllegalArgumentException("Snapshot of round " + snapshot.getRound() + " is not restorable");
+		}
+		if (snapshot.getNumberPlayers() != this.players.size()
+				|| snapshot.getNumberCards() != this.allTappables.size()) {
+			throw new IllegalArgumentException("Snapshot does not fit to this game");
+		}
+		if (this.round < 0) {
+			throw new IllegalStateException("Can't restore a game before its cards have been dealt");
+		}
+		// Nothing is pending in a restorable snapshot
+		this.activeAbility = null;
+		this.playerPlayingCard = null;
+		this.protectionsRemaining = 0;
+		this.vialOfLightAction = false;
+		this.vialOfLight = null;
+		this.status = STATE_IDLE;
+
+		this.round = snapshot.getRound();
+		this.turn = snapshot.getTurn();
+		this.startingPlayer = snapshot.getStartingPlayer();
+		this.nextStartingPlayer = snapshot.getNextStartingPlayer();
+		this.activePlayerNumber = snapshot.getActivePlayerNumber();
+		this.allIncomeFinished = !snapshot.isIncomePending();
+		this.activePlayers.clear();
+		for (short id : snapshot.getActivePlayers()) {
+			this.activePlayers.add(this.players.get(id));
+		}
+		this.disconnectedPlayers.clear();
+		this.votedNextRound.clear();
+		for (Player player : this.players) {
+			if (snapshot.hasDisconnected(player.getId())) {
+				this.disconnectedPlayers.add(player);
+			}
+			if (snapshot.hasVotedNextRound(player.getId())) {
+				this.votedNextRound.add(player.getId());
+			}
+		}
+		this.gameFinished = snapshot.getWinner() >= 0;
+		this.winner = this.gameFinished ? this.players.get(snapshot.getWinner()) : null;
+
+		// Cards in no zone, like the mages not chosen, keep their owner
+		Player[] owners = new Player[this.allTappables.size()];
+		for (int i = 0; i < owners.length; i++) {
+			owners[i] = this.allTappables.get(i).getPlayer();
+		}
+		for (GameSnapshot.Supply supply : GameSnapshot.Supply.values()) {
+			for (short card : snapshot.getSupply(supply)) {
+				owners[card] = null;
+			}
+		}
+		for (Player player : this.players) {
+			for (PlayerSnapshot.Zone zone : PlayerSnapshot.Zone.values()) {
+				for (short card : snapshot.getPlayer(player.getId()).getCards(zone)) {
+					owners[card] = player;
+				}
+			}
+		}
+		for (int i = 0; i < this.allTappables.size(); i++) {
+			this.allTappables.get(i).restore(owners[i], snapshot.isTapped(i),
+					GameSnapshot.unpackEssences(snapshot.getCardEssences(i)));
+		}
+		this.restoreSupply(this.monuments, snapshot.getSupply(GameSnapshot.Supply.MONUMENTS));
+		this.restoreSupply(this.places, snapshot.getSupply(GameSnapshot.Supply.PLACES));
+		this.restoreSupply(this.items, snapshot.getSupply(GameSnapshot.Supply.ITEMS));
+		this.restoreSupply(this.scrolls, snapshot.getSupply(GameSnapshot.Supply.SCROLLS));
+		for (Player player : this.players) {
+			player.restore(snapshot.getPlayer(player.getId()), player == this.winner);
+		}
+
+		this.repositionMonuments();
+		this.powerPlacePositions.reset();
+		for (PowerPlace place : this.places) {
+			place.setPosition(this.powerPlacePositions.getNextEmptyPosition());
+		}
+		for (int i = 0; i < this.items.size(); i++) {
+			this.items.get(i).setPosition(
+					MAGIC_ITEM_POSITION.add(new Vector(BoardPositioner.DEFAULT_DISTANCE_COLUMN, 0).mul(i)));
+		}
+		this.scrollPositions.reset();
+		for (Scroll scroll : this.scrolls) {
+			scroll.setPosition(this.scrollPositions.getNextEmptyPosition());
+		}
+		this.random = new GameRandom(seed);
+		this.saveEssenceCounts();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends Tappable> void restoreSupply(ArrayList<T> supply, short[] cards) {
+		supply.clear();
+		for (short card : cards) {
+			supply.add((T) this.allTappables.get(card));
+		}
+	}
+
 	public void reorderMonuments(ArrayList<Tappable> reorder) {
 		if (this.monuments.subList(2, 2 + reorder.size()).containsAll(reorder)) {
 			for (int i = 0; i < reorder.size(); i++) {
@@ -1046,13 +1617,13 @@ public class Game implements DrawablePollable, Selecting {
 	}
 
 	/**
-	 * Adds a {@link HistoryElement} to the history display of the parent
-	 * ({@link GameClient#getHistoryDisplay()})
+	 * Adds a {@link HistoryElement} to the history of the host
+	 * ({@link GameHost#addHistory(HistoryElement)})
 	 * 
 	 * @param elem the history element to add
 	 */
 	public void addToHistory(HistoryElement elem) {
-		this.getGameClient().getHistoryDisplay().addHistory(elem);
+		this.getHost().addHistory(elem);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -1062,14 +1633,14 @@ public class Game implements DrawablePollable, Selecting {
 			this.getGameClient().unsetSelector(sel);
 			DraftModes mode = ((ImageSelector<DraftModes>) sel).getResult();
 			// Inform all clients about selected draft mode
-			this.nextStartingPlayer = new Random().nextInt(this.players.size());
+			this.nextStartingPlayer = this.random.nextInt(this.players.size(), "starting-player");
 			this.getGameClient().informAllClients_Draft(new UserInputOverwrite(this.players.get(0),
 					CommunicationKeys.VALUE_START_DRAFT, "" + mode.ordinal(), "" + this.nextStartingPlayer).getCode());
 			this.status = STATE_IDLE;
 		} else if (sel instanceof EssenceSelector && this.status == STATUS_VIAL_OF_LIGHT) {
 			this.getGameClient().unsetSelector(sel);
 			this.status = STATE_IDLE;
-			this.getGameClient().informAllClients_Action(new UserInputOverwrite(this.vialOfLight.getPlayer(),
+			this.getHost().informAllClients_Action(new UserInputOverwrite(this.vialOfLight.getPlayer(),
 					"VialOfLight", ((EssenceSelector) sel).getSelection()));
 		} else {
 			Log.warn("Game " + this + " could not process selector: " + sel);
@@ -1128,6 +1699,42 @@ public class Game implements DrawablePollable, Selecting {
 		}
 	}
 
+	/**
+	 * @return the draft of this game, <code>null</code> if it has not been
+	 *         started yet
+	 */
+	public DraftHelper getDraft() {
+		return this.draft;
+	}
+
+	/**
+	 * @return the source of all random decisions of this game
+	 */
+	public GameRandom getRandom() {
+		return this.random;
+	}
+
+	/**
+	 * @return the solver of the payments of all players of this game
+	 */
+	public PaymentSolver getPaymentSolver() {
+		return this.paymentSolver;
+	}
+
+	/**
+	 * Replaces the randomness of this game by one derived from the given seed.
+	 * Together with the actions of all players the seed reproduces the game.
+	 * 
+	 * @param seed the seed of all random decisions
+	 */
+	public void setSeed(long seed) {
+		if (this.started) {
+			Log.warn("Can't change the seed of a running game");
+		} else {
+			this.random = new GameRandom(seed);
+		}
+	}
+
 	/**
 	 * Shuffle the decks after the draft has been finished
 	 * 
@@ -1212,6 +1819,26 @@ public class Game implements DrawablePollable, Selecting {
 		}
 	}
 
+	/**
+	 * A disconnected player has taken its seat again
+	 * <p>
+	 * The player remains passed for the current round and plays again from the
+	 * next round on.
+	 * 
+	 * @param value the id of the player
+	 */
+	public void reconnect(String value) {
+		int reconnected = Integer.parseInt(value);
+		if (reconnected < this.players.size()) {
+			Player p = this.players.get(reconnected);
+			if (this.disconnectedPlayers.remove(p)) {
+				Log.info("Reconnecting " + p);
+			} else {
+				Log.info(p + " reconnected before its disconnect has been noticed");
+			}
+		}
+	}
+
 	public boolean hasDisconnected(Player player) {
 		return this.disconnectedPlayers.contains(player);
 	}
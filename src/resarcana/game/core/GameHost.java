@@ -0,0 +1,122 @@
+package resarcana.game.core;
+
+import java.util.ArrayList;
+
+import resarcana.game.GameClient;
+import resarcana.game.utils.HistoryElement;
+import resarcana.game.utils.statistics.StatisticsElement;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+
+/**
+ * The surroundings of a {@link Game}: everything the rules tell the outside
+ * world while they run
+ * <p>
+ * The rules never talk to the GUI or the network directly. A
+ * {@link GameClient} implements this to relay game events via the server and
+ * to show them, a headless host may just record them or drop them.
+ * <p>
+ * Every <code>informAllClients_</code> call is expected to reach all game
+ * instances, including the calling one, in the same order
+ *
+ * @author Erik Wagner
+ *
+ */
+public interface GameHost {
+
+	/**
+	 * Will issue a call of {@link Game#applyAction(UserInputOverwrite)}
+	 *
+	 * @param action the game event
+	 */
+	public void informAllClients_Action(UserInputOverwrite action);
+
+	/**
+	 * Will issue a call of {@link Game#initialShuffle(String)},
+	 * {@link Game#draftShuffle(String)} or {@link Game#refillShuffle(String)}
+	 *
+	 * @param shuffle the shuffle transcribed as {@link String}
+	 */
+	public void informAllClients_Shuffle(String shuffle);
+
+	/**
+	 * Will issue a call of {@link Game#draftAction(UserInputOverwrite)}
+	 *
+	 * @param draft the draft event transcribed as {@link String}
+	 */
+	public void informAllClients_Draft(String draft);
+
+	/**
+	 * Will issue a call of {@link Game#dealCardsToPlayers()}
+	 */
+	public void informAllClients_DealCards();
+
+	/**
+	 * Will issue a call of {@link Game#nextRound()}
+	 */
+	public void informAllClients_NextRound();
+
+	/**
+	 * Will issue a call of {@link Game#voteNextRound(String)}
+	 */
+	public void informAllClients_VoteNextRound();
+
+	/**
+	 * Will issue a call of {@link Game#incomeFinished(String)}
+	 */
+	public void informAllClients_IncomeDone();
+
+	/**
+	 * Will issue a call of {@link Game#attack(UserInputOverwrite)}
+	 *
+	 * @param action the attack game event
+	 */
+	public void informAllClients_Attack(UserInputOverwrite action);
+
+	/**
+	 * Will issue a call of {@link Game#control(UserInputOverwrite)}
+	 *
+	 * @param control the game control event
+	 */
+	public void informAllClients_Control(UserInputOverwrite control);
+
+	/**
+	 * A game event has been applied
+	 *
+	 * @param elem the history element describing the event
+	 */
+	public void addHistory(HistoryElement elem);
+
+	/**
+	 * The game has started with the given players
+	 *
+	 * @param names the names of all players ordered by their id
+	 */
+	public void setPlayerNames(String[] names);
+
+	/**
+	 * A player has changed his name
+	 *
+	 * @param id   the id of the player
+	 * @param name the new name
+	 */
+	public void setPlayerName(int id, String name);
+
+	/**
+	 * A new round has been started
+	 */
+	public void addRoundMarker();
+
+	/**
+	 * The statistics of all players after a turn or at the end of the game
+	 *
+	 * @param stats one element per player ordered by their id
+	 */
+	public void addStatistics(ArrayList<StatisticsElement> stats);
+
+	/**
+	 * The game has been won
+	 *
+	 * @param winner the winner of the game
+	 */
+	public void gameFinished(Player winner);
+}
@@ -0,0 +1,343 @@
+package resarcana.game.core;
+
+import java.util.Arrays;
+
+import resarcana.utils.PersistentLongArray;
+
+/**
+ * An immutable, compact copy of the state of a {@link Game}
+ * <p>
+ * Cards are represented by their index ({@link Tappable#getIndex()}), which is
+ * the same in all games. The essences of a player or a card are packed into a
+ * single <code>long</code> with {@value #ESSENCE_BITS} bits per essence and the
+ * tapped cards are a bitset.
+ * <p>
+ * Every change creates a new snapshot that shares all unchanged parts with the
+ * original: the other players, the supply and all chunks of the card states
+ * but the changed one. So forking a snapshot for a search or keeping older
+ * ones to undo costs only as much as was changed. Two snapshots are equal if
+ * they describe the same state.
+ * <p>
+ * Only the state relevant to the rules is kept, nothing of the display and no
+ * pending selections or attacks. A snapshot taken while nothing was pending
+ * ({@link #isRestorable()}) sets a game back to its state with
+ * {@link Game#restore(GameSnapshot, long)}.
+ *
+ * @author Erik Wagner
+ *
+ */
+public final class GameSnapshot {
+
+	/**
+	 * Bits per essence in a packed essence value
+	 */
+	public static final int ESSENCE_BITS = 12;
+	private static final long ESSENCE_MASK = (1L << ESSENCE_BITS) - 1;
+
+	private int round, turn, startingPlayer, nextStartingPlayer;
+	// The players not passed yet in the order of their turns and the index of the
+	// player on turn in this order
+	private short[] activePlayers;
+	private int activePlayerNumber;
+	// Bitsets of the player ids
+	private int disconnected, voted;
+	private boolean incomePending, restorable;
+	private int winner;
+	private PlayerSnapshot[] players;
+	private short[][] supply;
+	private PersistentLongArray tapped, cardEssences;
+
+	/**
+	 * The common supply of cards
+	 */
+	public enum Supply {
+		MONUMENTS, PLACES, ITEMS, SCROLLS
+	}
+
+	GameSnapshot(int round, int turn, int startingPlayer, int nextStartingPlayer, short[] activePlayers,
+			int activePlayerNumber, int disconnected, int voted, boolean incomePending, int winner,
+			boolean restorable, PlayerSnapshot[] players, short[][] supply, PersistentLongArray tapped,
+			PersistentLongArray cardEssences) {
+		this.round = round;
+		this.turn = turn;
+		this.startingPlayer = startingPlayer;
+		this.nextStartingPlayer = nextStartingPlayer;
+		this.activePlayers = activePlayers;
+		this.activePlayerNumber = activePlayerNumber;
+		this.disconnected = disconnected;
+		this.voted = voted;
+		this.incomePending = incomePending;
+		this.winner = winner;
+		this.restorable = restorable;
+		this.players = players;
+		this.supply = supply;
+		this.tapped = tapped;
+		this.cardEssences = cardEssences;
+	}
+
+	/**
+	 * @return a copy sharing all parts with this snapshot, to be changed before it
+	 *         is returned by a <code>with</code> method
+	 */
+	private GameSnapshot copy() {
+		return new GameSnapshot(this.round, this.turn, this.startingPlayer, this.nextStartingPlayer,
+				this.activePlayers, this.activePlayerNumber, this.disconnected, this.voted, this.incomePending,
+				this.winner, this.restorable, this.players, this.supply, this.tapped, this.cardEssences);
+	}
+
+	/**
+	 * Pack essence counts into a single value
+	 *
+	 * @param count the count of each essence, indexed by
+	 *              {@link Essences#ordinal()}
+	 * @return the packed value
+	 * @throws IllegalArgumentException if a count does not fit into
+	 *                                  {@value #ESSENCE_BITS} bits
+	 */
+	public static long packEssences(int[] count) {
+		long packed = 0;
+		for (int i = 0; i < count.length; i++) {
+			if (count[i] < 0 || count[i] > ESSENCE_MASK) {
+				throw new IllegalArgumentException("Essence count " + count[i] + " can not be packed");
+			}
+			packed |= ((long) count[i]) << (i * ESSENCE_BITS);
+		}
+		return packed;
+	}
+
+	public static int getEssence(long packed, Essences ess) {
+		return (int) ((packed >>> (ess.ordinal() * ESSENCE_BITS)) & ESSENCE_MASK);
+	}
+
+	public static int[] unpackEssences(long packed) {
+		int[] count = new int[Essences.values().length];
+		for (Essences ess : Essences.values()) {
+			count[ess.ordinal()] = getEssence(packed, ess);
+		}
+		return count;
+	}
+
+	public int getRound() {
+		return this.round;
+	}
+
+	public int getTurn() {
+		return this.turn;
+	}
+
+	public int getStartingPlayer() {
+		return this.startingPlayer;
+	}
+
+	public int getNextStartingPlayer() {
+		return this.nextStartingPlayer;
+	}
+
+	/**
+	 * @return the id of the player on turn, <code>-1</code> if no player is on
+	 *         turn, e.g. during the income
+	 */
+	public int getActivePlayer() {
+		if (this.incomePending || this.activePlayerNumber < 0 || this.activePlayerNumber >= this.activePlayers.length) {
+			return -1;
+		}
+		return this.activePlayers[this.activePlayerNumber];
+	}
+
+	/**
+	 * @return the ids of the players who have not passed in the order of their
+	 *         turns
+	 */
+	public short[] getActivePlayers() {
+		return this.activePlayers.clone();
+	}
+
+	/**
+	 * @return the index of the player on turn in {@link #getActivePlayers()}
+	 */
+	public int getActivePlayerNumber() {
+		return this.activePlayerNumber;
+	}
+
+	public boolean hasPassed(int player) {
+		for (short active : this.activePlayers) {
+			if (active == player) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean hasDisconnected(int player) {
+		return (this.disconnected & (1 << player)) != 0;
+	}
+
+	public boolean hasVotedNextRound(int player) {
+		return (this.voted & (1 << player)) != 0;
+	}
+
+	public boolean isIncomePending() {
+		return this.incomePending;
+	}
+
+	/**
+	 * @return the id of the winner, <code>-1</code> while the game is running
+	 */
+	public int getWinner() {
+		return this.winner;
+	}
+
+	/**
+	 * @return Whether the snapshot has been taken while no ability, card play,
+	 *         attack, Vial of Light action or income was pending, so it describes
+	 *         the whole state of the game and can be restored
+	 */
+	public boolean isRestorable() {
+		return this.restorable;
+	}
+
+	public int getNumberPlayers() {
+		return this.players.length;
+	}
+
+	public PlayerSnapshot getPlayer(int id) {
+		return this.players[id];
+	}
+
+	/**
+	 * @param supply the part of the supply
+	 * @return the indices of the cards in the given part of the supply, in order
+	 */
+	public short[] getSupply(Supply supply) {
+		return this.supply[supply.ordinal()].clone();
+	}
+
+	/**
+	 * @return the number of cards of the game
+	 */
+	public int getNumberCards() {
+		return this.cardEssences.length();
+	}
+
+	public boolean isTapped(int card) {
+		return (this.tapped.get(card >> 6) & (1L << card)) != 0;
+	}
+
+	/**
+	 * @param card the index of the card
+	 * @return the packed essences on the given card
+	 */
+	public long getCardEssences(int card) {
+		return this.cardEssences.get(card);
+	}
+
+	public GameSnapshot withPlayer(PlayerSnapshot player) {
+		GameSnapshot copy = this.copy();
+		copy.players = this.players.clone();
+		copy.players[player.getId()] = player;
+		return copy;
+	}
+
+	/**
+	 * @param activePlayer the id of the player on turn, who must not have passed,
+	 *                     or <code>-1</code> if no player is on turn
+	 */
+	public GameSnapshot withTurn(int round, int turn, int startingPlayer, int activePlayer) {
+		GameSnapshot copy = this.copy();
+		copy.round = round;
+		copy.turn = turn;
+		copy.startingPlayer = startingPlayer;
+		copy.activePlayerNumber = -1;
+		for (int i = 0; i < this.activePlayers.length; i++) {
+			if (this.activePlayers[i] == activePlayer) {
+				copy.activePlayerNumber = i;
+			}
+		}
+		return copy;
+	}
+
+	/**
+	 * Let a player pass as {@link Game#passPlayer(Player)} does or take back the
+	 * pass, the player continues after all other players then
+	 */
+	public GameSnapshot withPassed(int player, boolean passed) {
+		if (passed == this.hasPassed(player)) {
+			return this;
+		}
+		GameSnapshot copy = this.copy();
+		if (passed) {
+			int position = 0;
+			while (this.activePlayers[position] != player) {
+				position++;
+			}
+			if (this.activePlayerNumber >= position) {
+				copy.activePlayerNumber--;
+			}
+			copy.activePlayers = new short[this.activePlayers.length - 1];
+			System.arraycopy(this.activePlayers, 0, copy.activePlayers, 0, position);
+			System.arraycopy(this.activePlayers, position + 1, copy.activePlayers, position,
+					copy.activePlayers.length - position);
+		} else {
+			copy.activePlayers = Arrays.copyOf(this.activePlayers, this.activePlayers.length + 1);
+			copy.activePlayers[this.activePlayers.length] = (short) player;
+		}
+		return copy;
+	}
+
+	public GameSnapshot withSupply(Supply supply, short[] cards) {
+		GameSnapshot copy = this.copy();
+		copy.supply = this.supply.clone();
+		copy.supply[supply.ordinal()] = cards.clone();
+		return copy;
+	}
+
+	public GameSnapshot withTapped(int card, boolean tapped) {
+		long word = this.tapped.get(card >> 6);
+		word = tapped ? word | (1L << card) : word & ~(1L << card);
+		GameSnapshot copy = this.copy();
+		copy.tapped = this.tapped.with(card >> 6, word);
+		return copy;
+	}
+
+	public GameSnapshot withCardEssences(int card, long packed) {
+		GameSnapshot copy = this.copy();
+		copy.cardEssences = this.cardEssences.with(card, packed);
+		return copy;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof GameSnapshot)) {
+			return false;
+		}
+		GameSnapshot other = (GameSnapshot) obj;
+		return this.round == other.round && this.turn == other.turn && this.startingPlayer == other.startingPlayer
+				&& this.nextStartingPlayer == other.nextStartingPlayer
+				&& Arrays.equals(this.activePlayers, other.activePlayers)
+				&& this.activePlayerNumber == other.activePlayerNumber && this.disconnected == other.disconnected
+				&& this.voted == other.voted && this.incomePending == other.incomePending
+				&& this.winner == other.winner && this.restorable == other.restorable
+				&& Arrays.equals(this.players, other.players) && Arrays.deepEquals(this.supply, other.supply)
+				&& this.tapped.equals(other.tapped) && this.cardEssences.equals(other.cardEssences);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = this.round;
+		hash = 31 * hash + this.turn;
+		hash = 31 * hash + this.startingPlayer;
+		hash = 31 * hash + this.nextStartingPlayer;
+		hash = 31 * hash + Arrays.hashCode(this.activePlayers);
+		hash = 31 * hash + this.activePlayerNumber;
+		hash = 31 * hash + this.disconnected;
+		hash = 31 * hash + this.voted;
+		hash = 31 * hash + this.winner;
+		hash = 31 * hash + Arrays.hashCode(this.players);
+		hash = 31 * hash + Arrays.deepHashCode(this.supply);
+		hash = 31 * hash + this.tapped.hashCode();
+		return 31 * hash + this.cardEssences.hashCode();
+	}
+}
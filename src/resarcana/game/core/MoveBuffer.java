@@ -0,0 +1,141 @@
+package resarcana.game.core;
+
+import java.util.Arrays;
+
+import resarcana.game.abilities.Pass;
+import resarcana.game.utils.EssenceSelection;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+
+/**
+ * A reusable list of moves stored in primitive arrays, filled by a
+ * {@link MoveGenerator}
+ * <p>
+ * Every move consists of its kind, a target, an extra value and the essences
+ * paid, packed as by {@link GameSnapshot#packEssences(int[])}:
+ * <ul>
+ * <li>{@link #PLAY_CARD}: the index of the artifact and the payment</li>
+ * <li>{@link #BUY_PLACE}: the index of the place of power and its cost</li>
+ * <li>{@link #BUY_MONUMENT}: the index of the monument and its cost, for an
+ * Obelisk the packed essences taken as extra</li>
+ * <li>{@link #ACTIVATE}: the index of an ability which needs no input
+ * ({@link Ability#needsInput()})</li>
+ * <li>{@link #PASS}: the index of the {@link Pass} ability and the index of the
+ * magic item taken as extra</li>
+ * </ul>
+ * Cards are identified by {@link Tappable#getIndex()} and abilities by
+ * {@link Ability#getIndex()}. Clearing the buffer keeps its arrays, so a buffer
+ * used again and again does not allocate anything once it is large enough.
+ *
+ * @author Erik Wagner
+ *
+ */
+public final class MoveBuffer {
+
+	public static final int PLAY_CARD = 0;
+	public static final int BUY_PLACE = 1;
+	public static final int BUY_MONUMENT = 2;
+	public static final int ACTIVATE = 3;
+	public static final int PASS = 4;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int[] kinds, targets;
+	private long[] extras, payments;
+	private int size = 0;
+
+	public MoveBuffer() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * @param capacity the number of moves the buffer holds without growing
+	 */
+	public MoveBuffer(int capacity) {
+		this.kinds = new int[capacity];
+		this.targets = new int[capacity];
+		this.extras = new long[capacity];
+		this.payments = new long[capacity];
+	}
+
+	void add(int kind, int target, long extra, long payment) {
+		if (this.size == this.kinds.length) {
+			int capacity = Math.max(INITIAL_CAPACITY, this.size * 2);
+			this.kinds = Arrays.copyOf(this.kinds, capacity);
+			this.targets = Arrays.copyOf(this.targets, capacity);
+			this.extras = Arrays.copyOf(this.extras, capacity);
+			this.payments = Arrays.copyOf(this.payments, capacity);
+		}
+		this.kinds[this.size] = kind;
+		this.targets[this.size] = target;
+		this.extras[this.size] = extra;
+		this.payments[this.size] = payment;
+		this.size++;
+	}
+
+	public void clear() {
+		this.size = 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int getKind(int move) {
+		return this.kinds[move];
+	}
+
+	public int getTarget(int move) {
+		return this.targets[move];
+	}
+
+	public long getExtra(int move) {
+		return this.extras[move];
+	}
+
+	/**
+	 * @return the packed essences paid by the move, <code>0</code> if nothing is
+	 *         paid
+	 */
+	public long getPayment(int move) {
+		return this.payments[move];
+	}
+
+	/**
+	 * The message of a move as sent by a client
+	 * <p>
+	 * A pass does not include the card drawn.
+	 *
+	 * @param player the player the moves have been generated for
+	 * @param move   the number of the move
+	 * @return the action of the move
+	 */
+	public UserInputOverwrite toOverwrite(Player player, int move) {
+		Game game = player.getGame();
+		switch (this.kinds[move]) {
+		case PLAY_CARD:
+			Tappable card = game.allTappables.get(this.targets[move]);
+			if (card.getCost(player).isDetermined()) {
+				return new UserInputOverwrite(player, "PlayCard", card);
+			}
+			return new UserInputOverwrite(player, "PlayCardCost", card,
+					new EssenceSelection(GameSnapshot.unpackEssences(this.payments[move])));
+		case BUY_PLACE:
+			return new UserInputOverwrite(player, "BuyPowerPlace",
+					game.allTappables.get(this.targets[move]));
+		case BUY_MONUMENT:
+			Tappable monument = game.allTappables.get(this.targets[move]);
+			if (this.extras[move] != -1) {
+				return new UserInputOverwrite(player, "BuyObelisk", monument,
+						new EssenceSelection(GameSnapshot.unpackEssences(this.extras[move])));
+			}
+			return new UserInputOverwrite(player, "BuyMonument", monument);
+		case ACTIVATE:
+			return new UserInputOverwrite(game.allAbilities.get(this.targets[move]));
+		case PASS:
+			return new UserInputOverwrite(game.allAbilities.get(this.targets[move]),
+					game.allTappables.get((int) this.extras[move]));
+		default:
+			throw new IllegalStateException("Unknown kind of move: " + this.kinds[move]);
+		}
+	}
+}
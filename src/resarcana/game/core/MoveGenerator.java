@@ -0,0 +1,124 @@
+package resarcana.game.core;
+
+import resarcana.game.abilities.Pass;
+import resarcana.game.abilities.specials.Obelisk;
+import resarcana.game.utils.EssenceSelection;
+
+/**
+ * Lists every legal move of the player on turn into a {@link MoveBuffer}
+ * <p>
+ * The moves are playing an artifact from the hand with every possible payment
+ * of its indetermined cost, buying a place of power or one of the buyable
+ * monuments (an Obelisk with every choice of its essences), activating an
+ * ability which needs no input and passing with every available magic item.
+ * Payability follows {@link Player#isPayable(EssenceSelection, EssenceSelection)}
+ * and abilities their own checks. The inputs of the other abilities are not
+ * enumerated, so these abilities are left out and every move is complete.
+ * <p>
+ * Payments are found by the {@link PaymentSolver} of the game, so generating
+ * moves again for an unchanged situation does not allocate anything but the
+ * effective costs of the cards. A generator must only be used by the thread of
+ * the game.
+ *
+ * @author Erik Wagner
+ *
+ */
+public final class MoveGenerator {
+
+	/**
+	 * The essences taken when buying an Obelisk, chosen as if they were paid from
+	 * {@link #OBELISK_AVAILABLE}
+	 */
+	private static final EssenceSelection OBELISK_ESSENCES = new EssenceSelection(6, Essences.GOLD);
+	private static final int[] OBELISK_AVAILABLE = { 6, 6, 6, 6, 6 };
+
+	private MoveBuffer buffer;
+
+	/**
+	 * Replace the content of the buffer with all legal moves of the player
+	 *
+	 * @param player the player
+	 * @param buffer the buffer to fill, it is cleared first
+	 * @return the number of moves, <code>0</code> if the player is not on turn or
+	 *         the game waits for an ability
+	 */
+	public int generate(Player player, MoveBuffer buffer) {
+		buffer.clear();
+		Game game = player.getGame();
+		if (!game.isActivePlayer(player) || game.isWaitingForAbility()) {
+			return 0;
+		}
+		this.buffer = buffer;
+		for (Artifact card : player.hand) {
+			this.addPayments(MoveBuffer.PLAY_CARD, card.getIndex(), player, card.getCost(), card.getRawCost());
+		}
+		for (PowerPlace place : game.places) {
+			EssenceSelection cost = place.getCost();
+			// Places and monuments are only bought for determined costs
+			if (cost.isDetermined()) {
+				this.addPayments(MoveBuffer.BUY_PLACE, place.getIndex(), player, cost, place.getRawCost());
+			}
+		}
+		for (int i = 0; i < game.monuments.size() && i < Game.BUYABLE_MONUMENTS; i++) {
+			Monument monument = game.monuments.get(i);
+			EssenceSelection cost = monument.getCost();
+			if (!cost.isDetermined()) {
+				continue;
+			}
+			if (monument instanceof Obelisk) {
+				this.addObelisk(monument.getIndex(), player, cost, monument.getRawCost());
+			} else {
+				this.addPayments(MoveBuffer.BUY_MONUMENT, monument.getIndex(), player, cost, monument.getRawCost());
+			}
+		}
+		// Abilities check the flag of their player, which is only kept up to date
+		// for the player of the client
+		boolean unmark = !player.isActive();
+		player.setActive(true);
+		try {
+			for (Tappable card : player.inplay) {
+				for (Ability ability : card.abilities) {
+					if (!ability.isActivable()) {
+						continue;
+					}
+					if (ability instanceof Pass) {
+						for (MagicItem item : game.items) {
+							buffer.add(MoveBuffer.PASS, ability.getIndex(), item.getIndex(), 0);
+						}
+					} else if (!ability.needsInput()) {
+						buffer.add(MoveBuffer.ACTIVATE, ability.getIndex(), -1, 0);
+					}
+				}
+			}
+		} finally {
+			if (unmark) {
+				player.setActive(false);
+			}
+		}
+		this.buffer = null;
+		return buffer.size();
+	}
+
+	/**
+	 * Add a move for every payment of the cost
+	 */
+	private void addPayments(int kind, int target, Player player, EssenceSelection cost,
+			EssenceSelection maxAllowed) {
+		for (long payment : player.getGame().getPaymentSolver().getPayments(player.getEssenceCounter(), cost,
+				maxAllowed)) {
+			this.buffer.add(kind, target, -1, payment);
+		}
+	}
+
+	/**
+	 * Add a move for every choice of the essences taken when buying the Obelisk
+	 */
+	private void addObelisk(int target, Player player, EssenceSelection cost, EssenceSelection maxAllowed) {
+		PaymentSolver solver = player.getGame().getPaymentSolver();
+		for (long payment : solver.getPayments(player.getEssenceCounter(), cost, maxAllowed)) {
+			for (long essences : solver.getPayments(OBELISK_AVAILABLE, OBELISK_ESSENCES, null)) {
+				this.buffer.add(MoveBuffer.BUY_MONUMENT, target, essences, payment);
+			}
+		}
+	}
+}
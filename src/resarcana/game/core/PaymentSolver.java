@@ -0,0 +1,186 @@
+package resarcana.game.core;
+
+import java.util.Arrays;
+
+import resarcana.game.utils.EssenceSelection;
+
+/**
+ * Finds all ways to pay a cost with the essences of a player
+ * <p>
+ * A payment pays the determined part of the cost and distributes its
+ * indetermined part over the essences not excluded by the cost, each limited by
+ * the essences available and the allowed maximum as in
+ * {@link EssenceCounter#isPayable(EssenceSelection, EssenceSelection)}. Since
+ * every such payment pays exactly the total of the cost, none of them is
+ * covered by another one: they are the minimal payments.
+ * <p>
+ * Payments are packed as by {@link GameSnapshot#packEssences(int[])} and
+ * remembered for the cost and the essences available, so asking again for an
+ * unchanged situation, e.g. every frame, does not allocate anything. The
+ * returned arrays are shared and must not be modified. A solver must only be
+ * used by the thread of its game.
+ *
+ * @author Erik Wagner
+ *
+ */
+public final class PaymentSolver {
+
+	private static final Essences[] ESSENCES = Essences.values();
+	private static final long[] NO_PAYMENTS = new long[0];
+
+	/**
+	 * Number of remembered solutions, the memory is cleared when it is filled to
+	 * three quarters
+	 */
+	private static final int CAPACITY = 1 << 10;
+	/**
+	 * Bits per value of the cost in the key, larger costs are not remembered
+	 */
+	private static final int COST_BITS = 8;
+
+	private final long[] costKeys = new long[CAPACITY], availableKeys = new long[CAPACITY];
+	private final long[][] solutions = new long[CAPACITY][];
+	private int size = 0;
+
+	private final int[] paid = new int[ESSENCES.length], limit = new int[ESSENCES.length];
+	private final boolean[] allowed = new boolean[ESSENCES.length];
+	private long[] found = new long[16];
+	private int foundSize;
+
+	/**
+	 * @param counter    the essences of the paying player
+	 * @param cost       the cost
+	 * @param maxAllowed the maximum payment allowed for each essence, e.g. the raw
+	 *                   cost of a card, <code>null</code> for no limit
+	 * @return all minimal payments, empty if the cost can not be paid
+	 */
+	public long[] getPayments(EssenceCounter counter, EssenceSelection cost, EssenceSelection maxAllowed) {
+		return this.getPayments(counter.count, cost, maxAllowed);
+	}
+
+	/**
+	 * @param available  the essences available, indexed by
+	 *                   {@link Essences#ordinal()}
+	 * @param cost       the cost
+	 * @param maxAllowed the maximum payment allowed for each essence,
+	 *                   <code>null</code> for no limit
+	 * @return all minimal payments, empty if the cost can not be paid
+	 */
+	public long[] getPayments(int[] available, EssenceSelection cost, EssenceSelection maxAllowed) {
+		if (!this.prepare(available, cost, maxAllowed)) {
+			return NO_PAYMENTS;
+		}
+		long costKey = getCostKey(cost);
+		// The limits of the indetermined part together with the cost decide the
+		// payments, higher limits than the indetermined part make no difference
+		long availableKey = 0;
+		for (int i = 0; i < ESSENCES.length; i++) {
+			int relevant = this.allowed[i] ? Math.min(this.limit[i], cost.getIndeterminedValue()) : 0;
+			availableKey |= ((long) relevant) << (i * GameSnapshot.ESSENCE_BITS);
+		}
+		if (costKey == -1) {
+			return this.solve(cost);
+		}
+		int slot = this.findSlot(costKey, availableKey);
+		if (this.solutions[slot] == null) {
+			if (this.size >= CAPACITY * 3 / 4) {
+				this.clear();
+				slot = this.findSlot(costKey, availableKey);
+			}
+			this.costKeys[slot] = costKey;
+			this.availableKeys[slot] = availableKey;
+			this.solutions[slot] = this.solve(cost);
+			this.size++;
+		}
+		return this.solutions[slot];
+	}
+
+	/**
+	 * Forget all remembered payments
+	 */
+	public void clear() {
+		Arrays.fill(this.solutions, null);
+		this.size = 0;
+	}
+
+	private int findSlot(long costKey, long availableKey) {
+		long hash = (costKey * 0x9E3779B97F4A7C15L) ^ (availableKey * 0xC2B2AE3D27D4EB4FL);
+		int slot = (int) (hash ^ (hash >>> 32)) & (CAPACITY - 1);
+		while (this.solutions[slot] != null
+				&& (this.costKeys[slot] != costKey || this.availableKeys[slot] != availableKey)) {
+			slot = (slot + 1) & (CAPACITY - 1);
+		}
+		return slot;
+	}
+
+	/**
+	 * @return the values and excludes of the cost in one <code>long</code>,
+	 *         <code>-1</code> if a value is too large
+	 */
+	private static long getCostKey(EssenceSelection cost) {
+		int[] values = cost.getValues();
+		long key = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] < 0 || values[i] >= 1 << COST_BITS) {
+				return -1;
+			}
+			key |= ((long) values[i]) << (i * COST_BITS);
+		}
+		for (Essences ess : cost.getExcludes()) {
+			key |= 1L << (values.length * COST_BITS + ess.ordinal());
+		}
+		return key;
+	}
+
+	/**
+	 * Set {@link #paid} to the determined part of the cost and {@link #limit} to
+	 * what remains for the indetermined part
+	 *
+	 * @return <code>false</code> if the determined part can not be paid
+	 */
+	private boolean prepare(int[] available, EssenceSelection cost, EssenceSelection maxAllowed) {
+		int[] values = cost.getValues();
+		for (Essences ess : ESSENCES) {
+			int i = ess.ordinal();
+			int usable = available[i];
+			if (maxAllowed != null) {
+				usable = Math.min(usable, maxAllowed.getValue(ess) + maxAllowed.getIndeterminedValue());
+			}
+			if (values[i] > usable) {
+				return false;
+			}
+			this.paid[i] = values[i];
+			this.limit[i] = usable - values[i];
+			this.allowed[i] = !cost.getExcludes().contains(ess);
+		}
+		return true;
+	}
+
+	private long[] solve(EssenceSelection cost) {
+		this.foundSize = 0;
+		this.distribute(0, cost.getIndeterminedValue());
+		return this.foundSize == 0 ? NO_PAYMENTS : Arrays.copyOf(this.found, this.foundSize);
+	}
+
+	/**
+	 * Distribute the remaining essences over the allowed essences from the given
+	 * one on and keep every complete distribution
+	 */
+	private void distribute(int essence, int remaining) {
+		if (essence == ESSENCES.length) {
+			if (remaining == 0) {
+				if (this.foundSize == this.found.length) {
+					this.found = Arrays.copyOf(this.found, 2 * this.foundSize);
+				}
+				this.found[this.foundSize++] = GameSnapshot.packEssences(this.paid);
+			}
+			return;
+		}
+		int max = this.allowed[essence] ? Math.min(remaining, this.limit[essence]) : 0;
+		for (int n = 0; n <= max; n++) {
+			this.paid[essence] += n;
+			this.distribute(essence + 1, remaining - n);
+			this.paid[essence] -= n;
+		}
+	}
+}
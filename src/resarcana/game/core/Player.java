@@ -1,11 +1,10 @@
 package resarcana.game.core;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 import org.newdawn.slick.Color;
-import org.newdawn.slick.Font;
 import org.newdawn.slick.Graphics;
 import org.newdawn.slick.Input;
 import org.newdawn.slick.util.Log;
@@ -145,7 +144,10 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 			POSITION_ESSENCES.add(PowerPlace.PLACE_HITBOX.width * RELATIVE_PADDING * 2.2f, 0),
 			POSITION_ESSENCES.add(PowerPlace.PLACE_HITBOX.width * RELATIVE_PADDING * 3.2f, 0),
 			POSITION_ESSENCES.add(PowerPlace.PLACE_HITBOX.width * RELATIVE_PADDING * 3.2f,
-					PowerPlace.PLACE_HITBOX.height * RELATIVE_PADDING) };
+					PowerPlace.PLACE_HITBOX.height * RELATIVE_PADDING),
+			// A single player may own all places of power of a game with four players
+			POSITION_ESSENCES.add(PowerPlace.PLACE_HITBOX.width * RELATIVE_PADDING * 4.2f, 0),
+			POSITION_ESSENCES.add(PowerPlace.PLACE_HITBOX.width * RELATIVE_PADDING * 5.2f, 0) };
 
 	/*
 	 * Third row of the board
@@ -164,9 +166,8 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 	private static final int STATE_PLAY_CARD_COST = 1;
 	private static final int STATE_PLAY_CARD = 2;
 
-	private static final Font INDICATOR_FONT = FontManager.getInstance().getFont(2 * Parameter.GUI_STANDARD_FONT_SIZE);
-	private static final Font POINT_FONT = FontManager.getInstance()
-			.getFont((int) (1.5f * Parameter.GUI_STANDARD_FONT_SIZE));
+	private static final int INDICATOR_FONT_SIZE = 2 * Parameter.GUI_STANDARD_FONT_SIZE;
+	private static final int POINT_FONT_SIZE = (int) (1.5f * Parameter.GUI_STANDARD_FONT_SIZE);
 
 	public final Game parent;
 	public final Vector position;
@@ -180,7 +181,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 	private EssenceCounter counter;
 
 	private Mage mage;
-	private ArrayList<Artifact> hand = new ArrayList<Artifact>();
+	ArrayList<Artifact> hand = new ArrayList<Artifact>();
 	private ArrayList<Artifact> board = new ArrayList<Artifact>();
 	private ArrayList<Artifact> deck = new ArrayList<Artifact>();
 	private ArrayList<Artifact> discard = new ArrayList<Artifact>();
@@ -192,8 +193,14 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 	private ArrayList<Artifact> known = new ArrayList<Artifact>();
 	private int numberUnknown = 0;
 
-	private ArrayList<Tappable> inplay = new ArrayList<Tappable>();
+	ArrayList<Tappable> inplay = new ArrayList<Tappable>();
 	private ArrayList<Tappable> costReducers = new ArrayList<Tappable>();
+	/**
+	 * Effective costs by {@link Tappable#getIndex()}, cleared when the cost
+	 * reducers change
+	 */
+	private EssenceSelection[] effectiveCosts = new EssenceSelection[0];
+	private long costCacheHits = 0, costCacheMisses = 0;
 	private ArrayList<Tappable> protections = new ArrayList<Tappable>();
 	private ArrayList<Artifact> demons = new ArrayList<Artifact>();
 
@@ -204,6 +211,12 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 	private float handDelay = 0;
 	private Artifact cardToPlay;
 	private boolean winner = false;
+	/**
+	 * Seed of the refills of the deck derived from the secret of the seat,
+	 * <code>null</code> if unknown, and the number of refills so far
+	 */
+	private Long refillSeed = null;
+	private int refills = 0;
 
 	private final BoardPositioner boardPositions, scrollPositions;
 
@@ -240,9 +253,11 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		this.scrollPositions = new BoardPositioner(1, BOARD_COLS - 1, POSITION_SCROLL.add(this.position),
 				this.hitbox.getTopRightCorner(), Scroll.SCROLL_HITBOX.width * 1.1f, Scroll.SCROLL_HITBOX.height * 1.1f);
 
-		this.initAnimations();
+		if (!parent.isHeadless()) {
+			this.initAnimations();
+		}
 
-		this.counter = new EssenceCounter(this, 2.f, EssenceCounter.BOXES_POOL, true, false);
+		this.counter = new EssenceCounter(parent, this, 2.f, EssenceCounter.BOXES_POOL, true, false);
 		// Start essences
 		this.counter.add(EssenceSelection.allEssencesOnce());
 		this.counter.stopAnimations();
@@ -252,8 +267,11 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		this.hitbox = this.hitbox.modifyCenter(this.position);
 		this.hitbox_deck = Artifact.ARTIFACT_HITBOX.modifyCenter(this.position.add(POSITION_DECK));
 		this.hitbox_discard = Artifact.ARTIFACT_HITBOX.modifyCenter(this.position.add(POSITION_DISCARD));
-		this.hitbox_hand = PLAYER_HAND_HITBOX.modifyCorner(Engine.getInstance().getWidth() - PLAYER_HAND_HITBOX.width,
-				Engine.getInstance().getHeight() - PLAYER_HAND_HITBOX.height);
+		if (!this.parent.isHeadless()) { // The hand is only displayed on screen
+			this.hitbox_hand = PLAYER_HAND_HITBOX.modifyCorner(
+					Engine.getInstance().getWidth() - PLAYER_HAND_HITBOX.width,
+					Engine.getInstance().getHeight() - PLAYER_HAND_HITBOX.height);
+		}
 	}
 
 	private void initAnimations() {
@@ -572,7 +590,9 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 
 	public void makeWinner() {
 		this.winner = true;
-		this.victoryAnimation.start();
+		if (this.victoryAnimation != null) {
+			this.victoryAnimation.start();
+		}
 	}
 
 	@SuppressWarnings("unused")
@@ -620,7 +640,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		}
 
 		// Player name
-		g.setFont(INDICATOR_FONT);
+		g.setFont(FontManager.getInstance().getFont(INDICATOR_FONT_SIZE));
 		GraphicUtils.drawString(g,
 				this.hitbox_hand.getBottomLeftCorner().add(30, -FontManager.getInstance().getLineHeight(g.getFont())),
 				this.getName(), Color.black);
@@ -644,7 +664,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		}
 
 		// Font for indicators
-		g.setFont(INDICATOR_FONT);
+		g.setFont(FontManager.getInstance().getFont(INDICATOR_FONT_SIZE));
 
 		// Deck pile with size indicator
 		if (this.deck.size() > 0) {
@@ -676,7 +696,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 //		}
 
 		// Reset font because the following can only be drawn after the Tappables
-		g.setFont(INDICATOR_FONT);
+		g.setFont(FontManager.getInstance().getFont(INDICATOR_FONT_SIZE));
 
 		// Hand size at mage
 		if (this.mage != null) {
@@ -704,7 +724,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		// Point counter
 		GraphicUtils.drawImage(g, PLAYER_TOKEN_HITBOX.scale(0.5f).modifyCenter(this.position.add(POSITION_POINTS)),
 				ResourceManager.getInstance().getImage("misc/point_token.png"));
-		g.setFont(POINT_FONT);
+		g.setFont(FontManager.getInstance().getFont(POINT_FONT_SIZE));
 		GraphicUtils.drawStringCentered(g, this.position.add(POSITION_POINTS).add(0, -5), "" + this.getTotalPoints());
 
 		// Gray out if player has passed
@@ -910,7 +930,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 			card.setPosition(this.boardPositions.getNextEmptyPosition());
 			this.putCardInPlay(card);
 			this.counter.sub(cost.getValues());
-			SoundManager.getInstance().playCardFromHand();
+			this.getGame().getSoundManager().playCardFromHand();
 			this.getGame().addToHistory(new HistoryElement(card)
 					.setOptionalTwo(this.getGame().getCurrentEssenceDifference(this)).setOptionalOne("", "Revive"));
 		} else {
@@ -927,7 +947,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 			this.putCardInPlay(card);
 			this.discard.remove(card);
 			this.counter.sub(cost.getValues());
-			SoundManager.getInstance().playCardFromHand();
+			this.getGame().getSoundManager().playCardFromHand();
 			this.getGame().addToHistory(new HistoryElement(card)
 					.setOptionalTwo(this.getGame().getCurrentEssenceDifference(this)).setOptionalOne("", "Revive"));
 		}
@@ -948,7 +968,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		this.hand.remove(card);
 		this.counter.sub(cost.getValues());
 		this.updateHandPositions();
-		SoundManager.getInstance().playCardFromHand();
+		this.getGame().getSoundManager().playCardFromHand();
 		this.getGame().addToHistory(new HistoryElement(card)
 				.setOptionalTwo(this.getGame().getCurrentEssenceDifference(this)).setOptionalOne("", "Play"));
 	}
@@ -966,9 +986,9 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 			this.places.add(place);
 			this.putCardInPlay(place);
 			this.getGame().removePlace(place);
-			SoundManager.getInstance().playBuyPowerPlace();
+			this.getGame().getSoundManager().playBuyPowerPlace();
 			if (this.isActive()) {
-				this.getGame().getGameClient()
+				this.getGame().getHost()
 						.informAllClients_Action(new UserInputOverwrite(this, "BuyPowerPlace", place));
 			}
 			this.getGame().addToHistory(new HistoryElement(place)
@@ -993,9 +1013,9 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 			this.monuments.add(monument);
 			this.putCardInPlay(monument);
 			this.getGame().removeMonument(monument);
-			SoundManager.getInstance().playBuyMonument();
+			this.getGame().getSoundManager().playBuyMonument();
 			if (this.isActive() && !(monument instanceof Obelisk)) {
-				this.getGame().getGameClient()
+				this.getGame().getHost()
 						.informAllClients_Action(new UserInputOverwrite(this, "BuyMonument", monument));
 			}
 			this.getGame().addToHistory(new HistoryElement(monument)
@@ -1073,6 +1093,9 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 	}
 
 	private void updateHandPositions() {
+		if (this.hitbox_hand == null) { // Headless
+			return;
+		}
 		for (int i = 0; i < this.hand.size(); i++) {
 			this.hand.get(i).setPosition(this.hitbox_hand.getTopLeftCorner()
 					.add(Artifact.ARTIFACT_HITBOX.getLowerRightCorner().add(OFFSET_HAND_STEP.mul(i + 0.5f))));
@@ -1087,7 +1110,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		this.hand.add(card);
 		this.deck.remove(card);
 		this.updateHandPositions();
-		SoundManager.getInstance().playDraw();
+		this.getGame().getSoundManager().playDraw();
 	}
 
 	public void retrieve(Artifact card) {
@@ -1098,7 +1121,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		this.hand.add(card);
 		this.discard.remove(card);
 		this.updateHandPositions();
-		SoundManager.getInstance().playDraw();
+		this.getGame().getSoundManager().playDraw();
 	}
 
 	public ArrayList<Artifact> drawTopCards(int number) {
@@ -1136,8 +1159,9 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		Log.info("Self refilling deck of " + this);
 		this.deck.addAll(this.discard);
 		this.discard.clear();
-		Collections.shuffle(this.deck);
-		this.getGame().getGameClient()
+		this.shuffleRefill(this.deck);
+		this.refills++;
+		this.getGame().getHost()
 				.informAllClients_Shuffle(CommunicationKeys.VALUE_REFILL_DECK + CommunicationKeys.SEPERATOR_VALUES
 						+ this + CommunicationKeys.SEPERATOR_PARTS + UtilFunctions.ListToString(this.deck));
 	}
@@ -1155,12 +1179,46 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		for (int i = 0; i < refilled.size(); i++) {
 			this.deck.add((Artifact) refilled.get(i));
 		}
+		this.refills++;
+	}
+
+	/**
+	 * Shuffle cards into the order of the next refill of the deck of this player
+	 * <p>
+	 * If the secret of the seat is known, see {@link #setRefillSecret(String)},
+	 * every refill is shuffled by a seed derived from the secret and the number
+	 * of refills before. So the server can check the order chosen by the client
+	 * of this player, while no other client can foresee it. Otherwise the
+	 * randomness of the game is used.
+	 * 
+	 * @param cards the deck and discard pile, in this order
+	 */
+	public void shuffleRefill(List<? extends Tappable> cards) {
+		if (this.refillSeed == null) {
+			this.getGame().getRandom().shuffle(cards, "refill-" + this.id);
+		} else {
+			this.getGame().getRandom().shuffle(cards, "refill-" + this.id,
+					this.refillSeed + this.refills * 0x9E3779B97F4A7C15L);
+		}
+	}
+
+	/**
+	 * @param secret the secret of the seat of this player, known only to the
+	 *               server and the client of the seat
+	 */
+	public void setRefillSecret(String secret) {
+		long seed = 0;
+		for (int i = 0; i < secret.length(); i++) {
+			seed = 31 * seed + secret.charAt(i);
+		}
+		this.refillSeed = seed;
 	}
 
 	private void putCardInPlay(Tappable card) {
 		this.inplay.add(card);
 		if (card.canCostReduce()) {
 			this.costReducers.add(card);
+			Arrays.fill(this.effectiveCosts, null);
 		}
 		if (card.canProtect()) {
 			this.protections.add(card);
@@ -1205,7 +1263,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		this.hand.remove(result);
 		this.discard.add(result);
 		this.updateHandPositions();
-		SoundManager.getInstance().playDiscard();
+		this.getGame().getSoundManager().playDiscard();
 		if (this.numberUnknown > 0) {
 			if (!this.known.contains(result)) {
 				this.known.add(result);
@@ -1216,7 +1274,9 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 
 	private void removeCardFromPlay(Tappable card) {
 		this.inplay.remove(card);
-		this.costReducers.remove(card);
+		if (this.costReducers.remove(card)) {
+			Arrays.fill(this.effectiveCosts, null);
+		}
 		this.protections.remove(card);
 		this.demons.remove(card);
 		if (card instanceof VialOfLight) {
@@ -1243,7 +1303,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		for (Tappable tappable : this.inplay) {
 			tappable.untap();
 		}
-		SoundManager.getInstance().playUntapAll();
+		this.getGame().getSoundManager().playUntapAll();
 	}
 
 	public void processIncome() {
@@ -1257,7 +1317,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 			}
 		}
 		if (!this.incomeAutomatic.isEmpty()) {
-			this.getGame().getGameClient().informAllClients_Action(
+			this.getGame().getHost().informAllClients_Action(
 					new UserInputOverwrite(this, "AutomaticIncome", UtilFunctions.ListToString(this.incomeAutomatic)));
 		}
 		if (this.incomePending.isEmpty()) {
@@ -1267,7 +1327,7 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 
 	public void incomeFinished(Tappable tappable, UserInputOverwrite action) {
 		this.incomePending.remove(tappable);
-		this.getGame().getGameClient().informAllClients_Action(action);
+		this.getGame().getHost().informAllClients_Action(action);
 		Log.info(this.incomePending.size() + " incomes left for " + this);
 		if (this.incomePending.isEmpty()) {
 			this.getGame().incomeFinished(this);
@@ -1318,9 +1378,15 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 			this.getGame().getGameClient().unsetSelector(sel);
 			Artifact card = ((ImageSelector<Artifact>) sel).getResult();
 			EssenceSelection cost = card.getCost();
+			long[] payments = this.getGame().getPaymentSolver().getPayments(this.getEssenceCounter(), cost,
+					card.getRawCost());
 			if (cost.isDetermined()) {
 				this.status = STATE_IDLE;
 				this.getGame().cardFromHandPlayed(this, new UserInputOverwrite(this, "PlayCard", card));
+			} else if (payments.length == 1) { // No choice left, pay without asking
+				this.status = STATE_IDLE;
+				this.getGame().cardFromHandPlayed(this, new UserInputOverwrite(this, "PlayCardCost", card,
+						new EssenceSelection(GameSnapshot.unpackEssences(payments[0]))));
 			} else {
 				this.status = STATE_PLAY_CARD_COST;
 				this.getGame().getGameClient()
@@ -1348,56 +1414,71 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 	@SuppressWarnings("unused")
 	private final static int ANIMATION______________ = 0;
 
+	/**
+	 * Starts the given animation, if animations have been created for this player
+	 * (not for a headless game)
+	 * 
+	 * @param animation the animation to start
+	 * @param color     the color filter for the animation
+	 */
+	private void startAnimation(Animation animation, Color color) {
+		if (animation != null) {
+			animation.start(color);
+		}
+	}
+
 	public void playDragonAnimation(Color color) {
-		this.dragonShadow.start(color);
+		this.startAnimation(this.dragonShadow, color);
 	}
 
 	public void playDemonAnimation(Color color) {
-		this.demonShadow.start(color);
+		this.startAnimation(this.demonShadow, color);
 	}
 
 	public void playArrowAttack() {
-		this.arrowAttack.start(Color.white);
+		this.startAnimation(this.arrowAttack, Color.white);
 	}
 
 	public void playGrowingTreeAnimation() {
-		this.growingTree.start(new Color(1, 1, 1, 0.7f));
+		this.startAnimation(this.growingTree, new Color(1, 1, 1, 0.7f));
 	}
 
 	public void playTransferAnimation(Essences ess, int amount, Vector start, Vector end) {
-		this.transferGen.start(ess.getImage(), amount, start, end);
+		if (this.transferGen != null) {
+			this.transferGen.start(ess.getImage(), amount, start, end);
+		}
 	}
 
 	public void playDemonSlayerAnimation(Color color) {
-		this.demonSlayer.start(color);
+		this.startAnimation(this.demonSlayer, color);
 	}
 
 	public void playShieldVsArrowAnimation(Color color) {
-		this.shieldVsArrow.start(color);
+		this.startAnimation(this.shieldVsArrow, color);
 	}
 
 	public void playShieldVsDragonAnimation(Color color) {
-		this.shieldVsDragon.start(color);
+		this.startAnimation(this.shieldVsDragon, color);
 	}
 
 	public void playShieldVsDemonAnimation(Color color) {
-		this.shieldVsDemon.start(color);
+		this.startAnimation(this.shieldVsDemon, color);
 	}
 
 	public void playShieldAnimation(Color color) {
-		this.shield.start(color);
+		this.startAnimation(this.shield, color);
 	}
 
 	public void playGuardDogAnimation() {
-		this.guardDog.start(Color.white);
+		this.startAnimation(this.guardDog, Color.white);
 	}
 
 	public void playLionAnimation() {
-		this.lion.start(Color.white);
+		this.startAnimation(this.lion, Color.white);
 	}
 
 	public void playDancingSwordAnimation() {
-		this.dancingSword.start(Color.white);
+		this.startAnimation(this.dancingSword, Color.white);
 	}
 
 	@SuppressWarnings("unused")
@@ -1421,6 +1502,89 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		return this.id;
 	}
 
+	/**
+	 * @return the current state of this player, see {@link GameSnapshot}
+	 */
+	PlayerSnapshot snapshot() {
+		short[][] zones = new short[PlayerSnapshot.Zone.values().length][];
+		zones[PlayerSnapshot.Zone.HAND.ordinal()] = PlayerSnapshot.toIds(this.hand);
+		zones[PlayerSnapshot.Zone.DECK.ordinal()] = PlayerSnapshot.toIds(this.deck);
+		zones[PlayerSnapshot.Zone.DISCARD.ordinal()] = PlayerSnapshot.toIds(this.discard);
+		zones[PlayerSnapshot.Zone.IN_PLAY.ordinal()] = PlayerSnapshot.toIds(this.inplay);
+		return new PlayerSnapshot(this.id, GameSnapshot.packEssences(this.counter.getCount()),
+				this.mage == null ? -1 : this.mage.getIndex(), this.item == null ? -1 : this.item.getIndex(),
+				this.incomeFinished, this.active, zones);
+	}
+
+	/**
+	 * Set this player back to its state in a snapshot, see
+	 * {@link Game#restore(GameSnapshot, long)}
+	 * <p>
+	 * All lists derived from the cards in play, like the protections or the cost
+	 * reducers, are rebuilt and all cards of the player are laid out anew.
+	 * 
+	 * @param snapshot the state of this player
+	 * @param winner   whether this player has won the game
+	 */
+	void restore(PlayerSnapshot snapshot, boolean winner) {
+		this.status = STATE_IDLE;
+		this.cardToPlay = null;
+		this.active = snapshot.isActive();
+		this.incomeFinished = snapshot.hasIncomeFinished();
+		this.incomePending.clear();
+		this.incomeAutomatic.clear();
+		this.winner = winner;
+		System.arraycopy(GameSnapshot.unpackEssences(snapshot.getEssences()), 0, this.counter.count, 0,
+				this.counter.count.length);
+		this.restoreCards(this.hand, snapshot.getCards(PlayerSnapshot.Zone.HAND));
+		this.restoreCards(this.deck, snapshot.getCards(PlayerSnapshot.Zone.DECK));
+		this.restoreCards(this.discard, snapshot.getCards(PlayerSnapshot.Zone.DISCARD));
+		this.mage = snapshot.getMage() < 0 ? null : (Mage) this.getGame().allTappables.get(snapshot.getMage());
+		this.item = snapshot.getItem() < 0 ? null : (MagicItem) this.getGame().allTappables.get(snapshot.getItem());
+
+		this.inplay.clear();
+		this.board.clear();
+		this.places.clear();
+		this.monuments.clear();
+		this.scrolls.clear();
+		this.costReducers.clear();
+		this.protections.clear();
+		this.demons.clear();
+		Arrays.fill(this.effectiveCosts, null);
+		this.boardPositions.reset();
+		this.scrollPositions.reset();
+		for (short index : snapshot.getCards(PlayerSnapshot.Zone.IN_PLAY)) {
+			Tappable card = this.getGame().allTappables.get(index);
+			if (card instanceof Artifact) {
+				this.board.add((Artifact) card);
+				card.setPosition(this.boardPositions.getNextEmptyPosition());
+			} else if (card instanceof PowerPlace) {
+				card.setPosition(this.position.add(POSITION_PLACES[this.places.size()]));
+				this.places.add((PowerPlace) card);
+			} else if (card instanceof Monument) {
+				this.monuments.add((Monument) card);
+				card.setPosition(this.boardPositions.getNextEmptyPosition(BOARD_MONUMENT_OFFSET));
+			} else if (card instanceof Scroll) {
+				this.scrolls.add((Scroll) card);
+				card.setPosition(this.scrollPositions.getNextEmptyPosition());
+			} else if (card == this.mage) {
+				card.setPosition(this.position.add(POSITION_MAGE));
+			} else if (card == this.item) {
+				card.setPosition(this.position.add(POSITION_ITEM));
+			}
+			this.putCardInPlay(card);
+		}
+		this.updateHandPositions();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends Tappable> void restoreCards(ArrayList<T> zone, short[] cards) {
+		zone.clear();
+		for (short card : cards) {
+			zone.add((T) this.getGame().allTappables.get(card));
+		}
+	}
+
 	public String getName() {
 		return this.name;
 	}
@@ -1440,6 +1604,52 @@ public class Player implements Drawable, Pollable, Selecting, ScrollingListener
 		return points;
 	}
 
+	/**
+	 * The price of a card for this player after being modified by all
+	 * {@link #getCostReducers()}, remembered until the cost reducers change
+	 *
+	 * @param card the card
+	 * @return the effective price, shared by all callers and not to be modified
+	 */
+	EssenceSelection getEffectiveCost(Tappable card) {
+		int index = card.getIndex();
+		if (index >= this.effectiveCosts.length) {
+			this.effectiveCosts = Arrays.copyOf(this.effectiveCosts,
+					Math.max(index + 1, this.getGame().allTappables.size()));
+		}
+		EssenceSelection cost = this.effectiveCosts[index];
+		if (cost == null) {
+			this.costCacheMisses++;
+			cost = this.reduceCost(card);
+			this.effectiveCosts[index] = cost;
+		} else {
+			this.costCacheHits++;
+		}
+		return cost;
+	}
+
+	private EssenceSelection reduceCost(Tappable card) {
+		EssenceSelection cost = card.getRawCost();
+		for (Tappable tappable : this.costReducers) {
+			cost = tappable.reduceCost(card, cost);
+		}
+		return cost;
+	}
+
+	/**
+	 * @return the number of effective costs taken from the cache
+	 */
+	public long getCostCacheHits() {
+		return this.costCacheHits;
+	}
+
+	/**
+	 * @return the number of effective costs computed
+	 */
+	public long getCostCacheMisses() {
+		return this.costCacheMisses;
+	}
+
 	@SuppressWarnings("unchecked")
 	public ArrayList<Tappable> getCostReducers() {
 		return (ArrayList<Tappable>) this.costReducers.clone();
@@ -0,0 +1,195 @@
+package resarcana.game.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The immutable state of a {@link Player} inside a {@link GameSnapshot}
+ * <p>
+ * Cards are stored by their index ({@link Tappable#getIndex()}), the essences
+ * of the player are packed into a single value
+ * ({@link GameSnapshot#packEssences(int[])}). Changing a zone copies only that
+ * zone, all other zones are shared with the original snapshot.
+ *
+ * @author Erik Wagner
+ *
+ */
+public final class PlayerSnapshot {
+
+	/**
+	 * The zones holding the cards of a player
+	 */
+	public enum Zone {
+		HAND, DECK, DISCARD, IN_PLAY
+	}
+
+	private final int id;
+	private final long essences;
+	private final int mage, item;
+	private final boolean incomeFinished, active;
+	private final short[][] zones;
+
+	PlayerSnapshot(int id, long essences, int mage, int item, boolean incomeFinished, boolean active,
+			short[][] zones) {
+		this.id = id;
+		this.essences = essences;
+		this.mage = mage;
+		this.item = item;
+		this.incomeFinished = incomeFinished;
+		this.active = active;
+		this.zones = zones;
+	}
+
+	static short[] toIds(List<? extends Tappable> cards) {
+		short[] ids = new short[cards.size()];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = (short) cards.get(i).getIndex();
+		}
+		return ids;
+	}
+
+	private static int indexOf(short[] ids, int card) {
+		for (int i = 0; i < ids.length; i++) {
+			if (ids[i] == card) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public int getId() {
+		return this.id;
+	}
+
+	/**
+	 * @return the packed essences of the player, see
+	 *         {@link GameSnapshot#getEssence(long, Essences)}
+	 */
+	public long getEssences() {
+		return this.essences;
+	}
+
+	public int getEssence(Essences ess) {
+		return GameSnapshot.getEssence(this.essences, ess);
+	}
+
+	/**
+	 * @return the index of the mage, <code>-1</code> if none has been chosen
+	 */
+	public int getMage() {
+		return this.mage;
+	}
+
+	/**
+	 * @return the index of the magic item, <code>-1</code> if the player has none
+	 */
+	public int getItem() {
+		return this.item;
+	}
+
+	public boolean hasIncomeFinished() {
+		return this.incomeFinished;
+	}
+
+	/**
+	 * @return Whether the player may act in the game the snapshot has been taken
+	 *         of, see {@link Player#isActive()}
+	 */
+	public boolean isActive() {
+		return this.active;
+	}
+
+	/**
+	 * @param zone the zone
+	 * @return the indices of the cards in the given zone, in order
+	 */
+	public short[] getCards(Zone zone) {
+		return this.zones[zone.ordinal()].clone();
+	}
+
+	public int getNumberCards(Zone zone) {
+		return this.zones[zone.ordinal()].length;
+	}
+
+	public boolean contains(Zone zone, int card) {
+		return indexOf(this.zones[zone.ordinal()], card) != -1;
+	}
+
+	public PlayerSnapshot withEssences(long essences) {
+		return new PlayerSnapshot(this.id, essences, this.mage, this.item, this.incomeFinished, this.active,
+				this.zones);
+	}
+
+	public PlayerSnapshot withItem(int item) {
+		return new PlayerSnapshot(this.id, this.essences, this.mage, item, this.incomeFinished, this.active,
+				this.zones);
+	}
+
+	public PlayerSnapshot withIncomeFinished(boolean finished) {
+		return new PlayerSnapshot(this.id, this.essences, this.mage, this.item, finished, this.active, this.zones);
+	}
+
+	/**
+	 * @param zone  the zone to replace
+	 * @param cards the indices of the cards in the zone, in order
+	 * @return a snapshot with the given zone replaced
+	 */
+	public PlayerSnapshot withCards(Zone zone, short[] cards) {
+		short[][] copy = this.zones.clone();
+		copy[zone.ordinal()] = cards.clone();
+		return new PlayerSnapshot(this.id, this.essences, this.mage, this.item, this.incomeFinished, this.active, copy);
+	}
+
+	/**
+	 * Move a card from one zone to the end of another, e.g. drawing, playing or
+	 * discarding it
+	 *
+	 * @param card the index of the card
+	 * @param from the zone containing the card
+	 * @param to   the zone to put the card into
+	 * @return a snapshot with the card moved
+	 * @throws IllegalArgumentException if the card is not in <code>from</code>
+	 */
+	public PlayerSnapshot move(int card, Zone from, Zone to) {
+		short[] source = this.zones[from.ordinal()];
+		int position = indexOf(source, card);
+		if (position == -1) {
+			throw new IllegalArgumentException("Card " + card + " not in " + from + " of player " + this.id);
+		}
+		short[][] copy = this.zones.clone();
+		short[] removed = new short[source.length - 1];
+		System.arraycopy(source, 0, removed, 0, position);
+		System.arraycopy(source, position + 1, removed, position, removed.length - position);
+		copy[from.ordinal()] = removed;
+		short[] target = copy[to.ordinal()];
+		short[] added = Arrays.copyOf(target, target.length + 1);
+		added[target.length] = (short) card;
+		copy[to.ordinal()] = added;
+		return new PlayerSnapshot(this.id, this.essences, this.mage, this.item, this.incomeFinished, this.active, copy);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof PlayerSnapshot)) {
+			return false;
+		}
+		PlayerSnapshot other = (PlayerSnapshot) obj;
+		return this.id == other.id && this.essences == other.essences && this.mage == other.mage
+				&& this.item == other.item && this.incomeFinished == other.incomeFinished && this.active == other.active
+				&& Arrays.deepEquals(this.zones, other.zones);
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = this.id;
+		hash = 31 * hash + Long.hashCode(this.essences);
+		hash = 31 * hash + this.mage;
+		hash = 31 * hash + this.item;
+		hash = 31 * hash + (this.incomeFinished ? 1 : 0);
+		hash = 31 * hash + (this.active ? 1 : 0);
+		return 31 * hash + Arrays.deepHashCode(this.zones);
+	}
+}
@@ -29,7 +29,6 @@ import resarcana.graphics.Pollable;
 import resarcana.graphics.utils.FontManager;
 import resarcana.graphics.utils.GraphicUtils;
 import resarcana.graphics.utils.ResourceManager;
-import resarcana.graphics.utils.SoundManager;
 import resarcana.graphics.utils.Timer;
 import resarcana.math.Rectangle;
 import resarcana.math.Vector;
@@ -97,7 +96,7 @@ public abstract class Tappable implements Drawable, Pollable, Selecting, ImageHo
 	private boolean tapped = false;
 	private int state = STATE_IDLE;
 	private boolean collectResult = false;
-	private ArrayList<Ability> abilities = new ArrayList<Ability>();
+	ArrayList<Ability> abilities = new ArrayList<Ability>();
 	private EssenceCounter counter;
 
 	private boolean mouseDownCollect = false;
@@ -133,15 +132,17 @@ public abstract class Tappable implements Drawable, Pollable, Selecting, ImageHo
 		this.idx = parent.tappableIndexer.getNextNumber();
 		this.parent = parent;
 		this.image = image;
-		this.counter = new EssenceCounter(this, counterScale, EssenceCounter.BOXES_COLUMN, false, false);
+		this.counter = new EssenceCounter(parent, this, counterScale, EssenceCounter.BOXES_COLUMN, false, false);
 		this.setPosition(Vector.ZERO);
 
-		this.destroyAnimation = new DestroyAnimation(this.getRawHitbox().modifyCenter(Vector.ZERO), this.image,
-				ANIMATION_TIME,
-				PathFactory.getArcPathBetweenPoints(this.getRawHitbox().getPositionAtAng((float) Math.PI * 1.7f),
-						this.getRawHitbox().getPositionAtAng((float) Math.PI * 0.5f), 0, 0.2f),
-				this.hitbox.height / 20, WarpFactory.modifySpeedSmooth(WarpFactory.getDestroyWarpUp(), 0, 2.5f),
-				WarpFactory.getStaticWarper(), false);
+		if (!parent.isHeadless()) {
+			this.destroyAnimation = new DestroyAnimation(this.getRawHitbox().modifyCenter(Vector.ZERO), this.image,
+					ANIMATION_TIME,
+					PathFactory.getArcPathBetweenPoints(this.getRawHitbox().getPositionAtAng((float) Math.PI * 1.7f),
+							this.getRawHitbox().getPositionAtAng((float) Math.PI * 0.5f), 0, 0.2f),
+					this.hitbox.height / 20, WarpFactory.modifySpeedSmooth(WarpFactory.getDestroyWarpUp(), 0, 2.5f),
+					WarpFactory.getStaticWarper(), false);
+		}
 
 		// Register for global access later
 		parent.allTappables.add(this);
@@ -172,6 +173,22 @@ public abstract class Tappable implements Drawable, Pollable, Selecting, ImageHo
 		return this.name;
 	}
 
+	/**
+	 * @return the unique index of this card, which is part of its
+	 *         {@link #toString()} identifier
+	 */
+	public int getIndex() {
+		return this.idx;
+	}
+
+	/**
+	 * @return all abilities of this card
+	 */
+	@SuppressWarnings("unchecked")
+	public ArrayList<Ability> getAbilities() {
+		return (ArrayList<Ability>) this.abilities.clone();
+	}
+
 	/**
 	 * Set the abilities of this card if <b>not</b> already set
 	 * 
@@ -510,16 +527,25 @@ public abstract class Tappable implements Drawable, Pollable, Selecting, ImageHo
 	/**
 	 * @param player the player which to get the effective price of this card for
 	 * @return the effective price of this card after being modified by the players
-	 *         {@link Player#getCostReducers()}
+	 *         {@link Player#getCostReducers()}, remembered by the player until its
+	 *         cost reducers change
 	 */
 	public EssenceSelection getCost(Player player) {
-		EssenceSelection cost = this.getRawCost();
-		if (player != null) {
-			for (Tappable tappable : player.getCostReducers()) {
-				cost = tappable.costReduction.reduceCost(this, cost);
-			}
+		if (player == null) {
+			return this.getRawCost();
 		}
-		return cost;
+		return player.getEffectiveCost(this);
+	}
+
+	/**
+	 * Apply the {@link CostReduction} of this card to the cost of another one
+	 *
+	 * @param card the card to buy
+	 * @param cost the cost reduced so far
+	 * @return the reduced cost
+	 */
+	EssenceSelection reduceCost(Tappable card, EssenceSelection cost) {
+		return this.costReduction.reduceCost(card, cost);
 	}
 
 	/**
@@ -594,7 +620,7 @@ public abstract class Tappable implements Drawable, Pollable, Selecting, ImageHo
 		} else {
 			this.tapped = true;
 			this.setAnimation(AnimationMode.TAP);
-			SoundManager.getInstance().playTap();
+			this.parent.getSoundManager().playTap();
 		}
 	}
 
@@ -609,6 +635,24 @@ public abstract class Tappable implements Drawable, Pollable, Selecting, ImageHo
 		this.tapAngle = 0;
 	}
 
+	/**
+	 * Set this card back to a state of a {@link GameSnapshot}, without any
+	 * animation and without the effects of {@link #assignPlayer(Player)}
+	 * 
+	 * @param player   the owner of this card, <code>null</code> if it is in the
+	 *                 common supply
+	 * @param tapped   whether this card is tapped
+	 * @param essences the essences on this card
+	 */
+	void restore(Player player, boolean tapped, int[] essences) {
+		this.player = player;
+		this.tapped = tapped;
+		this.tapAngle = tapped ? TAP_ROTATE : 0;
+		this.state = STATE_IDLE;
+		this.animation = AnimationMode.NONE;
+		System.arraycopy(essences, 0, this.counter.count, 0, this.counter.count.length);
+	}
+
 	/**
 	 * Set the position of this card in the game world
 	 * <p>
@@ -634,7 +678,16 @@ public abstract class Tappable implements Drawable, Pollable, Selecting, ImageHo
 		return this.tapAngle;
 	}
 
+	/**
+	 * Start an animation of this card
+	 * 
+	 * @param mode the animation to start
+	 * @return Whether the animation has been started, never for a headless game
+	 */
 	public boolean setAnimation(AnimationMode mode) {
+		if (this.parent.isHeadless()) { // Nothing will poll the animation
+			return false;
+		}
 		if (!this.isAnimationRunning()) {
 			this.animation = mode;
 			if (this.animation != AnimationMode.NONE) {
@@ -653,8 +706,10 @@ public abstract class Tappable implements Drawable, Pollable, Selecting, ImageHo
 	}
 
 	public void playDestroyAnimation() {
-		this.destroyAnimation.start(Color.white);
-		SoundManager.getInstance().playDestroy();
+		if (this.destroyAnimation != null) {
+			this.destroyAnimation.start(Color.white);
+		}
+		this.parent.getSoundManager().playDestroy();
 	}
 
 	/**
@@ -732,6 +787,13 @@ public abstract class Tappable implements Drawable, Pollable, Selecting, ImageHo
 		return this.parent.getGameClient();
 	}
 
+	/**
+	 * @return the {@link GameHost} of the {@link Game} of this card
+	 */
+	public GameHost getHost() {
+		return this.parent.getHost();
+	}
+
 	/**
 	 * Set the collection mode of this card
 	 * 
@@ -742,6 +804,10 @@ public abstract class Tappable implements Drawable, Pollable, Selecting, ImageHo
 		this.collectMode = mode;
 	}
 
+	public CollectMode getCollectMode() {
+		return this.collectMode;
+	}
+
 	/**
 	 * Trigger the collection and income selections at round-start
 	 * 
@@ -0,0 +1,238 @@
+package resarcana.game.simulation;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import resarcana.communication.CommunicationKeys;
+import resarcana.game.abilities.Attack;
+import resarcana.game.abilities.Pass;
+import resarcana.game.core.Artifact;
+import resarcana.game.core.Essences;
+import resarcana.game.core.Game;
+import resarcana.game.core.MagicItem;
+import resarcana.game.core.Monument;
+import resarcana.game.core.MoveBuffer;
+import resarcana.game.core.MoveGenerator;
+import resarcana.game.core.Player;
+import resarcana.game.core.Tappable;
+import resarcana.game.core.Tappable.CollectMode;
+import resarcana.game.utils.EssenceSelection;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+import resarcana.utils.UtilFunctions;
+
+/**
+ * The messages a computer player sends for its decisions, shared by
+ * {@link SimulatedGame} and bots playing over the network
+ * <p>
+ * Every message is returned as <code>{action, value}</code> and has to be sent
+ * to all clients in the given order.
+ *
+ * @author Erik Wagner
+ *
+ */
+public final class BotMoves {
+
+	private BotMoves() {
+	}
+
+	/**
+	 * @return the player on turn, <code>null</code> if no player is on turn, e.g.
+	 *         during the income
+	 */
+	public static Player getActivePlayer(Game game) {
+		for (int i = 0; i < game.getNumberPlayers(); i++) {
+			Player player = game.getPlayerById(i);
+			if (game.isActivePlayer(player)) {
+				return player;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The actions of a turn supported by computer players, the moves of the
+	 * {@link MoveGenerator}: playing artifacts with every payment, buying places
+	 * of power and monuments, activating the abilities which need no input and
+	 * passing. Abilities needing input are not used. An Obelisk is offered once
+	 * per payment with the essences chosen by the policy.
+	 *
+	 * @param player    the player on turn
+	 * @param policy    the policy choosing the essences of an Obelisk
+	 * @param random    the random source of the policy
+	 * @param generator the generator of the moves
+	 * @param moves     the buffer for the moves, its content is replaced
+	 * @return all supported actions, passing with each of the available magic
+	 *         items is always included
+	 */
+	public static ArrayList<UserInputOverwrite> getActions(Player player, BotPolicy policy, Random random,
+			MoveGenerator generator, MoveBuffer moves) {
+		ArrayList<UserInputOverwrite> options = new ArrayList<UserInputOverwrite>();
+		int size = generator.generate(player, moves);
+		for (int i = 0; i < size; i++) {
+			if (moves.getKind(i) == MoveBuffer.BUY_MONUMENT && moves.getExtra(i) != -1) {
+				// The choices of the essences of an Obelisk follow each other
+				if (i > 0 && moves.getKind(i - 1) == MoveBuffer.BUY_MONUMENT
+						&& moves.getTarget(i - 1) == moves.getTarget(i)
+						&& moves.getPayment(i - 1) == moves.getPayment(i)) {
+					continue;
+				}
+				options.add(new UserInputOverwrite(player, "BuyObelisk", getMonument(player.getGame(),
+						moves.getTarget(i)), policy.chooseEssences(player, new EssenceSelection(6, Essences.GOLD), random)));
+			} else {
+				options.add(moves.toOverwrite(player, i));
+			}
+		}
+		return options;
+	}
+
+	private static Monument getMonument(Game game, int index) {
+		for (Monument monument : game.getMonuments()) {
+			if (monument.getIndex() == index) {
+				return monument;
+			}
+		}
+		throw new IllegalStateException("No monument " + index + " for sale");
+	}
+
+	/**
+	 * @return <code>true</code> if the action is passing
+	 */
+	public static boolean isPass(Game game, UserInputOverwrite action) {
+		return action.getSourceType() == UserInputOverwrite.SOURCE_TYPE_ABILITY
+				&& game.getAbility(action.getSource()) instanceof Pass;
+	}
+
+	/**
+	 * The messages of an action chosen from
+	 * {@link #getActions(Player, BotPolicy, Random, MoveGenerator, MoveBuffer)}
+	 * <p>
+	 * Passing draws the top card of the deck, an empty deck is refilled and
+	 * shuffled first ({@link Player#shuffleRefill(java.util.List)}).
+	 *
+	 * @param game   the game
+	 * @param player the player on turn
+	 * @param action the chosen action
+	 * @return the messages to send
+	 */
+	public static ArrayList<String[]> getTurn(Game game, Player player, UserInputOverwrite action) {
+		ArrayList<String[]> messages = new ArrayList<String[]>();
+		if (!isPass(game, action)) {
+			messages.add(new String[] { CommunicationKeys.GAME_ACTION, action.getCode() });
+			return messages;
+		}
+		Pass pass = (Pass) game.getAbility(action.getSource());
+		MagicItem item = (MagicItem) game.getTappable(action.getParts().get(0));
+		ArrayList<Artifact> deck = player.getDeck();
+		if (deck.isEmpty() && !player.getDiscard().isEmpty()) {
+			deck = player.getDiscard();
+			player.shuffleRefill(deck);
+			messages.add(new String[] { CommunicationKeys.GAME_SHUFFLE,
+					CommunicationKeys.VALUE_REFILL_DECK + CommunicationKeys.SEPERATOR_VALUES + player
+							+ CommunicationKeys.SEPERATOR_PARTS + UtilFunctions.ListToString(deck) });
+		}
+		UserInputOverwrite passing = deck.isEmpty() ? new UserInputOverwrite(pass, item)
+				: new UserInputOverwrite(pass, item, deck.get(0));
+		messages.add(new String[] { CommunicationKeys.GAME_ACTION, passing.getCode() });
+		return messages;
+	}
+
+	/**
+	 * The messages collecting the essences and income of all cards of a player at
+	 * the start of a round, ending with {@link CommunicationKeys#GAME_INCOME_DONE}
+	 *
+	 * @param player the player
+	 * @param policy the policy choosing indetermined income
+	 * @param random the random source of the policy
+	 * @return the messages to send
+	 */
+	public static ArrayList<String[]> getIncome(Player player, BotPolicy policy, Random random) {
+		ArrayList<Tappable> automatic = new ArrayList<Tappable>();
+		ArrayList<String[]> messages = new ArrayList<String[]>();
+		for (Tappable tappable : player.getTappablesInPlay()) {
+			EssenceSelection income = tappable.getIncome();
+			boolean ask = tappable.hasEssences() && tappable.getCollectMode() == CollectMode.ASK;
+			UserInputOverwrite choice;
+			if (income != null && !income.isDetermined()) {
+				EssenceSelection sel = policy.chooseEssences(player, income, random);
+				choice = ask ? new UserInputOverwrite(tappable, "CollectIncome", true, sel)
+						: new UserInputOverwrite(tappable, "Income", sel);
+			} else if (ask) {
+				choice = new UserInputOverwrite(tappable, "Collect", true);
+			} else {
+				automatic.add(tappable);
+				continue;
+			}
+			messages.add(new String[] { CommunicationKeys.GAME_ACTION, choice.getCode() });
+		}
+		if (!automatic.isEmpty()) {
+			messages.add(0, new String[] { CommunicationKeys.GAME_ACTION,
+					new UserInputOverwrite(player, "AutomaticIncome", UtilFunctions.ListToString(automatic))
+							.getCode() });
+		}
+		messages.add(new String[] { CommunicationKeys.GAME_INCOME_DONE, "" + player.getId() });
+		return messages;
+	}
+
+	/**
+	 * @return the message taking the essence of a Vial of Light
+	 */
+	public static String[] getVialOfLight(Player player, BotPolicy policy, Random random) {
+		EssenceSelection sel = policy.chooseEssences(player, new EssenceSelection(1, Essences.GOLD, Essences.DEATH),
+				random);
+		return new String[] { CommunicationKeys.GAME_ACTION,
+				new UserInputOverwrite(player, "VialOfLight", sel).getCode() };
+	}
+
+	/**
+	 * The answer of an attacked player: a protecting card if there is one, life
+	 * otherwise. Missing life is paid with two other essences each, the most
+	 * plentiful first.
+	 *
+	 * @param attack   the pending attack
+	 * @param defender the attacked player
+	 * @return the message to send
+	 */
+	public static String[] getDefense(Attack attack, Player defender) {
+		UserInputOverwrite answer;
+		if (defender == attack.getPlayer()) {
+			answer = new UserInputOverwrite(attack, "Attacker", defender);
+		} else if (defender.hasPassed()) {
+			answer = new UserInputOverwrite(attack, "Passed", defender);
+		} else {
+			answer = null;
+			for (Tappable protection : defender.getProtection()) {
+				if (protection.canProtectFrom(attack.getTappable())) {
+					answer = new UserInputOverwrite(attack, "Protection", defender, protection);
+					break;
+				}
+			}
+			if (answer == null) {
+				answer = new UserInputOverwrite(attack, "Essence", defender, getTribute(defender,
+						attack.getHitpoints()));
+			}
+		}
+		return new String[] { CommunicationKeys.GAME_ATTACK, answer.getCode() };
+	}
+
+	private static EssenceSelection getTribute(Player player, int hitpoints) {
+		int[] available = player.getEssenceCounter().getCount();
+		int[] values = new int[Essences.values().length];
+		int life = Math.min(hitpoints, available[Essences.LIFE.ordinal()]);
+		values[Essences.LIFE.ordinal()] = life;
+		available[Essences.LIFE.ordinal()] = 0;
+		for (int remaining = 2 * (hitpoints - life); remaining > 0; remaining--) {
+			int best = -1;
+			for (int i = 0; i < available.length; i++) {
+				if (available[i] > 0 && (best == -1 || available[i] > available[best])) {
+					best = i;
+				}
+			}
+			if (best == -1) {
+				break;
+			}
+			values[best]++;
+			available[best]--;
+		}
+		return new EssenceSelection(values);
+	}
+}
@@ -0,0 +1,60 @@
+package resarcana.game.simulation;
+
+import java.util.List;
+import java.util.Random;
+
+import resarcana.game.core.Player;
+import resarcana.game.core.Tappable;
+import resarcana.game.utils.EssenceSelection;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+
+/**
+ * The decisions of a computer player in a {@link SimulatedGame}
+ * <p>
+ * A policy is shared by all games running in parallel, so it must not keep any
+ * state of a single game. All randomness has to be taken from the given
+ * {@link Random} of the game.
+ *
+ * @author Erik Wagner
+ *
+ */
+public interface BotPolicy {
+
+	/**
+	 * @return the name of this policy, used as name of its players
+	 */
+	public String getName();
+
+	/**
+	 * Choose a card, e.g. the mage or the magic item during the draft or the next
+	 * magic item when passing
+	 *
+	 * @param player  the deciding player
+	 * @param options the cards to choose from, never empty
+	 * @param random  the random source of the game
+	 * @return the index of the chosen card in <code>options</code>
+	 */
+	public int chooseCard(Player player, List<? extends Tappable> options, Random random);
+
+	/**
+	 * Choose the essences to take from an indetermined selection, e.g. the income
+	 * of a card
+	 *
+	 * @param player the deciding player
+	 * @param choice the selection to choose from, its indetermined part has to be
+	 *               distributed without using the excluded essences
+	 * @param random the random source of the game
+	 * @return a determined selection
+	 */
+	public EssenceSelection chooseEssences(Player player, EssenceSelection choice, Random random);
+
+	/**
+	 * Choose the action of a turn
+	 *
+	 * @param player  the active player
+	 * @param options the legal actions, passing is always included
+	 * @param random  the random source of the game
+	 * @return the index of the chosen action in <code>options</code>
+	 */
+	public int chooseAction(Player player, List<UserInputOverwrite> options, Random random);
+}
@@ -0,0 +1,65 @@
+package resarcana.game.simulation;
+
+import java.util.List;
+import java.util.Random;
+
+import resarcana.game.core.Player;
+import resarcana.game.core.Tappable;
+import resarcana.game.utils.EssenceSelection;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+
+/**
+ * A {@link BotPolicy} going for points: it buys monuments and places of power
+ * whenever it can, plays artifacts or uses abilities otherwise and passes last
+ * <p>
+ * Ties and all other choices are broken at random
+ *
+ * @author Erik Wagner
+ *
+ */
+public class GreedyPolicy implements BotPolicy {
+
+	@Override
+	public String getName() {
+		return "Greedy";
+	}
+
+	@Override
+	public int chooseCard(Player player, List<? extends Tappable> options, Random random) {
+		return random.nextInt(options.size());
+	}
+
+	@Override
+	public EssenceSelection chooseEssences(Player player, EssenceSelection choice, Random random) {
+		return RandomPolicy.distributeRandomly(choice, random);
+	}
+
+	@Override
+	public int chooseAction(Player player, List<UserInputOverwrite> options, Random random) {
+		int best = -1, bestScore = -1, ties = 0;
+		for (int i = 0; i < options.size(); i++) {
+			int score = score(player, options.get(i));
+			if (score > bestScore) {
+				best = i;
+				bestScore = score;
+				ties = 1;
+			} else if (score == bestScore && random.nextInt(++ties) == 0) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	private static int score(Player player, UserInputOverwrite option) {
+		if (option.getSourceType() != UserInputOverwrite.SOURCE_TYPE_PLAYER) {
+			return BotMoves.isPass(player.getGame(), option) ? 0 : 1;
+		}
+		String description = option.getParts().get(0);
+		if (description.equalsIgnoreCase("BuyMonument") || description.equalsIgnoreCase("BuyObelisk")) {
+			return 3;
+		} else if (description.equalsIgnoreCase("BuyPowerPlace")) {
+			return 2;
+		}
+		return 1;
+	}
+}
@@ -0,0 +1,233 @@
+package resarcana.game.simulation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.newdawn.slick.util.Log;
+
+import resarcana.game.core.GameSnapshot;
+import resarcana.game.core.Player;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+
+/**
+ * Monte-Carlo tree search for the action of a computer player
+ * <p>
+ * The search is root-parallel: every thread grows a tree of its own until the
+ * time budget is used up, afterwards the visits of the actions at the root are
+ * summed up over all trees and the most visited action is chosen. The nodes of
+ * a tree are the actions of {@link BotMoves} of all players, the moves of the
+ * {@link resarcana.game.core.MoveGenerator} including the abilities which need
+ * no input, chosen by UCB1 from the view of the player on turn. Each iteration
+ * continues the game from the state at the root and finishes it with the
+ * rollout policy.
+ * <p>
+ * Every tree replays the messages of the game once ({@link SimulatedGame#replay})
+ * and starts each iteration from a snapshot of the replayed state
+ * ({@link SimulatedGame#restore}), so the time of an iteration does not grow
+ * with the length of the game. Only if something is pending at the root, which
+ * a snapshot does not describe, every iteration replays all messages.
+ * <p>
+ * No iteration is started after the deadline, and an iteration still running
+ * {@value #MAXIMUM_OVERRUN} ms after it is abandoned without counting.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class MonteCarloSearch {
+
+	/**
+	 * Weight of the exploration term of UCB1
+	 */
+	private static final double EXPLORATION = Math.sqrt(2);
+	/**
+	 * Time in milliseconds an iteration may run beyond the deadline
+	 */
+	private static final long MAXIMUM_OVERRUN = 20;
+
+	private final int threads;
+	private final long budget;
+	private final BotPolicy rollout;
+	private final ExecutorService executor;
+
+	/**
+	 * @param threads the number of trees grown in parallel
+	 * @param budget  the time for a search in milliseconds
+	 * @param rollout the policy of all players after leaving the tree
+	 */
+	public MonteCarloSearch(int threads, long budget, BotPolicy rollout) {
+		this.threads = threads;
+		this.budget = budget;
+		this.rollout = rollout;
+		this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "MonteCarloSearch");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Search the best action of the player on turn
+	 *
+	 * @param messages      all messages of the game so far, see
+	 *                      {@link SimulatedGame#replay}
+	 * @param numberPlayers the number of players of the game
+	 * @param seed          the seed of the randomness of the search
+	 * @return the chosen action or <code>null</code> if no player is on turn or no
+	 *         game could be finished in time
+	 */
+	public UserInputOverwrite search(List<String[]> messages, int numberPlayers, long seed) {
+		BotPolicy[] policies = new BotPolicy[numberPlayers];
+		for (int i = 0; i < numberPlayers; i++) {
+			policies[i] = this.rollout;
+		}
+		long deadline = System.currentTimeMillis() + this.budget;
+		ArrayList<Future<Node>> trees = new ArrayList<Future<Node>>();
+		for (int i = 0; i < this.threads; i++) {
+			long treeSeed = seed + i * 0x9E3779B97F4A7C15L;
+			trees.add(this.executor.submit(() -> grow(messages, policies, treeSeed, deadline)));
+		}
+		HashMap<String, Integer> visits = new HashMap<String, Integer>();
+		int iterations = 0;
+		for (Future<Node> tree : trees) {
+			try {
+				Node root = tree.get();
+				iterations += root.visits;
+				for (Node child : root.children.values()) {
+					if (child.visits > 0) {
+						visits.merge(child.action, child.visits, Integer::sum);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				Log.error("Search failed: " + e.getCause());
+			}
+		}
+		String best = null;
+		for (Map.Entry<String, Integer> entry : visits.entrySet()) {
+			if (best == null || entry.getValue() > visits.get(best)) {
+				best = entry.getKey();
+			}
+		}
+		Log.info("Searched " + iterations + " games, chose " + best);
+		return best == null ? null : new UserInputOverwrite(best);
+	}
+
+	/**
+	 * Stop all threads of this search
+	 */
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+	private static Node grow(List<String[]> messages, BotPolicy[] policies, long seed, long deadline) {
+		Random random = new Random(seed);
+		Node root = new Node(null, -1);
+		SimulatedGame simulation = SimulatedGame.replay(policies, random.nextLong(), messages);
+		GameSnapshot start = simulation.getGame().isRestorable() ? simulation.getGame().snapshot() : null;
+		boolean replayed = true;
+		while (System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted()) {
+			if (!replayed) {
+				if (start != null) {
+					simulation.restore(start, random.nextLong());
+				} else {
+					simulation = SimulatedGame.replay(policies, random.nextLong(), messages);
+				}
+			}
+			replayed = false;
+			iterate(root, simulation, random, deadline + MAXIMUM_OVERRUN);
+		}
+		return root;
+	}
+
+	/**
+	 * Play a single game from the root, the results are only counted if the game
+	 * ends before the given time
+	 */
+	private static void iterate(Node root, SimulatedGame simulation, Random random, long limit) {
+		ArrayList<Node> path = new ArrayList<Node>();
+		Node node = root;
+		Player active;
+		while ((active = simulation.nextDecision()) != null) {
+			ArrayList<UserInputOverwrite> actions = simulation.getActions(active);
+			UserInputOverwrite action = node.select(actions, random);
+			Node next = node.children.get(action.getCode());
+			boolean expanded = next == null;
+			if (expanded) {
+				next = new Node(action.getCode(), active.getId());
+				node.children.put(next.action, next);
+			}
+			path.add(next);
+			simulation.apply(active, action);
+			if (expanded) {
+				break;
+			}
+			node = next;
+		}
+		if (!simulation.playOut(limit)) {
+			return;
+		}
+		Player winner = simulation.getWinner();
+		int numberPlayers = simulation.getPolicies().length;
+		root.visits++;
+		for (Node visited : path) {
+			visited.visits++;
+			if (winner == null) {
+				visited.wins += 1.0 / numberPlayers;
+			} else if (winner.getId() == visited.player) {
+				visited.wins++;
+			}
+		}
+	}
+
+	/**
+	 * An action in a tree with the results of all games it was played in
+	 */
+	private static class Node {
+
+		private final String action;
+		private final int player;
+		private final HashMap<String, Node> children = new HashMap<String, Node>();
+		private int visits = 0;
+		private double wins = 0;
+
+		private Node(String action, int player) {
+			this.action = action;
+			this.player = player;
+		}
+
+		/**
+		 * @return an action not tried yet from this node if there is one, the one
+		 *         with the best upper confidence bound otherwise
+		 */
+		private UserInputOverwrite select(ArrayList<UserInputOverwrite> actions, Random random) {
+			ArrayList<UserInputOverwrite> untried = new ArrayList<UserInputOverwrite>();
+			UserInputOverwrite best = null;
+			double bestBound = Double.NEGATIVE_INFINITY;
+			double logVisits = Math.log(Math.max(1, this.visits));
+			for (UserInputOverwrite action : actions) {
+				Node child = this.children.get(action.getCode());
+				if (child == null || child.visits == 0) {
+					untried.add(action);
+				} else if (untried.isEmpty()) {
+					double bound = child.wins / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+					if (bound > bestBound) {
+						best = action;
+						bestBound = bound;
+					}
+				}
+			}
+			if (!untried.isEmpty()) {
+				return untried.get(random.nextInt(untried.size()));
+			}
+			return best;
+		}
+	}
+}
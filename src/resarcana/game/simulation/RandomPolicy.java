@@ -0,0 +1,64 @@
+package resarcana.game.simulation;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+
+import resarcana.game.core.Essences;
+import resarcana.game.core.Player;
+import resarcana.game.core.Tappable;
+import resarcana.game.utils.EssenceSelection;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+
+/**
+ * A {@link BotPolicy} choosing uniformly at random from all options
+ *
+ * @author Erik Wagner
+ *
+ */
+public class RandomPolicy implements BotPolicy {
+
+	@Override
+	public String getName() {
+		return "Random";
+	}
+
+	@Override
+	public int chooseCard(Player player, List<? extends Tappable> options, Random random) {
+		return random.nextInt(options.size());
+	}
+
+	@Override
+	public EssenceSelection chooseEssences(Player player, EssenceSelection choice, Random random) {
+		return distributeRandomly(choice, random);
+	}
+
+	@Override
+	public int chooseAction(Player player, List<UserInputOverwrite> options, Random random) {
+		return random.nextInt(options.size());
+	}
+
+	/**
+	 * Distribute the indetermined part of a selection one by one to random
+	 * essences which are not excluded
+	 *
+	 * @param choice the selection to determine
+	 * @param random the random source to use
+	 * @return a determined selection containing the determined part of
+	 *         <code>choice</code>
+	 */
+	public static EssenceSelection distributeRandomly(EssenceSelection choice, Random random) {
+		int[] values = new int[Essences.values().length];
+		for (Essences ess : Essences.values()) {
+			values[ess.ordinal()] = choice.getValue(ess);
+		}
+		ArrayList<Essences> allowed = new ArrayList<Essences>(EnumSet.complementOf(choice.getExcludes()));
+		if (!allowed.isEmpty()) {
+			for (int i = 0; i < choice.getIndeterminedValue(); i++) {
+				values[allowed.get(random.nextInt(allowed.size())).ordinal()]++;
+			}
+		}
+		return new EssenceSelection(values);
+	}
+}
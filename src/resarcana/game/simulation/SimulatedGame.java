@@ -0,0 +1,359 @@
+package resarcana.game.simulation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import resarcana.communication.CommunicationKeys;
+import resarcana.game.HeadlessClient;
+import resarcana.game.core.Game;
+import resarcana.game.core.GameSnapshot;
+import resarcana.game.core.MoveBuffer;
+import resarcana.game.core.MoveGenerator;
+import resarcana.game.core.Player;
+import resarcana.game.core.Tappable;
+import resarcana.game.utils.DraftHelper;
+import resarcana.game.utils.DraftModes;
+import resarcana.game.utils.HistoryElement;
+import resarcana.game.utils.statistics.StatisticsElement;
+import resarcana.game.utils.userinput.UserInputOverwrite;
+
+/**
+ * A complete game played by computer players without any display or network
+ * <p>
+ * Every seat is played by a {@link BotPolicy}. The simulation is the dealer of
+ * its game and sends all messages to itself, so the game is driven by exactly
+ * the same messages as a networked game. All randomness, including the
+ * decisions of the policies, is derived from the seed of the game
+ * ({@link Game#setSeed(long)}), so a game is reproduced by its seed.
+ * <p>
+ * The computer players play the actions of {@link BotMoves}. A game can also be
+ * continued from the messages of another game ({@link #replay}) and be played
+ * step by step ({@link #nextDecision()}), e.g. by a search.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class SimulatedGame extends HeadlessClient {
+
+	/**
+	 * Games running longer are aborted without a winner
+	 */
+	public static final int MAXIMUM_ROUNDS = 50;
+	/**
+	 * Safety net against computer players not finishing their turns
+	 */
+	private static final int MAXIMUM_ACTIONS = 20000;
+
+	private final BotPolicy[] policies;
+	private Random random;
+	private final MoveGenerator generator = new MoveGenerator();
+	private final MoveBuffer moves = new MoveBuffer();
+
+	private final ArrayDeque<String[]> pending = new ArrayDeque<String[]>();
+	private ArrayList<StatisticsElement> lastStatistics = null;
+	private int turns = 0, actions = 0;
+	private boolean aborted = false;
+	/**
+	 * <code>true</code> while applying messages of another game, nothing is sent
+	 */
+	private boolean replaying = false;
+
+	/**
+	 * @param policies the policy of every seat, also determines the number of
+	 *                 players
+	 * @param seed     the seed of all randomness of this game
+	 */
+	public SimulatedGame(BotPolicy[] policies, long seed) {
+		super();
+		this.policies = policies;
+		this.getGame().setSeed(seed);
+		this.random = this.getGame().getRandom().split("policies");
+	}
+
+	/**
+	 * Create a game in the state reached by the given messages, e.g. to continue
+	 * a game played over the network with computer players
+	 * <p>
+	 * The messages are applied as by an observer, afterwards the simulation is the
+	 * dealer of the game.
+	 *
+	 * @param policies the policy of every seat
+	 * @param seed     the seed of all randomness from now on
+	 * @param messages all messages of the game as <code>{action, value}</code>,
+	 *                 starting with adding the players
+	 * @return the game, ready to be continued
+	 */
+	public static SimulatedGame replay(BotPolicy[] policies, long seed, List<String[]> messages) {
+		SimulatedGame simulation = new SimulatedGame(policies, seed);
+		simulation.replaying = true;
+		for (String[] message : messages) {
+			simulation.processMessage(message[0], message[1]);
+		}
+		simulation.replaying = false;
+		simulation.getGame().setDealer(-1);
+		return simulation;
+	}
+
+	/**
+	 * Set this game back to a snapshot, e.g. to search again from the same state
+	 * without replaying all messages
+	 *
+	 * @param snapshot a restorable snapshot of this game
+	 * @param seed     the seed of all randomness from now on
+	 * @see HeadlessClient#restore(GameSnapshot, long)
+	 */
+	@Override
+	public void restore(GameSnapshot snapshot, long seed) {
+		super.restore(snapshot, seed);
+		this.random = this.getGame().getRandom().split("policies");
+		this.pending.clear();
+		this.lastStatistics = null;
+		this.turns = 0;
+		this.actions = 0;
+		this.aborted = false;
+	}
+
+	/**
+	 * Play the game from the draft to its end
+	 *
+	 * @param mode the draft mode, one of the modes dealing random decks
+	 * @return the winner or <code>null</code> if the game has been aborted
+	 */
+	public Player play(DraftModes mode) {
+		Game game = this.getGame();
+		for (int i = 0; i < this.policies.length; i++) {
+			game.addPlayer(this.policies[i].getName() + " " + i);
+		}
+		game.setDealer(-1);
+		this.send(CommunicationKeys.GAME_START, "" + this.policies.length);
+		this.draft(mode);
+		return this.playOut();
+	}
+
+	/**
+	 * Continue the game until its end with the policies of all seats
+	 *
+	 * @return the winner or <code>null</code> if the game has been aborted
+	 */
+	public Player playOut() {
+		this.playOut(Long.MAX_VALUE);
+		return this.getWinner();
+	}
+
+	/**
+	 * Continue the game with the policies of all seats until its end or until the
+	 * given time has passed
+	 *
+	 * @param limit the time to stop at, as by {@link System#currentTimeMillis()}
+	 * @return <code>true</code> if the game has ended or has been aborted,
+	 *         <code>false</code> if the time has run out before
+	 */
+	public boolean playOut(long limit) {
+		Player active;
+		while ((active = this.nextDecision()) != null) {
+			if (System.currentTimeMillis() > limit) {
+				return false;
+			}
+			ArrayList<UserInputOverwrite> options = this.getActions(active);
+			this.apply(active,
+					options.get(this.getPolicy(active).chooseAction(active, options, this.random)));
+		}
+		return true;
+	}
+
+	/**
+	 * Play everything up to the next turn: the income of all players and pending
+	 * Vial of Light actions are decided by the policies
+	 *
+	 * @return the player on turn or <code>null</code> if the game has ended or has
+	 *         been aborted
+	 */
+	public Player nextDecision() {
+		Game game = this.getGame();
+		while (!game.hasGameFinished()) {
+			if (this.getRounds() > MAXIMUM_ROUNDS || this.actions++ > MAXIMUM_ACTIONS) {
+				this.aborted = true;
+				return null;
+			}
+			Player vial = game.getPendingVialOfLightPlayer();
+			if (vial != null) {
+				this.send(BotMoves.getVialOfLight(vial, this.getPolicy(vial), this.random));
+			} else if (game.isIncomePending()) {
+				for (int i = 0; i < game.getNumberPlayers(); i++) {
+					Player player = game.getPlayerById(i);
+					if (!player.hasIncomeFinished()) {
+						for (String[] message : BotMoves.getIncome(player, this.getPolicy(player), this.random)) {
+							this.send(message);
+						}
+					}
+				}
+			} else {
+				Player active = BotMoves.getActivePlayer(game);
+				if (active == null) {
+					this.aborted = true;
+				}
+				return active;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param player the player on turn
+	 * @return the actions of the player supported by computer players, see
+	 *         {@link BotMoves#getActions}
+	 */
+	public ArrayList<UserInputOverwrite> getActions(Player player) {
+		return BotMoves.getActions(player, this.getPolicy(player), this.random, this.generator, this.moves);
+	}
+
+	/**
+	 * Play an action of the player on turn
+	 *
+	 * @param player the player on turn
+	 * @param action one of the actions of {@link #getActions(Player)}
+	 */
+	public void apply(Player player, UserInputOverwrite action) {
+		for (String[] message : BotMoves.getTurn(this.getGame(), player, action)) {
+			this.send(message);
+		}
+	}
+
+	private void draft(DraftModes mode) {
+		Game game = this.getGame();
+		this.send(CommunicationKeys.GAME_DRAFT, new UserInputOverwrite(game.getPlayerById(0),
+				CommunicationKeys.VALUE_START_DRAFT, "" + mode.ordinal(),
+				"" + game.getRandom().nextInt(this.policies.length, "starting-player")).getCode());
+		DraftHelper draft = game.getDraft();
+		for (int i = 0; i < this.policies.length; i++) {
+			Player player = game.getPlayerById(i);
+			ArrayList<Tappable> mages = draft.getMageChoices(i);
+			Tappable mage = mages.get(this.getPolicy(player).chooseCard(player, mages, this.random));
+			this.send(CommunicationKeys.GAME_DRAFT, new UserInputOverwrite(mage, i, i).getCode());
+		}
+		int next;
+		while ((next = draft.getNextItemPlayer()) >= 0) {
+			Player player = game.getPlayerById(next);
+			ArrayList<Tappable> items = draft.getItemChoices();
+			Tappable item = items.get(this.getPolicy(player).chooseCard(player, items, this.random));
+			this.send(CommunicationKeys.GAME_DRAFT, new UserInputOverwrite(item, next, next).getCode());
+		}
+		if (!draft.isFinished()) {
+			throw new IllegalStateException("Draft mode " + mode + " can not be simulated");
+		}
+	}
+
+	private BotPolicy getPolicy(Player player) {
+		return this.policies[player.getId()];
+	}
+
+	private void send(String[] message) {
+		this.send(message[0], message[1]);
+	}
+
+	/**
+	 * Send a message to this game and process it with all messages it triggers
+	 */
+	private void send(String action, String value) {
+		this.pending.add(new String[] { action, value });
+		String[] message;
+		while ((message = this.pending.poll()) != null) {
+			this.processMessage(message[0], message[1]);
+		}
+	}
+
+	/**
+	 * @return the policies of all seats, indexed by player id
+	 */
+	public BotPolicy[] getPolicies() {
+		return this.policies;
+	}
+
+	/**
+	 * @return the number of turns played by all players together
+	 */
+	public int getTurns() {
+		return this.turns;
+	}
+
+	/**
+	 * @return <code>true</code> if the game has been stopped before it was won
+	 */
+	public boolean isAborted() {
+		return this.aborted;
+	}
+
+	/**
+	 * @return the statistics of the last turn or of the end of the game
+	 */
+	public ArrayList<StatisticsElement> getLastStatistics() {
+		return this.lastStatistics;
+	}
+
+	/**
+	 * Queue a message sent by the game to all clients, unless replaying
+	 */
+	private void inform(String action, String value) {
+		if (!this.replaying) {
+			this.pending.add(new String[] { action, value });
+		}
+	}
+
+	@Override
+	public void informAllClients_Action(UserInputOverwrite action) {
+		this.inform(CommunicationKeys.GAME_ACTION, action.getCode());
+	}
+
+	@Override
+	public void informAllClients_Shuffle(String shuffle) {
+		this.inform(CommunicationKeys.GAME_SHUFFLE, shuffle);
+	}
+
+	@Override
+	public void informAllClients_Draft(String draft) {
+		this.inform(CommunicationKeys.GAME_DRAFT, draft);
+	}
+
+	@Override
+	public void informAllClients_DealCards() {
+		this.inform(CommunicationKeys.GAME_DEAL_CARDS, "-1");
+	}
+
+	@Override
+	public void informAllClients_NextRound() {
+		this.inform(CommunicationKeys.GAME_NEXT_ROUND, "-1");
+	}
+
+	@Override
+	public void informAllClients_VoteNextRound() {
+		// All computer players are ready for the next round right away
+		for (int i = 0; i < this.policies.length; i++) {
+			this.inform(CommunicationKeys.GAME_VOTE_NEXT_ROUND, "" + i);
+		}
+	}
+
+	@Override
+	public void informAllClients_Attack(UserInputOverwrite action) {
+		this.inform(CommunicationKeys.GAME_ATTACK, action.getCode());
+	}
+
+	@Override
+	public void informAllClients_Control(UserInputOverwrite control) {
+		this.inform(CommunicationKeys.GAME_CONTROL, control.getCode());
+	}
+
+	@Override
+	public void addHistory(HistoryElement elem) {
+		// The history is not needed for the results
+	}
+
+	@Override
+	public void addStatistics(ArrayList<StatisticsElement> stats) {
+		if (!this.getGame().hasGameFinished()) {
+			this.turns++;
+		}
+		this.lastStatistics = stats;
+	}
+}
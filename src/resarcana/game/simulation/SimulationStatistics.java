@@ -0,0 +1,139 @@
+package resarcana.game.simulation;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import resarcana.game.core.Game;
+import resarcana.game.core.Player;
+import resarcana.game.core.Tappable;
+
+/**
+ * Results of many {@link SimulatedGame}s, collected from all simulation threads
+ * at once
+ * <p>
+ * For every card and every policy the number of players having it and the
+ * number of those players winning their game are counted. A card is counted
+ * for a player if it is in play, in hand, in the deck or in the discard pile at
+ * the end of the game.
+ * <p>
+ * The rates only describe the play of computer players, which never use
+ * abilities needing input, so cards relying on such abilities are rated too
+ * low.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class SimulationStatistics {
+
+	private final ConcurrentHashMap<String, LongAdder[]> cards = new ConcurrentHashMap<String, LongAdder[]>();
+	private final ConcurrentHashMap<String, LongAdder[]> policies = new ConcurrentHashMap<String, LongAdder[]>();
+
+	private final LongAdder games = new LongAdder();
+	private final LongAdder aborted = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder rounds = new LongAdder();
+	private final LongAdder turns = new LongAdder();
+
+	/**
+	 * Add a played game
+	 *
+	 * @param simulation the game after {@link SimulatedGame#play} returned
+	 */
+	public void record(SimulatedGame simulation) {
+		this.games.increment();
+		if (simulation.isAborted() || simulation.getWinner() == null) {
+			this.aborted.increment();
+			return;
+		}
+		this.rounds.add(simulation.getRounds());
+		this.turns.add(simulation.getTurns());
+		Game game = simulation.getGame();
+		Player winner = simulation.getWinner();
+		for (int i = 0; i < simulation.getPolicies().length; i++) {
+			Player player = game.getPlayerById(i);
+			boolean won = player == winner;
+			count(this.policies, simulation.getPolicies()[i].getName(), won);
+			HashSet<String> names = new HashSet<String>();
+			for (Tappable tappable : player.getTappablesInPlay()) {
+				names.add(tappable.getName());
+			}
+			for (Tappable tappable : player.getHand()) {
+				names.add(tappable.getName());
+			}
+			for (Tappable tappable : player.getDeck()) {
+				names.add(tappable.getName());
+			}
+			for (Tappable tappable : player.getDiscard()) {
+				names.add(tappable.getName());
+			}
+			for (String name : names) {
+				count(this.cards, name, won);
+			}
+		}
+	}
+
+	/**
+	 * Add a game which could not be played because of an error
+	 */
+	public void recordFailure() {
+		this.games.increment();
+		this.failed.increment();
+	}
+
+	private static void count(ConcurrentHashMap<String, LongAdder[]> map, String key, boolean won) {
+		LongAdder[] counts = map.computeIfAbsent(key, k -> new LongAdder[] { new LongAdder(), new LongAdder() });
+		counts[0].increment();
+		if (won) {
+			counts[1].increment();
+		}
+	}
+
+	public long getGames() {
+		return this.games.sum();
+	}
+
+	public long getFinishedGames() {
+		return this.games.sum() - this.aborted.sum() - this.failed.sum();
+	}
+
+	/**
+	 * Print a summary and the win rates of all policies and cards, best first
+	 *
+	 * @param out the stream to print to
+	 */
+	public void print(PrintStream out) {
+		long finished = this.getFinishedGames();
+		out.println("Games: " + this.getGames() + ", finished: " + finished + ", aborted: " + this.aborted.sum()
+				+ ", failed: " + this.failed.sum());
+		if (finished > 0) {
+			out.println(String.format("Average rounds: %.2f, average turns: %.2f",
+					this.rounds.sum() / (double) finished, this.turns.sum() / (double) finished));
+		}
+		out.println();
+		out.println("Policy win rates:");
+		printRates(out, this.policies);
+		out.println();
+		out.println("Card win rates (abilities needing input are never used):");
+		printRates(out, this.cards);
+	}
+
+	private static void printRates(PrintStream out, ConcurrentHashMap<String, LongAdder[]> map) {
+		ArrayList<Map.Entry<String, LongAdder[]>> entries = new ArrayList<Map.Entry<String, LongAdder[]>>(
+				map.entrySet());
+		Collections.sort(entries, (a, b) -> Double.compare(rate(b.getValue()), rate(a.getValue())));
+		for (Map.Entry<String, LongAdder[]> entry : entries) {
+			out.println(String.format("  %-30s %6.2f%% (%d of %d)", entry.getKey(), 100 * rate(entry.getValue()),
+					entry.getValue()[1].sum(), entry.getValue()[0].sum()));
+		}
+	}
+
+	private static double rate(LongAdder[] counts) {
+		long total = counts[0].sum();
+		return total == 0 ? 0 : counts[1].sum() / (double) total;
+	}
+}
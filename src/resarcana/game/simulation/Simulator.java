@@ -0,0 +1,151 @@
+package resarcana.game.simulation;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.newdawn.slick.util.Log;
+
+import resarcana.game.Launcher;
+import resarcana.game.utils.DraftModes;
+
+/**
+ * Plays many games of computer players in parallel and prints the win rates of
+ * policies and cards, see {@link SimulationStatistics} for what they exclude
+ * <p>
+ * Arguments: number of games, number of players, number of threads, the
+ * policies of the seats as comma-separated list of <code>random</code> and
+ * <code>greedy</code> and the seed of the first game. Game <code>i</code> is
+ * played with seed <code>seed + i</code>, so the results do not depend on the
+ * number of threads.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class Simulator {
+
+	/**
+	 * Number of games played by a single task without splitting it further
+	 */
+	private static final int GAMES_PER_TASK = 16;
+
+	private final BotPolicy[] policies;
+	private final DraftModes mode;
+	private final long seed;
+	private final SimulationStatistics statistics = new SimulationStatistics();
+
+	public Simulator(BotPolicy[] policies, DraftModes mode, long seed) {
+		this.policies = policies;
+		this.mode = mode;
+		this.seed = seed;
+	}
+
+	/**
+	 * Play the given number of games
+	 *
+	 * @param games   the number of games
+	 * @param threads the number of threads to use
+	 * @return the results of all games played by this simulator so far
+	 */
+	public SimulationStatistics run(int games, int threads) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			pool.invoke(new Batch(0, games));
+		} finally {
+			pool.shutdown();
+		}
+		return this.statistics;
+	}
+
+	/**
+	 * Play a single game and record its result
+	 *
+	 * @param index the index of the game, determines its seed
+	 */
+	public void playGame(int index) {
+		SimulatedGame game = new SimulatedGame(this.policies, this.seed + index);
+		try {
+			game.play(this.mode);
+		} catch (RuntimeException e) {
+			Log.error("Simulated game " + index + " failed: " + e);
+			this.statistics.recordFailure();
+			return;
+		}
+		this.statistics.record(game);
+	}
+
+	public SimulationStatistics getStatistics() {
+		return this.statistics;
+	}
+
+	/**
+	 * The games with index in <code>[from, to)</code>, split in halves until small
+	 * enough
+	 */
+	private class Batch extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from, to;
+
+		private Batch(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= GAMES_PER_TASK) {
+				for (int i = this.from; i < this.to; i++) {
+					playGame(i);
+				}
+			} else {
+				int middle = (this.from + this.to) >>> 1;
+				invokeAll(new Batch(this.from, middle), new Batch(middle, this.to));
+			}
+		}
+	}
+
+	private static BotPolicy parsePolicy(String name) {
+		if (name.equalsIgnoreCase("greedy")) {
+			return new GreedyPolicy();
+		} else if (name.equalsIgnoreCase("random")) {
+			return new RandomPolicy();
+		}
+		throw new IllegalArgumentException("Unknown policy: " + name);
+	}
+
+	public static void main(String[] args) {
+		int games = 1000;
+		int players = 2;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String[] names = { "greedy", "random" };
+		long seed = System.nanoTime();
+		if (args.length >= 1) {
+			games = Integer.parseInt(args[0]);
+		}
+		if (args.length >= 2) {
+			players = Integer.parseInt(args[1]);
+		}
+		if (args.length >= 3) {
+			threads = Integer.parseInt(args[2]);
+		}
+		if (args.length >= 4) {
+			names = args[3].split(",");
+		}
+		if (args.length >= 5) {
+			seed = Long.parseLong(args[4]);
+		}
+		BotPolicy[] policies = new BotPolicy[players];
+		for (int i = 0; i < players; i++) {
+			policies[i] = parsePolicy(names[i % names.length]);
+		}
+		Launcher.loadConfig();
+		Log.setVerbose(false);
+		System.out.println("Simulating " + games + " games of " + players + " players on " + threads
+				+ " threads, seed " + seed);
+		long start = System.currentTimeMillis();
+		SimulationStatistics statistics = new Simulator(policies, DraftModes.RANDOM, seed).run(games, threads);
+		System.out.println("Done after " + (System.currentTimeMillis() - start) + " ms");
+		statistics.print(System.out);
+	}
+}
@@ -1,7 +1,6 @@
 package resarcana.game.utils;
 
 import java.util.ArrayList;
-import java.util.Collections;
 
 import org.newdawn.slick.util.Log;
 
@@ -98,11 +97,25 @@ public class DraftHelper implements Selecting {
 	 * Setting for the draft, see {@link #startDraft(int, int, int, int, int)}
 	 */
 	private int startPlayer, cardsDeck, cardsRemove, cardsRemain, cardsPerChoice;
+	/**
+	 * The number of artifacts in every choice at the start of the current draft
+	 * round
+	 */
+	private int choiceSize = 0;
 	/**
 	 * <code>true</code> if all artifacts, mages and items have been picked by all
 	 * players and the decks have been shuffled
 	 */
 	private boolean finished = false;
+	/**
+	 * <code>true</code> as soon as the decks have been shuffled and the mages are
+	 * chosen
+	 */
+	private boolean shuffled = false;
+	/**
+	 * The mode of the running draft, <code>null</code> before it is started
+	 */
+	private DraftModes mode = null;
 
 	/**
 	 * Creates a draft helper. The draft is started with {@link #startDraft}
@@ -179,12 +192,15 @@ public class DraftHelper implements Selecting {
 				return;
 			}
 			this.startPlayer = startPlayer;
+			this.mode = mode;
 			this.cardsDeck = mode.deck;
 			this.cardsRemove = mode.remove;
 			this.cardsRemain = mode.remain;
 			this.cardsPerChoice = mode.round;
 
-			this.parent.getGameClient().getDeckViewer().resize(this.cardsDeck, 1);
+			if (this.hasDeckViewer()) {
+				this.parent.getGameClient().getDeckViewer().resize(this.cardsDeck, 1);
+			}
 
 			this.cardsPicked = new ArrayList<ArrayList<Artifact>>();
 			this.choices = new ArrayList<ArrayList<Tappable>>();
@@ -199,7 +215,7 @@ public class DraftHelper implements Selecting {
 				for (int i = 0; i < this.cardsDeck; i++) {
 					for (int j = 0; j < this.numberPlayers; j++) {
 						this.cardsPicked.get(j).add((Artifact) this.artifacts.get(i * this.numberPlayers + j));
-						if (this.activePlayer == j) {
+						if (this.activePlayer == j && this.hasDeckViewer()) {
 							this.parent.getGameClient().getDeckViewer()
 									.addImage(this.artifacts.get(i * this.numberPlayers + j));
 						}
@@ -210,7 +226,9 @@ public class DraftHelper implements Selecting {
 				this.prepareChoices();
 				this.askArtifact(this.activePlayer);
 			}
-			this.parent.getGameClient().getDeckViewer().show();
+			if (this.hasDeckViewer()) {
+				this.parent.getGameClient().getDeckViewer().show();
+			}
 		} else {
 			Log.error("Draft already started!");
 		}
@@ -240,6 +258,7 @@ public class DraftHelper implements Selecting {
 				this.cardsDeck - this.cardsPicked.get(0).size());
 		// additional cards for remove/remain option per draftround
 		numCards += this.cardsRemove + this.cardsRemain;
+		this.choiceSize = numCards;
 		// Fill the new card choices
 		for (int i = 0; i < numCards; i++) {
 			for (int j = 0; j < this.numberPlayers; j++) {
@@ -291,7 +310,7 @@ public class DraftHelper implements Selecting {
 			if (this.choices.get(choice).size() <= this.numberPlayers + this.cardsRemain) {
 				Log.info("Adding " + result + " to deck of player " + player);
 				this.cardsPicked.get(player).add((Artifact) result);
-				if (this.activePlayer == player) {
+				if (this.activePlayer == player && this.hasDeckViewer()) {
 					this.parent.getGameClient().getDeckViewer().addImage(result);
 				}
 			}
@@ -321,10 +340,12 @@ public class DraftHelper implements Selecting {
 			if (player == this.startPlayer) {
 				// Finish the draft
 				this.finished = true;
-				this.parent.getGameClient().getDeckViewer().resetHighlights();
-				// Player_0 informs all clients to deal cards
-				if (this.activePlayer == 0) {
-					this.parent.getGameClient().informAllClients_DealCards();
+				if (this.hasDeckViewer()) {
+					this.parent.getGameClient().getDeckViewer().resetHighlights();
+				}
+				// Dealer informs all clients to deal cards
+				if (this.parent.isDealer()) {
+					this.parent.getHost().informAllClients_DealCards();
 				}
 			} else {
 				if (this.activePlayer == this.normalizeId(player - 1)) {
@@ -336,16 +357,16 @@ public class DraftHelper implements Selecting {
 
 	@SuppressWarnings("unchecked")
 	private void doShuffle() {
-		// Player_0 does shuffle alone and informs others about it
-		if (this.activePlayer == 0) {
+		// Dealer does shuffle alone and informs others about it
+		if (this.parent.isDealer()) {
 			String shuffles = "" + this.numberPlayers;
 			ArrayList<Artifact> buffer;
 			for (int i = 0; i < this.cardsPicked.size(); i++) {
 				buffer = (ArrayList<Artifact>) this.cardsPicked.get(i).clone();
-				Collections.shuffle(buffer);
+				this.parent.getRandom().shuffle(buffer, "draft");
 				shuffles = shuffles + CommunicationKeys.SEPERATOR_PARTS + UtilFunctions.ListToString(buffer);
 			}
-			this.parent.getGameClient().informAllClients_Shuffle(
+			this.parent.getHost().informAllClients_Shuffle(
 					CommunicationKeys.VALUE_SHUFFLE_DRAFT + CommunicationKeys.SEPERATOR_PARTS + shuffles);
 		}
 	}
@@ -379,9 +400,11 @@ public class DraftHelper implements Selecting {
 			}
 		}
 		// Mark starting hand in deck viewer
-		for (int i = 0; i < Game.START_CARDS; i++) {
-			this.parent.getGameClient().getDeckViewer().highlightElement(
-					this.cardsPicked.get(this.activePlayer).indexOf(shuffles.get(this.activePlayer).get(i)));
+		if (this.hasDeckViewer() && this.activePlayer >= 0) {
+			for (int i = 0; i < Game.START_CARDS; i++) {
+				this.parent.getGameClient().getDeckViewer().highlightElement(
+						this.cardsPicked.get(this.activePlayer).indexOf(shuffles.get(this.activePlayer).get(i)));
+			}
 		}
 		// Fill decks
 		for (int i = 0; i < this.numberPlayers; i++) {
@@ -390,13 +413,24 @@ public class DraftHelper implements Selecting {
 				this.cardsPicked.get(i).add((Artifact) shuffles.get(i).get(j));
 			}
 		}
+		this.shuffled = true;
 		this.askMages();
 	}
 
+	/**
+	 * @return Whether the draft is shown in the deck viewer of a {@link GameClient}
+	 */
+	private boolean hasDeckViewer() {
+		return !this.parent.isHeadless();
+	}
+
 	/**
 	 * Issue a selector for the next {@link Artifact} for {@link #activePlayer}
 	 */
 	private void askArtifact(int choice) {
+		if (this.activePlayer < 0) { // Observing only
+			return;
+		}
 		if (this.choices.get(choice).size() > this.cardsRemain) {
 			String message;
 			if (this.choices.get(choice).size() > this.numberPlayers + this.cardsRemain) {
@@ -414,6 +448,9 @@ public class DraftHelper implements Selecting {
 	 * Issue a selector for the {@link Mage} for {@link #activePlayer}
 	 */
 	private void askMages() {
+		if (this.activePlayer < 0) { // Observing only
+			return;
+		}
 		ArrayList<Tappable> select = new ArrayList<Tappable>();
 		select.add(this.mages.get(this.activePlayer * 2));
 		select.add(this.mages.get(this.activePlayer * 2 + 1));
@@ -426,6 +463,9 @@ public class DraftHelper implements Selecting {
 	 * Issue a selector for the {@link MagicItem} for {@link #activePlayer}
 	 */
 	private void askItem() {
+		if (this.activePlayer < 0) { // Observing only
+			return;
+		}
 		this.parent.getGameClient().addSelector(
 				new ImageSelector<Tappable>(this, this.items, "Choose your first magic item").disableCancel());
 		this.curChoice.add(this.activePlayer);
@@ -468,6 +508,90 @@ public class DraftHelper implements Selecting {
 		return this.itemChoice;
 	}
 
+	/**
+	 * @param choice the index of the choice
+	 * @return the artifacts left in the given choice of the current draft round
+	 */
+	public ArrayList<Tappable> getArtifactChoices(int choice) {
+		return new ArrayList<Tappable>(this.choices.get(choice));
+	}
+
+	/**
+	 * Every choice of artifacts starts with the player of the same id and is
+	 * passed on to the next player in the direction of the round after each pick
+	 * 
+	 * @param choice the index of the choice
+	 * @return the id of the player picking next from the given choice,
+	 *         <code>-1</code> if there is nothing left to pick from it
+	 */
+	public int getArtifactPlayer(int choice) {
+		if (this.choices == null || this.shuffled || this.choices.get(choice).size() <= this.cardsRemain) {
+			return -1;
+		}
+		return this.normalizeId(choice + this.sign * (this.choiceSize - this.choices.get(choice).size()));
+	}
+
+	/**
+	 * @param player the id of the player
+	 * @return the mages the given player chooses from
+	 */
+	public ArrayList<Tappable> getMageChoices(int player) {
+		ArrayList<Tappable> select = new ArrayList<Tappable>();
+		select.add(this.mages.get(player * 2));
+		select.add(this.mages.get(player * 2 + 1));
+		return select;
+	}
+
+	/**
+	 * @param player the id of the player
+	 * @return <code>true</code> if the given player has chosen his mage
+	 */
+	public boolean hasChosenMage(int player) {
+		return this.mageChoice != null && this.mageChoice[player] != null;
+	}
+
+	/**
+	 * @return the magic items which have not been picked yet
+	 */
+	public ArrayList<Tappable> getItemChoices() {
+		return new ArrayList<Tappable>(this.items);
+	}
+
+	/**
+	 * The magic items are picked one after another in reverse order of play,
+	 * starting with the player before the starting player
+	 * 
+	 * @return the id of the player picking the next magic item, <code>-1</code>
+	 *         if the draft has not reached the magic items or all have been picked
+	 */
+	public int getNextItemPlayer() {
+		if (this.itemChoice == null || this.finished) {
+			return -1;
+		}
+		int picked = 0;
+		for (MagicItem item : this.itemChoice) {
+			if (item != null) {
+				picked++;
+			}
+		}
+		return this.normalizeId(this.startPlayer - 1 - picked);
+	}
+
+	/**
+	 * @return the mode of the draft, <code>null</code> if it has not been started
+	 */
+	public DraftModes getMode() {
+		return this.mode;
+	}
+
+	/**
+	 * @return <code>true</code> if all artifacts have been picked and the decks
+	 *         have been shuffled, so the mages can be chosen
+	 */
+	public boolean hasShuffled() {
+		return this.shuffled;
+	}
+
 	/**
 	 * @return <code>true</code> if all artifacts, mages and items have been picked
 	 *         by all players and the decks have been shuffled
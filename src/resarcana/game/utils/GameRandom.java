@@ -0,0 +1,126 @@
+package resarcana.game.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.newdawn.slick.util.Log;
+
+/**
+ * The source of every random decision of a {@link resarcana.game.core.Game}
+ * <p>
+ * All randomness is derived from a single seed. Each kind of decision (e.g.
+ * the initial shuffles, the draft shuffle or refilling the deck of a player)
+ * draws from its own stream, which is split from the seed by the name of the
+ * decision. Thus a decision does not change if another kind of decision has
+ * been taken more or less often before, and a game is reproduced from its seed
+ * and the stream of its actions.
+ * <p>
+ * Every decision is recorded, see {@link #getRecords()}.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class GameRandom {
+
+	private final long seed;
+	private final HashMap<String, SplittableRandom> streams = new HashMap<String, SplittableRandom>();
+	private final ArrayList<String> records = new ArrayList<String>();
+
+	/**
+	 * Creates the randomness of a game from a fresh random seed
+	 */
+	public GameRandom() {
+		this(ThreadLocalRandom.current().nextLong());
+	}
+
+	public GameRandom(long seed) {
+		this.seed = seed;
+	}
+
+	public long getSeed() {
+		return this.seed;
+	}
+
+	private SplittableRandom getStream(String purpose) {
+		SplittableRandom stream = this.streams.get(purpose);
+		if (stream == null) {
+			// Mix the name into the seed, SplittableRandom scrambles the result
+			stream = new SplittableRandom(this.seed ^ (0x9E3779B97F4A7C15L * purpose.hashCode()));
+			this.streams.put(purpose, stream);
+		}
+		return stream;
+	}
+
+	private void record(String purpose, String result) {
+		String record = purpose + ": " + result;
+		Log.debug("Random " + record);
+		this.records.add(record);
+	}
+
+	/**
+	 * Shuffles the given list in place
+	 *
+	 * @param list    the list to shuffle
+	 * @param purpose the name of the decision
+	 */
+	public synchronized <T> void shuffle(List<T> list, String purpose) {
+		shuffle(list, this.getStream(purpose));
+		this.record(purpose, "shuffled " + list.size());
+	}
+
+	/**
+	 * Shuffles the given list in place by a seed of its own instead of the seed of
+	 * the game, e.g. one derived from a secret only some clients know
+	 *
+	 * @param list    the list to shuffle
+	 * @param purpose the name of the decision
+	 * @param seed    the seed of this shuffle
+	 */
+	public synchronized <T> void shuffle(List<T> list, String purpose, long seed) {
+		shuffle(list, new SplittableRandom(seed));
+		this.record(purpose, "shuffled " + list.size() + " by its own seed");
+	}
+
+	private static <T> void shuffle(List<T> list, SplittableRandom stream) {
+		for (int i = list.size() - 1; i > 0; i--) {
+			int j = stream.nextInt(i + 1);
+			list.set(j, list.set(i, list.get(j)));
+		}
+	}
+
+	/**
+	 * @param bound   the upper bound (exclusive), must be positive
+	 * @param purpose the name of the decision
+	 * @return a random number between 0 (inclusive) and <code>bound</code>
+	 *         (exclusive)
+	 */
+	public synchronized int nextInt(int bound, String purpose) {
+		int result = this.getStream(purpose).nextInt(bound);
+		this.record(purpose, result + " of " + bound);
+		return result;
+	}
+
+	/**
+	 * Splits off an independent {@link Random} for randomness outside the rules,
+	 * e.g. computer players
+	 *
+	 * @param purpose the name of the stream
+	 * @return a new random generator, the same for the same seed and name
+	 */
+	public synchronized Random split(String purpose) {
+		long split = this.getStream(purpose).nextLong();
+		this.record(purpose, "split");
+		return new Random(split);
+	}
+
+	/**
+	 * @return all decisions taken so far, in order
+	 */
+	public synchronized ArrayList<String> getRecords() {
+		return new ArrayList<String>(this.records);
+	}
+}
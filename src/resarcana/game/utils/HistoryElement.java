@@ -27,15 +27,22 @@ public class HistoryElement extends InterfaceObject implements ScalableObject, I
 	private static final Rectangle OVERLAY = new Rectangle(Vector.ZERO, Ability.ABILITY_HITBOX);
 
 	private static final float NAME_MAX_SCALE = 2.f;
-	private static final float NAME_HEIGHT = FontManager.getInstance().getLineHeight(
-			FontManager.getInstance().getFont((int) (NAME_MAX_SCALE * Parameter.GUI_STANDARD_FONT_SIZE)));
+	/**
+	 * Height of the name above the images, requested at the first
+	 * {@link #scale(float)}
+	 */
+	private static float NAME_HEIGHT = -1;
 
 	private static final float OPTIONAL_RATIO = 0.45f;
 
 	private final String mainImage, overlay;
 	private final Rectangle overlayHitbox;
 	private final String player, mainText;
-	private final float nameScale;
+	/**
+	 * Fonts are only requested when this element is displayed (first call of
+	 * {@link #scale(float)}), so history can also be created in headless games
+	 */
+	private float nameScale = -1;
 
 	private Font fontName, fontMain, font1, font2;
 
@@ -48,26 +55,16 @@ public class HistoryElement extends InterfaceObject implements ScalableObject, I
 		super(InterfaceFunctions.HISTORY_ELEMENT);
 		this.mainImage = tappable.getImage();
 		this.player = tappable.getPlayer().getName();
-		this.nameScale = CalcNameScale(this.player);
 		this.overlay = null;
 		this.overlayHitbox = null;
 		this.mainText = "";
-
-		this.fontName = FontManager.getInstance().getFont((int) (this.nameScale * Parameter.GUI_STANDARD_FONT_SIZE));
-		this.fontMain = FontManager.getInstance().getDefaultFont();
-
-		this.scale(1);
 	}
 
 	public HistoryElement(Ability ability, String player) {
 		super(InterfaceFunctions.HISTORY_ELEMENT);
 		this.player = player;
-		this.nameScale = CalcNameScale(this.player);
 		this.mainText = "";
 
-		this.fontName = FontManager.getInstance().getFont((int) (this.nameScale * Parameter.GUI_STANDARD_FONT_SIZE));
-		this.fontMain = FontManager.getInstance().getDefaultFont();
-
 		if (ability instanceof Pass) {
 			this.mainImage = "misc/item_back.png";
 			this.overlay = null;
@@ -87,8 +84,6 @@ public class HistoryElement extends InterfaceObject implements ScalableObject, I
 					.modifyCenter(ability.getRelPos().mul(HITBOX.height / ability.getTappable().getRawHitbox().height));
 		}
 		this.scaledOverlayHitbox = this.overlayHitbox;
-
-		this.scale(1);
 	}
 
 	public HistoryElement(Ability ability) {
@@ -98,22 +93,21 @@ public class HistoryElement extends InterfaceObject implements ScalableObject, I
 	public HistoryElement(String player, EssenceSelection essences) {
 		super(InterfaceFunctions.HISTORY_ELEMENT);
 		this.player = player;
-		this.nameScale = CalcNameScale(this.player);
 		this.mainImage = "misc/history_income.png";
 		this.overlay = null;
 		this.overlayHitbox = null;
 		this.scaledOverlayHitbox = this.overlayHitbox;
 		this.mainText = CreateEssenceText(essences);
-
-		this.fontName = FontManager.getInstance().getFont((int) (this.nameScale * Parameter.GUI_STANDARD_FONT_SIZE));
-		float scale = HITBOX.height * 0.8f
-				/ FontManager.getInstance().getHeight(FontManager.getInstance().getDefaultFont(), this.mainText);
-		this.fontMain = FontManager.getInstance().getFont((int) (scale * Parameter.GUI_STANDARD_FONT_SIZE));
-
-		this.scale(1);
 	}
 
 	public HistoryElement scale(float newScale) {
+		if (NAME_HEIGHT < 0) {
+			NAME_HEIGHT = FontManager.getInstance().getLineHeight(
+					FontManager.getInstance().getFont((int) (NAME_MAX_SCALE * Parameter.GUI_STANDARD_FONT_SIZE)));
+		}
+		if (this.nameScale < 0) {
+			this.nameScale = CalcNameScale(this.player);
+		}
 		float totalHeight = ((1 + OPTIONAL_RATIO + 0.05f) * HITBOX.height + NAME_HEIGHT);
 		// Calculate sub hitboxes
 		this.scaledMainHitbox = HITBOX.modifyCenter(0, HITBOX.height / 2 + NAME_HEIGHT - totalHeight / 2)
@@ -279,6 +273,9 @@ public class HistoryElement extends InterfaceObject implements ScalableObject, I
 	}
 
 	public float getNameScale() {
+		if (this.nameScale < 0) {
+			this.nameScale = CalcNameScale(this.player);
+		}
 		return this.nameScale;
 	}
 
@@ -119,6 +119,11 @@ public class DestroyAnimation implements Animation {
 				this.pointsSrcDown[i + 3 * (2 * CUT_POINTS) + 1] = 1 + (y - 1) * i / (2 * CUT_POINTS);
 			}
 
+			// Smooth warps keep the triangles of the unwarped outlines fitting,
+			// unlike the slivers along the straight sides of a warped outline
+			this.triangleVerticesUp = UtilFunctions.toIntArray(PolygonTriangulation.earcut(this.pointsSrcUp));
+			this.triangleVerticesDown = UtilFunctions.toIntArray(PolygonTriangulation.earcut(this.pointsSrcDown));
+
 			this.pointsUp = new float[len];
 			this.pointsDown = new float[len];
 		}
@@ -168,8 +173,12 @@ public class DestroyAnimation implements Animation {
 			this.pointsDown[i + 6 * CUT_POINTS + 1] = buf.getValue();
 		}
 
-		this.triangleVerticesUp = UtilFunctions.toIntArray(PolygonTriangulation.earcut(this.pointsUp));
-		this.triangleVerticesDown = UtilFunctions.toIntArray(PolygonTriangulation.earcut(this.pointsDown));
+		if (!PolygonTriangulation.fits(this.pointsUp, this.triangleVerticesUp)) {
+			this.triangleVerticesUp = UtilFunctions.toIntArray(PolygonTriangulation.earcut(this.pointsUp));
+		}
+		if (!PolygonTriangulation.fits(this.pointsDown, this.triangleVerticesDown)) {
+			this.triangleVerticesDown = UtilFunctions.toIntArray(PolygonTriangulation.earcut(this.pointsDown));
+		}
 	}
 
 	private Pair<Float, Float> warpUp(float x, float y) {
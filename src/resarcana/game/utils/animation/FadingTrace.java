@@ -1,75 +1,78 @@
 package resarcana.game.utils.animation;
 
-import org.newdawn.slick.Graphics;
-
 import resarcana.game.utils.animation.generator.ColorGenerator;
-import resarcana.graphics.utils.GraphicUtils;
-import resarcana.graphics.utils.ResourceManager;
 import resarcana.graphics.utils.Scheduler;
-import resarcana.math.Rectangle;
 import resarcana.math.Vector;
 
-public class FadingTrace extends FadingObject {
+/**
+ * Traces between two points, spawned as particles which stay where they are
+ *
+ * @author Erik Wagner
+ *
+ */
+public final class FadingTrace {
 
 	private static final float TRACE_REL_OVERLAP = 0.05f;
 	private static final float IMAGE_BASE_HEIGHT = 16;
 	private static final float TRACE_WIDTH = 12;
 
 	private static final int[] AVAILABLE_ASPECT_RATIOS = new int[] { 1, 2, 4 };
+	private static final String[] IMAGES = new String[AVAILABLE_ASPECT_RATIOS.length];
 
-	public static void scheduleImages() {
-		Scheduler.getInstance().scheduleResource("animation/trace_straight_1.png");
-		Scheduler.getInstance().scheduleResource("animation/trace_straight_2.png");
-		Scheduler.getInstance().scheduleResource("animation/trace_straight_4.png");
+	static {
+		for (int i = 0; i < AVAILABLE_ASPECT_RATIOS.length; i++) {
+			IMAGES[i] = "animation/trace_straight_" + AVAILABLE_ASPECT_RATIOS[i] + ".png";
+		}
 	}
 
-	private final String image;
-	private final Vector position;
-	private final float angle, colorOffset;
-	private final Rectangle box;
-	private final ColorGenerator color;
+	public static void scheduleImages() {
+		for (String image : IMAGES) {
+			Scheduler.getInstance().scheduleResource(image);
+		}
+	}
 
-	public FadingTrace(String image, ColorGenerator color, float colorOffset, Vector p1, Vector p2, float lifetime) {
-		super(lifetime);
-		this.color = color;
-		this.colorOffset = colorOffset;
-		this.position = p1.add(p2).div(2);
-		this.angle = (float) (p2.sub(p1).clockWiseAng(Vector.RIGHT) * 180 / Math.PI);
+	/**
+	 * Spawn a trace from one point to another, it stays where it is and fades
+	 * away
+	 *
+	 * @param particles the particles to spawn the trace in
+	 * @param image     the image of the trace, <code>null</code> for a straight
+	 *                  trace of a fitting length
+	 */
+	public static void spawn(ParticleSystem particles, String image, ColorGenerator color, float colorOffset,
+			Vector p1, Vector p2, float lifetime) {
 		float dist = p1.getDistance(p2);
-		this.box = new Rectangle(this.position, dist * (1 + TRACE_REL_OVERLAP), TRACE_WIDTH);
 		if (image == null) {
-			this.image = "animation/trace_straight_" + getAspectRatio(dist / IMAGE_BASE_HEIGHT) + ".png";
-		} else {
-			this.image = image;
+			image = IMAGES[getAspectRatio(dist / IMAGE_BASE_HEIGHT)];
+		}
+		int i = particles.spawn(image, (p1.x + p2.x) / 2, (p1.y + p2.y) / 2, 0, 0, lifetime);
+		if (i >= 0) {
+			particles.setAngle(i, (float) (-p2.sub(p1).clockWiseAng(Vector.RIGHT) * 180 / Math.PI));
+			particles.setSize(i, dist * (1 + TRACE_REL_OVERLAP), TRACE_WIDTH);
+			particles.setColor(i, color, colorOffset);
 		}
-		// Log.debug("Created trace from " + p1 + " to " + p2 + " with dist " +
-		// this.box.width + " at angle " + this.angle);
 	}
 
-	public FadingTrace(ColorGenerator color, float colorOffset, Vector p1, Vector p2, float lifetime) {
-		this(null, color, colorOffset, p1, p2, lifetime);
+	public static void spawn(ParticleSystem particles, ColorGenerator color, float colorOffset, Vector p1, Vector p2,
+			float lifetime) {
+		spawn(particles, null, color, colorOffset, p1, p2, lifetime);
 	}
 
+	/**
+	 * @return the index of the available aspect ratio closest to the given one
+	 */
 	private static int getAspectRatio(float f) {
 		int a = AVAILABLE_ASPECT_RATIOS[0], b = a;
 		for (int i = 0; i < AVAILABLE_ASPECT_RATIOS.length; i++) {
 			b = AVAILABLE_ASPECT_RATIOS[i];
 			if (f < b) {
-				return (b - f) < (f - a) ? b : a;
+				return (b - f) < (f - a) ? i : Math.max(0, i - 1);
 			}
 			a = b;
 		}
-		return b;
+		return AVAILABLE_ASPECT_RATIOS.length - 1;
 	}
 
-	@Override
-	public void draw(Graphics g) {
-		if (this.isAlive()) {
-			g.pushTransform();
-			g.rotate(this.position.x, this.position.y, -this.angle);
-			GraphicUtils.drawImage(g, this.box, ResourceManager.getInstance().getImage(this.image),
-					this.color.getColor(this.getLifePortionRemaining(), this.colorOffset));
-			g.popTransform();
-		}
+	private FadingTrace() {
 	}
 }
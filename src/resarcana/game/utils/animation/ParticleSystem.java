@@ -0,0 +1,303 @@
+package resarcana.game.utils.animation;
+
+import org.newdawn.slick.Color;
+import org.newdawn.slick.Graphics;
+import org.newdawn.slick.Input;
+
+import resarcana.game.utils.animation.generator.ColorGenerator;
+import resarcana.graphics.AdvancedImage;
+import resarcana.graphics.DrawablePollable;
+import resarcana.graphics.utils.ResourceManager;
+
+/**
+ * A fixed pool of particles, every property kept in an array of its own
+ * <p>
+ * A particle starts at a position and moves with a constant velocity and
+ * acceleration, both in pixels per second. Its size is scaled along its life
+ * like {@link resarcana.game.utils.animation.generator.PathFactory#modifySpeedSmooth},
+ * it may swing back and forth around its angle and its color changes linearly
+ * from the color at its birth to the one at its death. Particles are spawned
+ * into the first free slot and a dead particle is replaced by the last one, so
+ * neither spawning nor dying allocates anything. If the pool is full, new
+ * particles are dropped.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class ParticleSystem implements DrawablePollable {
+
+	public static final int DEFAULT_CAPACITY = 512;
+	public static final float DEFAULT_SIZE = 64;
+
+	private final int capacity;
+	private int size = 0;
+
+	private final String[] image;
+	private final float[] x, y, vx, vy, ax, ay;
+	private final float[] age, lifetime;
+	private final float[] width, height;
+	// The scale is a cubic polynomial of the progress
+	private final float[] scale0, scale1, scale2, scale3;
+	private final float[] angle, swing, swings;
+	// The color at birth and the change until death
+	private final float[] red, green, blue, alpha, redChange, greenChange, blueChange, alphaChange;
+
+	public ParticleSystem() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public ParticleSystem(int capacity) {
+		this.capacity = capacity;
+		this.image = new String[capacity];
+		this.x = new float[capacity];
+		this.y = new float[capacity];
+		this.vx = new float[capacity];
+		this.vy = new float[capacity];
+		this.ax = new float[capacity];
+		this.ay = new float[capacity];
+		this.age = new float[capacity];
+		this.lifetime = new float[capacity];
+		this.width = new float[capacity];
+		this.height = new float[capacity];
+		this.scale0 = new float[capacity];
+		this.scale1 = new float[capacity];
+		this.scale2 = new float[capacity];
+		this.scale3 = new float[capacity];
+		this.angle = new float[capacity];
+		this.swing = new float[capacity];
+		this.swings = new float[capacity];
+		this.red = new float[capacity];
+		this.green = new float[capacity];
+		this.blue = new float[capacity];
+		this.alpha = new float[capacity];
+		this.redChange = new float[capacity];
+		this.greenChange = new float[capacity];
+		this.blueChange = new float[capacity];
+		this.alphaChange = new float[capacity];
+	}
+
+	/**
+	 * Spawn a new particle of {@link #DEFAULT_SIZE}, neither scaled nor rotated
+	 * and plain white
+	 *
+	 * @param image    the resource of the image of the particle
+	 * @param x        the horizontal start position
+	 * @param y        the vertical start position
+	 * @param vx       the horizontal velocity in pixels per second
+	 * @param vy       the vertical velocity in pixels per second
+	 * @param lifetime the life time in seconds
+	 * @return the index of the new particle to change its other properties, -1 if
+	 *         the pool is full
+	 */
+	public int spawn(String image, float x, float y, float vx, float vy, float lifetime) {
+		if (this.size == this.capacity) {
+			return -1;
+		}
+		int i = this.size++;
+		this.image[i] = image;
+		this.x[i] = x;
+		this.y[i] = y;
+		this.vx[i] = vx;
+		this.vy[i] = vy;
+		this.ax[i] = 0;
+		this.ay[i] = 0;
+		this.age[i] = 0;
+		this.lifetime[i] = lifetime;
+		this.width[i] = DEFAULT_SIZE;
+		this.height[i] = DEFAULT_SIZE;
+		this.setScale(i, 1, 1);
+		this.setAngle(i, 0);
+		this.red[i] = 1;
+		this.green[i] = 1;
+		this.blue[i] = 1;
+		this.alpha[i] = 1;
+		this.redChange[i] = 0;
+		this.greenChange[i] = 0;
+		this.blueChange[i] = 0;
+		this.alphaChange[i] = 0;
+		return i;
+	}
+
+	/**
+	 * @param i  the index of the particle
+	 * @param ax the horizontal acceleration in pixels per second squared
+	 * @param ay the vertical acceleration in pixels per second squared
+	 */
+	public void setAcceleration(int i, float ax, float ay) {
+		this.ax[i] = ax;
+		this.ay[i] = ay;
+	}
+
+	/**
+	 * @param i      the index of the particle
+	 * @param width  the unscaled width
+	 * @param height the unscaled height
+	 */
+	public void setSize(int i, float width, float height) {
+		this.width[i] = width;
+		this.height[i] = height;
+	}
+
+	/**
+	 * Scale the particle linearly along its life
+	 *
+	 * @param i     the index of the particle
+	 * @param start the scale at birth
+	 * @param end   the scale at death
+	 */
+	public void setScale(int i, float start, float end) {
+		this.setScale(i, start, end, 1, 1);
+	}
+
+	/**
+	 * Scale the particle smoothly along its life, starting and ending with the
+	 * given speeds relative to a linear change
+	 *
+	 * @param i          the index of the particle
+	 * @param start      the scale at birth
+	 * @param end        the scale at death
+	 * @param startSpeed the relative speed of change at birth
+	 * @param endSpeed   the relative speed of change at death
+	 */
+	public void setScale(int i, float start, float end, float startSpeed, float endSpeed) {
+		float diff = end - start;
+		this.scale0[i] = start;
+		this.scale1[i] = diff * startSpeed;
+		this.scale2[i] = diff * (3 - 2 * startSpeed - endSpeed);
+		this.scale3[i] = diff * (-2 + startSpeed + endSpeed);
+	}
+
+	/**
+	 * @param i     the index of the particle
+	 * @param angle the fixed angle in degrees
+	 */
+	public void setAngle(int i, float angle) {
+		this.angle[i] = angle;
+		this.swing[i] = 0;
+		this.swings[i] = 0;
+	}
+
+	/**
+	 * Turn the particle back and forth between two angles along its life
+	 *
+	 * @param i     the index of the particle
+	 * @param start the angle at birth in degrees
+	 * @param end   the other angle in degrees
+	 * @param times how often the particle turns from one angle to the other
+	 */
+	public void setSwing(int i, float start, float end, int times) {
+		this.angle[i] = start;
+		this.swing[i] = end - start;
+		this.swings[i] = times;
+	}
+
+	/**
+	 * Color the particle like the generator does, the generator has to change
+	 * the color linearly with its parameter
+	 *
+	 * @param i      the index of the particle
+	 * @param color  the generator of the color
+	 * @param offset the offset to use for the color generation
+	 */
+	public void setColor(int i, ColorGenerator color, float offset) {
+		Color birth = color.getColor(1, offset), death = color.getColor(0, offset);
+		this.red[i] = birth.r;
+		this.green[i] = birth.g;
+		this.blue[i] = birth.b;
+		this.alpha[i] = birth.a;
+		this.redChange[i] = death.r - birth.r;
+		this.greenChange[i] = death.g - birth.g;
+		this.blueChange[i] = death.b - birth.b;
+		this.alphaChange[i] = death.a - birth.a;
+	}
+
+	public int getNumberOfParticles() {
+		return this.size;
+	}
+
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.image[i] = null;
+		}
+		this.size = 0;
+	}
+
+	@Override
+	public void poll(Input input, float secounds) {
+		int i = 0;
+		while (i < this.size) {
+			this.age[i] += secounds;
+			if (this.age[i] < this.lifetime[i]) {
+				i++;
+			} else {
+				// The last particle takes the place of the dead one and gets aged next
+				this.size--;
+				this.move(this.size, i);
+				this.image[this.size] = null;
+			}
+		}
+	}
+
+	private void move(int from, int to) {
+		this.image[to] = this.image[from];
+		this.x[to] = this.x[from];
+		this.y[to] = this.y[from];
+		this.vx[to] = this.vx[from];
+		this.vy[to] = this.vy[from];
+		this.ax[to] = this.ax[from];
+		this.ay[to] = this.ay[from];
+		this.age[to] = this.age[from];
+		this.lifetime[to] = this.lifetime[from];
+		this.width[to] = this.width[from];
+		this.height[to] = this.height[from];
+		this.scale0[to] = this.scale0[from];
+		this.scale1[to] = this.scale1[from];
+		this.scale2[to] = this.scale2[from];
+		this.scale3[to] = this.scale3[from];
+		this.angle[to] = this.angle[from];
+		this.swing[to] = this.swing[from];
+		this.swings[to] = this.swings[from];
+		this.red[to] = this.red[from];
+		this.green[to] = this.green[from];
+		this.blue[to] = this.blue[from];
+		this.alpha[to] = this.alpha[from];
+		this.redChange[to] = this.redChange[from];
+		this.greenChange[to] = this.greenChange[from];
+		this.blueChange[to] = this.blueChange[from];
+		this.alphaChange[to] = this.alphaChange[from];
+	}
+
+	@Override
+	public void draw(Graphics g) {
+		if (this.size == 0) {
+			return;
+		}
+		String name = null;
+		AdvancedImage image = null;
+		for (int i = 0; i < this.size; i++) {
+			if (this.image[i] != name) {
+				name = this.image[i];
+				image = ResourceManager.getInstance().getImage(name);
+			}
+			float t = this.age[i], p = t / this.lifetime[i];
+			float scale = this.scale0[i] + p * (this.scale1[i] + p * (this.scale2[i] + p * this.scale3[i]));
+			float angle = this.angle[i];
+			if (this.swings[i] > 0) {
+				float swing = p * this.swings[i];
+				int n = (int) swing;
+				swing -= n;
+				angle += this.swing[i] * (n % 2 == 1 ? 1 - swing : swing);
+			}
+			image.drawRotated(this.x[i] + t * (this.vx[i] + 0.5f * t * this.ax[i]),
+					this.y[i] + t * (this.vy[i] + 0.5f * t * this.ay[i]), this.width[i] * scale,
+					this.height[i] * scale, angle, this.red[i] + p * this.redChange[i],
+					this.green[i] + p * this.greenChange[i], this.blue[i] + p * this.blueChange[i],
+					this.alpha[i] + p * this.alphaChange[i]);
+		}
+		g.getColor().bind();
+	}
+}
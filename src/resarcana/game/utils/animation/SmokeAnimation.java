@@ -9,7 +9,6 @@ import org.newdawn.slick.util.Log;
 
 import resarcana.game.utils.animation.generator.ColorGenerator;
 import resarcana.game.utils.animation.generator.FadingGenerator;
-import resarcana.game.utils.animation.generator.PathFactory;
 import resarcana.game.utils.animation.generator.PathGenerator;
 import resarcana.math.Rectangle;
 import resarcana.math.Vector;
@@ -89,15 +88,21 @@ public class SmokeAnimation extends FadingGenerator implements Animation, ColorG
 	public void poll(Input input, float secounds) {
 		if (this.isRunning()) {
 			this.amountLeft += secounds * this.smokeCount / this.pathTime;
+			ParticleSystem particles = this.getTracer().getParticles();
 			Vector position;
 			while (this.amountLeft > 0) {
 				this.amountLeft--;
 				position = this.path.getPosition(this.progress).add((this.random.nextFloat() - 0.5f) * this.deviation,
 						(this.random.nextFloat() - 0.5f) * this.deviation);
-				this.getTracer()
-						.add(new Particle(this.image, this.random.nextInt(360), this, this.nextOffset(),
-								PathFactory.modifySpeedSmooth(PathFactory.getScalingPath(position, 0.5f, 3.5f), 1, 3),
-								this.smokeTime * (1.75f * this.random.nextFloat() + 0.25f)).changeHitbox(this.smokeHitbox));
+				int angle = this.random.nextInt(360);
+				int i = particles.spawn(this.image, position.x, position.y, 0, 0,
+						this.smokeTime * (1.75f * this.random.nextFloat() + 0.25f));
+				if (i >= 0) {
+					particles.setAngle(i, angle);
+					particles.setSize(i, this.smokeHitbox.width, this.smokeHitbox.height);
+					particles.setScale(i, 0.5f, 3.5f, 1, 3);
+					particles.setColor(i, this, this.nextOffset());
+				}
 			}
 			this.progress += secounds / this.pathTime;
 		}
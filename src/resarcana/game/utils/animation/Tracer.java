@@ -12,6 +12,7 @@ import resarcana.graphics.DrawablePollable;
 public class Tracer implements DrawablePollable {
 
 	private ArrayList<FadingObject> fadings = new ArrayList<FadingObject>();
+	private final ParticleSystem particles = new ParticleSystem();
 	private ArrayList<FadingGenerator> generators = new ArrayList<FadingGenerator>();
 
 	private boolean generating = false;
@@ -38,6 +39,7 @@ public class Tracer implements DrawablePollable {
 		for (FadingObject fading : this.fadings) {
 			fading.draw(g);
 		}
+		this.particles.draw(g);
 	}
 
 	@Override
@@ -45,14 +47,17 @@ public class Tracer implements DrawablePollable {
 		for (FadingObject fading : this.fadings) {
 			fading.poll(input, secounds);
 		}
-		int i = 0;
-		while (i < this.fadings.size()) {
-			if (this.fadings.get(i).isAlive()) {
-				i++;
-			} else {
-				this.fadings.remove(i);
+		// Move the living ones to the front in one pass instead of removing every
+		// dead one on its own
+		int alive = 0;
+		for (int i = 0; i < this.fadings.size(); i++) {
+			FadingObject fading = this.fadings.get(i);
+			if (fading.isAlive()) {
+				this.fadings.set(alive++, fading);
 			}
 		}
+		this.fadings.subList(alive, this.fadings.size()).clear();
+		this.particles.poll(input, secounds);
 		if (this.isGenerating()) {
 			for (FadingGenerator gen : this.generators) {
 				gen.poll(input, secounds);
@@ -64,6 +69,14 @@ public class Tracer implements DrawablePollable {
 		this.fadings.add(trace);
 	}
 
+	/**
+	 * @return the particles of this tracer, generators spawn their particles in
+	 *         here
+	 */
+	public ParticleSystem getParticles() {
+		return this.particles;
+	}
+
 	public void add(FadingGenerator fadingGenerator) {
 		if (!this.generators.contains(fadingGenerator)) {
 			this.generators.add(fadingGenerator);
@@ -33,8 +33,8 @@ public class MouseTraceGenerator extends FadingGenerator {
 					this.last = next;
 				} else {
 					if (next.getDistance(this.last) > MIN_DISTANCE) {
-						this.getTracer()
-								.add(new FadingTrace(this.gen, this.gen.nextOffset(), this.last, next, this.lifetime));
+						FadingTrace.spawn(this.getTracer().getParticles(), this.gen, this.gen.nextOffset(), this.last,
+								next, this.lifetime);
 						this.last = next;
 						this.cur = 0;
 					}
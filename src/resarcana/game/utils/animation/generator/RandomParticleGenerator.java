@@ -4,7 +4,7 @@ import java.util.Random;
 
 import org.newdawn.slick.Input;
 
-import resarcana.game.utils.animation.Particle;
+import resarcana.game.utils.animation.ParticleSystem;
 import resarcana.math.Rectangle;
 import resarcana.math.Vector;
 
@@ -35,20 +35,25 @@ public class RandomParticleGenerator extends FadingGenerator {
 	public void poll(Input input, float secounds) {
 		if (this.hasTracer()) {
 			this.amountLeft += secounds * this.density;
-			Vector position;
+			ParticleSystem particles = this.getTracer().getParticles();
+			Vector position, velocity;
 			while (this.amountLeft > 0) {
 				this.amountLeft--;
 				position = this.box.getPositionAtOutline(this.random.nextFloat());
-				this.getTracer()
-						.add(new Particle("misc/particle_star.png", this.random.nextInt(72), this.color,
-								this.color.nextOffset(),
-								PathFactory.getBalisitcPath(position, position.sub(this.center)
-										.rotate((float) ((this.random.nextFloat() - 0.5f) * Math.PI * DEVIATION_PART))
-										.getDirection()
-										.mul(this.velocity
-												* (this.random.nextFloat() * 2 * DEVIATION_PART + 1 - DEVIATION_PART)),
-										(this.random.nextFloat() * 2 * DEVIATION_PART + 1 - DEVIATION_PART) * this.lifetime),
-								(this.random.nextFloat() * 2 * DEVIATION_PART + 1 - DEVIATION_PART) * this.lifetime));
+				int angle = this.random.nextInt(72);
+				float offset = this.color.nextOffset();
+				velocity = position.sub(this.center)
+						.rotate((float) ((this.random.nextFloat() - 0.5f) * Math.PI * DEVIATION_PART)).getDirection()
+						.mul(this.velocity * (this.random.nextFloat() * 2 * DEVIATION_PART + 1 - DEVIATION_PART));
+				// The particle travels the velocity times this factor during its whole life
+				float velFactor = (this.random.nextFloat() * 2 * DEVIATION_PART + 1 - DEVIATION_PART) * this.lifetime;
+				float lifetime = (this.random.nextFloat() * 2 * DEVIATION_PART + 1 - DEVIATION_PART) * this.lifetime;
+				int i = particles.spawn("misc/particle_star.png", position.x, position.y,
+						velocity.x * velFactor / lifetime, velocity.y * velFactor / lifetime, lifetime);
+				if (i >= 0) {
+					particles.setAngle(i, angle);
+					particles.setColor(i, this.color, offset);
+				}
 			}
 		}
 	}
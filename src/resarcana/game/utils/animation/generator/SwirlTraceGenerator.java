@@ -72,8 +72,8 @@ public class SwirlTraceGenerator extends FadingGenerator {
 			}
 			if (this.cur > MIN_DISTANCE) {
 				Vector next = this.getPosition(this.curPos);
-				this.getTracer()
-						.add(new FadingTrace(this.color, this.curLen / this.maxLen, this.last, next, this.lifetime));
+				FadingTrace.spawn(this.getTracer().getParticles(), this.color, this.curLen / this.maxLen, this.last, next,
+						this.lifetime);
 				this.last = next;
 				this.cur = 0;
 			}
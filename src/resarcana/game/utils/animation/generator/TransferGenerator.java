@@ -5,7 +5,7 @@ import java.util.Random;
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Input;
 
-import resarcana.game.utils.animation.Particle;
+import resarcana.game.utils.animation.ParticleSystem;
 import resarcana.math.Vector;
 
 public class TransferGenerator extends FadingGenerator {
@@ -67,14 +67,21 @@ public class TransferGenerator extends FadingGenerator {
 					this.amount--;
 					int n = (this.burstQuantity > 0 ? this.burstQuantity
 							: (this.burstQuantity == 0 ? 1 : -this.burstQuantity * this.totalAmount));
+					ParticleSystem particles = this.getTracer().getParticles();
 					for (int i = 0; i < n; i++) {
-						this.getTracer().add(new Particle(this.image, 0, this.color, this.color.nextOffset(),
-								PathFactory.compositePath(PathFactory.getScalingPath(Vector.ZERO, 1, 0.75f),
-										PathFactory.getArcPathBetweenPoints(this.start.add(this.getRandomDeviation()),
-												this.end, 0, 0.2f * this.arcSign),
-										PathFactory.loopPath(PathFactory.getRotatingPath(Vector.ZERO, -10, 10), 3,
-												true)),
-								this.transferTime));
+						// Arc from the start to the end, like PathFactory.getArcPathBetweenPoints
+						Vector start = this.start.add(this.getRandomDeviation()), diff = this.end.sub(start);
+						Vector norm = diff.rotateQuarterClockwise().mul(0.2f * this.arcSign);
+						int index = particles.spawn(this.image, start.x, start.y,
+								(diff.x + 4 * norm.x) / this.transferTime, (diff.y + 4 * norm.y) / this.transferTime,
+								this.transferTime);
+						if (index >= 0) {
+							particles.setAcceleration(index, -8 * norm.x / this.transferTime / this.transferTime,
+									-8 * norm.y / this.transferTime / this.transferTime);
+							particles.setScale(index, 1, 0.75f);
+							particles.setSwing(index, -10, 10, 3);
+							particles.setColor(index, this.color, this.color.nextOffset());
+						}
 					}
 				}
 			} else {
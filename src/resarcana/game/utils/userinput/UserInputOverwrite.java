@@ -31,6 +31,9 @@ public class UserInputOverwrite {
 	public static final int SOURCE_TYPE_ABILITY = 2;
 	public static final int SOURCE_TYPE_PLAYER = 3;
 
+	private static final char PARTS = CommunicationKeys.SEPERATOR_PARTS.charAt(0);
+	private static final char VALUES = CommunicationKeys.SEPERATOR_VALUES.charAt(0);
+
 	private final String code;
 
 	private final int sourceType;
@@ -39,28 +42,45 @@ public class UserInputOverwrite {
 
 	public UserInputOverwrite(String code) {
 		this.code = code;
-		String[] split = this.code.split(CommunicationKeys.SEPERATOR_PARTS);
-		String[] split2 = split[0].split(CommunicationKeys.SEPERATOR_VALUES);
-		if (split2.length == 2) {
-			if (split2[0].equals(SOURCE_TAPPABLE)) {
+		// Read the code in place, it is parsed for every game message received
+		int end = code.indexOf(PARTS);
+		if (end < 0) {
+			end = code.length();
+		}
+		int separator = code.indexOf(VALUES);
+		if (separator >= 0 && separator < end - 1 && code.lastIndexOf(VALUES, end - 1) == separator) {
+			if (code.startsWith(SOURCE_TAPPABLE) && separator == SOURCE_TAPPABLE.length()) {
 				this.sourceType = SOURCE_TYPE_TAPPABLE;
-			} else if (split2[0].equals(SOURCE_ABILITY)) {
+			} else if (code.startsWith(SOURCE_ABILITY) && separator == SOURCE_ABILITY.length()) {
 				this.sourceType = SOURCE_TYPE_ABILITY;
-			} else if (split2[0].equals(SOURCE_PLAYER)) {
+			} else if (code.startsWith(SOURCE_PLAYER) && separator == SOURCE_PLAYER.length()) {
 				this.sourceType = SOURCE_TYPE_PLAYER;
 			} else {
-				Log.error("Invalid UserInputOverwrite source" + split2[0]);
+				Log.error("Invalid UserInputOverwrite source" + code.substring(0, separator));
 				this.sourceType = SOURCE_TYPE_ERROR;
 			}
-			this.source = split2[1];
+			this.source = code.substring(separator + 1, end);
 		} else {
 			Log.error("Invalid UserInputOverwrite code: " + code);
 			this.sourceType = SOURCE_TYPE_ERROR;
 			this.source = "";
 		}
-		this.parts = new ArrayList<String>();
-		for (int i = 1; i < split.length; i++) {
-			this.parts.add(split[i]);
+		this.parts = new ArrayList<String>(4);
+		int start = end + 1, last = 0;
+		while (start <= code.length()) {
+			int next = code.indexOf(PARTS, start);
+			if (next < 0) {
+				next = code.length();
+			}
+			this.parts.add(code.substring(start, next));
+			if (next > start) {
+				last = this.parts.size();
+			}
+			start = next + 1;
+		}
+		// Like String#split, trailing empty parts are dropped
+		while (this.parts.size() > last) {
+			this.parts.remove(this.parts.size() - 1);
 		}
 	}
 
@@ -9,11 +9,14 @@ import resarcana.game.utils.animation.generator.WarpGenerator;
 import resarcana.math.Rectangle;
 import resarcana.math.Vector;
 import resarcana.utils.Distributor;
-import resarcana.utils.PolygonTriangulation;
-import resarcana.utils.UtilFunctions;
+import resarcana.utils.TriangulationCache;
 
 public class AdvancedImage extends Image {
 
+	// Shared by all warped images, they are only drawn by the rendering thread
+	private static final TriangulationCache TRIANGULATIONS = new TriangulationCache();
+	private static float[] warpSource = new float[0], warpTarget = new float[0];
+
 	public AdvancedImage(Image other) {
 		super(other);
 	}
@@ -64,20 +67,56 @@ public class AdvancedImage extends Image {
 		GL.glTranslatef(-x1, -y1, 0);
 	}
 
+	/**
+	 * Draw the image centered at a point and rotated around it, without changing
+	 * the transformation of the graphics context
+	 *
+	 * @param angle the clockwise rotation in degrees
+	 */
+	public void drawRotated(float cx, float cy, float width, float height, float angle, float r, float g, float b,
+			float a) {
+		init();
+		GL.glColor4f(r, g, b, a);
+		texture.bind();
+
+		float rad = (float) Math.toRadians(angle);
+		float cos = (float) Math.cos(rad), sin = (float) Math.sin(rad);
+		// Half of the rotated sides of the image
+		float wx = cos * width / 2, wy = sin * width / 2;
+		float hx = -sin * height / 2, hy = cos * height / 2;
+
+		GL.glBegin(SGL.GL_QUADS);
+
+		GL.glTexCoord2f(textureOffsetX, textureOffsetY);
+		GL.glVertex3f(cx - wx - hx, cy - wy - hy, 0);
+		GL.glTexCoord2f(textureOffsetX, textureOffsetY + textureHeight);
+		GL.glVertex3f(cx - wx + hx, cy - wy + hy, 0);
+		GL.glTexCoord2f(textureOffsetX + textureWidth, textureOffsetY + textureHeight);
+		GL.glVertex3f(cx + wx + hx, cy + wy + hy, 0);
+		GL.glTexCoord2f(textureOffsetX + textureWidth, textureOffsetY);
+		GL.glVertex3f(cx + wx - hx, cy + wy - hy, 0);
+		GL.glEnd();
+	}
+
 	public void drawWarped(Rectangle unwarpedBox, WarpGenerator warper, float progress, int numPointsPerSide,
 			Color filter) {
-		float src[] = new float[numPointsPerSide * 4 * 2];
-		for (int i = 0; i < 2 * numPointsPerSide; i = i + 2) {
-			src[i] = 0 + i * 1.f / numPointsPerSide / 2;
-			src[i + 1] = 0;
-			src[i + 2 * numPointsPerSide] = 1;
-			src[i + 2 * numPointsPerSide + 1] = 0 + i * 1.f / numPointsPerSide / 2;
-			src[i + 4 * numPointsPerSide] = 1 - i * 1.f / numPointsPerSide / 2;
-			src[i + 4 * numPointsPerSide + 1] = 1;
-			src[i + 6 * numPointsPerSide] = 0;
-			src[i + 6 * numPointsPerSide + 1] = 1 - i * 1.f / numPointsPerSide / 2;
+		float src[] = warpSource;
+		if (src.length != numPointsPerSide * 4 * 2) {
+			src = new float[numPointsPerSide * 4 * 2];
+			for (int i = 0; i < 2 * numPointsPerSide; i = i + 2) {
+				src[i] = 0 + i * 1.f / numPointsPerSide / 2;
+				src[i + 1] = 0;
+				src[i + 2 * numPointsPerSide] = 1;
+				src[i + 2 * numPointsPerSide + 1] = 0 + i * 1.f / numPointsPerSide / 2;
+				src[i + 4 * numPointsPerSide] = 1 - i * 1.f / numPointsPerSide / 2;
+				src[i + 4 * numPointsPerSide + 1] = 1;
+				src[i + 6 * numPointsPerSide] = 0;
+				src[i + 6 * numPointsPerSide + 1] = 1 - i * 1.f / numPointsPerSide / 2;
+			}
+			warpSource = src;
+			warpTarget = new float[src.length];
 		}
-		float warp[] = new float[src.length];
+		float warp[] = warpTarget;
 		Vector vec;
 		for (int i = 0; i < src.length; i = i + 2) {
 			vec = warper.warpPoint(new Vector(src[i], src[i + 1]), progress);
@@ -90,8 +129,8 @@ public class AdvancedImage extends Image {
 			this.drawStar(unwarpedBox.x + unwarpedBox.width * starC.x, unwarpedBox.y + unwarpedBox.height * starC.y,
 					starC.x, starC.y, warp, src, filter);
 		} else {
-			this.drawAsTriangulatedPolygon(warp, src, UtilFunctions.toIntArray(PolygonTriangulation.earcut(warp)),
-					filter);
+			this.drawAsTriangulatedPolygon(warp, src,
+					TRIANGULATIONS.getTriangles(warper.getClass(), numPointsPerSide, src, warp), filter);
 		}
 	}
 
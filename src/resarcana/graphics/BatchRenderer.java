@@ -0,0 +1,457 @@
+package resarcana.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.newdawn.slick.opengl.renderer.ImmediateModeOGLRenderer;
+import org.newdawn.slick.opengl.renderer.Renderer;
+
+/**
+ * A renderer for Slick2D collecting all textured triangles and quads into a
+ * single vertex array, which is drawn at once whenever the texture or any
+ * other state of OpenGL changes
+ * <p>
+ * Slick2D draws everything through its {@link Renderer}, so images, shapes and
+ * text drawn with the {@link org.newdawn.slick.Graphics} of Slick2D as well as
+ * the warped images of {@link AdvancedImage} end up here without any change.
+ * Quads, triangle fans and strips are turned into triangles. Every image drawn
+ * translates the model view matrix to its position and back, those
+ * translations are applied to the vertices instead, so they do not end the
+ * batch. Only rotating, scaling and saving the matrix apply them to OpenGL.
+ * Lines, points and display lists are drawn directly as before.
+ * <p>
+ * Has to be installed by {@link #install()} before any image, color or
+ * graphics of Slick2D is created, as they keep the renderer present then.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class BatchRenderer extends ImmediateModeOGLRenderer {
+
+	/**
+	 * The maximum number of vertices drawn at once
+	 */
+	private static final int MAX_VERTICES = 6 * 2048;
+	/**
+	 * Floats per vertex: position, texture coordinates and color
+	 */
+	private static final int FLOATS = 8;
+	private static final int STRIDE = 4 * FLOATS;
+	private static final int NONE = -1;
+
+	/**
+	 * Install a new batch renderer as renderer of Slick2D
+	 */
+	public static void install() {
+		Renderer.setRenderer(new BatchRenderer());
+		// The line strip renderer keeps the renderer it has been created with
+		Renderer.setLineStripRenderer(Renderer.DEFAULT_LINE_STRIP_RENDERER);
+	}
+
+	private final float[] vertices = new float[MAX_VERTICES * FLOATS];
+	private final FloatBuffer buffer = BufferUtils.createFloatBuffer(MAX_VERTICES * FLOATS);
+	private int count = 0;
+
+	// The primitive begun and whether it is batched or drawn directly
+	private int mode = NONE;
+	private boolean batched = false;
+	// The vertices of the primitive kept to build its triangles
+	private final float[] primitive = new float[4 * FLOATS];
+	private int primitiveVertices = 0;
+
+	private final float[] color = { 1, 1, 1, 1 };
+	private float texX = 0, texY = 0;
+	// Translation not applied to the model view matrix yet
+	private float offsetX = 0, offsetY = 0;
+	// Nesting of display lists being compiled, all calls go to OpenGL meanwhile
+	private int lists = 0;
+
+	@Override
+	public void initDisplay(int width, int height) {
+		super.initDisplay(width, height);
+		GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+		GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+		GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+	}
+
+	/**
+	 * Draw all collected triangles
+	 */
+	private void flushBatch() {
+		if (this.count == 0) {
+			return;
+		}
+		this.buffer.clear();
+		this.buffer.put(this.vertices, 0, this.count * FLOATS);
+		this.buffer.position(0);
+		GL11.glVertexPointer(2, STRIDE, this.buffer);
+		this.buffer.position(2);
+		GL11.glTexCoordPointer(2, STRIDE, this.buffer);
+		this.buffer.position(4);
+		GL11.glColorPointer(4, STRIDE, this.buffer);
+		GL11.glDrawArrays(GL11.GL_TRIANGLES, 0, this.count);
+		this.count = 0;
+		// The current color is undefined after drawing with a color array
+		GL11.glColor4f(this.color[0], this.color[1], this.color[2], this.color[3]);
+	}
+
+	/**
+	 * Draw all collected triangles and apply the pending translation, before
+	 * anything depending on the model view matrix
+	 */
+	private void sync() {
+		this.flushBatch();
+		if (this.offsetX != 0 || this.offsetY != 0) {
+			super.glTranslatef(this.offsetX, this.offsetY, 0);
+			this.offsetX = 0;
+			this.offsetY = 0;
+		}
+	}
+
+	private void emit(float[] source, int index) {
+		System.arraycopy(source, index * FLOATS, this.vertices, this.count * FLOATS, FLOATS);
+		this.count++;
+	}
+
+	@Override
+	public void flush() {
+		this.flushBatch();
+		super.flush();
+	}
+
+	@Override
+	public void glBegin(int geomType) {
+		if (this.lists > 0) {
+			super.glBegin(geomType);
+			return;
+		}
+		this.mode = geomType;
+		this.primitiveVertices = 0;
+		this.batched = geomType == GL11.GL_TRIANGLES || geomType == GL11.GL_QUADS
+				|| geomType == GL11.GL_TRIANGLE_FAN || geomType == GL11.GL_TRIANGLE_STRIP;
+		if (!this.batched) {
+			this.flushBatch();
+			super.glBegin(geomType);
+		}
+	}
+
+	@Override
+	public void glEnd() {
+		if (this.lists > 0 || !this.batched) {
+			super.glEnd();
+		}
+		this.mode = NONE;
+	}
+
+	@Override
+	public void glColor4f(float r, float g, float b, float a) {
+		this.color[0] = r;
+		this.color[1] = g;
+		this.color[2] = b;
+		this.color[3] = a * this.alphaScale;
+		super.glColor4f(r, g, b, a);
+	}
+
+	@Override
+	public void glTexCoord2f(float u, float v) {
+		this.texX = u;
+		this.texY = v;
+		if (this.lists > 0 || (this.mode != NONE && !this.batched)) {
+			super.glTexCoord2f(u, v);
+		}
+	}
+
+	@Override
+	public void glVertex2f(float x, float y) {
+		this.glVertex3f(x, y, 0);
+	}
+
+	@Override
+	public void glVertex3f(float x, float y, float z) {
+		if (this.lists > 0) {
+			super.glVertex3f(x, y, z);
+			return;
+		}
+		x += this.offsetX;
+		y += this.offsetY;
+		if (!this.batched) {
+			super.glVertex3f(x, y, z);
+			return;
+		}
+		if (this.count + 6 > MAX_VERTICES) {
+			this.flushBatch();
+		}
+		// The slot of this vertex in the primitive
+		int slot;
+		switch (this.mode) {
+		case GL11.GL_QUADS:
+			slot = this.primitiveVertices % 4;
+			break;
+		case GL11.GL_TRIANGLE_FAN:
+		case GL11.GL_TRIANGLE_STRIP:
+			// After the first two vertices the new one always follows them
+			slot = Math.min(this.primitiveVertices, 2);
+			break;
+		default:
+			slot = 0;
+			break;
+		}
+		int index = slot * FLOATS;
+		this.primitive[index] = x;
+		this.primitive[index + 1] = y;
+		this.primitive[index + 2] = this.texX;
+		this.primitive[index + 3] = this.texY;
+		System.arraycopy(this.color, 0, this.primitive, index + 4, 4);
+		this.primitiveVertices++;
+
+		switch (this.mode) {
+		case GL11.GL_QUADS:
+			if (slot == 3) {
+				this.emit(this.primitive, 0);
+				this.emit(this.primitive, 1);
+				this.emit(this.primitive, 2);
+				this.emit(this.primitive, 0);
+				this.emit(this.primitive, 2);
+				this.emit(this.primitive, 3);
+			}
+			break;
+		case GL11.GL_TRIANGLE_FAN:
+			if (slot == 2) {
+				this.emit(this.primitive, 0);
+				this.emit(this.primitive, 1);
+				this.emit(this.primitive, 2);
+				// The first vertex stays, this one becomes the previous one
+				System.arraycopy(this.primitive, 2 * FLOATS, this.primitive, FLOATS, FLOATS);
+			}
+			break;
+		case GL11.GL_TRIANGLE_STRIP:
+			if (slot == 2) {
+				this.emit(this.primitive, 0);
+				this.emit(this.primitive, 1);
+				this.emit(this.primitive, 2);
+				System.arraycopy(this.primitive, FLOATS, this.primitive, 0, 2 * FLOATS);
+			}
+			break;
+		default:
+			this.emit(this.primitive, 0);
+			break;
+		}
+	}
+
+	@Override
+	public void glTranslatef(float x, float y, float z) {
+		if (this.lists > 0 || z != 0) {
+			this.sync();
+			super.glTranslatef(x, y, z);
+		} else {
+			this.offsetX += x;
+			this.offsetY += y;
+		}
+	}
+
+	@Override
+	public void glRotatef(float angle, float x, float y, float z) {
+		this.sync();
+		super.glRotatef(angle, x, y, z);
+	}
+
+	@Override
+	public void glScalef(float x, float y, float z) {
+		this.sync();
+		super.glScalef(x, y, z);
+	}
+
+	@Override
+	public void glPushMatrix() {
+		this.sync();
+		super.glPushMatrix();
+	}
+
+	@Override
+	public void glPopMatrix() {
+		this.flushBatch();
+		this.offsetX = 0;
+		this.offsetY = 0;
+		super.glPopMatrix();
+	}
+
+	@Override
+	public void glLoadIdentity() {
+		this.flushBatch();
+		this.offsetX = 0;
+		this.offsetY = 0;
+		super.glLoadIdentity();
+	}
+
+	@Override
+	public void glLoadMatrix(FloatBuffer buffer) {
+		this.flushBatch();
+		this.offsetX = 0;
+		this.offsetY = 0;
+		super.glLoadMatrix(buffer);
+	}
+
+	@Override
+	public void glGetFloat(int id, FloatBuffer ret) {
+		this.sync();
+		super.glGetFloat(id, ret);
+	}
+
+	@Override
+	public void glGetInteger(int id, IntBuffer ret) {
+		this.sync();
+		super.glGetInteger(id, ret);
+	}
+
+	@Override
+	public void glClipPlane(int plane, DoubleBuffer buffer) {
+		this.sync();
+		super.glClipPlane(plane, buffer);
+	}
+
+	@Override
+	public void enterOrtho(int xsize, int ysize) {
+		this.sync();
+		super.enterOrtho(xsize, ysize);
+	}
+
+	@Override
+	public void glNewList(int id, int option) {
+		this.sync();
+		this.lists++;
+		super.glNewList(id, option);
+	}
+
+	@Override
+	public void glEndList() {
+		super.glEndList();
+		this.lists--;
+	}
+
+	@Override
+	public void glCallList(int id) {
+		this.sync();
+		super.glCallList(id);
+	}
+
+	@Override
+	public void glBindTexture(int target, int id) {
+		this.flushBatch();
+		super.glBindTexture(target, id);
+	}
+
+	@Override
+	public void glBlendFunc(int src, int dest) {
+		this.flushBatch();
+		super.glBlendFunc(src, dest);
+	}
+
+	@Override
+	public void glEnable(int item) {
+		this.flushBatch();
+		super.glEnable(item);
+	}
+
+	@Override
+	public void glDisable(int item) {
+		this.flushBatch();
+		super.glDisable(item);
+	}
+
+	@Override
+	public void glClear(int value) {
+		this.flushBatch();
+		super.glClear(value);
+	}
+
+	@Override
+	public void glColorMask(boolean red, boolean green, boolean blue, boolean alpha) {
+		this.flushBatch();
+		super.glColorMask(red, green, blue, alpha);
+	}
+
+	@Override
+	public void glDepthFunc(int func) {
+		this.flushBatch();
+		super.glDepthFunc(func);
+	}
+
+	@Override
+	public void glDepthMask(boolean mask) {
+		this.flushBatch();
+		super.glDepthMask(mask);
+	}
+
+	@Override
+	public void glScissor(int x, int y, int width, int height) {
+		this.flushBatch();
+		super.glScissor(x, y, width, height);
+	}
+
+	@Override
+	public void glLineWidth(float width) {
+		this.flushBatch();
+		super.glLineWidth(width);
+	}
+
+	@Override
+	public void glPointSize(float size) {
+		this.flushBatch();
+		super.glPointSize(size);
+	}
+
+	@Override
+	public void glTexEnvi(int target, int mode, int value) {
+		this.flushBatch();
+		super.glTexEnvi(target, mode, value);
+	}
+
+	@Override
+	public void glTexParameteri(int target, int param, int value) {
+		this.flushBatch();
+		super.glTexParameteri(target, param, value);
+	}
+
+	@Override
+	public void glTexImage2D(int target, int level, int internalFormat, int width, int height, int border, int format,
+			int type, ByteBuffer pixels) {
+		this.flushBatch();
+		super.glTexImage2D(target, level, internalFormat, width, height, border, format, type, pixels);
+	}
+
+	@Override
+	public void glTexSubImage2D(int target, int level, int x, int y, int width, int height, int format, int type,
+			ByteBuffer pixels) {
+		this.flushBatch();
+		super.glTexSubImage2D(target, level, x, y, width, height, format, type, pixels);
+	}
+
+	@Override
+	public void glCopyTexImage2D(int target, int level, int internalFormat, int x, int y, int width, int height,
+			int border) {
+		this.flushBatch();
+		super.glCopyTexImage2D(target, level, internalFormat, x, y, width, height, border);
+	}
+
+	@Override
+	public void glDeleteTextures(IntBuffer buffer) {
+		this.flushBatch();
+		super.glDeleteTextures(buffer);
+	}
+
+	@Override
+	public void glReadPixels(int x, int y, int width, int height, int format, int type, ByteBuffer pixels) {
+		this.flushBatch();
+		super.glReadPixels(x, y, width, height, format, type, pixels);
+	}
+
+	@Override
+	public void glGetTexImage(int target, int level, int format, int type, ByteBuffer pixels) {
+		this.flushBatch();
+		super.glGetTexImage(target, level, format, type, pixels);
+	}
+}
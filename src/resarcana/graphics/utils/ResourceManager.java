@@ -1,15 +1,36 @@
 package resarcana.graphics.utils;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
 
 import org.newdawn.slick.Image;
 import org.newdawn.slick.SlickException;
 import org.newdawn.slick.Sound;
+import org.newdawn.slick.openal.OggData;
+import org.newdawn.slick.openal.OggDecoder;
+import org.newdawn.slick.opengl.ImageDataFactory;
 import org.newdawn.slick.opengl.InternalTextureLoader;
+import org.newdawn.slick.opengl.LoadableImageData;
 import org.newdawn.slick.util.Log;
+import org.newdawn.slick.util.ResourceLoader;
 
 import resarcana.game.Launcher;
 import resarcana.graphics.AdvancedImage;
@@ -20,6 +41,12 @@ import resarcana.utils.JarHandler;
  * Der ResourceManager lädt Ressourcen wie Bilder oder Sounds vom Dateisystem.
  * Wenn mehrmals nach einer Ressource gefragt wird, kann sie jederzeit aus dem
  * Cache geholt werden.
+ * <p>
+ * Resources are loaded in two stages: decoding the file, which is done by a
+ * pool of background threads if the resource has been prefetched, and creating
+ * the texture respectively sound buffer from the decoded data, which has to be
+ * done by the thread rendering the game. All images small enough are packed
+ * into the pages of a {@link TextureAtlas} and handed out as sub images.
  * 
  */
 public class ResourceManager {
@@ -36,13 +63,31 @@ public class ResourceManager {
 
 	private static ResourceManager instance;
 
+	/**
+	 * The number of threads decoding prefetched resources
+	 */
+	private static final int DECODERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
 	private Map<String, AdvancedImage> images = Collections.synchronizedMap(new HashMap<String, AdvancedImage>());
 
 	private Map<String, Sound> sounds = Collections.synchronizedMap(new HashMap<String, Sound>());
 
+	private final TextureAtlas atlas = new TextureAtlas();
+
 	private final AdvancedImage imageNotFound;
 	private final Sound soundNotFound;
 
+	private final ExecutorService decoders = Executors.newFixedThreadPool(DECODERS, runnable -> {
+		Thread thread = new Thread(runnable, "Resource decoder");
+		thread.setDaemon(true);
+		return thread;
+	});
+	/**
+	 * Prefetched resources by their normalized identifier until they are loaded:
+	 * the decoded image data or the sound as uncompressed WAV
+	 */
+	private final Map<String, CompletableFuture<Object>> decoded = new ConcurrentHashMap<String, CompletableFuture<Object>>();
+
 	private ResourceManager() {
 		AdvancedImage image = null;
 		Sound sound = null;
@@ -83,16 +128,27 @@ public class ResourceManager {
 			Log.debug("Loading unscheduled resource: " + identifier);
 			new ResourceError("Loading unscheduled resource: " + identifier).printStackTrace();
 		}
+		CompletableFuture<Object> decoded = this.decoded.remove(identifier);
 		if (identifier.endsWith(".png")) { // Bild laden
 			try {
-				this.images.put(identifier, new AdvancedImage(new Image(identifier)));
+				LoadableImageData data = (LoadableImageData) (decoded != null ? decoded.join() : decode(identifier));
+				Image image = this.atlas.add(data);
+				if (image == null) {
+					image = new Image(data);
+				}
+				this.images.put(identifier, new AdvancedImage(image));
 			} catch (Throwable e) {
 				Log.error("Could not load image: " + identifier, e);
 				this.images.put(identifier, this.imageNotFound);
 			}
 		} else if (identifier.endsWith(".ogg")) { // Sound laden
 			try {
-				this.sounds.put(identifier, new Sound(identifier));
+				if (decoded != null) {
+					this.sounds.put(identifier,
+							new Sound(new ByteArrayInputStream((byte[]) decoded.join()), identifier + ".wav"));
+				} else {
+					this.sounds.put(identifier, new Sound(identifier));
+				}
 			} catch (Throwable e) {
 				Log.error("Could not load sound: " + identifier, e);
 				this.sounds.put(identifier, this.soundNotFound);
@@ -185,8 +241,81 @@ public class ResourceManager {
 		}
 	}
 
+	/**
+	 * Load a scheduled resource unless it has already been loaded on demand
+	 * 
+	 * @param identifier the identifier of the resource
+	 */
 	public void loadScheduled(String identifier) {
-		this.load(this.normalizeIdentifier(identifier));
+		identifier = this.normalizeIdentifier(identifier);
+		if (!this.images.containsKey(identifier) && !this.sounds.containsKey(identifier)) {
+			this.load(identifier);
+		}
+	}
+
+	/**
+	 * Start decoding a resource in the background, the next load of the resource
+	 * only has to create its texture respectively sound buffer
+	 * 
+	 * @param identifier the identifier of an image or a sound
+	 * @return completes once the resource has been decoded, exceptionally if it
+	 *         could not be
+	 */
+	public CompletableFuture<Object> prefetch(String identifier) {
+		String id = this.normalizeIdentifier(identifier);
+		if (this.images.containsKey(id) || this.sounds.containsKey(id)) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return this.decoded.computeIfAbsent(id, key -> CompletableFuture.supplyAsync(() -> decode(key), this.decoders));
+	}
+
+	/**
+	 * @param identifier a normalized identifier
+	 * @return <code>true</code> if the resource has been loaded already or has
+	 *         been prefetched and can be loaded without decoding it
+	 */
+	public boolean isDecoded(String identifier) {
+		String id = this.normalizeIdentifier(identifier);
+		if (this.images.containsKey(id) || this.sounds.containsKey(id)) {
+			return true;
+		}
+		CompletableFuture<Object> decoded = this.decoded.get(id);
+		return decoded != null && decoded.isDone();
+	}
+
+	/**
+	 * Decode a resource, called by the decoding threads
+	 */
+	private static Object decode(String identifier) {
+		try (InputStream in = new BufferedInputStream(ResourceLoader.getResourceAsStream(identifier))) {
+			if (identifier.endsWith(".png")) {
+				LoadableImageData data = ImageDataFactory.getImageDataFor(identifier);
+				data.loadImage(in, false, null);
+				return data;
+			} else if (identifier.endsWith(".ogg")) {
+				return decodeSound(in);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		throw new ResourceError("Unkown ressource type: " + identifier);
+	}
+
+	/**
+	 * Decode an OGG file into an uncompressed WAV file, which Slick2D reads
+	 * without any decoding
+	 */
+	private static byte[] decodeSound(InputStream in) throws IOException {
+		OggData ogg = new OggDecoder().getData(in);
+		byte[] samples = new byte[ogg.data.remaining()];
+		ogg.data.get(samples);
+		// The decoder writes the samples in native byte order
+		AudioFormat format = new AudioFormat(ogg.rate, 16, ogg.channels, true,
+				ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN);
+		ByteArrayOutputStream wav = new ByteArrayOutputStream(samples.length + 64);
+		AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(samples), format,
+				samples.length / format.getFrameSize()), AudioFileFormat.Type.WAVE, wav);
+		return wav.toByteArray();
 	}
 
 	public void reloadImages() {
@@ -205,6 +334,7 @@ public class ResourceManager {
 		Scheduler.getInstance().scheduleAllResources(resources);
 		Scheduler.getInstance().resetScheduleCounter();
 		this.images.clear();
+		this.atlas.clear();
 		InternalTextureLoader.get().clear();
 	}
 
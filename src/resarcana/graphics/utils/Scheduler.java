@@ -2,6 +2,7 @@ package resarcana.graphics.utils;
 
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.newdawn.slick.Color;
 import org.newdawn.slick.Font;
@@ -14,6 +15,21 @@ import resarcana.math.Rectangle;
 import resarcana.math.Vector;
 import resarcana.utils.Parameter;
 
+/**
+ * Loads all scheduled resources and fonts while the loading screen is shown
+ * <p>
+ * Loading is pipelined: all scheduled images and sounds are decoded by the
+ * background threads of the {@link ResourceManager}, while the rendering thread
+ * only creates the textures and sound buffers of the decoded resources and
+ * loads the fonts, in the order of the schedule and for at most
+ * {@link #FRAME_BUDGET_NANOS} per frame. The progress bar shows both stages.
+ * <p>
+ * Nothing is decoded before {@link #loadScheduledItems()} is called first, so
+ * scheduling is harmless for headless games.
+ *
+ * @author Erik Wagner
+ *
+ */
 public class Scheduler implements Drawable {
 
 	private static Scheduler instance;
@@ -30,12 +46,25 @@ public class Scheduler implements Drawable {
 	};
 
 	private static final Color LOADING_BAR_COLOR = new Color(0.1f, 0.8f, 0.1f, 0.8f);
+	private static final Color DECODING_BAR_COLOR = new Color(0.1f, 0.8f, 0.1f, 0.3f);
+
+	/**
+	 * The time the rendering thread may spend loading per frame in nanoseconds,
+	 * the first item ready to load is always loaded
+	 */
+	private static final long FRAME_BUDGET_NANOS = 10000000;
 
 	private LinkedList<Pair<ScheduleType, String>> schedules = new LinkedList<Pair<ScheduleType, String>>();
 	private String currentMarker = "";
 	private int totalScheduled = 0;
 	private int markerRemaining = 0;
 
+	// Resources scheduled but not yet handed to the decoding threads
+	private ArrayList<String> undecoded = new ArrayList<String>();
+	// Scheduled resources decoded respectively loaded so far
+	private final AtomicInteger decoded = new AtomicInteger();
+	private int loaded = 0;
+
 	private Rectangle space = new Rectangle(Vector.ZERO, 500, 500), progressBar = this.space;
 	private Vector progressPos = Vector.ZERO, markerPos = Vector.ZERO;
 
@@ -65,6 +94,7 @@ public class Scheduler implements Drawable {
 				Pair<ScheduleType, String> schedule = new Pair<ScheduleType, String>(ScheduleType.RESOURCE, identifier);
 				if (!this.schedules.contains(schedule)) {
 					this.schedules.add(schedule);
+					this.undecoded.add(identifier);
 					this.totalScheduled++;
 				}
 			}
@@ -96,29 +126,52 @@ public class Scheduler implements Drawable {
 		return !this.schedules.isEmpty();
 	}
 
-	public void loadNextScheduledItem() {
-		Pair<ScheduleType, String> schedule = this.schedules.getFirst();
-		switch (schedule.getKey()) {
-		case MARKER:
-			this.currentMarker = schedule.getValue();
-			this.markerRemaining--;
-			break;
-		case FONT:
-			FontManager.getInstance().loadFont(Integer.parseInt(schedule.getValue()));
-			break;
-		case RESOURCE:
-			ResourceManager.getInstance().loadScheduled(schedule.getValue());
-			break;
-		default:
-			Log.error("Unknown schedule type " + schedule.getKey());
-			break;
+	/**
+	 * Load the scheduled items in their order until the budget of this frame is
+	 * spent or the next resource has not been decoded yet
+	 * <p>
+	 * Has to be called by the rendering thread
+	 */
+	public void loadScheduledItems() {
+		if (!this.undecoded.isEmpty()) {
+			for (String identifier : this.undecoded) {
+				ResourceManager.getInstance().prefetch(identifier)
+						.whenComplete((result, error) -> this.decoded.incrementAndGet());
+			}
+			this.undecoded.clear();
 		}
-		this.schedules.removeFirst();
+		long start = System.nanoTime();
+		do {
+			Pair<ScheduleType, String> schedule = this.schedules.getFirst();
+			switch (schedule.getKey()) {
+			case MARKER:
+				this.currentMarker = schedule.getValue();
+				this.markerRemaining--;
+				break;
+			case FONT:
+				FontManager.getInstance().loadFont(Integer.parseInt(schedule.getValue()));
+				break;
+			case RESOURCE:
+				if (!ResourceManager.getInstance().isDecoded(schedule.getValue())) {
+					// Wait for the decoding threads instead of blocking the frame
+					return;
+				}
+				ResourceManager.getInstance().loadScheduled(schedule.getValue());
+				this.loaded++;
+				break;
+			default:
+				Log.error("Unknown schedule type " + schedule.getKey());
+				break;
+			}
+			this.schedules.removeFirst();
+		} while (!this.schedules.isEmpty() && System.nanoTime() - start < FRAME_BUDGET_NANOS);
 	}
 
 	@Override
 	public void draw(Graphics g) {
 		int progress = this.totalScheduled + this.markerRemaining - this.schedules.size();
+		// Decoded resources waiting to be loaded
+		int waiting = Math.max(0, Math.min(this.decoded.get() - this.loaded, this.totalScheduled - progress));
 
 		g.setFont(this.font);
 		GraphicUtils.drawStringCentered(g, this.markerPos, this.currentMarker);
@@ -126,6 +179,9 @@ public class Scheduler implements Drawable {
 
 		float x = this.progressBar.x, y0 = this.progressBar.y, y1 = y0 + this.progressBar.height;
 		float dx = 5;
+		GraphicUtils.fill(g, new Rectangle(x, y0,
+				(this.progressBar.width - dx) * (progress + waiting) / this.totalScheduled + dx, y1 - y0),
+				DECODING_BAR_COLOR);
 		GraphicUtils.fill(g,
 				new Rectangle(x, y0, (this.progressBar.width - dx) * progress / this.totalScheduled + dx, y1 - y0),
 				LOADING_BAR_COLOR);
@@ -157,5 +213,7 @@ public class Scheduler implements Drawable {
 		}
 		this.markerRemaining = marker;
 		this.totalScheduled = this.schedules.size() - this.markerRemaining;
+		this.decoded.set(0);
+		this.loaded = 0;
 	}
 }
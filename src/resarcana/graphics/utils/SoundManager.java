@@ -15,17 +15,58 @@ public class SoundManager implements Pollable {
 	public static final float RESET_DELAY = -1.0f;
 	public static final float THRESHOLD = 0.001f;
 
-	private static SoundManager instance;
+	private static SoundManager instance, silentInstance;
 
 	public static SoundManager getInstance() {
 		if (instance == null) {
-			instance = new SoundManager();
+			instance = new SoundManager(false);
 		}
 		return instance;
 	}
 
+	/**
+	 * @return a {@link SoundManager} without any loaded sound, that never plays
+	 *         anything, e.g. for headless games
+	 */
+	public static SoundManager getSilentInstance() {
+		if (silentInstance == null) {
+			silentInstance = new SoundManager(true);
+		}
+		return silentInstance;
+	}
+
 	private static final int SOUND_NUMBER = 26;
 
+	/**
+	 * All sound files, decoded in parallel before the sounds are created
+	 */
+	private static final String[] SOUND_FILES = {
+			"sounds/menu_click.ogg",
+			"sounds/tap.ogg",
+			"sounds/untap_all.ogg",
+			"sounds/typing_sound.ogg",
+			"sounds/your_turn.ogg",
+			"sounds/destroy.ogg",
+			"sounds/attack_bow.ogg",
+			"sounds/attack_dragon.ogg",
+			"sounds/attack_hit.ogg",
+			"sounds/attack_protect.ogg",
+			"sounds/draw.ogg",
+			"sounds/discard.ogg",
+			"sounds/game_finish.ogg",
+			"sounds/move_essences.ogg",
+			"sounds/buy_monument.ogg",
+			"sounds/buy_powerplace.ogg",
+			"sounds/card_from_hand.ogg",
+			"sounds/pass.ogg",
+			"sounds/attack_demon.ogg",
+			"sounds/demon_dying.ogg",
+			"sounds/demon_dying_2.ogg",
+			"sounds/guard_dog.ogg",
+			"sounds/lion_roar.ogg",
+			"sounds/dancing_sword.ogg",
+			"sounds/sword_dropping.ogg" };
+
 	private Music backgroundMusic;
 
 	private Sound menuClickDown, tap, untapAll, typingSound, yourTurn, destroy, attackBow, attackDragon, attackHit,
@@ -38,8 +79,17 @@ public class SoundManager implements Pollable {
 	private boolean[] playing;
 	private boolean musicOn;
 
-	private SoundManager() {
+	private SoundManager(boolean silent) {
 		this.playing = new boolean[SOUND_NUMBER];
+		if (silent) { // Mark all sounds as playing forever
+			this.volume = 0;
+			this.musicVolume = 0;
+			this.resetPlaying();
+			return;
+		}
+		for (String file : SOUND_FILES) {
+			ResourceManager.getInstance().prefetch(file);
+		}
 
 		this.menuClickDown = ResourceManager.getInstance().getSound("sounds/menu_click.ogg");
 		this.tap = ResourceManager.getInstance().getSound("sounds/tap.ogg");
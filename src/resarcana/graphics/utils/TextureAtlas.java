@@ -0,0 +1,169 @@
+package resarcana.graphics.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+
+import org.lwjgl.BufferUtils;
+import org.newdawn.slick.Image;
+import org.newdawn.slick.SlickException;
+import org.newdawn.slick.opengl.ImageData;
+import org.newdawn.slick.opengl.renderer.Renderer;
+import org.newdawn.slick.opengl.renderer.SGL;
+import org.newdawn.slick.util.Log;
+
+/**
+ * Packs images into a few large textures, the pages of the atlas
+ * <p>
+ * Every image added is copied into a free region of a page and returned as sub
+ * image of that page, so drawing cards, essences and the other small images one
+ * after another mostly uses the same texture and Slick2D does not bind a new
+ * one for every image. The regions are packed in shelves: rows as high as their
+ * highest image, filled from left to right. Every region is surrounded by a
+ * border repeating the edge of its image, so linear filtering never blends in
+ * the neighboring images.
+ * <p>
+ * Images larger than half a page keep their own texture. The atlas has to be
+ * used by the rendering thread only.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class TextureAtlas {
+
+	/**
+	 * The largest size of a page, used unless the graphics card supports less
+	 */
+	private static final int MAX_PAGE_SIZE = 4096;
+	/**
+	 * The width of the border around every image
+	 */
+	private static final int BORDER = 1;
+
+	private final ArrayList<Page> pages = new ArrayList<Page>();
+	private int pageSize = -1;
+
+	/**
+	 * Add an image to the atlas
+	 *
+	 * @param data the decoded image
+	 * @return the image as sub image of a page, <code>null</code> if the image
+	 *         has to get its own texture
+	 * @throws SlickException if a new page can not be created
+	 */
+	public Image add(ImageData data) throws SlickException {
+		if (this.pageSize < 0) {
+			IntBuffer size = BufferUtils.createIntBuffer(16);
+			Renderer.get().glGetInteger(SGL.GL_MAX_TEXTURE_SIZE, size);
+			this.pageSize = Math.min(MAX_PAGE_SIZE, size.get(0));
+		}
+		int width = data.getWidth() + 2 * BORDER, height = data.getHeight() + 2 * BORDER;
+		if (2 * width > this.pageSize || 2 * height > this.pageSize
+				|| (data.getDepth() != 24 && data.getDepth() != 32)) {
+			return null;
+		}
+		Page page = null;
+		Shelf shelf = null;
+		// The lowest shelf high enough for the image, wasting as little as possible
+		for (Page candidate : this.pages) {
+			for (Shelf other : candidate.shelves) {
+				if (other.height >= height && other.x + width <= this.pageSize
+						&& (shelf == null || other.height < shelf.height)) {
+					page = candidate;
+					shelf = other;
+				}
+			}
+		}
+		if (shelf == null || shelf.height > 2 * height) {
+			// Rather open a new shelf than waste more than half of an old one
+			page = null;
+			for (Page candidate : this.pages) {
+				if (candidate.top + height <= this.pageSize) {
+					page = candidate;
+					break;
+				}
+			}
+			if (page == null) {
+				page = new Page(new Image(this.pageSize, this.pageSize, Image.FILTER_LINEAR));
+				this.pages.add(page);
+				Log.info("Created texture atlas page " + this.pages.size() + " of " + this.pageSize + "x"
+						+ this.pageSize);
+			}
+			shelf = new Shelf(page.top, height);
+			page.shelves.add(shelf);
+			page.top += height;
+		}
+		int x = shelf.x, y = shelf.y;
+		shelf.x += width;
+
+		page.image.getTexture().bind();
+		Renderer.get().glTexSubImage2D(SGL.GL_TEXTURE_2D, 0, x, y, width, height, SGL.GL_RGBA, SGL.GL_UNSIGNED_BYTE,
+				extrude(data, width, height));
+		return page.image.getSubImage(x + BORDER, y + BORDER, data.getWidth(), data.getHeight());
+	}
+
+	/**
+	 * @return the pixels of the image as RGBA, surrounded by a border repeating
+	 *         its edge
+	 */
+	private static ByteBuffer extrude(ImageData data, int width, int height) {
+		ByteBuffer source = data.getImageBufferData();
+		int bytes = data.getDepth() / 8, stride = data.getTexWidth() * bytes;
+		int lastX = data.getWidth() - 1, lastY = data.getHeight() - 1;
+		ByteBuffer pixels = BufferUtils.createByteBuffer(4 * width * height);
+		for (int j = 0; j < height; j++) {
+			int row = Math.max(0, Math.min(lastY, j - BORDER)) * stride;
+			for (int i = 0; i < width; i++) {
+				int index = row + Math.max(0, Math.min(lastX, i - BORDER)) * bytes;
+				pixels.put(source.get(index));
+				pixels.put(source.get(index + 1));
+				pixels.put(source.get(index + 2));
+				pixels.put(bytes == 4 ? source.get(index + 3) : (byte) 255);
+			}
+		}
+		pixels.flip();
+		return pixels;
+	}
+
+	public int getNumberOfPages() {
+		return this.pages.size();
+	}
+
+	/**
+	 * Release all pages, the images of the atlas must not be drawn anymore
+	 */
+	public void clear() {
+		for (Page page : this.pages) {
+			try {
+				page.image.destroy();
+			} catch (SlickException e) {
+				Log.error("Could not release texture atlas page", e);
+			}
+		}
+		this.pages.clear();
+	}
+
+	private static class Page {
+
+		private final Image image;
+		private final ArrayList<Shelf> shelves = new ArrayList<Shelf>();
+		// The top of the free space below all shelves
+		private int top = 0;
+
+		private Page(Image image) {
+			this.image = image;
+		}
+	}
+
+	private static class Shelf {
+
+		private final int y, height;
+		// The left of the free space of this shelf
+		private int x = 0;
+
+		private Shelf(int y, int height) {
+			this.y = y;
+			this.height = height;
+		}
+	}
+}
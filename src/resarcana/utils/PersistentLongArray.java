@@ -0,0 +1,92 @@
+package resarcana.utils;
+
+import java.util.Arrays;
+
+/**
+ * An immutable array of <code>long</code>s of fixed length
+ * <p>
+ * The values are stored in chunks of {@link #CHUNK_SIZE}. Changing a value
+ * creates a new array that copies only the chunk of the value and the table
+ * of chunks, all other chunks are shared with the original.
+ *
+ * @author Erik Wagner
+ *
+ */
+public final class PersistentLongArray {
+
+	public static final int CHUNK_SIZE = 32;
+	private static final int CHUNK_SHIFT = 5;
+
+	private final long[][] chunks;
+	private final int length;
+
+	public PersistentLongArray(long[] values) {
+		this.length = values.length;
+		this.chunks = new long[(values.length + CHUNK_SIZE - 1) >> CHUNK_SHIFT][];
+		for (int i = 0; i < this.chunks.length; i++) {
+			this.chunks[i] = Arrays.copyOfRange(values, i << CHUNK_SHIFT, (i + 1) << CHUNK_SHIFT);
+		}
+	}
+
+	private PersistentLongArray(long[][] chunks, int length) {
+		this.chunks = chunks;
+		this.length = length;
+	}
+
+	public int length() {
+		return this.length;
+	}
+
+	public long get(int index) {
+		if (index < 0 || index >= this.length) {
+			throw new IndexOutOfBoundsException("Index " + index + " of " + this.length);
+		}
+		return this.chunks[index >> CHUNK_SHIFT][index & (CHUNK_SIZE - 1)];
+	}
+
+	/**
+	 * @param index the index of the value to change
+	 * @param value the new value
+	 * @return an array with the given value changed, <code>this</code> if it is
+	 *         unchanged
+	 */
+	public PersistentLongArray with(int index, long value) {
+		if (this.get(index) == value) {
+			return this;
+		}
+		long[][] copy = this.chunks.clone();
+		copy[index >> CHUNK_SHIFT] = copy[index >> CHUNK_SHIFT].clone();
+		copy[index >> CHUNK_SHIFT][index & (CHUNK_SIZE - 1)] = value;
+		return new PersistentLongArray(copy, this.length);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof PersistentLongArray)) {
+			return false;
+		}
+		PersistentLongArray other = (PersistentLongArray) obj;
+		if (this.length != other.length) {
+			return false;
+		}
+		for (int i = 0; i < this.chunks.length; i++) {
+			// Shared chunks are equal without comparing them
+			if (this.chunks[i] != other.chunks[i] && !Arrays.equals(this.chunks[i], other.chunks[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = this.length;
+		for (long[] chunk : this.chunks) {
+			hash = 31 * hash + Arrays.hashCode(chunk);
+		}
+		return hash;
+	}
+}
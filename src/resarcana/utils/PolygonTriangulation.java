@@ -1,6 +1,7 @@
 package resarcana.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
@@ -26,6 +27,12 @@ import java.util.List;
  */
 public final class PolygonTriangulation {
 
+	/**
+	 * Relative difference allowed between the area of a polygon and the area of
+	 * its triangles
+	 */
+	private static final float FIT_TOLERANCE = 1e-3f;
+
 	private PolygonTriangulation() {
 	};
 
@@ -55,135 +62,374 @@ public final class PolygonTriangulation {
 	 *         array forms a triangle.
 	 */
 	public static List<Integer> earcut(float[] data, int[] holeIndices, int dim) {
+		Triangulator triangulator = new Triangulator();
+		int count = triangulator.triangulate(data, holeIndices, dim);
+		List<Integer> triangles = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			triangles.add(triangulator.triangles[i]);
+		}
+		return triangles;
+	}
 
-		boolean hasHoles = holeIndices != null && holeIndices.length > 0;
-		int outerLen = hasHoles ? holeIndices[0] * dim : data.length;
-
-		Node outerNode = linkedList(data, 0, outerLen, dim, true);
-
-		List<Integer> triangles = new ArrayList<>();
-
-		if (outerNode == null)
-			return triangles;
-
-		float minX = 0;
-		float minY = 0;
-		float maxX = 0;
-		float maxY = 0;
-		float size = Float.MIN_VALUE;
-
-		if (hasHoles)
-			outerNode = eliminateHoles(data, holeIndices, outerNode, dim);
-
-		// if the shape is not too simple, we'll use z-order curve hash later;
-		// calculate polygon bbox
-		if (data.length > 80 * dim) {
-			minX = maxX = data[0];
-			minY = maxY = data[1];
-
-			for (int i = dim; i < outerLen; i += dim) {
-				float x = data[i];
-				float y = data[i + 1];
-				if (x < minX)
-					minX = x;
-				if (y < minY)
-					minY = y;
-				if (x > maxX)
-					maxX = x;
-				if (y > maxY)
-					maxY = y;
+	/**
+	 * Check whether a triangulation of a polygon still fits after its points have
+	 * moved: all triangles have to keep the same orientation and together cover
+	 * the area of the polygon
+	 * 
+	 * @param polygon   is a flat array of vertice coordinates like [x0,y0, x1,y1,
+	 *                  x2,y2, ...].
+	 * @param triangles groups of three vertice indices forming a triangle
+	 * @return <code>true</code> if the triangles are a triangulation of the
+	 *         polygon
+	 */
+	public static boolean fits(float[] polygon, int[] triangles) {
+		if (triangles.length == 0) {
+			return false;
+		}
+		float area = 0;
+		for (int i = 0, j = polygon.length - 2; i < polygon.length; j = i, i += 2) {
+			area += (polygon[j] - polygon[i]) * (polygon[i + 1] + polygon[j + 1]);
+		}
+		area = Math.abs(area) / 2;
+		float sum = 0, orientation = 0;
+		for (int i = 0; i < triangles.length; i += 3) {
+			int a = 2 * triangles[i], b = 2 * triangles[i + 1], c = 2 * triangles[i + 2];
+			if (c >= polygon.length || b >= polygon.length || a >= polygon.length) {
+				return false;
+			}
+			float triangle = ((polygon[b] - polygon[a]) * (polygon[c + 1] - polygon[a + 1])
+					- (polygon[c] - polygon[a]) * (polygon[b + 1] - polygon[a + 1])) / 2;
+			if (orientation == 0) {
+				orientation = Math.signum(triangle);
 			}
+			if (triangle * orientation <= 0) {
+				return false;
+			}
+			sum += Math.abs(triangle);
+		}
+		return Math.abs(sum - area) <= FIT_TOLERANCE * area;
+	}
 
-			// minX, minY and size are later used to transform coords into
-			// integers for z-order calculation
-			size = Math.max(maxX - minX, maxY - minY);
+	/**
+	 * Triangulates polygons without allocating anything once its buffers are
+	 * large enough: the nodes of the polygon are taken from a pool and the
+	 * triangles are written into a reused array.
+	 * <p>
+	 * Not thread-safe, every thread needs its own triangulator.
+	 * 
+	 * @author Erik Wagner
+	 *
+	 */
+	public static final class Triangulator {
+
+		private Node[] nodes = new Node[64];
+		private int usedNodes = 0;
+		private int[] triangles = new int[192];
+		private int count = 0;
+
+		/**
+		 * Triangulates the given polygon
+		 * 
+		 * @param data is a flat array of vertice coordinates like [x0,y0, x1,y1,
+		 *             x2,y2, ...].
+		 * @return the number of vertice indices written to {@link #getTriangles()}
+		 */
+		public int triangulate(float[] data) {
+			return this.triangulate(data, null, 2);
 		}
 
-		earcutLinked(outerNode, triangles, dim, minX, minY, size, Integer.MIN_VALUE);
+		/**
+		 * Triangulates the given polygon
+		 * 
+		 * @param data        is a flat array of vertice coordinates like [x0,y0,
+		 *                    x1,y1, x2,y2, ...].
+		 * @param holeIndices is an array of hole indices if any, see
+		 *                    {@link PolygonTriangulation#earcut(float[], int[], int)}
+		 * @param dim         is the number of coordinates per vertice in the input
+		 *                    array
+		 * @return the number of vertice indices written to {@link #getTriangles()}
+		 */
+		public int triangulate(float[] data, int[] holeIndices, int dim) {
+			this.usedNodes = 0;
+			this.count = 0;
+
+			boolean hasHoles = holeIndices != null && holeIndices.length > 0;
+			int outerLen = hasHoles ? holeIndices[0] * dim : data.length;
+
+			Node outerNode = this.linkedList(data, 0, outerLen, dim, true);
+
+			if (outerNode == null)
+				return 0;
 
-		return triangles;
-	}
+			float minX = 0;
+			float minY = 0;
+			float maxX = 0;
+			float maxY = 0;
+			float size = Float.MIN_VALUE;
+
+			if (hasHoles)
+				outerNode = this.eliminateHoles(data, holeIndices, outerNode, dim);
+
+			// if the shape is not too simple, we'll use z-order curve hash later;
+			// calculate polygon bbox
+			if (data.length > 80 * dim) {
+				minX = maxX = data[0];
+				minY = maxY = data[1];
+
+				for (int i = dim; i < outerLen; i += dim) {
+					float x = data[i];
+					float y = data[i + 1];
+					if (x < minX)
+						minX = x;
+					if (y < minY)
+						minY = y;
+					if (x > maxX)
+						maxX = x;
+					if (y > maxY)
+						maxY = y;
+				}
 
-	private static void earcutLinked(Node ear, List<Integer> triangles, int dim, float minX, float minY, float size,
-			int pass) {
-		if (ear == null)
-			return;
+				// minX, minY and size are later used to transform coords into
+				// integers for z-order calculation
+				size = Math.max(maxX - minX, maxY - minY);
+			}
 
-		// interlink polygon nodes in z-order
-		if (pass == Integer.MIN_VALUE && size != Float.MIN_VALUE)
-			indexCurve(ear, minX, minY, size);
+			this.earcutLinked(outerNode, dim, minX, minY, size, Integer.MIN_VALUE);
 
-		Node stop = ear;
+			return this.count;
+		}
 
-		// iterate through ears, slicing them one by one
-		while (ear.prev != ear.next) {
-			Node prev = ear.prev;
-			Node next = ear.next;
+		/**
+		 * @return groups of three vertice indices forming a triangle, valid up to
+		 *         the count returned by the last triangulation and overwritten by
+		 *         the next one
+		 */
+		public int[] getTriangles() {
+			return this.triangles;
+		}
 
-			if (size != Float.MIN_VALUE ? isEarHashed(ear, minX, minY, size) : isEar(ear)) {
-				// cut off the triangle
-				triangles.add(prev.i / dim);
-				triangles.add(ear.i / dim);
-				triangles.add(next.i / dim);
+		private void add(int index) {
+			if (this.count == this.triangles.length) {
+				this.triangles = Arrays.copyOf(this.triangles, 2 * this.count);
+			}
+			this.triangles[this.count++] = index;
+		}
 
-				removeNode(ear);
+		private Node node(int i, float x, float y) {
+			if (this.usedNodes == this.nodes.length) {
+				this.nodes = Arrays.copyOf(this.nodes, 2 * this.usedNodes);
+			}
+			Node node = this.nodes[this.usedNodes];
+			if (node == null) {
+				node = new Node(i, x, y);
+				this.nodes[this.usedNodes] = node;
+			} else {
+				node.reset(i, x, y);
+			}
+			this.usedNodes++;
+			return node;
+		}
 
-				// skipping the next vertice leads to less sliver triangles
-				ear = next.next;
-				stop = next.next;
+		private void earcutLinked(Node ear, int dim, float minX, float minY, float size,
+				int pass) {
+			if (ear == null)
+				return;
 
-				continue;
+			// interlink polygon nodes in z-order
+			if (pass == Integer.MIN_VALUE && size != Float.MIN_VALUE)
+				indexCurve(ear, minX, minY, size);
+
+			Node stop = ear;
+
+			// iterate through ears, slicing them one by one
+			while (ear.prev != ear.next) {
+				Node prev = ear.prev;
+				Node next = ear.next;
+
+				if (size != Float.MIN_VALUE ? isEarHashed(ear, minX, minY, size) : isEar(ear)) {
+					// cut off the triangle
+					this.add(prev.i / dim);
+					this.add(ear.i / dim);
+					this.add(next.i / dim);
+
+					removeNode(ear);
+
+					// skipping the next vertice leads to less sliver triangles
+					ear = next.next;
+					stop = next.next;
+
+					continue;
+				}
+
+				ear = next;
+
+				// if we looped through the whole remaining polygon and can't find
+				// any more ears
+				if (ear == stop) {
+					// try filtering points and slicing again
+					if (pass == Integer.MIN_VALUE) {
+						earcutLinked(filterPoints(ear, null), dim, minX, minY, size, 1);
+
+						// if this didn't work, try curing all small
+						// self-intersections locally
+					} else if (pass == 1) {
+						ear = cureLocalIntersections(ear, dim);
+						earcutLinked(ear, dim, minX, minY, size, 2);
+
+						// as a last resort, try splitting the remaining polygon
+						// into two
+					} else if (pass == 2) {
+						splitEarcut(ear, dim, minX, minY, size);
+					}
+
+					break;
+				}
+			}
+		}
+
+		private void splitEarcut(Node start, int dim, float minX, float minY, float size) {
+			// look for a valid diagonal that divides the polygon into two
+			Node a = start;
+			do {
+				Node b = a.next.next;
+				while (b != a.prev) {
+					if (a.i != b.i && isValidDiagonal(a, b)) {
+						// split the polygon in two by the diagonal
+						Node c = splitPolygon(a, b);
+
+						// filter colinear points around the cuts
+						a = filterPoints(a, a.next);
+						c = filterPoints(c, c.next);
+
+						// run earcut on each half
+						earcutLinked(a, dim, minX, minY, size, Integer.MIN_VALUE);
+						earcutLinked(c, dim, minX, minY, size, Integer.MIN_VALUE);
+						return;
+					}
+					b = b.next;
+				}
+				a = a.next;
+			} while (a != start);
+		}
+
+		private Node cureLocalIntersections(Node start, int dim) {
+			Node p = start;
+			do {
+				Node a = p.prev, b = p.next.next;
+
+				if (!PolygonTriangulation.equals(a, b) && intersects(a, p, p.next, b) && locallyInside(a, b) && locallyInside(b, a)) {
+
+					this.add(a.i / dim);
+					this.add(p.i / dim);
+					this.add(b.i / dim);
+
+					// remove two nodes involved
+					removeNode(p);
+					removeNode(p.next);
+
+					p = start = b;
+				}
+				p = p.next;
+			} while (p != start);
+
+			return p;
+		}
+
+		private Node eliminateHoles(float[] data, int[] holeIndices, Node outerNode, int dim) {
+			List<Node> queue = new ArrayList<>();
+
+			int len = holeIndices.length;
+			for (int i = 0; i < len; i++) {
+				int start = holeIndices[i] * dim;
+				int end = i < len - 1 ? holeIndices[i + 1] * dim : data.length;
+				Node list = linkedList(data, start, end, dim, false);
+				if (list == list.next)
+					list.steiner = true;
+				queue.add(getLeftmost(list));
 			}
 
-			ear = next;
-
-			// if we looped through the whole remaining polygon and can't find
-			// any more ears
-			if (ear == stop) {
-				// try filtering points and slicing again
-				if (pass == Integer.MIN_VALUE) {
-					earcutLinked(filterPoints(ear, null), triangles, dim, minX, minY, size, 1);
-
-					// if this didn't work, try curing all small
-					// self-intersections locally
-				} else if (pass == 1) {
-					ear = cureLocalIntersections(ear, triangles, dim);
-					earcutLinked(ear, triangles, dim, minX, minY, size, 2);
-
-					// as a last resort, try splitting the remaining polygon
-					// into two
-				} else if (pass == 2) {
-					splitEarcut(ear, triangles, dim, minX, minY, size);
+			queue.sort(new Comparator<Node>() {
+
+				@Override
+				public int compare(Node o1, Node o2) {
+					if (o1.x - o2.x > 0)
+						return 1;
+					else if (o1.x - o2.x < 0)
+						return -2;
+					return 0;
 				}
+			});
 
-				break;
+			for (Node node : queue) {
+				eliminateHole(node, outerNode);
+				outerNode = filterPoints(outerNode, outerNode.next);
 			}
+
+			return outerNode;
 		}
-	}
 
-	private static void splitEarcut(Node start, List<Integer> triangles, int dim, float minX, float minY, float size) {
-		// look for a valid diagonal that divides the polygon into two
-		Node a = start;
-		do {
-			Node b = a.next.next;
-			while (b != a.prev) {
-				if (a.i != b.i && isValidDiagonal(a, b)) {
-					// split the polygon in two by the diagonal
-					Node c = splitPolygon(a, b);
-
-					// filter colinear points around the cuts
-					a = filterPoints(a, a.next);
-					c = filterPoints(c, c.next);
-
-					// run earcut on each half
-					earcutLinked(a, triangles, dim, minX, minY, size, Integer.MIN_VALUE);
-					earcutLinked(c, triangles, dim, minX, minY, size, Integer.MIN_VALUE);
-					return;
+		private void eliminateHole(Node hole, Node outerNode) {
+			outerNode = findHoleBridge(hole, outerNode);
+			if (outerNode != null) {
+				Node b = splitPolygon(outerNode, hole);
+				filterPoints(b, b.next);
+			}
+		}
+
+		private Node splitPolygon(Node a, Node b) {
+			Node a2 = this.node(a.i, a.x, a.y);
+			Node b2 = this.node(b.i, b.x, b.y);
+			Node an = a.next;
+			Node bp = b.prev;
+
+			a.next = b;
+			b.prev = a;
+
+			a2.next = an;
+			an.prev = a2;
+
+			b2.next = a2;
+			a2.prev = b2;
+
+			bp.next = b2;
+			b2.prev = bp;
+
+			return b2;
+		}
+
+		private Node linkedList(float[] data, int start, int end, int dim, boolean clockwise) {
+			Node last = null;
+			if (clockwise == (signedArea(data, start, end, dim) > 0)) {
+				for (int i = start; i < end; i += dim) {
+					last = insertNode(i, data[i], data[i + 1], last);
+				}
+			} else {
+				for (int i = (end - dim); i >= start; i -= dim) {
+					last = insertNode(i, data[i], data[i + 1], last);
 				}
-				b = b.next;
 			}
-			a = a.next;
-		} while (a != start);
+
+			if (last != null && PolygonTriangulation.equals(last, last.next)) {
+				removeNode(last);
+				last = last.next;
+			}
+			return last;
+		}
+
+		private Node insertNode(int i, float x, float y, Node last) {
+			Node p = this.node(i, x, y);
+
+			if (last == null) {
+				p.prev = p;
+				p.next = p;
+			} else {
+				p.next = last.next;
+				p.prev = last;
+				last.next.prev = p;
+				last.next = p;
+			}
+			return p;
+		}
 	}
 
 	private static boolean isValidDiagonal(Node a, Node b) {
@@ -222,29 +468,6 @@ public final class PolygonTriangulation {
 		return area(p1, q1, p2) > 0 != area(p1, q1, q2) > 0 && area(p2, q2, p1) > 0 != area(p2, q2, q1) > 0;
 	}
 
-	private static Node cureLocalIntersections(Node start, List<Integer> triangles, int dim) {
-		Node p = start;
-		do {
-			Node a = p.prev, b = p.next.next;
-
-			if (!equals(a, b) && intersects(a, p, p.next, b) && locallyInside(a, b) && locallyInside(b, a)) {
-
-				triangles.add(a.i / dim);
-				triangles.add(p.i / dim);
-				triangles.add(b.i / dim);
-
-				// remove two nodes involved
-				removeNode(p);
-				removeNode(p.next);
-
-				p = start = b;
-			}
-			p = p.next;
-		} while (p != start);
-
-		return p;
-	}
-
 	private static boolean isEar(Node ear) {
 		Node a = ear.prev, b = ear, c = ear.next;
 
@@ -306,8 +529,8 @@ public final class PolygonTriangulation {
 
 	private static float zOrder(float x, float y, float minX, float minY, float size) {
 		// coords are transformed into non-negative 15-bit integer range
-		int lx = new Float(32767 * (x - minX) / size).intValue();
-		int ly = new Float(32767 * (y - minY) / size).intValue();
+		int lx = (int) (32767 * (x - minX) / size);
+		int ly = (int) (32767 * (y - minY) / size);
 
 		lx = (lx | (lx << 8)) & 0x00FF00FF;
 		lx = (lx | (lx << 4)) & 0x0F0F0F0F;
@@ -401,39 +624,6 @@ public final class PolygonTriangulation {
 		return list;
 	}
 
-	private static Node eliminateHoles(float[] data, int[] holeIndices, Node outerNode, int dim) {
-		List<Node> queue = new ArrayList<>();
-
-		int len = holeIndices.length;
-		for (int i = 0; i < len; i++) {
-			int start = holeIndices[i] * dim;
-			int end = i < len - 1 ? holeIndices[i + 1] * dim : data.length;
-			Node list = linkedList(data, start, end, dim, false);
-			if (list == list.next)
-				list.steiner = true;
-			queue.add(getLeftmost(list));
-		}
-
-		queue.sort(new Comparator<Node>() {
-
-			@Override
-			public int compare(Node o1, Node o2) {
-				if (o1.x - o2.x > 0)
-					return 1;
-				else if (o1.x - o2.x < 0)
-					return -2;
-				return 0;
-			}
-		});
-
-		for (Node node : queue) {
-			eliminateHole(node, outerNode);
-			outerNode = filterPoints(outerNode, outerNode.next);
-		}
-
-		return outerNode;
-	}
-
 	private static Node filterPoints(Node start, Node end) {
 		if (start == null)
 			return start;
@@ -468,35 +658,6 @@ public final class PolygonTriangulation {
 		return (q.y - p.y) * (r.x - q.x) - (q.x - p.x) * (r.y - q.y);
 	}
 
-	private static void eliminateHole(Node hole, Node outerNode) {
-		outerNode = findHoleBridge(hole, outerNode);
-		if (outerNode != null) {
-			Node b = splitPolygon(outerNode, hole);
-			filterPoints(b, b.next);
-		}
-	}
-
-	private static Node splitPolygon(Node a, Node b) {
-		Node a2 = new Node(a.i, a.x, a.y);
-		Node b2 = new Node(b.i, b.x, b.y);
-		Node an = a.next;
-		Node bp = b.prev;
-
-		a.next = b;
-		b.prev = a;
-
-		a2.next = an;
-		an.prev = a2;
-
-		b2.next = a2;
-		a2.prev = b2;
-
-		bp.next = b2;
-		b2.prev = bp;
-
-		return b2;
-	}
-
 	// David Eberly's algorithm for finding a bridge between hole and outer
 	// polygon
 	private static Node findHoleBridge(Node hole, Node outerNode) {
@@ -586,25 +747,6 @@ public final class PolygonTriangulation {
 		return leftmost;
 	}
 
-	private static Node linkedList(float[] data, int start, int end, int dim, boolean clockwise) {
-		Node last = null;
-		if (clockwise == (signedArea(data, start, end, dim) > 0)) {
-			for (int i = start; i < end; i += dim) {
-				last = insertNode(i, data[i], data[i + 1], last);
-			}
-		} else {
-			for (int i = (end - dim); i >= start; i -= dim) {
-				last = insertNode(i, data[i], data[i + 1], last);
-			}
-		}
-
-		if (last != null && equals(last, last.next)) {
-			removeNode(last);
-			last = last.next;
-		}
-		return last;
-	}
-
 	private static void removeNode(Node p) {
 		p.next.prev = p.prev;
 		p.prev.next = p.next;
@@ -617,21 +759,6 @@ public final class PolygonTriangulation {
 		}
 	}
 
-	private static Node insertNode(int i, float x, float y, Node last) {
-		Node p = new Node(i, x, y);
-
-		if (last == null) {
-			p.prev = p;
-			p.next = p;
-		} else {
-			p.next = last.next;
-			p.prev = last;
-			last.next.prev = p;
-			last.next = p;
-		}
-		return p;
-	}
-
 	private static float signedArea(float[] data, int start, int end, int dim) {
 		float sum = 0;
 		int j = end - dim;
@@ -656,6 +783,10 @@ public final class PolygonTriangulation {
 		Node nextZ;
 
 		Node(int i, float x, float y) {
+			this.reset(i, x, y);
+		}
+
+		void reset(int i, float x, float y) {
 			// vertice index in coordinates array
 			this.i = i;
 
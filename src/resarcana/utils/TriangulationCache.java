@@ -0,0 +1,62 @@
+package resarcana.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Keeps the triangulations of polygons whose points move while their
+ * connectivity stays the same, e.g. the outline of a warped image
+ * <p>
+ * The triangulations are kept by the number of points per side of the outline
+ * and the class of what moves the points, e.g. the
+ * {@link resarcana.game.utils.animation.generator.WarpGenerator}. A kept
+ * triangulation is used again as long as it still fits the polygon: all of its
+ * triangles keep their orientation and together cover the area of the polygon.
+ * Otherwise the polygon is triangulated again. The first triangulation is the
+ * one of the unwarped outline: its triangles stay reasonably shaped under
+ * smooth warps, while the slivers along the straight sides of a warped outline
+ * flip as soon as the sides bend the other way.
+ * <p>
+ * Not thread-safe.
+ *
+ * @author Erik Wagner
+ *
+ */
+public class TriangulationCache {
+
+	private final HashMap<Class<?>, HashMap<Integer, int[]>> triangulations = new HashMap<Class<?>, HashMap<Integer, int[]>>();
+	private final PolygonTriangulation.Triangulator triangulator = new PolygonTriangulation.Triangulator();
+
+	/**
+	 * @param topology         the class of what moves the points of the polygon
+	 * @param numPointsPerSide the number of points per side of the polygon
+	 * @param source           the unwarped polygon, with the same points as
+	 *                         <code>polygon</code>
+	 * @param polygon          the polygon as flat array of vertice coordinates
+	 *                         like [x0,y0, x1,y1, x2,y2, ...]
+	 * @return groups of three vertice indices forming a triangle, must not be
+	 *         changed
+	 */
+	public int[] getTriangles(Class<?> topology, int numPointsPerSide, float[] source, float[] polygon) {
+		HashMap<Integer, int[]> byPoints = this.triangulations.get(topology);
+		if (byPoints == null) {
+			byPoints = new HashMap<Integer, int[]>();
+			this.triangulations.put(topology, byPoints);
+		}
+		int[] triangles = byPoints.get(numPointsPerSide);
+		if (triangles == null) {
+			triangles = this.triangulate(source);
+			byPoints.put(numPointsPerSide, triangles);
+		}
+		if (!PolygonTriangulation.fits(polygon, triangles)) {
+			triangles = this.triangulate(polygon);
+			byPoints.put(numPointsPerSide, triangles);
+		}
+		return triangles;
+	}
+
+	private int[] triangulate(float[] polygon) {
+		int count = this.triangulator.triangulate(polygon);
+		return Arrays.copyOf(this.triangulator.getTriangles(), count);
+	}
+}
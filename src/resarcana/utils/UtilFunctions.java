@@ -61,6 +61,46 @@ public class UtilFunctions {
 		return out;
 	}
 
+	/**
+	 * Parse a decimal number from a part of a text without copying the part, like
+	 * <code>Integer.parseInt(CharSequence, int, int, int)</code> of Java 9
+	 * 
+	 * @param text  the text
+	 * @param begin the start of the number, <b>inclusive</b>
+	 * @param end   the end of the number, <b>exclusive</b>
+	 * @return the number
+	 * @throws NumberFormatException if the part is no number or out of range
+	 */
+	public static int parseInt(CharSequence text, int begin, int end) {
+		int i = begin;
+		boolean negative = false;
+		if (i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+		if (i >= end) {
+			throw new NumberFormatException("No number in \"" + text.subSequence(begin, end) + "\"");
+		}
+		long result = 0;
+		for (; i < end; i++) {
+			int digit = Character.digit(text.charAt(i), 10);
+			if (digit < 0) {
+				throw new NumberFormatException("No number: \"" + text.subSequence(begin, end) + "\"");
+			}
+			result = result * 10 + digit;
+			if (result > Integer.MAX_VALUE + 1L) {
+				throw new NumberFormatException("Out of range: \"" + text.subSequence(begin, end) + "\"");
+			}
+		}
+		if (negative) {
+			return (int) -result;
+		}
+		if (result > Integer.MAX_VALUE) {
+			throw new NumberFormatException("Out of range: \"" + text.subSequence(begin, end) + "\"");
+		}
+		return (int) result;
+	}
+
 	/**
 	 * Get a range of numbers
 	 * 